@@ -1,5 +1,6 @@
 package org.icij.datashare;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -26,6 +27,29 @@ public class PipelineHelper {
         return stages.contains(stage);
     }
 
+    /**
+     * groups the pipeline stages that can be run concurrently. The stages of a group are connected
+     * with the pipeline queues and stop when they receive the POISON marker. Groups must be run one after another.
+     *
+     * @return the list of stage groups in execution order
+     */
+    public List<List<Stage>> getConcurrentStages() {
+        List<List<Stage>> groups = new ArrayList<>();
+        Stage previous = null;
+        for (Stage stage : stages) {
+            if (previous == null || !previous.hasStreamingOutput() || !stage.hasStreamingInput()) {
+                groups.add(new ArrayList<>());
+            }
+            groups.get(groups.size() - 1).add(stage);
+            previous = stage;
+        }
+        return groups;
+    }
+
+    public boolean hasNextStage(Stage stage) {
+        return stages.contains(stage) && stages.indexOf(stage) < stages.size() - 1;
+    }
+
     public String getQueueNameFor(Stage stage) {
         return stage.isFirstEnum() ? null: getQueueName(propertiesProvider, stage);
     }
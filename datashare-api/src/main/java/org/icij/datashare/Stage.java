@@ -5,19 +5,37 @@ import java.util.Locale;
 import java.util.Optional;
 
 public enum Stage {
-    SCAN(true),
-    SCANIDX(false),
-    DEDUPLICATE(false),
-    INDEX(true),
-    ENQUEUEIDX(false),
-    NLP(true),
-    ARTIFACT(false);
+    SCAN(true, true, true),
+    SCANIDX(false, true, false), // fills the report map read by INDEX
+    DEDUPLICATE(false, true, true), // deduplicates by batches with the set of seen paths
+    INDEX(true, true, true),
+    ENQUEUEIDX(false, false, true), // reads the index written by previous stages
+    NLP(true, true, true),
+    ARTIFACT(false, true, true);
 
     public static final Comparator<Stage> comparator = Comparator.comparing(Stage::ordinal);
     private final boolean isMainStage;
+    private final boolean streamingInput;
+    private final boolean streamingOutput;
 
-    Stage(boolean isMain) {
+    Stage(boolean isMain, boolean streamingInput, boolean streamingOutput) {
         isMainStage = isMain;
+        this.streamingInput = streamingInput;
+        this.streamingOutput = streamingOutput;
+    }
+
+    /**
+     * @return true if the stage can be started while the previous stage is still running
+     */
+    public boolean hasStreamingInput() {
+        return streamingInput;
+    }
+
+    /**
+     * @return true if the next stage can be started while this stage is still running
+     */
+    public boolean hasStreamingOutput() {
+        return streamingOutput;
     }
 
     public static Optional<Stage> parse(final String stage) {
@@ -18,6 +18,13 @@ import static org.icij.datashare.text.ProjectProxy.fromNameStringList;
 public interface BatchSearchRepository extends Closeable {
     boolean save(BatchSearch batchSearch);
     boolean saveResults(String batchSearchId, String query, List<Document> documents);
+
+    /**
+     * saves the results numbered from firstDocNb without updating the query and batch search results counters,
+     * so that they are updated once with {@link #addResultsCount(String, String, int)} when the query is done.
+     */
+    boolean appendResults(String batchSearchId, String query, List<Document> documents, int firstDocNb);
+    boolean addResultsCount(String batchSearchId, String query, int nbResults);
     boolean setState(String batchSearchId, BatchSearch.State state);
     boolean setState(String batchSearchId, SearchException error);
     boolean deleteAll(User user);
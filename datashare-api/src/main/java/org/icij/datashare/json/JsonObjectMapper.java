@@ -6,6 +6,7 @@ import com.fasterxml.jackson.core.StreamReadConstraints;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.jsontype.TypeResolverBuilder;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
@@ -97,6 +98,21 @@ public class JsonObjectMapper {
         return getObject(map, type);
     }
 
+    /**
+     * Same as {@link #getObject(String, String, Map, Class)} but reads the source tree already parsed by the
+     * elasticsearch client, without writing it back to a JSON string. The source is modified.
+     */
+    public static <T extends Entity> T getObject(String id, String projectId, ObjectNode source, Class<T> type) {
+        ObjectNode node = source == null ? MAPPER.createObjectNode() : source;
+        node.put("id", id);
+        node.put("projectId", projectId);
+        try {
+            return MAPPER.treeToValue(node, type);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot deserialize object " + id + " of type " + type.getSimpleName(), e);
+        }
+    }
+
     public static <T extends Entity> T getObject(Map<String, Object> source, Class<T> type) {
         try {
             return MAPPER.readValue(MAPPER.writeValueAsString(source), type);
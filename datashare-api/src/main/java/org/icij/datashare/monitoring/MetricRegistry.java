@@ -0,0 +1,226 @@
+package org.icij.datashare.monitoring;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Lightweight registry of counters, histograms and gauges, exported in the prometheus/openmetrics text format
+ * by the status endpoint.
+ * <p>
+ * Metrics are identified by their name and their labels (given as key/value pairs). Registering an existing metric
+ * returns it, so that components created for each task can get their metrics in their constructor. Registering a
+ * gauge again replaces its supplier.
+ * <p>
+ * Recording is lock free (adders) so that metrics can be updated from the indexing and NLP hot paths.
+ * <p>
+ * The registry is bound in the mode and injected in the components; the components that are not created by
+ * the injector are given the registry of the mode.
+ */
+public class MetricRegistry {
+    public static final double[] DEFAULT_DURATION_BUCKETS = {.005, .01, .025, .05, .1, .25, .5, 1, 2.5, 5, 10, 30, 60};
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, Type.COUNTER).metrics.computeIfAbsent(labels(labels), l -> new Counter());
+    }
+
+    public Histogram histogram(String name, String help, String... labels) {
+        return histogram(name, help, DEFAULT_DURATION_BUCKETS, labels);
+    }
+
+    public Histogram histogram(String name, String help, double[] buckets, String... labels) {
+        return (Histogram) family(name, help, Type.HISTOGRAM).metrics.computeIfAbsent(labels(labels), l -> new Histogram(buckets));
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).metrics.put(labels(labels), new Gauge(value));
+    }
+
+    public void remove(String name, String... labels) {
+        Family family = families.get(name);
+        if (family != null) {
+            family.metrics.remove(labels(labels));
+        }
+    }
+
+    /**
+     * @return the metrics in the prometheus text format (version 0.0.4)
+     */
+    public String toOpenMetrics() {
+        StringBuilder builder = new StringBuilder();
+        families.forEach((name, family) -> {
+            if (family.metrics.isEmpty()) {
+                return;
+            }
+            builder.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            builder.append("# TYPE ").append(name).append(' ').append(family.type.name().toLowerCase()).append('\n');
+            new ConcurrentSkipListMap<>(family.metrics).forEach((labels, metric) -> metric.write(builder, name, labels));
+        });
+        return builder.toString();
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, n -> new Family(type, help));
+        if (family.type != type) {
+            throw new IllegalArgumentException(name + " is already registered as " + family.type.name().toLowerCase());
+        }
+        return family;
+    }
+
+    private static String labels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("labels should be key/value pairs: " + Arrays.toString(labels));
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            builder.append(i == 0 ? "" : ",").append(labels[i]).append("=\"")
+                    .append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")).append('"');
+        }
+        return builder.toString();
+    }
+
+    private static String series(String name, String labels, String extraLabel) {
+        if (labels.isEmpty() && extraLabel.isEmpty()) {
+            return name;
+        }
+        return name + "{" + labels + (labels.isEmpty() || extraLabel.isEmpty() ? "" : ",") + extraLabel + "}";
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        } else if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return String.valueOf((long) value);
+        }
+        return String.valueOf(value);
+    }
+
+    private enum Type {COUNTER, GAUGE, HISTOGRAM}
+
+    private static class Family {
+        final Type type;
+        final String help;
+        final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+
+        Family(Type type, String help) {
+            this.type = type;
+            this.help = help;
+        }
+    }
+
+    private interface Metric {
+        void write(StringBuilder builder, String name, String labels);
+    }
+
+    public static class Counter implements Metric {
+        private final LongAdder value = new LongAdder();
+
+        public void inc() {
+            value.increment();
+        }
+
+        public void inc(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        @Override
+        public void write(StringBuilder builder, String name, String labels) {
+            builder.append(series(name, labels, "")).append(' ').append(get()).append('\n');
+        }
+    }
+
+    public static class Gauge implements Metric {
+        private final DoubleSupplier value;
+
+        Gauge(DoubleSupplier value) {
+            this.value = value;
+        }
+
+        public double get() {
+            try {
+                return value.getAsDouble();
+            } catch (RuntimeException e) {
+                return Double.NaN;
+            }
+        }
+
+        @Override
+        public void write(StringBuilder builder, String name, String labels) {
+            builder.append(series(name, labels, "")).append(' ').append(format(get())).append('\n');
+        }
+    }
+
+    public static class Histogram implements Metric {
+        private final double[] buckets;
+        private final LongAdder[] counts;
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        Histogram(double[] buckets) {
+            this.buckets = buckets.clone();
+            Arrays.sort(this.buckets);
+            this.counts = new LongAdder[this.buckets.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        public void observe(double value) {
+            int bucket = Arrays.binarySearch(buckets, value);
+            bucket = bucket < 0 ? -bucket - 1 : bucket;
+            if (bucket < counts.length) {
+                counts[bucket].increment();
+            }
+            count.increment();
+            sum.add(value);
+        }
+
+        /**
+         * observes a duration in seconds
+         */
+        public void observeNanos(long nanos) {
+            observe(nanos / (double) TimeUnit.SECONDS.toNanos(1));
+        }
+
+        /**
+         * observes the duration in seconds since startNanos (given by {@link System#nanoTime()})
+         */
+        public void observeSince(long startNanos) {
+            observeNanos(System.nanoTime() - startNanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getSum() {
+            return sum.sum();
+        }
+
+        @Override
+        public void write(StringBuilder builder, String name, String labels) {
+            long cumulated = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulated += counts[i].sum();
+                builder.append(series(name + "_bucket", labels, "le=\"" + format(buckets[i]) + "\"")).append(' ').append(cumulated).append('\n');
+            }
+            long total = Math.max(getCount(), cumulated);
+            builder.append(series(name + "_bucket", labels, "le=\"+Inf\"")).append(' ').append(total).append('\n');
+            builder.append(series(name + "_sum", labels, "")).append(' ').append(format(getSum())).append('\n');
+            builder.append(series(name + "_count", labels, "")).append(' ').append(total).append('\n');
+        }
+    }
+}
@@ -2,18 +2,27 @@ package org.icij.datashare.text;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 
 import static java.util.Arrays.stream;
 
-
+/**
+ * Message digests with hexadecimal output.
+ * <p>
+ * The {@link MessageDigest} instances used for strings and buffers are kept by thread (they are reset before each digest),
+ * so that hashing ids on the indexing hot paths doesn't look up the security providers each time. Streams are read
+ * once, even when they are hashed with several prefixes.
+ */
 public enum Hasher {
     MD5     (16),
     SHA_1   (40),
@@ -22,7 +31,10 @@ public enum Hasher {
     SHA_512 (128);
 
     public static final Charset DEFAULT_ENCODING = StandardCharsets.UTF_8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX_TABLE = hexTable();
     private final String algorithm;
+    private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(this::newDigest);
     public final int digestLength;
 
     Hasher(int digestLen) {
@@ -47,17 +59,17 @@ public enum Hasher {
         return hash(message, DEFAULT_ENCODING);
     }
 
-    static final String HEXES = "0123456789abcdef";
-
     public static String getHex(byte[] raw) {
         if (raw == null) {
             return null;
         }
-        final StringBuilder hex = new StringBuilder(2 * raw.length);
-        for (final byte b : raw) {
-            hex.append(HEXES.charAt((b & 0xF0) >> 4)).append(HEXES.charAt((b & 0x0F)));
+        final char[] hex = new char[2 * raw.length];
+        for (int i = 0; i < raw.length; i++) {
+            int index = (raw[i] & 0xFF) << 1;
+            hex[2 * i] = HEX_TABLE[index];
+            hex[2 * i + 1] = HEX_TABLE[index + 1];
         }
-        return hex.toString();
+        return new String(hex);
     }
 
     /**
@@ -72,13 +84,19 @@ public enum Hasher {
         if (message == null || message.isEmpty()) {
             return "";
         }
-        try {
-            MessageDigest digest = MessageDigest.getInstance(algorithm);
-            digest.update(message.getBytes(charset));
-            return getHex(digest.digest());
-        } catch (NoSuchAlgorithmException e) {
-            throw new IllegalArgumentException(e);
-        }
+        return getHex(digest().digest(message.getBytes(charset)));
+    }
+
+    /**
+     * Hash the remaining bytes of the buffer
+     *
+     * @param buffer the message to hash, its position is moved to its limit
+     * @return the corresponding hash code String
+     */
+    public String hash(ByteBuffer buffer) {
+        MessageDigest digest = digest();
+        digest.update(buffer);
+        return getHex(digest.digest());
     }
 
     /**
@@ -123,24 +141,54 @@ public enum Hasher {
     }
 
     private String hash(InputStream stream, String prefix) {
+        List<String> hashes = hash(stream, List.of(prefix));
+        return hashes.isEmpty() ? "" : hashes.get(0);
+    }
+
+    /**
+     * Hash the file content with several prefixes in one read, for example to find which of the legacy and
+     * current document digests (without/with the project name) gave a document id.
+     *
+     * @param filePath representing the message to hash
+     * @param prefixes prepended to the file content
+     * @return the hash code Strings in the order of the prefixes
+     */
+    public List<String> hash(final Path filePath, final List<String> prefixes) {
+        try (InputStream stream = Files.newInputStream(filePath)) {
+            return hash(stream, prefixes);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot hash document", e);
+        }
+    }
+
+    /**
+     * @return the hash code Strings in the order of the prefixes; empty if nothing to take from stream.
+     */
+    public List<String> hash(InputStream stream, List<String> prefixes) {
         try {
             if (stream == null || stream.available() == 0) {
-                return "";
+                return List.of();
+            }
+            // not the digest of the thread: reading the stream could hash with it
+            List<MessageDigest> digests = new ArrayList<>(prefixes.size());
+            for (String prefix : prefixes) {
+                MessageDigest digest = newDigest();
+                digest.update(prefix.getBytes());
+                digests.add(digest);
             }
-            MessageDigest digest = MessageDigest.getInstance(algorithm);
-            digest.update(prefix.getBytes());
-            byte[] buffer = new byte[4096];
-            while (true) {
-                int readCount = stream.read(buffer);
-                if (readCount < 0) {
-                    break;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int readCount;
+            while ((readCount = stream.read(buffer)) >= 0) {
+                for (MessageDigest digest : digests) {
+                    digest.update(buffer, 0, readCount);
                 }
-                digest.update(buffer, 0, readCount);
             }
-            byte[] hashedBytes = digest.digest();
-            return getHex(hashedBytes);
-
-        } catch (NoSuchAlgorithmException | IOException e) {
+            List<String> hashes = new ArrayList<>(digests.size());
+            for (MessageDigest digest : digests) {
+                hashes.add(getHex(digest.digest()));
+            }
+            return hashes;
+        } catch (IOException e) {
             throw new IllegalArgumentException(e);
         }
     }
@@ -167,12 +215,33 @@ public enum Hasher {
     }
 
     public byte[] hash(byte[] buffer) {
+        return digest().digest(buffer);
+    }
+
+    /**
+     * @return the digest of the current thread, reset
+     */
+    private MessageDigest digest() {
+        MessageDigest digest = digests.get();
+        digest.reset();
+        return digest;
+    }
+
+    private MessageDigest newDigest() {
         try {
-            MessageDigest digest = MessageDigest.getInstance(algorithm);
-            digest.update(buffer);
-            return digest.digest();
+            return MessageDigest.getInstance(algorithm);
         } catch (NoSuchAlgorithmException e) {
             throw new IllegalArgumentException(e);
         }
     }
+
+    private static char[] hexTable() {
+        final String hexes = "0123456789abcdef";
+        char[] table = new char[512];
+        for (int b = 0; b < 256; b++) {
+            table[2 * b] = hexes.charAt(b >> 4);
+            table[2 * b + 1] = hexes.charAt(b & 0x0F);
+        }
+        return table;
+    }
 }
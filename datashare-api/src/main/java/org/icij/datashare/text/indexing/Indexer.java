@@ -11,7 +11,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
 
@@ -29,6 +31,7 @@ public interface Indexer extends Closeable {
     void close() throws IOException;
 
     boolean bulkAdd(String indexName, Pipeline.Type nerType, List<NamedEntity> namedEntities, Document parent) throws IOException;
+    boolean bulkAdd(String indexName, Pipeline.Type nerType, Map<Document, List<NamedEntity>> namedEntitiesByParent) throws IOException;
     <T extends Entity> boolean bulkAdd(final String indexName, List<T> entities) throws IOException;
     <T extends Entity> boolean bulkUpdate(String indexName, List<T> entities) throws IOException;
     <T extends Entity> void add(String indexName, T obj) throws IOException;
@@ -39,8 +42,20 @@ public interface Indexer extends Closeable {
     <T extends Entity> T get(String indexName, String id, List<String> sourceExcludes);
     <T extends Entity> T get(String indexName, String id, String root);
     <T extends Entity> T get(String indexName, String id, String root, List<String> sourceExcludes);
+    <T extends Entity> T get(String indexName, String id, String root, List<String> sourceIncludes, List<String> sourceExcludes);
+    <T extends Entity> List<T> bulkGet(String indexName, List<String> ids);
+    <T extends Entity> List<T> bulkGet(String indexName, List<String> ids, List<String> sourceIncludes);
 
     String executeRaw(String method, String url, String body) throws IOException;
+    /**
+     * streams the body (that can be null and compressed with contentEncoding) to the index
+     * and returns the response content, that should be closed by the caller.
+     */
+    InputStream executeRaw(String method, String url, InputStream body, String contentEncoding) throws IOException;
+    /**
+     * @return a counter of the writes made by this process on the index, to invalidate the cached search results
+     */
+    long getGeneration(String indexName);
 
     // from Repository
     boolean tag(Project prj, String documentId, String rootDocument, Tag... tags) throws IOException;
@@ -57,12 +72,33 @@ public interface Indexer extends Closeable {
         Stream<? extends Entity> scroll(String duration) throws IOException;
         Stream<? extends Entity> scroll(String duration, String stringQuery) throws IOException;
         Stream<? extends Entity> scroll(ScrollQuery scrollQuery) throws IOException;
+        /**
+         * scrolls the ids of the documents without fetching their source
+         */
+        Stream<String> scrollIds(String duration) throws IOException;
+        Stream<String> scrollIds(ScrollQuery scrollQuery) throws IOException;
+        /**
+         * scrolls the hits decoded into the projection type. Its properties are read from the fetched source
+         * and the doc value fields, plus "id" and "projectId" (the index of the hit).
+         */
+        <T> Stream<T> scroll(ScrollQuery scrollQuery, Class<T> projection) throws IOException;
         Searcher withSource(String... fields);
         Searcher withoutSource(String... fields);
         Searcher withSource(boolean source);
+        Searcher withDocValueFields(String... fields);
         Searcher limit(int maxCount);
         void clearScroll() throws IOException;
         long totalHits();
+        /**
+         * counts the documents matching the query, before scrolling them
+         */
+        long count() throws IOException;
+        /**
+         * @return a token to resume the iteration after the last returned page with
+         * {@link ScrollQueryBuilder#withCheckpoint(String)}, or null if the iteration cannot be resumed
+         * (not started with {@link ScrollQueryBuilder#resumable()}, or the iteration is over)
+         */
+        String checkpoint();
         Searcher with(int fuzziness, boolean phraseMatches);
     }
 
@@ -81,11 +117,23 @@ public interface Indexer extends Closeable {
         private final int numSlice;
         private final int nbSlices;
         private final String stringQuery;
+        private final String checkpoint;
+        private final boolean resumable;
         public ScrollQuery(String duration, int numSlice, int nbSlices, String stringQuery) {
+            this(duration, numSlice, nbSlices, stringQuery, null);
+        }
+
+        public ScrollQuery(String duration, int numSlice, int nbSlices, String stringQuery, String checkpoint) {
+            this(duration, numSlice, nbSlices, stringQuery, checkpoint, checkpoint != null);
+        }
+
+        public ScrollQuery(String duration, int numSlice, int nbSlices, String stringQuery, String checkpoint, boolean resumable) {
             this.duration = duration;
             this.numSlice = numSlice;
             this.nbSlices = nbSlices;
             this.stringQuery = stringQuery;
+            this.checkpoint = checkpoint;
+            this.resumable = resumable || checkpoint != null;
         }
 
         public String getDuration() {
@@ -103,5 +151,13 @@ public interface Indexer extends Closeable {
         public String getStringQuery() {
             return stringQuery;
         }
+
+        public String getCheckpoint() {
+            return checkpoint;
+        }
+
+        public boolean isResumable() {
+            return resumable;
+        }
     }
 }
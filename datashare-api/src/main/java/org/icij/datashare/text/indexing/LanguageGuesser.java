@@ -2,6 +2,21 @@ package org.icij.datashare.text.indexing;
 
 import org.icij.datashare.text.Language;
 
+import java.util.List;
+
 public interface LanguageGuesser {
     Language guess(String text);
+
+    /**
+     * guesses the languages of the consecutive segments of a text, for mixed-language documents.
+     * By default, the whole text is one segment with the language of {@link #guess(String)}.
+     */
+    default List<Segment> guessSegments(String text) {
+        return List.of(new Segment(0, text.length(), guess(text)));
+    }
+
+    /**
+     * part of a text in one language, from start (inclusive) to end (exclusive)
+     */
+    record Segment(int start, int end, Language language) {}
 }
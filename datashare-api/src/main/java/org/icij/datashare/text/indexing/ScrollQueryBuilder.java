@@ -9,6 +9,8 @@ public class ScrollQueryBuilder {
     public int numSlice;
     public int nbSlices;
     public String stringQuery;
+    public String checkpoint;
+    public boolean resumable;
 
     private ScrollQueryBuilder(){
     }
@@ -31,7 +33,21 @@ public class ScrollQueryBuilder {
         return this;
     }
 
+    public ScrollQueryBuilder withCheckpoint(String checkpoint){
+        this.checkpoint = checkpoint;
+        return this;
+    }
+
+    /**
+     * the searcher gives a checkpoint after each page (see {@link Indexer.Searcher#checkpoint()}),
+     * at the cost of sorting the results.
+     */
+    public ScrollQueryBuilder resumable(){
+        this.resumable = true;
+        return this;
+    }
+
     public ScrollQuery build() {
-        return new ScrollQuery(duration, numSlice, nbSlices, stringQuery);
+        return new ScrollQuery(duration, numSlice, nbSlices, stringQuery, checkpoint, resumable);
     }
 }
@@ -5,6 +5,7 @@ import org.junit.Test;
 import java.util.HashMap;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.fest.assertions.Assertions.assertThat;
 
 public class PipelineHelperTest {
@@ -67,4 +68,36 @@ public class PipelineHelperTest {
     public void test_get_queue_name_when_no_stage_is_provided_like_in_web_mode() {
         assertThat(new PipelineHelper(new PropertiesProvider(new HashMap<>() )).getQueueNameFor(Stage.NLP)).isEqualTo("extract:queue:nlp");
     }
+
+    @Test
+    public void test_get_concurrent_stages_streaming_pipeline() {
+        assertThat(new PipelineHelper(new PropertiesProvider(new HashMap<>() {{
+            put("stages", "SCAN,INDEX,NLP,ARTIFACT");
+        }})).getConcurrentStages()).isEqualTo(singletonList(asList(Stage.SCAN, Stage.INDEX, Stage.NLP, Stage.ARTIFACT)));
+    }
+
+    @Test
+    public void test_get_concurrent_stages_with_stages_needing_whole_input() {
+        assertThat(new PipelineHelper(new PropertiesProvider(new HashMap<>() {{
+            put("stages", "SCAN,DEDUPLICATE,INDEX,ENQUEUEIDX,NLP");
+        }})).getConcurrentStages()).isEqualTo(asList(
+                asList(Stage.SCAN, Stage.DEDUPLICATE, Stage.INDEX), asList(Stage.ENQUEUEIDX, Stage.NLP)));
+    }
+
+    @Test
+    public void test_get_concurrent_stages_with_scan_index() {
+        assertThat(new PipelineHelper(new PropertiesProvider(new HashMap<>() {{
+            put("stages", "SCANIDX,INDEX");
+        }})).getConcurrentStages()).isEqualTo(asList(singletonList(Stage.SCANIDX), singletonList(Stage.INDEX)));
+    }
+
+    @Test
+    public void test_has_next_stage() {
+        PipelineHelper pipelineHelper = new PipelineHelper(new PropertiesProvider(new HashMap<>() {{
+            put("stages", "INDEX,NLP");
+        }}));
+        assertThat(pipelineHelper.hasNextStage(Stage.INDEX)).isTrue();
+        assertThat(pipelineHelper.hasNextStage(Stage.NLP)).isFalse();
+        assertThat(pipelineHelper.hasNextStage(Stage.ARTIFACT)).isFalse();
+    }
 }
@@ -5,10 +5,16 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.StreamReadConstraints;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.icij.datashare.text.Document;
+import org.icij.datashare.text.Language;
 import org.junit.Test;
 
+import java.util.Map;
+
 import static org.fest.assertions.Assertions.assertThat;
 import static org.icij.datashare.json.JsonObjectMapper.*;
+import static org.icij.datashare.text.DocumentBuilder.createDoc;
 
 public class JsonObjectMapperTest {
     @Test
@@ -44,6 +50,30 @@ public class JsonObjectMapperTest {
         assertThat(streamReadConstraints.getMaxStringLength()).isEqualTo(MAX_STRING_LENGTH);
     }
 
+    @Test
+    public void test_get_object_from_source_tree() {
+        Document document = createDoc("docId").with("content").with(Language.FRENCH).with(Map.of("key", "value")).build();
+        ObjectNode source = MAPPER.valueToTree(getJson(document));
+
+        Document fromTree = getObject("docId", "prj", source, Document.class);
+
+        Document fromMap = getObject("docId", "prj", getJson(document), Document.class);
+        assertThat(fromTree.getId()).isEqualTo(fromMap.getId());
+        assertThat(fromTree.getProjectId()).isEqualTo("prj");
+        assertThat(fromTree.getContent()).isEqualTo("content");
+        assertThat(fromTree.getLanguage()).isEqualTo(Language.FRENCH);
+        assertThat(fromTree.getMetadata()).isEqualTo(fromMap.getMetadata());
+        assertThat(fromTree.getPath().toString()).isEqualTo(fromMap.getPath().toString());
+    }
+
+    @Test
+    public void test_get_object_without_source_tree() {
+        Document document = getObject("docId", "prj", (ObjectNode) null, Document.class);
+
+        assertThat(document.getId()).isEqualTo("docId");
+        assertThat(document.getContent()).isEmpty();
+    }
+
 
     static class ExceptionWrapper {
         private final Throwable throwable;
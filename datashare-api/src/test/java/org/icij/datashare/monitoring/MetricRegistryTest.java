@@ -0,0 +1,87 @@
+package org.icij.datashare.monitoring;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MetricRegistryTest {
+    private final MetricRegistry registry = new MetricRegistry();
+
+    @Test
+    public void test_empty_registry() {
+        assertThat(registry.toOpenMetrics()).isEmpty();
+    }
+
+    @Test
+    public void test_counter() {
+        registry.counter("datashare_documents_total", "Documents").inc();
+        registry.counter("datashare_documents_total", "Documents").inc(2);
+
+        assertThat(registry.counter("datashare_documents_total", "Documents").get()).isEqualTo(3);
+        assertThat(registry.toOpenMetrics()).isEqualTo("" +
+                "# HELP datashare_documents_total Documents\n" +
+                "# TYPE datashare_documents_total counter\n" +
+                "datashare_documents_total 3\n");
+    }
+
+    @Test
+    public void test_counters_with_labels() {
+        registry.counter("datashare_tasks_total", "Tasks", "name", "Index", "status", "DONE").inc();
+        registry.counter("datashare_tasks_total", "Tasks", "name", "Scan \"quoted\"", "status", "ERROR").inc(2);
+
+        assertThat(registry.toOpenMetrics()).isEqualTo("" +
+                "# HELP datashare_tasks_total Tasks\n" +
+                "# TYPE datashare_tasks_total counter\n" +
+                "datashare_tasks_total{name=\"Index\",status=\"DONE\"} 1\n" +
+                "datashare_tasks_total{name=\"Scan \\\"quoted\\\"\",status=\"ERROR\"} 2\n");
+    }
+
+    @Test
+    public void test_gauge() {
+        registry.gauge("datashare_queue_size", "Queue size", () -> 12, "queue", "nlp");
+        registry.gauge("datashare_queue_size", "Queue size", () -> { throw new IllegalStateException("closed"); }, "queue", "index");
+
+        assertThat(registry.toOpenMetrics()).isEqualTo("" +
+                "# HELP datashare_queue_size Queue size\n" +
+                "# TYPE datashare_queue_size gauge\n" +
+                "datashare_queue_size{queue=\"index\"} NaN\n" +
+                "datashare_queue_size{queue=\"nlp\"} 12\n");
+    }
+
+    @Test
+    public void test_remove_gauge() {
+        registry.gauge("datashare_queue_size", "Queue size", () -> 12, "queue", "nlp");
+        registry.remove("datashare_queue_size", "queue", "nlp");
+        assertThat(registry.toOpenMetrics()).isEmpty();
+    }
+
+    @Test
+    public void test_histogram() {
+        MetricRegistry.Histogram histogram = registry.histogram("datashare_bulk_duration_seconds", "Bulk duration", new double[]{0.1, 1}, "index", "local");
+        histogram.observe(0.05);
+        histogram.observe(0.1);
+        histogram.observe(0.5);
+        histogram.observeNanos(2_000_000_000L);
+
+        assertThat(histogram.getCount()).isEqualTo(4);
+        assertThat(registry.toOpenMetrics()).isEqualTo("" +
+                "# HELP datashare_bulk_duration_seconds Bulk duration\n" +
+                "# TYPE datashare_bulk_duration_seconds histogram\n" +
+                "datashare_bulk_duration_seconds_bucket{index=\"local\",le=\"0.1\"} 2\n" +
+                "datashare_bulk_duration_seconds_bucket{index=\"local\",le=\"1\"} 3\n" +
+                "datashare_bulk_duration_seconds_bucket{index=\"local\",le=\"+Inf\"} 4\n" +
+                "datashare_bulk_duration_seconds_sum{index=\"local\"} 2.65\n" +
+                "datashare_bulk_duration_seconds_count{index=\"local\"} 4\n");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_register_with_another_type() {
+        registry.counter("datashare_metric", "metric");
+        registry.gauge("datashare_metric", "metric", () -> 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_labels_should_be_pairs() {
+        registry.counter("datashare_metric", "metric", "label");
+    }
+}
@@ -3,8 +3,16 @@ package org.icij.datashare.text.hashing;
 import org.icij.datashare.text.Hasher;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.fest.assertions.Assertions.assertThat;
 import static org.icij.datashare.text.Hasher.SHA_256;
 import static org.icij.datashare.text.Hasher.SHA_384;
@@ -54,6 +62,40 @@ public class HasherTest {
                 isEqualTo(Hasher.SHA_1.hash("prefixtest"));
     }
 
+    @Test
+    public void test_hash_byte_buffer() {
+        assertThat(Hasher.SHA_1.hash(ByteBuffer.wrap(text.getBytes(UTF_8)))).isEqualTo(Hasher.SHA_1.hash(text));
+        assertThat(Hasher.SHA_1.hash(ByteBuffer.wrap(text.getBytes(UTF_8)).asReadOnlyBuffer())).isEqualTo(Hasher.SHA_1.hash(text));
+    }
+
+    @Test
+    public void test_hash_file_with_several_prefixes() {
+        assertThat(Hasher.SHA_256.hash(Paths.get(getClass().getResource("/sampleFile.txt").getPath()), List.of("", "prefix", "other"))).
+                containsExactly(SHA_256.hash("test"), SHA_256.hash("prefixtest"), SHA_256.hash("othertest"));
+    }
+
+    @Test
+    public void test_hash_empty_stream_with_several_prefixes() {
+        assertThat(Hasher.SHA_256.hash(new ByteArrayInputStream(new byte[0]), List.of("", "prefix"))).isEmpty();
+        assertThat(Hasher.SHA_256.hash(new ByteArrayInputStream(new byte[0]))).isEqualTo("");
+    }
+
+    @Test
+    public void test_get_hex() {
+        assertThat(Hasher.getHex(new byte[] {0, 1, 15, 16, 127, -128, -1})).isEqualTo("00010f107f80ff");
+        assertThat(Hasher.getHex(null)).isNull();
+    }
+
+    @Test
+    public void test_hash_concurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<String>> hashes = executor.invokeAll(Collections.nCopies(100, () -> SHA_256.hash(text)));
+        executor.shutdown();
+        for (Future<String> hash : hashes) {
+            assertThat(hash.get()).isEqualTo("6c93551b9465d43b2363e5d6b6a6ebf4467ff0032784223acf4d359cd809dd85");
+        }
+    }
+
     @Test
     public void test_get_hasher_from_length() {
         assertThat(Hasher.valueOf(64)).isEqualTo(SHA_256);
@@ -3,19 +3,33 @@ package org.icij.datashare;
 import org.icij.datashare.asynctasks.TaskFactory;
 import org.icij.datashare.asynctasks.TaskWorkerLoop;
 import org.icij.datashare.asynctasks.TaskSupplier;
+import org.icij.datashare.com.redis.RedissonClientProvider;
 import org.icij.datashare.mode.CommonMode;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.text.indexing.Indexer;
-import org.redisson.api.RedissonClient;
 
 import java.util.Properties;
 
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_TASK_PROGRESS_INTERVAL;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_TASK_WORKERS;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_TASK_WORKERS_BUDGETS;
+import static org.icij.datashare.cli.DatashareCliOptions.TASK_PROGRESS_INTERVAL_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.TASK_WORKERS_BUDGETS_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.TASK_WORKERS_OPT;
+
 
 public class BatchDownloadApp {
     public static void start(Properties properties) throws Exception {
         CommonMode commonMode = CommonMode.create(properties);
-        TaskWorkerLoop taskWorkerLoop = new TaskWorkerLoop(commonMode.get(TaskFactory.class), commonMode.get(TaskSupplier.class));
+        PropertiesProvider propertiesProvider = commonMode.get(PropertiesProvider.class);
+        TaskWorkerLoop taskWorkerLoop = new TaskWorkerLoop(commonMode.get(TaskFactory.class), commonMode.get(TaskSupplier.class),
+                propertiesProvider.get(TASK_WORKERS_OPT).map(Integer::parseInt).orElse(DEFAULT_TASK_WORKERS),
+                TaskWorkerLoop.parseBudgets(propertiesProvider.get(TASK_WORKERS_BUDGETS_OPT).orElse(DEFAULT_TASK_WORKERS_BUDGETS)),
+                propertiesProvider.get(TASK_PROGRESS_INTERVAL_OPT).map(Integer::parseInt).orElse(DEFAULT_TASK_PROGRESS_INTERVAL),
+                commonMode.get(MetricRegistry.class));
         taskWorkerLoop.call();
+        taskWorkerLoop.close();
         commonMode.get(Indexer.class).close();
-        commonMode.get(RedissonClient.class).shutdown();
+        commonMode.get(RedissonClientProvider.class).close();
     }
 }
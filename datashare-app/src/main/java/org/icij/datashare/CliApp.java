@@ -1,9 +1,9 @@
 package org.icij.datashare;
 
-import com.google.inject.ConfigurationException;
 import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.cli.CliExtensionService;
 import org.icij.datashare.cli.spi.CliExtension;
+import org.icij.datashare.com.redis.RedissonClientProvider;
 import org.icij.datashare.mode.CommonMode;
 import org.icij.datashare.tasks.ArtifactTask;
 import org.icij.datashare.tasks.DeduplicateTask;
@@ -15,15 +15,21 @@ import org.icij.datashare.tasks.ScanTask;
 import org.icij.datashare.tasks.DatashareTaskFactory;
 import org.icij.datashare.tasks.TaskManagerMemory;
 import org.icij.datashare.text.indexing.Indexer;
-import org.redisson.api.RedissonClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
-import static java.util.Optional.ofNullable;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.icij.datashare.PropertiesProvider.propertiesToMap;
 import static org.icij.datashare.cli.DatashareCliOptions.CREATE_INDEX_OPT;
@@ -70,13 +76,6 @@ class CliApp {
         TaskManagerMemory taskManager = mode.get(TaskManagerMemory.class);
         DatashareTaskFactory taskFactory = mode.get(DatashareTaskFactory.class);
         Indexer indexer = mode.get(Indexer.class);
-        RedissonClient redissonClient;
-        try {
-            redissonClient = mode.get(RedissonClient.class);
-        } catch (ConfigurationException ce) {
-            logger.debug("no redisson client found, set up to null");
-            redissonClient = null;
-        }
 
         if (properties.getProperty(CREATE_INDEX_OPT) != null) {
             indexer.createIndex(properties.getProperty(CREATE_INDEX_OPT));
@@ -109,54 +108,68 @@ class CliApp {
 
         PipelineHelper pipeline = new PipelineHelper(new PropertiesProvider(properties));
         logger.info("executing {}", pipeline);
-        if (pipeline.has(Stage.DEDUPLICATE)) {
-            Long result = taskFactory.createDeduplicateTask(
-                    new Task<>(DeduplicateTask.class.getName(), nullUser(), propertiesToMap(properties)),
-                    (percentage) -> {logger.info("percentage: {}% done", percentage);return null;}).call();
-            logger.info("removed {} duplicates", result);
-        }
-
-        if (pipeline.has(Stage.SCANIDX)) {
-            Long result = taskFactory.createScanIndexTask(
-                    new Task<>(ScanIndexTask.class.getName(), nullUser(), propertiesToMap(properties)),
-                    (percentage) -> {logger.info("percentage: {}% done", percentage);return null;}).call();
-            logger.info("scanned {}", result);
-        }
-
-        if (pipeline.has(Stage.SCAN)) {
-            taskFactory.createScanTask(
-                    new Task<>(ScanTask.class.getName(), nullUser(), propertiesToMap(properties)),
-                    (percentage) -> {logger.info("percentage: {}% done", percentage); return null;}).call();
-        }
-
-        if (pipeline.has(Stage.INDEX)) {
-            taskFactory.createIndexTask(
-                    new Task<>(IndexTask.class.getName(), nullUser(), propertiesToMap(properties)),
-                    (percentage) -> {logger.info("percentage: {}% done", percentage); return null;}).call();
-        }
-
-        if (pipeline.has(Stage.ENQUEUEIDX)) {
-            taskFactory.createEnqueueFromIndexTask(
-                    new Task<>(EnqueueFromIndexTask.class.getName(), nullUser(), propertiesToMap(properties)),
-                    (percentage) -> {logger.info("percentage: {}% done", percentage); return null;}).call();
+        for (List<Stage> concurrentStages : pipeline.getConcurrentStages()) {
+            runConcurrently(concurrentStages, taskFactory, properties);
         }
+        taskManager.shutdownAndAwaitTermination(Integer.MAX_VALUE, SECONDS);
+        indexer.close();
+        mode.get(RedissonClientProvider.class).close();
+    }
 
-        if (pipeline.has(Stage.NLP)) {
-            taskFactory.createExtractNlpTask(
-                    new Task<>(ExtractNlpTask.class.getName(), nullUser(), propertiesToMap(properties)),
-                    (percentage) -> {logger.info("percentage: {}% done", percentage); return null;}).call();
+    /**
+     * starts all the stages at once. They are connected through the pipeline queues
+     * and each of them returns when it reads the POISON marker put by the previous one.
+     */
+    private static void runConcurrently(List<Stage> stages, DatashareTaskFactory taskFactory, Properties properties) throws Exception {
+        logger.info("running stage(s) {} concurrently", stages);
+        ExecutorService executor = Executors.newFixedThreadPool(stages.size());
+        try {
+            Map<Stage, Future<Long>> futures = new LinkedHashMap<>();
+            for (Stage stage : stages) {
+                Callable<Long> task = createStageTask(stage, taskFactory, properties);
+                futures.put(stage, executor.submit(task));
+            }
+            for (Map.Entry<Stage, Future<Long>> stageFuture : futures.entrySet()) {
+                try {
+                    Long result = stageFuture.getValue().get();
+                    logger.info("stage {} done: {}", stageFuture.getKey(), result);
+                } catch (ExecutionException e) {
+                    logger.error("stage {} failed, cancelling {}", stageFuture.getKey(), stages, e.getCause());
+                    futures.values().forEach(f -> f.cancel(true));
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
         }
+    }
 
-        if (pipeline.has(Stage.ARTIFACT)) {
-            taskFactory.createArtifactTask(
-                    new Task<>(ArtifactTask.class.getName(), nullUser(), propertiesToMap(properties)),
-                    (percentage) -> {logger.info("percentage: {}% done", percentage); return null;}).call();
+    private static Callable<Long> createStageTask(Stage stage, DatashareTaskFactory taskFactory, Properties properties) {
+        Function<Double, Void> updateCallback = (percentage) -> {logger.info("{} percentage: {}% done", stage, percentage); return null;};
+        switch (stage) {
+            case DEDUPLICATE:
+                return taskFactory.createDeduplicateTask(
+                        new Task<>(DeduplicateTask.class.getName(), nullUser(), propertiesToMap(properties)), updateCallback);
+            case SCANIDX:
+                return taskFactory.createScanIndexTask(
+                        new Task<>(ScanIndexTask.class.getName(), nullUser(), propertiesToMap(properties)), updateCallback);
+            case SCAN:
+                return taskFactory.createScanTask(
+                        new Task<>(ScanTask.class.getName(), nullUser(), propertiesToMap(properties)), updateCallback);
+            case INDEX:
+                return taskFactory.createIndexTask(
+                        new Task<>(IndexTask.class.getName(), nullUser(), propertiesToMap(properties)), updateCallback);
+            case ENQUEUEIDX:
+                return taskFactory.createEnqueueFromIndexTask(
+                        new Task<>(EnqueueFromIndexTask.class.getName(), nullUser(), propertiesToMap(properties)), updateCallback);
+            case NLP:
+                return taskFactory.createExtractNlpTask(
+                        new Task<>(ExtractNlpTask.class.getName(), nullUser(), propertiesToMap(properties)), updateCallback);
+            case ARTIFACT:
+                return taskFactory.createArtifactTask(
+                        new Task<>(ArtifactTask.class.getName(), nullUser(), propertiesToMap(properties)), updateCallback);
+            default:
+                throw new IllegalArgumentException("unknown stage " + stage);
         }
-        taskManager.shutdownAndAwaitTermination(Integer.MAX_VALUE, SECONDS);
-        indexer.close();
-        ofNullable(redissonClient).ifPresent(r -> {
-            logger.info("shutting down RedissonClient");
-            r.shutdown();
-        });
     }
 }
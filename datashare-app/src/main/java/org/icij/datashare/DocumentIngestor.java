@@ -3,6 +3,7 @@ package org.icij.datashare;
 import joptsimple.AbstractOptionSpec;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.DocumentBuilder;
 import org.icij.datashare.text.Hasher;
@@ -40,7 +41,7 @@ public class DocumentIngestor {
         PropertiesProvider propertiesProvider = new PropertiesProvider(new HashMap<>() {{
             put(INDEX_ADDRESS_PROP, elasticsearchUrl);
         }});
-        Indexer indexer = new ElasticsearchIndexer(ElasticsearchConfiguration.createESClient(propertiesProvider), propertiesProvider);
+        Indexer indexer = new ElasticsearchIndexer(ElasticsearchConfiguration.createESClient(propertiesProvider), propertiesProvider, new MetricRegistry());
 
         logger.info("ingest {} documents in elasticsearch {} with bulk of {} and {} threads", nbDocuments, elasticsearchUrl, bulkSize, nbThreads);
         executorService = Executors.newFixedThreadPool(nbThreads);
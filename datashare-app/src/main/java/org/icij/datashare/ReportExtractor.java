@@ -1,8 +1,7 @@
 package org.icij.datashare;
 
+import org.icij.datashare.com.redis.RedissonClientProvider;
 import org.icij.datashare.extract.RedisUserReportMap;
-import org.icij.extract.redis.RedissonClientFactory;
-import org.icij.task.Options;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,8 +21,8 @@ public class ReportExtractor {
         PropertiesProvider propertiesProvider = new PropertiesProvider(new HashMap<>() {{
             put("redisAddress", args[0]);
         }});
-        try (RedisUserReportMap reportMap = new RedisUserReportMap(propertiesProvider,
-                new RedissonClientFactory().withOptions(Options.from(propertiesProvider.getProperties())).create(), args[1])) {
+        RedissonClientProvider redissonClientProvider = new RedissonClientProvider(propertiesProvider);
+        try (RedisUserReportMap reportMap = new RedisUserReportMap(propertiesProvider, redissonClientProvider.get(), args[1])) {
             reportMap.forEach((path, report) -> {
                 if (report.getException().isPresent()) {
                     StringWriter sw = new StringWriter();
@@ -32,6 +31,8 @@ public class ReportExtractor {
                     logger.info("\"{}\" \"{}\"", path, sw.toString().replace("\n", "|"));
                 }
             });
+        } finally {
+            redissonClientProvider.close();
         }
     }
 }
@@ -2,21 +2,34 @@ package org.icij.datashare;
 
 import org.icij.datashare.asynctasks.TaskWorkerLoop;
 import org.icij.datashare.asynctasks.TaskSupplier;
+import org.icij.datashare.com.redis.RedissonClientProvider;
 import org.icij.datashare.mode.CommonMode;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.tasks.DatashareTaskFactory;
 import org.icij.datashare.text.indexing.Indexer;
-import org.redisson.api.RedissonClient;
 
 import java.util.Properties;
 
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_TASK_PROGRESS_INTERVAL;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_TASK_WORKERS;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_TASK_WORKERS_BUDGETS;
+import static org.icij.datashare.cli.DatashareCliOptions.TASK_PROGRESS_INTERVAL_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.TASK_WORKERS_BUDGETS_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.TASK_WORKERS_OPT;
+
 
 public class TaskWorkerApp {
     public static void start(Properties properties) throws Exception {
         CommonMode mode = CommonMode.create(properties);
-        TaskWorkerLoop batchSearchLoop = new TaskWorkerLoop(mode.get(DatashareTaskFactory.class), mode.get(TaskSupplier.class));
+        PropertiesProvider propertiesProvider = mode.get(PropertiesProvider.class);
+        TaskWorkerLoop batchSearchLoop = new TaskWorkerLoop(mode.get(DatashareTaskFactory.class), mode.get(TaskSupplier.class),
+                propertiesProvider.get(TASK_WORKERS_OPT).map(Integer::parseInt).orElse(DEFAULT_TASK_WORKERS),
+                TaskWorkerLoop.parseBudgets(propertiesProvider.get(TASK_WORKERS_BUDGETS_OPT).orElse(DEFAULT_TASK_WORKERS_BUDGETS)),
+                propertiesProvider.get(TASK_PROGRESS_INTERVAL_OPT).map(Integer::parseInt).orElse(DEFAULT_TASK_PROGRESS_INTERVAL),
+                mode.get(MetricRegistry.class));
         batchSearchLoop.call();
         batchSearchLoop.close();
         mode.get(Indexer.class).close();// to avoid being blocked
-        mode.get(RedissonClient.class).shutdown();
+        mode.get(RedissonClientProvider.class).close();
     }
 }
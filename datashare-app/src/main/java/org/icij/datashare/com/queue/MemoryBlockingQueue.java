@@ -1,8 +1,8 @@
 package org.icij.datashare.com.queue;
 
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
 
-public class MemoryBlockingQueue<T> extends LinkedBlockingQueue<T> {
+public class MemoryBlockingQueue<T> extends LinkedBlockingDeque<T> {
     public final String queueName;
     public MemoryBlockingQueue(String queueName) { this.queueName = queueName; }
 }
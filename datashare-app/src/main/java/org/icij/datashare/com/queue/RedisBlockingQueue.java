@@ -3,14 +3,14 @@ package org.icij.datashare.com.queue;
 import java.io.Closeable;
 import java.util.concurrent.TimeUnit;
 import org.redisson.Redisson;
-import org.redisson.RedissonBlockingQueue;
+import org.redisson.RedissonBlockingDeque;
 import org.redisson.api.RedissonClient;
 import org.redisson.client.codec.BaseCodec;
 import org.redisson.codec.JsonJacksonCodec;
 import org.redisson.command.CommandSyncService;
 import org.redisson.liveobject.core.RedissonObjectBuilder;
 
-public class RedisBlockingQueue<T> extends RedissonBlockingQueue<T> implements Closeable {
+public class RedisBlockingQueue<T> extends RedissonBlockingDeque<T> implements Closeable {
     private final RedissonClient redissonClient;
 
     public RedisBlockingQueue(RedissonClient redissonClient, String queueName) {
@@ -0,0 +1,116 @@
+package org.icij.datashare.com.redis;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import org.icij.datashare.PropertiesProvider;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import org.redisson.config.SingleServerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.util.Optional;
+
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_REDIS_ADDRESS;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_REDIS_POOL_SIZE;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_REDIS_TIMEOUT;
+import static org.icij.datashare.cli.DatashareCliOptions.REDIS_ADDRESS_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.REDIS_POOL_SIZE_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.REDIS_TIMEOUT_OPT;
+
+/**
+ * Reference counted redisson client of a mode.
+ * <p>
+ * Each redisson client has its own connection pools and netty/executor threads, so the redis backed
+ * components (queues, maps, task managers, sessions) share the client bound in the mode instead of creating one.
+ * They {@link #acquire()} it when they are created and {@link #release()} it when they are closed: the client is
+ * created by the first acquire and shut down with the last release. The client injected by guice ({@link #get()})
+ * is the one of the mode, released by {@link #close()} when the mode shuts down.
+ * <p>
+ * The command pool is sized with <code>redisPoolSize</code>, the netty threads are proportional to it.
+ */
+@Singleton
+public class RedissonClientProvider implements Provider<RedissonClient>, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(RedissonClientProvider.class);
+    private final PropertiesProvider propertiesProvider;
+    private RedissonClient client;
+    private int references;
+    private boolean acquiredByMode;
+
+    @Inject
+    public RedissonClientProvider(PropertiesProvider propertiesProvider) {
+        this.propertiesProvider = propertiesProvider;
+    }
+
+    public synchronized RedissonClient acquire() {
+        if (client == null) {
+            String address = propertiesProvider.get(REDIS_ADDRESS_OPT).orElse(DEFAULT_REDIS_ADDRESS);
+            logger.info("creating redisson client for {}", URI.create(address).getHost());
+            client = Redisson.create(createConfig(propertiesProvider, address));
+        }
+        references++;
+        return client;
+    }
+
+    /**
+     * releases a reference given by {@link #acquire()}. The client is shut down when the last reference is released.
+     */
+    public synchronized void release() {
+        if (references > 0 && --references == 0) {
+            logger.info("shutting down redisson client");
+            client.shutdown();
+            client = null;
+        }
+    }
+
+    @Override
+    public synchronized RedissonClient get() {
+        if (!acquiredByMode) {
+            acquiredByMode = true;
+            return acquire();
+        }
+        return client;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (acquiredByMode) {
+            acquiredByMode = false;
+            release();
+        }
+    }
+
+    synchronized int references() {
+        return references;
+    }
+
+    static Config createConfig(PropertiesProvider propertiesProvider, String address) {
+        int poolSize = propertiesProvider.get(REDIS_POOL_SIZE_OPT).map(Integer::parseInt).orElse(DEFAULT_REDIS_POOL_SIZE);
+        int timeout = propertiesProvider.get(REDIS_TIMEOUT_OPT).map(Integer::parseInt).orElse(DEFAULT_REDIS_TIMEOUT);
+        Config config = new Config()
+                .setNettyThreads(2 * poolSize)
+                .setThreads(poolSize);
+        SingleServerConfig serverConfig = config.useSingleServer()
+                .setAddress(address)
+                .setConnectionPoolSize(poolSize)
+                .setConnectionMinimumIdleSize(Math.min(poolSize, 2))
+                .setSubscriptionConnectionPoolSize(Math.min(poolSize, 10))
+                .setSubscriptionConnectionMinimumIdleSize(1)
+                .setTimeout(timeout);
+        password(address).ifPresent(serverConfig::setPassword);
+        return config;
+    }
+
+    private static Optional<String> password(String address) {
+        String userInfo = URI.create(address).getUserInfo();
+        if (userInfo == null || userInfo.isEmpty()) {
+            return Optional.empty();
+        }
+        String[] userAndPassword = userInfo.split(":", 2);
+        return Optional.of(userAndPassword[userAndPassword.length - 1]);
+    }
+}
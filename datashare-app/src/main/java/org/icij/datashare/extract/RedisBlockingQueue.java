@@ -2,10 +2,7 @@ package org.icij.datashare.extract;
 
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
-import org.icij.datashare.PropertiesProvider;
-import org.icij.datashare.mode.CommonMode;
-import org.icij.extract.redis.RedissonClientFactory;
-import org.icij.task.Options;
+import org.icij.datashare.com.redis.RedissonClientProvider;
 import org.redisson.Redisson;
 import org.redisson.RedissonBlockingQueue;
 import org.redisson.api.RedissonClient;
@@ -14,22 +11,31 @@ import org.redisson.command.CommandSyncService;
 import org.redisson.liveobject.core.RedissonObjectBuilder;
 
 import java.io.Closeable;
-import java.util.concurrent.TimeUnit;
 
 public class RedisBlockingQueue<T> extends RedissonBlockingQueue<T> implements Closeable {
-    private final RedissonClient redissonClient;
+    private static final JsonJacksonCodec codec = new JsonJacksonCodec();
+    private final RedissonClientProvider redissonClientProvider;
 
     @Inject
-    public RedisBlockingQueue(PropertiesProvider propertiesProvider, @Assisted String queueName) {
-        this(new RedissonClientFactory().withOptions(Options.from(propertiesProvider.getProperties())).create(), queueName);
+    public RedisBlockingQueue(RedissonClientProvider redissonClientProvider, @Assisted String queueName) {
+        this(redissonClientProvider.acquire(), queueName, redissonClientProvider);
     }
 
     public RedisBlockingQueue(RedissonClient redissonClient, String queueName) {
-        super(new JsonJacksonCodec(), new CommandSyncService(((Redisson)redissonClient).getConnectionManager(), new RedissonObjectBuilder(redissonClient)), queueName, redissonClient);
-        this.redissonClient = redissonClient;
+        this(redissonClient, queueName, null);
     }
 
+    private RedisBlockingQueue(RedissonClient redissonClient, String queueName, RedissonClientProvider redissonClientProvider) {
+        super(codec, new CommandSyncService(((Redisson)redissonClient).getConnectionManager(), new RedissonObjectBuilder(redissonClient)), queueName, redissonClient);
+        this.redissonClientProvider = redissonClientProvider;
+    }
+
+    /**
+     * releases the shared client if the queue has acquired it. A client given to the constructor belongs to the caller.
+     */
     public void close() {
-        redissonClient.shutdown(0, 2, TimeUnit.SECONDS);
+        if (redissonClientProvider != null) {
+            redissonClientProvider.release();
+        }
     }
 }
@@ -4,17 +4,30 @@ import com.google.inject.Singleton;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.extract.queue.DocumentQueue;
 import com.google.inject.Inject;
+import org.icij.extract.queue.DocumentSet;
 import org.icij.extract.report.ReportMap;
+import org.redisson.RedissonObject;
 import org.redisson.api.RKeys;
+import org.redisson.api.RScript;
 import org.redisson.api.RType;
 import org.redisson.api.RedissonClient;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 @Singleton
 public class RedisDocumentCollectionFactory <T> implements DocumentCollectionFactory<T> {
+    // adds the values to the set (KEYS[1]) and pushes the ones that were not in it to the list (KEYS[2])
+    static final String ADD_ALL_IF_ABSENT_SCRIPT = "local added = 0\n" +
+            "for _, value in ipairs(ARGV) do\n" +
+            "  if redis.call('sadd', KEYS[1], value) == 1 then\n" +
+            "    redis.call('rpush', KEYS[2], value)\n" +
+            "    added = added + 1\n" +
+            "  end\n" +
+            "end\n" +
+            "return added";
     PropertiesProvider propertiesProvider;
     RedissonClient redissonClient;
 
@@ -29,6 +42,25 @@ public class RedisDocumentCollectionFactory <T> implements DocumentCollectionFac
         return new RedisUserDocumentQueue<>(propertiesProvider, redissonClient, queueName, clazz);
     }
 
+    @Override
+    public DocumentSet<T> createSet(String setName, Class<T> clazz) {
+        return new RedisUserDocumentSet<>(propertiesProvider, redissonClient, setName, clazz);
+    }
+
+    /**
+     * deduplicates and transfers the elements in one round trip with a lua script. The set and the queue
+     * are using the same codec so the encoded values can be used for both.
+     */
+    @Override
+    public int addAllIfAbsent(DocumentSet<T> set, DocumentQueue<T> queue, Collection<T> elements) {
+        if (elements.isEmpty()) {
+            return 0;
+        }
+        Long added = redissonClient.getScript(((RedissonObject) queue).getCodec()).eval(RScript.Mode.READ_WRITE,
+                ADD_ALL_IF_ABSENT_SCRIPT, RScript.ReturnType.INTEGER, List.of(set.getName(), queue.getName()), elements.toArray());
+        return added.intValue();
+    }
+
     @Override
     public ReportMap createMap(String mapName) {
         return new RedisUserReportMap(propertiesProvider, redissonClient, mapName);
@@ -4,28 +4,42 @@ import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.user.User;
+import org.icij.datashare.com.redis.RedissonClientProvider;
 import org.icij.extract.redis.RedisDocumentQueue;
-import org.icij.extract.redis.RedissonClientFactory;
-import org.icij.task.Options;
 import org.redisson.RedissonShutdownException;
 import org.redisson.api.RedissonClient;
 
+import java.io.IOException;
 import java.nio.charset.Charset;
 
 import static org.icij.datashare.PropertiesProvider.QUEUE_NAME_OPTION;
 
 public class RedisUserDocumentQueue<T> extends RedisDocumentQueue<T> {
     private final String queueName;
+    private final RedissonClientProvider redissonClientProvider;
 
     @Inject
     public RedisUserDocumentQueue(PropertiesProvider propertiesProvider, RedissonClient redissonClient, @Assisted String queueName, @Assisted Class<T> clazz) {
+        this(propertiesProvider, redissonClient, queueName, clazz, null);
+    }
+
+    public RedisUserDocumentQueue(final User user, PropertiesProvider propertiesProvider, RedissonClientProvider redissonClientProvider, Class<T> clazz) {
+        this(propertiesProvider, redissonClientProvider.acquire(), getQueueName(user, propertiesProvider.get(QUEUE_NAME_OPTION).orElse("extract:queue")),
+                clazz, redissonClientProvider);
+    }
+
+    private RedisUserDocumentQueue(PropertiesProvider propertiesProvider, RedissonClient redissonClient, String queueName, Class<T> clazz, RedissonClientProvider redissonClientProvider) {
         super(redissonClient, queueName, Charset.forName(propertiesProvider.get("charset").orElse(Charset.defaultCharset().toString())), clazz);
         this.queueName = queueName;
+        this.redissonClientProvider = redissonClientProvider;
     }
 
-    public RedisUserDocumentQueue(final User user, PropertiesProvider propertiesProvider, Class<T> clazz) {
-        this(propertiesProvider, new RedissonClientFactory().withOptions(Options.from(propertiesProvider.getProperties())).create(),
-                getQueueName(user, propertiesProvider.get(QUEUE_NAME_OPTION).orElse("extract:queue")), clazz);
+    @Override
+    public void close() throws IOException {
+        super.close();
+        if (redissonClientProvider != null) {
+            redissonClientProvider.release();
+        }
     }
 
     @Override
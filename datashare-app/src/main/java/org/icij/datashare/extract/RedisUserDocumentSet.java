@@ -0,0 +1,13 @@
+package org.icij.datashare.extract;
+
+import org.icij.datashare.PropertiesProvider;
+import org.icij.extract.redis.RedisDocumentSet;
+import org.redisson.api.RedissonClient;
+
+import java.nio.charset.Charset;
+
+public class RedisUserDocumentSet<T> extends RedisDocumentSet<T> {
+    public RedisUserDocumentSet(PropertiesProvider propertiesProvider, RedissonClient redissonClient, String setName, Class<T> clazz) {
+        super(redissonClient, setName, Charset.forName(propertiesProvider.get("charset").orElse(Charset.defaultCharset().toString())), clazz);
+    }
+}
@@ -7,6 +7,7 @@ import org.jetbrains.annotations.NotNull;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.DosFileAttributes;
 import java.nio.file.attribute.PosixFileAttributes;
@@ -31,20 +32,21 @@ public abstract class AbstractFileReport {
     protected final BasicFileAttributes fileAttributes;
 
     public AbstractFileReport(File file) throws IOException {
-        this.file = file;
-        BasicFileAttributes fat;
-        try {
-            fat = Files.readAttributes(file.toPath(), PosixFileAttributes.class);
-        } catch (UnsupportedOperationException u) {
-            fat = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
-        }
-        fileAttributes = fat;
+        this(file, readAttributes(file.toPath()));
     }
 
     public AbstractFileReport(File file, BasicFileAttributes fileAttributes) {
         this.file = file;
         this.fileAttributes = fileAttributes;
     }
+    static BasicFileAttributes readAttributes(Path path) throws IOException {
+        try {
+            return Files.readAttributes(path, PosixFileAttributes.class);
+        } catch (UnsupportedOperationException u) {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        }
+    }
+
     abstract Type getType();
     protected String fileProt () {
         if (fileAttributes instanceof PosixFileAttributes) {
@@ -1,5 +1,7 @@
 package org.icij.datashare.file;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.attribute.*;
@@ -9,6 +11,9 @@ import static java.lang.String.format;
 
 public class DirectoryReport extends AbstractFileReport {
     private final TreeSet<AbstractFileReport> contents = new TreeSet<>(Comparator.comparing(f -> f.file));
+    private Integer count;
+    private Long totalSize;
+    private Long totalFiles;
 
     public DirectoryReport(File file) throws IOException { super(file); }
     public DirectoryReport(File file, BasicFileAttributes fileAttributes) { super(file, fileAttributes); }
@@ -22,6 +27,31 @@ public class DirectoryReport extends AbstractFileReport {
 
     public List<AbstractFileReport> getContents() { return new LinkedList<>(contents); }
 
+    /**
+     * @return the number of entries of the directory when the contents are a page of them
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Integer getCount() { return count; }
+
+    /**
+     * @return the size of all the files under the directory, when it has been computed
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Long getTotalSize() { return totalSize; }
+
+    /**
+     * @return the number of files under the directory, when it has been computed
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Long getTotalFiles() { return totalFiles; }
+
+    void setCount(int count) { this.count = count; }
+
+    void setTotals(long totalSize, long totalFiles) {
+        this.totalSize = totalSize;
+        this.totalFiles = totalFiles;
+    }
+
     @Override
     public Type getType() { return Type.DIRECTORY; }
 
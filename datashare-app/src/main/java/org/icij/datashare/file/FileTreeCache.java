@@ -0,0 +1,181 @@
+package org.icij.datashare.file;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cache of the directory listings used to build the {@link DirectoryReport} trees.
+ * <p>
+ * A directory is listed once with the attributes of its entries. The listing is reused while the modification time
+ * of the directory is the same (an entry has not been added, removed or renamed) and it is younger than
+ * <code>maxAge</code>, so that the file sizes are refreshed from time to time. Opening a directory already seen
+ * costs one stat instead of a stat for each of its entries, and only the directories that have changed are listed again.
+ * The total size and number of files under a directory are computed bottom-up from the listings of its sub-directories:
+ * each listing keeps the total of its own files, and the sub-directories are walked to check their modification time,
+ * so that a change deep in the tree is counted in the totals of all its ancestors (one stat for each sub-directory).
+ * <p>
+ * The least recently used listings are evicted when the listings hold more than <code>maxEntries</code> entries.
+ */
+public class FileTreeCache {
+    private final long maxEntries;
+    private final long maxAgeMillis;
+    private final LinkedHashMap<Path, Listing> listings = new LinkedHashMap<>(16, 0.75f, true);
+    private long entries = 0;
+
+    public FileTreeCache(long maxEntries, Duration maxAge) {
+        this.maxEntries = maxEntries;
+        this.maxAgeMillis = maxAge.toMillis();
+    }
+
+    /**
+     * @param depth same as the <code>-L</code> option of <code>tree</code>: the sub-directories are
+     *              listed down to this level (0 and 1 only list the directory)
+     * @param from index of the first entry of the directory
+     * @param size maximum number of entries of the directory. Sub-directories are not paged.
+     * @param totals adds the total size and number of files under each directory of the report
+     */
+    public DirectoryReport tree(Path dir, int depth, int from, int size, boolean totals) throws IOException {
+        Listing listing = list(dir);
+        DirectoryReport report = new DirectoryReport(dir.toFile(), listing.attributes);
+        List<Entry> entries = listing.entries;
+        if (from > 0 || size < entries.size()) {
+            report.setCount(entries.size());
+            entries = entries.subList(Math.min(from, entries.size()), (int) Math.min(entries.size(), (long) from + size));
+        }
+        addContents(report, entries, 1, depth, totals);
+        if (totals) {
+            setTotals(report, dir, listing.attributes);
+        }
+        return report;
+    }
+
+    synchronized int size() {
+        return listings.size();
+    }
+
+    synchronized long getEntries() {
+        return entries;
+    }
+
+    private void addContents(DirectoryReport report, List<Entry> entries, int level, int depth, boolean totals) throws IOException {
+        for (Entry entry : entries) {
+            if (entry.attributes.isDirectory()) {
+                DirectoryReport dirReport = new DirectoryReport(entry.path.toFile(), entry.attributes);
+                report.add(dirReport);
+                if (level < depth) {
+                    addContents(dirReport, list(entry.path).entries, level + 1, depth, totals);
+                }
+                if (totals) {
+                    setTotals(dirReport, entry.path, entry.attributes);
+                }
+            } else {
+                report.add(new FileReport(entry.path.toFile(), entry.attributes));
+            }
+        }
+    }
+
+    private void setTotals(DirectoryReport report, Path dir, BasicFileAttributes attributes) throws IOException {
+        Totals totals = totals(dir, attributes, new HashSet<>());
+        report.setTotals(totals.size, totals.files);
+    }
+
+    /**
+     * @return the total size and number of files under dir, from the listings of its sub-directories that are
+     * listed again if they have changed. Directories already visited through links are skipped.
+     */
+    private Totals totals(Path dir, BasicFileAttributes attributes, Set<Object> visited) throws IOException {
+        if (!visited.add(attributes.fileKey() == null ? dir.toRealPath() : attributes.fileKey())) {
+            return Totals.EMPTY;
+        }
+        Listing listing = list(dir);
+        long size = listing.filesSize;
+        long files = listing.files;
+        for (Entry entry : listing.entries) {
+            if (entry.attributes.isDirectory()) {
+                Totals subTotals = totals(entry.path, entry.attributes, visited);
+                size += subTotals.size;
+                files += subTotals.files;
+            }
+        }
+        return new Totals(size, files);
+    }
+
+    Listing list(Path dir) throws IOException {
+        BasicFileAttributes attributes = AbstractFileReport.readAttributes(dir);
+        Listing listing = get(dir);
+        if (listing != null && listing.isValid(attributes.lastModifiedTime(), maxAgeMillis)) {
+            return listing;
+        }
+        List<Entry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                try {
+                    entries.add(new Entry(path, AbstractFileReport.readAttributes(path)));
+                } catch (NoSuchFileException e) {
+                    // removed or dangling link
+                }
+            }
+        }
+        entries.sort(Comparator.comparing(e -> e.path.toFile()));
+        listing = new Listing(attributes, List.copyOf(entries), System.currentTimeMillis());
+        put(dir, listing);
+        return listing;
+    }
+
+    private synchronized Listing get(Path dir) {
+        return listings.get(dir);
+    }
+
+    private synchronized void put(Path dir, Listing listing) {
+        Listing previous = listings.put(dir, listing);
+        entries += listing.entries.size() - (previous == null ? 0 : previous.entries.size());
+        Iterator<Listing> lru = listings.values().iterator();
+        while (entries > maxEntries && lru.hasNext()) {
+            entries -= lru.next().entries.size();
+            lru.remove();
+        }
+    }
+
+    record Entry(Path path, BasicFileAttributes attributes) {}
+
+    private record Totals(long size, long files) {
+        static final Totals EMPTY = new Totals(0, 0);
+    }
+
+    static final class Listing {
+        private final BasicFileAttributes attributes;
+        private final List<Entry> entries;
+        private final long listedAt;
+        private final long filesSize;
+        private final long files;
+
+        Listing(BasicFileAttributes attributes, List<Entry> entries, long listedAt) {
+            this.attributes = attributes;
+            this.entries = entries;
+            this.listedAt = listedAt;
+            this.filesSize = entries.stream().filter(e -> !e.attributes.isDirectory()).mapToLong(e -> e.attributes.size()).sum();
+            this.files = entries.stream().filter(e -> !e.attributes.isDirectory()).count();
+        }
+
+        BasicFileAttributes attributes() {
+            return attributes;
+        }
+
+        boolean isValid(FileTime modified, long maxAgeMillis) {
+            return attributes.lastModifiedTime().equals(modified) && System.currentTimeMillis() - listedAt < maxAgeMillis;
+        }
+    }
+}
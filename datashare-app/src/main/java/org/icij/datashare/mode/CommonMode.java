@@ -27,6 +27,7 @@ import org.icij.datashare.asynctasks.TaskSupplier;
 import org.icij.datashare.asynctasks.bus.amqp.AmqpInterlocutor;
 import org.icij.datashare.com.queue.MemoryBlockingQueue;
 import org.icij.datashare.com.queue.RedisBlockingQueue;
+import org.icij.datashare.com.redis.RedissonClientProvider;
 import org.icij.datashare.batch.BatchSearchRepository;
 import org.icij.datashare.cli.Mode;
 import org.icij.datashare.cli.QueueType;
@@ -34,6 +35,7 @@ import org.icij.datashare.db.RepositoryFactoryImpl;
 import org.icij.datashare.extension.ExtensionLoader;
 import org.icij.datashare.extension.PipelineRegistry;
 import org.icij.datashare.extract.*;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.nlp.EmailPipeline;
 import org.icij.datashare.nlp.OptimaizeLanguageGuesser;
 import org.icij.datashare.tasks.DatashareTaskFactory;
@@ -51,8 +53,6 @@ import org.icij.datashare.web.OpenApiResource;
 import org.icij.datashare.web.RootResource;
 import org.icij.datashare.web.SettingsResource;
 import org.icij.datashare.web.StatusResource;
-import org.icij.extract.redis.RedissonClientFactory;
-import org.icij.task.Options;
 import org.jetbrains.annotations.NotNull;
 import org.redisson.api.RedissonClient;
 import org.slf4j.Logger;
@@ -81,6 +81,8 @@ public abstract class CommonMode extends AbstractModule {
 
     protected final PropertiesProvider propertiesProvider;
     protected final Mode mode;
+    protected final RedissonClientProvider redissonClientProvider;
+    protected final MetricRegistry metrics = new MetricRegistry();
     private final Injector injector;
     private PipelineRegistry pipelineRegistry;
 
@@ -88,6 +90,7 @@ public abstract class CommonMode extends AbstractModule {
         propertiesProvider = properties == null ? new PropertiesProvider() :
                 new PropertiesProvider(properties.getProperty(PropertiesProvider.SETTINGS_FILE_PARAMETER_KEY)).mergeWith(properties);
         this.mode = getMode(properties);
+        this.redissonClientProvider = new RedissonClientProvider(propertiesProvider);
         try {
             this.injector = Guice.createInjector(this);
         } catch (CreationException e) {
@@ -131,16 +134,18 @@ public abstract class CommonMode extends AbstractModule {
     @Override
     protected void configure() {
         bind(PropertiesProvider.class).toInstance(propertiesProvider);
+        bind(MetricRegistry.class).toInstance(metrics);
         install(new FactoryModuleBuilder().build(DatashareTaskFactory.class));
 
+        bind(RedissonClientProvider.class).toInstance(redissonClientProvider);
         RedissonClient redissonClient = null;
         if ( hasProperty(QueueType.REDIS) ) {
-            redissonClient = new RedissonClientFactory().withOptions(Options.from(propertiesProvider.getProperties())).create();
+            redissonClient = redissonClientProvider.get();
             bind(RedissonClient.class).toInstance(redissonClient);
         }
         if ( hasProperty(QueueType.AMQP) ) {
             try {
-                AmqpInterlocutor amqp = new AmqpInterlocutor(propertiesProvider);
+                AmqpInterlocutor amqp = new AmqpInterlocutor(propertiesProvider, metrics);
                 amqp.createAllPublishChannels();
                 bind(AmqpInterlocutor.class).toInstance(amqp);
             } catch (Exception e) {
@@ -182,8 +187,9 @@ public abstract class CommonMode extends AbstractModule {
     private void configureIndexingQueues(final PropertiesProvider propertiesProvider) {
         QueueType queueType = getQueueType(propertiesProvider, QUEUE_TYPE_OPT, QueueType.MEMORY);
         if ( queueType == QueueType.MEMORY ) {
-            bind(new TypeLiteral<DocumentCollectionFactory<String>>(){}).toInstance(new MemoryDocumentCollectionFactory<>());
-            bind(new TypeLiteral<DocumentCollectionFactory<Path>>() {}).toInstance(new MemoryDocumentCollectionFactory<>());
+            int queueCapacity = propertiesProvider.get(QUEUE_CAPACITY_OPT).map(Integer::parseInt).orElse(DEFAULT_QUEUE_CAPACITY);
+            bind(new TypeLiteral<DocumentCollectionFactory<String>>(){}).toInstance(new MemoryDocumentCollectionFactory<>(queueCapacity));
+            bind(new TypeLiteral<DocumentCollectionFactory<Path>>() {}).toInstance(new MemoryDocumentCollectionFactory<>(queueCapacity));
         } else {
             bind(new TypeLiteral<DocumentCollectionFactory<String>>(){}).to(new TypeLiteral<RedisDocumentCollectionFactory<String>>(){});
             bind(new TypeLiteral<DocumentCollectionFactory<Path>>(){}).to(new TypeLiteral<RedisDocumentCollectionFactory<Path>>(){});
@@ -191,11 +197,16 @@ public abstract class CommonMode extends AbstractModule {
     }
 
     private void configureBatchQueuesMemory() {
-        bind(new TypeLiteral<BlockingQueue<Task<?>>>(){}).toInstance(new MemoryBlockingQueue<>(DS_TASKS_QUEUE_NAME));
+        bindTaskQueue(new MemoryBlockingQueue<>(DS_TASKS_QUEUE_NAME));
     }
 
     private void configureBatchQueuesRedis(RedissonClient redissonClient) {
-        bind(new TypeLiteral<BlockingQueue<Task<?>>>(){}).toInstance(new RedisBlockingQueue<>(redissonClient, DS_TASKS_QUEUE_NAME, new org.icij.datashare.asynctasks.TaskManagerRedis.TaskViewCodec()));
+        bindTaskQueue(new RedisBlockingQueue<>(redissonClient, DS_TASKS_QUEUE_NAME, new org.icij.datashare.asynctasks.TaskManagerRedis.TaskViewCodec()));
+    }
+
+    private void bindTaskQueue(BlockingQueue<Task<?>> taskQueue) {
+        metrics.gauge("datashare_task_queue_size", "Tasks waiting in the task queue", taskQueue::size, "queue", DS_TASKS_QUEUE_NAME);
+        bind(new TypeLiteral<BlockingQueue<Task<?>>>(){}).toInstance(taskQueue);
     }
 
     public Properties properties() {
@@ -248,7 +259,7 @@ public abstract class CommonMode extends AbstractModule {
     protected abstract Routes addModeConfiguration(final Routes routes);
 
     void configurePersistence() {
-        RepositoryFactoryImpl repositoryFactory = new RepositoryFactoryImpl(propertiesProvider);
+        RepositoryFactoryImpl repositoryFactory = new RepositoryFactoryImpl(propertiesProvider, metrics);
         bind(Repository.class).toInstance(repositoryFactory.createRepository());
         bind(ApiKeyRepository.class).toInstance(repositoryFactory.createApiKeyRepository());
         bind(BatchSearchRepository.class).toInstance(repositoryFactory.createBatchSearchRepository());
@@ -71,9 +71,9 @@ public class ServerMode extends CommonMode {
     }
 
     protected YesCookieAuthFilter getYesCookieAuthFilter() {
-        RepositoryFactoryImpl repositoryFactory = new RepositoryFactoryImpl(propertiesProvider);
+        RepositoryFactoryImpl repositoryFactory = new RepositoryFactoryImpl(propertiesProvider, metrics);
         JooqRepository jooqRepository = (JooqRepository) repositoryFactory.createRepository();
-        return new YesCookieAuthFilter(propertiesProvider, jooqRepository);
+        return new YesCookieAuthFilter(propertiesProvider, jooqRepository, redissonClientProvider);
     }
 
     @Override
@@ -1,5 +1,6 @@
 package org.icij.datashare.nlp;
 
+import com.google.inject.Singleton;
 import com.optimaize.langdetect.LanguageDetector;
 import com.optimaize.langdetect.LanguageDetectorBuilder;
 import com.optimaize.langdetect.i18n.LdLocale;
@@ -11,19 +12,147 @@ import org.icij.datashare.text.Language;
 import org.icij.datashare.text.indexing.LanguageGuesser;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
+/**
+ * Guesses the language of a text with samples of it.
+ * <p>
+ * Texts longer than the sampling budget (<code>maxWindows</code> windows of <code>windowSize</code> chars)
+ * are not entirely read: each window, evenly spread over the text, votes for its language.
+ * The windows are visited coarse to fine (both ends, middle, quarters...) so that the guess can stop
+ * as soon as <code>minWindows</code> windows have voted and the leading language has <code>confidence</code>
+ * of the votes.
+ * <p>
+ * The detector and its profiles are loaded once, the text object factories are kept by thread.
+ */
+@Singleton
 public class OptimaizeLanguageGuesser implements LanguageGuesser {
+    static final int DEFAULT_WINDOW_SIZE = 2048;
+    static final int DEFAULT_MAX_WINDOWS = 16;
+    static final int DEFAULT_MIN_WINDOWS = 3;
+    static final double DEFAULT_CONFIDENCE = 0.9;
+    private static final Language DEFAULT_LANGUAGE = Language.ENGLISH;
+    private static final ThreadLocal<TextObjectFactory> textObjectFactory = ThreadLocal.withInitial(CommonTextObjectFactories::forDetectingOnLargeText);
+
     private final LanguageDetector languageDetector;
+    private final int windowSize;
+    private final int maxWindows;
+    private final int minWindows;
+    private final double confidence;
 
     public OptimaizeLanguageGuesser() throws IOException {
+        this(DEFAULT_WINDOW_SIZE, DEFAULT_MAX_WINDOWS, DEFAULT_MIN_WINDOWS, DEFAULT_CONFIDENCE);
+    }
+
+    OptimaizeLanguageGuesser(int windowSize, int maxWindows, int minWindows, double confidence) throws IOException {
         this.languageDetector = LanguageDetectorBuilder.create(NgramExtractors.standard())
                         .withProfiles(new LanguageProfileReader().readAllBuiltIn())
                         .build();
+        this.windowSize = windowSize;
+        this.maxWindows = maxWindows;
+        this.minWindows = minWindows;
+        this.confidence = confidence;
     }
 
     @Override
     public Language guess(String text) {
-        TextObjectFactory textObjectFactory = CommonTextObjectFactories.forDetectingOnLargeText();
-        return Language.parse(languageDetector.detect(textObjectFactory.forText(text)).or(LdLocale.fromString("en")).getLanguage());
+        if (text.length() <= windowSize * maxWindows) {
+            return detect(text).orElse(DEFAULT_LANGUAGE);
+        }
+        return guessSampled(text);
+    }
+
+    /**
+     * splits the text in maxWindows segments, guesses the language of a window in the middle of each one
+     * and merges the consecutive segments with the same language.
+     */
+    @Override
+    public List<Segment> guessSegments(String text) {
+        int nbSegments = Math.max(1, Math.min(maxWindows, text.length() / windowSize));
+        List<Segment> segments = new ArrayList<>();
+        for (int i = 0; i < nbSegments; i++) {
+            int start = (int) ((long) text.length() * i / nbSegments);
+            int end = (int) ((long) text.length() * (i + 1) / nbSegments);
+            int windowStart = Math.max(start, (start + end - windowSize) / 2);
+            Language language = detect(window(text, windowStart, Math.min(end, windowStart + windowSize))).orElse(null);
+            Segment previous = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (previous != null && (language == null || previous.language() == language)) {
+                segments.set(segments.size() - 1, new Segment(previous.start(), end, previous.language()));
+            } else {
+                segments.add(new Segment(start, end, language));
+            }
+        }
+        segments.replaceAll(s -> s.language() == null ? new Segment(s.start(), s.end(), DEFAULT_LANGUAGE) : s);
+        return segments;
+    }
+
+    private Language guessSampled(String text) {
+        Map<Language, Integer> votes = new HashMap<>();
+        Language leader = null;
+        int nbVotes = 0;
+        for (int index : coarseToFine(maxWindows)) {
+            int start = (int) ((long) (text.length() - windowSize) * index / (maxWindows - 1));
+            Optional<Language> language = detect(window(text, start, start + windowSize));
+            if (language.isPresent()) {
+                int languageVotes = votes.merge(language.get(), 1, Integer::sum);
+                nbVotes++;
+                if (leader == null || languageVotes > votes.get(leader)) {
+                    leader = language.get();
+                }
+                if (nbVotes >= minWindows && votes.get(leader) >= confidence * nbVotes) {
+                    break;
+                }
+            }
+        }
+        return leader == null ? DEFAULT_LANGUAGE : leader;
+    }
+
+    private Optional<Language> detect(CharSequence text) {
+        return languageDetector.detect(textObjectFactory.get().forText(text)).toJavaUtil()
+                .map(LdLocale::getLanguage).map(Language::parse);
+    }
+
+    /**
+     * @return the window of the text between start and end, moved to the next word boundaries
+     * so that the first and last n-grams are not cut words.
+     */
+    static CharSequence window(String text, int start, int end) {
+        int wordStart = start;
+        while (wordStart > 0 && wordStart < end && !Character.isWhitespace(text.charAt(wordStart - 1))) {
+            wordStart++;
+        }
+        int wordEnd = end;
+        while (wordEnd < text.length() && wordEnd > wordStart && !Character.isWhitespace(text.charAt(wordEnd))) {
+            wordEnd--;
+        }
+        return wordEnd > wordStart ? text.subSequence(wordStart, wordEnd) : text.subSequence(start, end);
+    }
+
+    /**
+     * @return the indexes from 0 to nb - 1 with both ends first, then the middle, the quarters, and so on.
+     */
+    static List<Integer> coarseToFine(int nb) {
+        List<Integer> indexes = new ArrayList<>(nb);
+        indexes.add(0);
+        if (nb > 1) {
+            indexes.add(nb - 1);
+        }
+        Deque<int[]> intervals = new ArrayDeque<>(List.of(new int[]{0, nb - 1}));
+        while (!intervals.isEmpty()) {
+            int[] interval = intervals.poll();
+            int middle = (interval[0] + interval[1]) / 2;
+            if (middle > interval[0] && middle < interval[1]) {
+                indexes.add(middle);
+                intervals.add(new int[]{interval[0], middle});
+                intervals.add(new int[]{middle, interval[1]});
+            }
+        }
+        return indexes;
     }
 }
@@ -3,43 +3,49 @@ package org.icij.datashare.session;
 import com.google.inject.Inject;
 import net.codestory.http.security.SessionIdStore;
 import org.icij.datashare.PropertiesProvider;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.Transaction;
+import org.icij.datashare.com.redis.RedissonClientProvider;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Optional.ofNullable;
 
-public class RedisSessionIdStore implements SessionIdStore {
-    private final JedisPool redis;
+public class RedisSessionIdStore implements SessionIdStore, Closeable {
+    private final RedissonClientProvider redissonClientProvider;
+    private final RedissonClient redis;
     private final Integer ttl;
 
     @Inject
-    public RedisSessionIdStore(PropertiesProvider propertiesProvider) {
-        this.redis = new JedisPool(propertiesProvider.get("redisAddress").orElse("redis://redis:6379"));
+    public RedisSessionIdStore(PropertiesProvider propertiesProvider, RedissonClientProvider redissonClientProvider) {
+        this.redissonClientProvider = redissonClientProvider;
+        this.redis = redissonClientProvider.acquire();
         this.ttl = Integer.valueOf(ofNullable(propertiesProvider.getProperties().getProperty("sessionTtlSeconds")).orElse("1"));
     }
 
     @Override
     public void put(final String sessionId, final String login) {
-        try (Jedis jedis = redis.getResource()) {
-            Transaction transaction = jedis.multi();
-            transaction.set(sessionId, login);
-            transaction.expire(sessionId, this.ttl);
-            transaction.exec();
-        }
+        bucket(sessionId).set(login, ttl, TimeUnit.SECONDS);
     }
 
     @Override
     public void remove(String sessionId) {
-        try (Jedis jedis = redis.getResource()) {
-            jedis.del(sessionId);
-        }
+        bucket(sessionId).delete();
     }
 
     @Override
     public String getLogin(String sessionId) {
-        try (Jedis jedis = redis.getResource()) {
-            return jedis.get(sessionId);
-        }
+        return bucket(sessionId).get();
+    }
+
+    @Override
+    public void close() {
+        redissonClientProvider.release();
+    }
+
+    private RBucket<String> bucket(String sessionId) {
+        return redis.getBucket(sessionId, StringCodec.INSTANCE);
     }
 }
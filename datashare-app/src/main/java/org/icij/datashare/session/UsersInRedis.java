@@ -3,56 +3,58 @@ package org.icij.datashare.session;
 import com.google.inject.Inject;
 import net.codestory.http.security.User;
 import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.com.redis.RedissonClientProvider;
 import org.icij.datashare.json.JsonUtils;
 import org.icij.datashare.text.Hasher;
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.Transaction;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
 
-import java.util.List;
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Optional.ofNullable;
 import static org.icij.datashare.user.User.fromJson;
 
-public class UsersInRedis implements UsersWritable {
-    private final JedisPool redis;
+public class UsersInRedis implements UsersWritable, Closeable {
+    private final RedissonClientProvider redissonClientProvider;
+    private final RedissonClient redis;
     private final Integer ttl;
 
     @Inject
-    public UsersInRedis(PropertiesProvider propertiesProvider) {
-        redis = new JedisPool(propertiesProvider.get("redisAddress").orElse("redis://redis:6379"));
+    public UsersInRedis(PropertiesProvider propertiesProvider, RedissonClientProvider redissonClientProvider) {
+        this.redissonClientProvider = redissonClientProvider;
+        this.redis = redissonClientProvider.acquire();
         this.ttl = Integer.valueOf(ofNullable(propertiesProvider.getProperties().getProperty("sessionTtlSeconds")).orElse("1"));
     }
 
     @Override
     public User find(String login) {
-        try (Jedis jedis = redis.getResource()) {
-            return new DatashareUser(fromJson(jedis.get(login), "icij"));
-        }
+        return new DatashareUser(fromJson(bucket(login).get(), "icij"));
     }
 
     @Override
     public User find(String login, String password) {
-        try (Jedis jedis = redis.getResource()) {
-            org.icij.datashare.user.User user = fromJson(jedis.get(login), "icij");
-            return user != null && Hasher.SHA_256.hash(password).equals(user.details.get("password")) ? new DatashareUser(user): null;
-        }
+        org.icij.datashare.user.User user = fromJson(bucket(login).get(), "icij");
+        return user != null && Hasher.SHA_256.hash(password).equals(user.details.get("password")) ? new DatashareUser(user): null;
     }
 
     void removeUser(String login) {
-        try (Jedis jedis = redis.getResource()) {
-            jedis.del(login);
-        }
+        bucket(login).delete();
     }
 
     @Override
     public boolean saveOrUpdate(User user) {
-        try (Jedis jedis = redis.getResource()) {
-            Transaction transaction = jedis.multi();
-            transaction.set(user.login(), JsonUtils.serialize(((DatashareUser)user).details));
-            transaction.expire(user.login(), this.ttl);
-            List<Object> exec = transaction.exec();
-            return exec.size() == 2;
-        }
+        bucket(user.login()).set(JsonUtils.serialize(((DatashareUser)user).details), ttl, TimeUnit.SECONDS);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        redissonClientProvider.release();
+    }
+
+    private RBucket<String> bucket(String login) {
+        return redis.getBucket(login, StringCodec.INSTANCE);
     }
 }
@@ -7,6 +7,7 @@ import net.codestory.http.filters.auth.CookieAuthFilter;
 import net.codestory.http.payload.Payload;
 import net.codestory.http.security.User;
 import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.com.redis.RedissonClientProvider;
 import org.icij.datashare.db.JooqRepository;
 import org.icij.datashare.text.Project;
 
@@ -20,8 +21,9 @@ public class YesCookieAuthFilter extends CookieAuthFilter {
     private final JooqRepository jooqRepository;
 
     @Inject
-    public YesCookieAuthFilter(final PropertiesProvider propertiesProvider, final JooqRepository jooqRepository) {
-        super(propertiesProvider.get("protectedUrlPrefix").orElse("/"), new UsersInRedis(propertiesProvider), new RedisSessionIdStore(propertiesProvider));
+    public YesCookieAuthFilter(final PropertiesProvider propertiesProvider, final JooqRepository jooqRepository, final RedissonClientProvider redissonClientProvider) {
+        super(propertiesProvider.get("protectedUrlPrefix").orElse("/"), new UsersInRedis(propertiesProvider, redissonClientProvider),
+                new RedisSessionIdStore(propertiesProvider, redissonClientProvider));
         this.ttl = Integer.valueOf(propertiesProvider.get("sessionTtlSeconds").orElse("1"));
         this.jooqRepository = jooqRepository;
         this.defaultProject = propertiesProvider.get("defaultProject").orElse("local-datashare");
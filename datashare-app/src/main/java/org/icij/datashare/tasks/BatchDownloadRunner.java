@@ -3,7 +3,9 @@ package org.icij.datashare.tasks;
 import co.elastic.clients.elasticsearch._types.ElasticsearchException;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
+import net.lingala.zip4j.io.inputstream.ZipInputStream;
 import net.lingala.zip4j.io.outputstream.ZipOutputStream;
+import net.lingala.zip4j.model.LocalFileHeader;
 import net.lingala.zip4j.model.ZipParameters;
 import net.lingala.zip4j.model.enums.EncryptionMethod;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -11,12 +13,14 @@ import org.apache.commons.lang3.StringUtils;
 import org.icij.datashare.Entity;
 import org.icij.datashare.HumanReadableSize;
 import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.json.JsonObjectMapper;
 import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.asynctasks.bus.amqp.UriResult;
 import org.icij.datashare.batch.BatchDownload;
 import org.icij.datashare.com.mail.Mail;
 import org.icij.datashare.com.mail.MailException;
 import org.icij.datashare.com.mail.MailSender;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.monitoring.Monitorable;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.Project;
@@ -35,9 +39,17 @@ import java.io.*;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.zip.ZipException;
@@ -45,13 +57,17 @@ import java.util.zip.ZipException;
 import static java.lang.Integer.min;
 import static java.lang.Integer.parseInt;
 import static java.lang.String.valueOf;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static java.util.stream.Collectors.toList;
 import static org.icij.datashare.cli.DatashareCliOptions.*;
+import static org.icij.datashare.text.indexing.ScrollQueryBuilder.createScrollQuery;
 
 public class BatchDownloadRunner implements Callable<UriResult>, Monitorable, UserTask {
     private final static Logger logger = LoggerFactory.getLogger(BatchDownloadRunner.class);
     static final int MAX_SCROLL_SIZE = 3500;
     static final int MAX_BATCH_RESULT_SIZE = 10000;
+    static final int COPY_BUFFER_SIZE = 64 * 1024;
+    static final int MAX_IN_MEMORY_SOURCE_SIZE = 8 * 1024 * 1024;
     private final DocumentVerifier documentVerifier;
     private final Task<File> task;
     volatile long docsToProcessSize = 0;
@@ -60,13 +76,16 @@ public class BatchDownloadRunner implements Callable<UriResult>, Monitorable, Us
     private final PropertiesProvider propertiesProvider;
     private final Function<Double, Void> progressCallback;
     private final Function<URI, MailSender> mailSenderSupplier;
+    private final MetricRegistry.Histogram downloadDuration;
+    private final MetricRegistry.Counter nbZippedFiles;
+    private final MetricRegistry.Counter nbZippedBytes;
 
     @Inject
-    public BatchDownloadRunner(Indexer indexer, PropertiesProvider propertiesProvider, @Assisted Task<?> task, @Assisted Function<Double, Void> progressCallback) {
-        this(indexer, propertiesProvider, progressCallback, task, MailSender::new);
+    public BatchDownloadRunner(Indexer indexer, PropertiesProvider propertiesProvider, MetricRegistry metrics, @Assisted Task<?> task, @Assisted Function<Double, Void> progressCallback) {
+        this(indexer, propertiesProvider, metrics, progressCallback, task, MailSender::new);
     }
 
-    BatchDownloadRunner(Indexer indexer, PropertiesProvider provider, Function<Double, Void> progressCallback, Task<?> task, Function<URI, MailSender> mailSenderSupplier) {
+    BatchDownloadRunner(Indexer indexer, PropertiesProvider provider, MetricRegistry metrics, Function<Double, Void> progressCallback, Task<?> task, Function<URI, MailSender> mailSenderSupplier) {
         assert task.args.get("batchDownload") != null : "'batchDownload' property in task shouldn't be null";
         this.task = (Task<File>) task;
         this.indexer = indexer;
@@ -74,6 +93,9 @@ public class BatchDownloadRunner implements Callable<UriResult>, Monitorable, Us
         this.progressCallback = progressCallback;
         this.mailSenderSupplier = mailSenderSupplier;
         this.documentVerifier = new DocumentVerifier(indexer, propertiesProvider);
+        this.downloadDuration = metrics.histogram("datashare_batch_download_duration_seconds", "Duration of the batch downloads");
+        this.nbZippedFiles = metrics.counter("datashare_batch_download_files_total", "Files added to batch download archives");
+        this.nbZippedBytes = metrics.counter("datashare_batch_download_bytes_total", "Bytes of the files added to batch download archives");
     }
 
     @Override
@@ -86,17 +108,20 @@ public class BatchDownloadRunner implements Callable<UriResult>, Monitorable, Us
                 .orElse(valueOf(DEFAULT_SCROLL_SIZE))));
         int scrollSize = min(scrollSizeFromParams, MAX_SCROLL_SIZE);
         long maxZipSizeBytes = HumanReadableSize.parse(propertiesProvider.get(BATCH_DOWNLOAD_MAX_SIZE_OPT).orElse(DEFAULT_BATCH_DOWNLOAD_MAX_SIZE));
-        long zippedFilesSize = 0;
+        int parallelism = propertiesProvider.get(BATCH_DOWNLOAD_PARALLELISM_OPT).map(Integer::parseInt).orElse(DEFAULT_BATCH_DOWNLOAD_PARALLELISM);
         BatchDownload batchDownload = getBatchDownload();
 
-        logger.info("running batch download for user {} on project {} with {} scroll with throttle {}ms and scroll size of {}",
-                batchDownload.user.getId(), batchDownload.projects, scrollDuration, throttleMs, scrollSize);
+        logger.info("running batch download for user {} on project {} with {} scroll with throttle {}ms, scroll size of {} and {} extractor(s)",
+                batchDownload.user.getId(), batchDownload.projects, scrollDuration, throttleMs, scrollSize, parallelism);
         Indexer.Searcher searcher = indexer.search(batchDownload.projects.stream().map(Project::getId).collect(toList()),
-                Document.class, batchDownload.query).withoutSource("content").limit(scrollSize);
+                Document.class, batchDownload.query).withoutSource("content", "content_translated").limit(scrollSize);
 
+        BatchDownloadCheckpoint checkpoint = resumableCheckpoint(batchDownload);
+        long start = System.nanoTime();
         try {
-            List<? extends Entity> docsToProcess = searcher.scroll(scrollDuration).collect(toList());
-            if (docsToProcess.isEmpty()) {
+            List<? extends Entity> docsToProcess = searcher.scroll(createScrollQuery().withDuration(scrollDuration).withSlices(0, 0)
+                    .resumable().withCheckpoint(checkpoint == null ? null : checkpoint.search()).build()).collect(toList());
+            if (docsToProcess.isEmpty() && checkpoint == null) {
                 logger.warn("no results for batchDownload {}", batchDownload.uuid);
                 return null;
             }
@@ -107,38 +132,64 @@ public class BatchDownloadRunner implements Callable<UriResult>, Monitorable, Us
             }
 
             logger.info("creating zip file with max input files size of {} bytes", maxZipSizeBytes);
-            try (Zipper zipper = createZipper(batchDownload, propertiesProvider, mailSenderSupplier)) {
-                HashMap<String, Object> taskProperties = new HashMap<>();
-                taskProperties.put("batchDownload", batchDownload);
-                while (!docsToProcess.isEmpty()) {
-                    for (int i = 0; i < docsToProcess.size() && numberOfResults.get() < maxResultSize && zippedFilesSize <= maxZipSizeBytes; i++) {
-                        Document document = (Document) docsToProcess.get(i);
-                        int addedBytes = documentVerifier.isRootDocumentSizeAllowed(document) ? zipper.add(document) : 0;
-                        if (addedBytes > 0) {
-                            zippedFilesSize += addedBytes;
-                            numberOfResults.incrementAndGet();
-                            progressCallback.apply(getProgressRate());
-                        }
+            Path previousArchive = checkpoint == null ? null : Files.move(batchDownload.filename,
+                    batchDownload.filename.resolveSibling(batchDownload.filename.getFileName() + ".previous"), REPLACE_EXISTING);
+            try (Zipper zipper = createZipper(batchDownload, propertiesProvider, mailSenderSupplier);
+                 ZipPipeline pipeline = new ZipPipeline(zipper, parallelism, maxResultSize, maxZipSizeBytes)) {
+                if (previousArchive != null) {
+                    pipeline.resume(previousArchive, checkpoint);
+                }
+                boolean limitReached = false;
+                while (!docsToProcess.isEmpty() && !limitReached) {
+                    for (int i = 0; i < docsToProcess.size() && !limitReached; i++) {
+                        limitReached = !pipeline.submit((Document) docsToProcess.get(i));
+                    }
+                    if (!limitReached) {
+                        pipeline.endOfPage(searcher.checkpoint());
                     }
-                    docsToProcess = searcher.scroll(scrollDuration).collect(toList());
+                    docsToProcess = limitReached ? List.of() : searcher.scroll(scrollDuration).collect(toList());
+                }
+                if (limitReached) {
+                    searcher.clearScroll();
                 }
+                pipeline.finish();
             }
         } catch (ElasticsearchException esEx) {
             throw ElasticSearchAdapterException.createFrom(esEx);
+        } finally {
+            downloadDuration.observeSince(start);
         }
         UriResult result = new UriResult(batchDownload.filename.toUri(), Files.size(batchDownload.filename));
         logger.info("created batch download file {} of {} entries for user {}", result, numberOfResults.get(), batchDownload.user.getId());
         return result;
     }
 
+    /**
+     * @return the checkpoint of the previous run of the task, or null if the archive has to be created from its start.
+     * Encrypted archives are not resumed because their password is sent for each new archive.
+     */
+    private BatchDownloadCheckpoint resumableCheckpoint(BatchDownload batchDownload) {
+        if (task.getCheckpoint() == null) {
+            return null;
+        }
+        BatchDownloadCheckpoint checkpoint = BatchDownloadCheckpoint.parse(task.getCheckpoint());
+        if (checkpoint.search() != null && !batchDownload.encrypted && Files.exists(batchDownload.filename)) {
+            logger.info("resuming batch download {} after {} entries", batchDownload.uuid, checkpoint.entries());
+            return checkpoint;
+        }
+        // the checkpoint of the previous archive must not be used with the new one
+        task.setCheckpoint(new BatchDownloadCheckpoint(null, 0, 0).toJson());
+        return null;
+    }
+
     private Zipper createZipper(BatchDownload batchDownload, PropertiesProvider propertiesProvider, Function<URI, MailSender> mailSenderSupplier) throws URISyntaxException, IOException {
         if (batchDownload.encrypted) {
             String rootHost = propertiesProvider.get("rootHost").orElse(null);
             URI mailSenderUri = new URI(propertiesProvider.get("smtpUrl").orElse("smtp://localhost:25"));
             MailSender mailSender = mailSenderSupplier.apply(mailSenderUri);
-            return new ZipperWithPassword(batchDownload, propertiesProvider, mailSender, rootHost);
+            return new ZipperWithPassword(batchDownload, mailSender, rootHost);
         }
-        return new Zipper(batchDownload, propertiesProvider);
+        return new Zipper(batchDownload);
     }
 
     @Override
@@ -159,27 +210,246 @@ public class BatchDownloadRunner implements Callable<UriResult>, Monitorable, Us
     private BatchDownload getBatchDownload() {
         return (BatchDownload) task.args.get("batchDownload");
     }
+    private ExtractedSource extract(Document document, Path tmpDir) throws IOException {
+        if (!documentVerifier.isRootDocumentSizeAllowed(document)) {
+            return null;
+        }
+        try (InputStream from = new SourceExtractor(propertiesProvider).getSource(document.getProject(), document)) {
+            return ExtractedSource.copyOf(from, tmpDir);
+        } catch (ExtractException | ZipException | FileNotFoundException | ContentNotFoundException zex) {
+            logger.warn("exception during extract/zip. skipping entry for doc " + document.getId(), zex);
+            return null;
+        }
+    }
+
+    /**
+     * Extracts the documents sources with a pool of threads while the calling thread writes them in the zip
+     * in the submission order. At most 2 * parallelism sources are extracted ahead of the writer, and no more
+     * documents are submitted when the already written and the pending entries reach the limits.
+     * <p>
+     * The searcher checkpoint of a page is saved in the task once all the documents of the page are written.
+     */
+    private class ZipPipeline implements AutoCloseable {
+        private final Zipper zipper;
+        private final ExecutorService extractors;
+        private final Deque<PendingEntry> pending = new ArrayDeque<>();
+        private final Deque<PageEnd> pageEnds = new ArrayDeque<>();
+        private final int maxPending;
+        private final int maxResultSize;
+        private final long maxZipSizeBytes;
+        private final Path tmpDir;
+        private long zippedFilesSize = 0;
+        private long pendingBytes = 0;
+        private long submitted = 0;
+        private long written = 0;
+
+        ZipPipeline(Zipper zipper, int parallelism, int maxResultSize, long maxZipSizeBytes) {
+            this.zipper = zipper;
+            this.extractors = Executors.newFixedThreadPool(parallelism);
+            this.maxPending = 2 * parallelism;
+            this.maxResultSize = maxResultSize;
+            this.maxZipSizeBytes = maxZipSizeBytes;
+            this.tmpDir = zipper.batchDownload.filename.toAbsolutePath().getParent();
+        }
+
+        /**
+         * @return false if the limits are reached and no more documents should be submitted
+         */
+        boolean submit(Document document) throws IOException, InterruptedException {
+            while (pending.size() >= maxPending) {
+                writeNext();
+            }
+            if (isFull(pending.size(), pendingBytes)) {
+                // pending entries can be skipped or smaller than estimated: wait for them before giving up
+                finish();
+                if (isFull(0, 0)) {
+                    return false;
+                }
+            }
+            long estimatedSize = Math.max(0, document.getContentLength());
+            pending.add(new PendingEntry(document, estimatedSize, extractors.submit(() -> extract(document, tmpDir))));
+            pendingBytes += estimatedSize;
+            submitted++;
+            return true;
+        }
+
+        void endOfPage(String searchCheckpoint) {
+            if (searchCheckpoint != null) {
+                pageEnds.add(new PageEnd(submitted, searchCheckpoint));
+                saveCheckpoints();
+            }
+        }
+
+        /**
+         * copies the entries of the previous archive written before the checkpoint
+         */
+        void resume(Path previousArchive, BatchDownloadCheckpoint checkpoint) throws IOException {
+            int copied = zipper.copy(previousArchive, checkpoint.entries());
+            if (copied < checkpoint.entries()) {
+                logger.warn("only {}/{} entries could be copied from the previous archive of {}", copied, checkpoint.entries(), zipper.batchDownload.uuid);
+            }
+            numberOfResults.set(copied);
+            zippedFilesSize = checkpoint.bytes();
+            Files.delete(previousArchive);
+        }
+
+        void finish() throws IOException, InterruptedException {
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+        }
+
+        private void writeNext() throws IOException, InterruptedException {
+            PendingEntry entry = pending.poll();
+            pendingBytes -= entry.estimatedSize;
+            try (ExtractedSource source = entry.get()) {
+                if (source != null && !isFull(0, 0)) {
+                    long addedBytes = zipper.add(entry.document, source);
+                    if (addedBytes > 0) {
+                        zippedFilesSize += addedBytes;
+                        numberOfResults.incrementAndGet();
+                        nbZippedFiles.inc();
+                        nbZippedBytes.inc(addedBytes);
+                        progressCallback.apply(getProgressRate());
+                    }
+                }
+            }
+            written++;
+            saveCheckpoints();
+        }
+
+        private void saveCheckpoints() {
+            while (!pageEnds.isEmpty() && pageEnds.peek().submitted() <= written) {
+                task.setCheckpoint(new BatchDownloadCheckpoint(pageEnds.poll().search(), numberOfResults.get(), zippedFilesSize).toJson());
+                progressCallback.apply(getProgressRate());
+            }
+        }
+
+        private boolean isFull(int pendingEntries, long pendingBytes) {
+            return numberOfResults.get() + pendingEntries >= maxResultSize || zippedFilesSize + pendingBytes > maxZipSizeBytes;
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            extractors.shutdownNow();
+            if (!extractors.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.warn("extractor threads are still running for {}", zipper.batchDownload.uuid);
+            }
+            for (PendingEntry entry : pending) {
+                entry.discard();
+            }
+            pending.clear();
+        }
+    }
+
+    private record PageEnd(long submitted, String search) {}
+
+    private static class PendingEntry {
+        final Document document;
+        final long estimatedSize;
+        final Future<ExtractedSource> source;
+
+        PendingEntry(Document document, long estimatedSize, Future<ExtractedSource> source) {
+            this.document = document;
+            this.estimatedSize = estimatedSize;
+            this.source = source;
+        }
+
+        ExtractedSource get() throws IOException, InterruptedException {
+            try {
+                return source.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+
+        void discard() {
+            if (source.isDone() && !source.isCancelled()) {
+                try (ExtractedSource extracted = source.get()) {
+                    logger.debug("discarding extracted source of {}", document.getId());
+                } catch (ExecutionException | InterruptedException | IOException e) {
+                    logger.debug("discarded extraction of {} failed", document.getId(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Document source copied in memory, or in a temporary file when it is bigger than MAX_IN_MEMORY_SOURCE_SIZE.
+     */
+    static class ExtractedSource implements AutoCloseable {
+        private final byte[] bytes;
+        private final int length;
+        private final Path file;
+
+        private ExtractedSource(byte[] bytes, int length, Path file) {
+            this.bytes = bytes;
+            this.length = length;
+            this.file = file;
+        }
+
+        static ExtractedSource copyOf(InputStream from, Path tmpDir) throws IOException {
+            ByteArrayOutputStream memory = new ByteArrayOutputStream();
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int len;
+            while ((len = from.read(buffer)) > 0) {
+                memory.write(buffer, 0, len);
+                if (memory.size() > MAX_IN_MEMORY_SOURCE_SIZE) {
+                    return copyToFile(memory, from, tmpDir);
+                }
+            }
+            return new ExtractedSource(memory.toByteArray(), memory.size(), null);
+        }
+
+        private static ExtractedSource copyToFile(ByteArrayOutputStream head, InputStream from, Path tmpDir) throws IOException {
+            Path file = Files.createTempFile(tmpDir, "batch-download-", ".src");
+            try (OutputStream to = Files.newOutputStream(file)) {
+                head.writeTo(to);
+                from.transferTo(to);
+            } catch (IOException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            return new ExtractedSource(null, 0, file);
+        }
+
+        InputStream open() throws IOException {
+            return file == null ? new ByteArrayInputStream(bytes, 0, length) : Files.newInputStream(file);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
     private static class Zipper implements AutoCloseable {
 
         protected final BatchDownload batchDownload;
         protected final ZipOutputStream zipOutputStream;
-        private final PropertiesProvider propertiesProvider;
 
-        protected Zipper(BatchDownload batchDownload, PropertiesProvider propertiesProvider) throws IOException {
-            this(batchDownload, propertiesProvider, new ZipOutputStream(new FileOutputStream(batchDownload.filename.toFile())));
+        protected Zipper(BatchDownload batchDownload) throws IOException {
+            this(batchDownload, new ZipOutputStream(new FileOutputStream(batchDownload.filename.toFile())));
         }
 
-        protected Zipper(BatchDownload batchDownload,  PropertiesProvider propertiesProvider, ZipOutputStream zipOutputStream) {
+        protected Zipper(BatchDownload batchDownload, ZipOutputStream zipOutputStream) {
             this.batchDownload = batchDownload;
             this.zipOutputStream = zipOutputStream;
-            this.propertiesProvider = propertiesProvider;
         }
 
-        public int add(Document doc) throws IOException {
-            try (InputStream from = new SourceExtractor(propertiesProvider).getSource(doc.getProject(), doc)) {
-                int zippedSize = 0;
+        public long add(Document doc, ExtractedSource source) throws IOException {
+            try (InputStream from = source.open()) {
+                long zippedSize = 0;
                 zipOutputStream.putNextEntry(createEntry(getEntryName(doc)));
-                byte[] buffer = new byte[4096];
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
                 int len;
                 while ((len = from.read(buffer)) > 0) {
                     zipOutputStream.write(buffer, 0, len);
@@ -187,12 +457,38 @@ public class BatchDownloadRunner implements Callable<UriResult>, Monitorable, Us
                 }
                 zipOutputStream.closeEntry();
                 return zippedSize;
-            } catch (ExtractException | ZipException | FileNotFoundException | ContentNotFoundException zex) {
-                logger.warn("exception during extract/zip. skipping entry for doc " + doc.getId(), zex);
+            } catch (ZipException zex) {
+                logger.warn("exception during zip. skipping entry for doc " + doc.getId(), zex);
                 return 0;
             }
         }
 
+        /**
+         * copies the first entries of an archive. The archive of a stopped process can be truncated,
+         * so the copy stops at its first unreadable entry.
+         *
+         * @return the number of entries copied
+         */
+        int copy(Path archive, int nbEntries) throws IOException {
+            int copied = 0;
+            try (ZipInputStream from = new ZipInputStream(Files.newInputStream(archive))) {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                LocalFileHeader header;
+                while (copied < nbEntries && (header = from.getNextEntry()) != null) {
+                    zipOutputStream.putNextEntry(createEntry(header.getFileName()));
+                    int len;
+                    while ((len = from.read(buffer)) > 0) {
+                        zipOutputStream.write(buffer, 0, len);
+                    }
+                    zipOutputStream.closeEntry();
+                    copied++;
+                }
+            } catch (IOException ioex) {
+                logger.warn("cannot read entry {} of previous archive {}", copied, archive, ioex);
+            }
+            return copied;
+        }
+
         protected ZipParameters createEntry(String entryName) {
             ZipParameters zipParams = new ZipParameters();
             zipParams.setFileNameInZip(entryName);
@@ -215,12 +511,12 @@ public class BatchDownloadRunner implements Callable<UriResult>, Monitorable, Us
         private final MailSender passwordSender;
         private final String rootHost;
 
-        public ZipperWithPassword(BatchDownload batchDownload, PropertiesProvider propertiesProvider, MailSender mailSender, String rootHost) throws IOException {
-            this(batchDownload, propertiesProvider, mailSender, RandomStringUtils.randomAlphanumeric(16), rootHost);
+        public ZipperWithPassword(BatchDownload batchDownload, MailSender mailSender, String rootHost) throws IOException {
+            this(batchDownload, mailSender, RandomStringUtils.randomAlphanumeric(16), rootHost);
         }
 
-        public ZipperWithPassword(BatchDownload batchDownload, PropertiesProvider propertiesProvider, MailSender mailSender, String password, String rootHost) throws IOException {
-            super(batchDownload, propertiesProvider, new ZipOutputStream(new FileOutputStream(batchDownload.filename.toFile()), password.toCharArray()));
+        public ZipperWithPassword(BatchDownload batchDownload, MailSender mailSender, String password, String rootHost) throws IOException {
+            super(batchDownload, new ZipOutputStream(new FileOutputStream(batchDownload.filename.toFile()), password.toCharArray()));
             this.password = password;
             this.passwordSender = mailSender;
             this.rootHost = rootHost;
@@ -265,4 +561,27 @@ public class BatchDownloadRunner implements Callable<UriResult>, Monitorable, Us
             }
         }
     }
+
+    /**
+     * @param search checkpoint of the searcher after the last written page, or null to create the archive from its start
+     * @param entries number of entries of the archive at the checkpoint
+     * @param bytes size of the files of the archive at the checkpoint
+     */
+    record BatchDownloadCheckpoint(String search, int entries, long bytes) {
+        static BatchDownloadCheckpoint parse(String checkpoint) {
+            try {
+                return JsonObjectMapper.MAPPER.readValue(checkpoint, BatchDownloadCheckpoint.class);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("invalid checkpoint " + checkpoint, e);
+            }
+        }
+
+        String toJson() {
+            try {
+                return JsonObjectMapper.MAPPER.writeValueAsString(this);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
 }
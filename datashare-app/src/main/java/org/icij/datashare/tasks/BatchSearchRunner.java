@@ -15,6 +15,8 @@ import org.icij.datashare.batch.BatchSearch;
 import org.icij.datashare.batch.BatchSearchRecord;
 import org.icij.datashare.batch.BatchSearchRepository;
 import org.icij.datashare.batch.SearchException;
+import org.icij.datashare.json.JsonObjectMapper;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.ProjectProxy;
 import org.icij.datashare.text.indexing.Indexer;
@@ -26,12 +28,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeoutException;
 
 import static java.lang.Integer.min;
 import static java.lang.Integer.parseInt;
+import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
 import static org.icij.datashare.cli.DatashareCliOptions.BATCH_SEARCH_MAX_TIME_OPT;
 import static org.icij.datashare.cli.DatashareCliOptions.BATCH_SEARCH_SCROLL_DURATION_OPT;
@@ -43,20 +48,20 @@ import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_SCROLL_DURATION
 import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_SCROLL_SIZE;
 import static org.icij.datashare.cli.DatashareCliOptions.SCROLL_SIZE_OPT;
 import static org.icij.datashare.text.ProjectProxy.asCommaConcatNames;
+import static org.icij.datashare.text.indexing.ScrollQueryBuilder.createScrollQuery;
 
 public class BatchSearchRunner implements CancellableTask, UserTask, Callable<Integer> {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     /**
-     * max scroll size will get n results at each scroll
-     * each result is binding 9 fields on an insert query
-     * and max sql binding is an int(2) = 32768
-     * As we do batch insert with VALUES (val1, ..., val9), (val1, ..., val9)
-     * max scroll size should be < 32768 / 9 (3640)
+     * max number of results of a batch search query. Results are saved in bulk (COPY or JDBC batch)
+     * so it is not bound by the max number of SQL bind variables anymore.
      */
-    static final int MAX_SCROLL_SIZE = 3500;
     static final int MAX_BATCH_RESULT_SIZE = 60000;
-
+    /**
+     * elasticsearch rejects pages bigger than index.max_result_window (10000 by default)
+     */
+    static final int MAX_SCROLL_SIZE = 10000;
     private final Indexer indexer;
     private final PropertiesProvider propertiesProvider;
     private final Function<Double, Void> updateCallback;
@@ -67,15 +72,22 @@ public class BatchSearchRunner implements CancellableTask, UserTask, Callable<In
     protected volatile boolean cancelAsked = false;
     protected volatile Thread callThread;
     protected volatile boolean requeueCancel;
+    private final MetricRegistry.Histogram queryDuration;
+    private final MetricRegistry.Counter nbQueries;
+    private final MetricRegistry.Counter nbResultsMetric;
 
     @Inject
-    public BatchSearchRunner(Indexer indexer, PropertiesProvider propertiesProvider, BatchSearchRepository repository,
+    public BatchSearchRunner(Indexer indexer, PropertiesProvider propertiesProvider, BatchSearchRepository repository, MetricRegistry metrics,
                              @Assisted Task<?> taskView, @Assisted Function<Double, Void> updateCallback) {
-        this(indexer, propertiesProvider, repository, taskView, updateCallback, new CountDownLatch(1));
+        this(indexer, propertiesProvider, repository, metrics, taskView, updateCallback, new CountDownLatch(1));
     }
 
-    BatchSearchRunner(Indexer indexer, PropertiesProvider propertiesProvider, BatchSearchRepository repository,
+    BatchSearchRunner(Indexer indexer, PropertiesProvider propertiesProvider, BatchSearchRepository repository, MetricRegistry metrics,
                       Task<?> taskView, Function<Double, Void> updateCallback, CountDownLatch latch) {
+        this.queryDuration = metrics.histogram(
+                "datashare_batch_search_query_duration_seconds", "Duration of the batch search queries (search, scrolls and results saving)");
+        this.nbQueries = metrics.counter("datashare_batch_search_queries_total", "Batch search queries run");
+        this.nbResultsMetric = metrics.counter("datashare_batch_search_results_total", "Batch search results saved");
         this.indexer = indexer;
         this.propertiesProvider = propertiesProvider;
         this.repository = repository;
@@ -84,10 +96,16 @@ public class BatchSearchRunner implements CancellableTask, UserTask, Callable<In
         this.callWaiterLatch = latch;
     }
 
+    /**
+     * When the searcher gives checkpoints, the position of the batch search is saved in the task checkpoint after each
+     * page of results, else after each query. A batch search cancelled with requeue then keeps its results and resumes
+     * from its checkpoint, instead of being reset.
+     */
     @Override
     public Integer call() throws Exception {
-        int numberOfResults = 0;
-        int totalProcessed = 0;
+        BatchSearchCheckpoint from = ofNullable(taskView.getCheckpoint()).map(BatchSearchCheckpoint::parse).orElse(null);
+        int numberOfResults = from == null ? 0 : from.results();
+        int totalProcessed = from == null ? 0 : from.queries();
 
         int throttleMs = parseInt(propertiesProvider.get(BATCH_THROTTLE_OPT).orElse(DEFAULT_BATCH_THROTTLE));
         int maxTimeSeconds = parseInt(propertiesProvider.get(BATCH_SEARCH_MAX_TIME_OPT).orElse(DEFAULT_BATCH_SEARCH_MAX_TIME));
@@ -110,42 +128,78 @@ public class BatchSearchRunner implements CancellableTask, UserTask, Callable<In
                     batchSearch.queries.size(), batchSearch.uuid, asCommaConcatNames(batchSearch.projects)
                     , throttleMs, scrollSize);
             repository.setState(batchSearch.uuid, BatchSearchRecord.State.RUNNING);
-            for (String s : batchSearch.queries.keySet()) {
-                query = s;
+            List<String> queries = new ArrayList<>(batchSearch.queries.keySet());
+            if (from != null) {
+                logger.info("resuming batch search {} at query {}/{}", batchSearch.uuid, totalProcessed + 1, queries.size());
+            }
+            while (totalProcessed < queries.size()) {
+                query = queries.get(totalProcessed);
+                String resumedSearch = from != null && from.queries() == totalProcessed ? from.search() : null;
+                long queryStart = System.nanoTime();
                 Indexer.Searcher searcher;
                 List<? extends Entity> docsToProcess;
                 if (batchSearch.hasQueryTemplate()) { // for retro-compatibility should be removed at some point to keep only bodyTemplate
                     searcher = indexer.search(batchSearch.projects.stream().map(ProjectProxy::getId).collect(toList()), Document.class, batchSearch.queryTemplate)
                             .with(batchSearch.fuzziness, batchSearch.phraseMatches).withoutSource("content").limit(scrollSize);
-                    docsToProcess = searcher.scroll(scrollDuration, query).collect(toList());
+                    docsToProcess = searcher.scroll(createScrollQuery().withDuration(scrollDuration).withStringQuery(query)
+                            .withSlices(0, 0).resumable().withCheckpoint(resumedSearch).build()).collect(toList());
                 } else {
                     searcher = indexer.search(batchSearch.projects.stream().map(ProjectProxy::getId).collect(toList()), Document.class, new SearchQuery(query));
                     ((Indexer.QueryBuilderSearcher) searcher).withFieldValues("contentType", batchSearch.fileTypes.toArray(new String[]{}))
                             .withPrefixQuery("path", batchSearch.paths.toArray(new String[]{}))
                             .with(batchSearch.fuzziness, batchSearch.phraseMatches)
                             .withoutSource("content").limit(scrollSize);
-                    docsToProcess = searcher.scroll(scrollDuration).collect(toList());
+                    docsToProcess = searcher.scroll(createScrollQuery().withDuration(scrollDuration)
+                            .withSlices(0, 0).resumable().withCheckpoint(resumedSearch).build()).collect(toList());
                 }
 
                 long beforeScrollLoop = DatashareTime.getInstance().currentTimeMillis();
-                while (docsToProcess.size() != 0 && numberOfResults < MAX_BATCH_RESULT_SIZE - MAX_SCROLL_SIZE) {
-                    if (cancelAsked) {
-                        logger.info("cancelling batch search {} requeue={}", batchSearch.uuid, requeueCancel);
-                        repository.reset(batchSearch.uuid);
-                        throw new CancelException(requeueCancel);
+                int resumedQueryResults = resumedSearch == null ? 0 : from.queryResults();
+                int queryResults = resumedQueryResults;
+                // the saved results are the ones of the last checkpoint
+                boolean resumable = true;
+                boolean cancelled = false;
+                try {
+                    while (docsToProcess.size() != 0 && numberOfResults < MAX_BATCH_RESULT_SIZE) {
+                        if (cancelAsked) {
+                            logger.info("cancelling batch search {} requeue={} resumable={}", batchSearch.uuid, requeueCancel, resumable);
+                            cancelled = true;
+                            if (!requeueCancel || !resumable || taskView.getCheckpoint() == null) {
+                                repository.reset(batchSearch.uuid);
+                                if (taskView.getCheckpoint() != null) {
+                                    saveCheckpoint(new BatchSearchCheckpoint(0, 0, 0, null), 0);
+                                }
+                            }
+                            throw new CancelException(requeueCancel);
+                        }
+                        List<Document> results = (List<Document>) docsToProcess.subList(0, min(docsToProcess.size(), MAX_BATCH_RESULT_SIZE - numberOfResults));
+                        repository.appendResults(batchSearch.uuid, query, results, queryResults);
+                        queryResults += results.size();
+                        numberOfResults += results.size();
+                        String searchCheckpoint = searcher.checkpoint();
+                        resumable = searchCheckpoint != null;
+                        if (resumable) {
+                            saveCheckpoint(new BatchSearchCheckpoint(totalProcessed, numberOfResults, queryResults, searchCheckpoint),
+                                    (double) totalProcessed / queries.size());
+                        }
+                        if (DatashareTime.getInstance().currentTimeMillis() - beforeScrollLoop < maxTimeSeconds * 1000L) {
+                            DatashareTime.getInstance().sleep(throttleMs);
+                        } else {
+                            throw new SearchException(query, new TimeoutException("Batch timed out after " + maxTimeSeconds + "s"));
+                        }
+                        docsToProcess = searcher.scroll(scrollDuration).collect(toList());
                     }
-                    repository.saveResults(batchSearch.uuid, query, (List<Document>) docsToProcess);
-                    if (DatashareTime.getInstance().currentTimeMillis() - beforeScrollLoop < maxTimeSeconds * 1000L) {
-                        DatashareTime.getInstance().sleep(throttleMs);
-                    } else {
-                        throw new SearchException(query, new TimeoutException("Batch timed out after " + maxTimeSeconds + "s"));
+                } finally {
+                    if (queryResults > 0 && !cancelled) {
+                        repository.addResultsCount(batchSearch.uuid, query, queryResults);
                     }
-                    numberOfResults += docsToProcess.size();
-                    docsToProcess = searcher.scroll(scrollDuration).collect(toList());
+                    nbResultsMetric.inc(queryResults - resumedQueryResults);
                 }
                 searcher.clearScroll();
+                queryDuration.observeSince(queryStart);
+                nbQueries.inc();
                 totalProcessed += 1;
-                updateCallback.apply((double) totalProcessed / batchSearch.queries.size());
+                saveCheckpoint(new BatchSearchCheckpoint(totalProcessed, numberOfResults, 0, null), (double) totalProcessed / queries.size());
             }
             repository.setState(batchSearch.uuid, BatchSearchRecord.State.SUCCESS);
             logger.info("done batch search {} with success", batchSearch.uuid);
@@ -160,6 +214,11 @@ public class BatchSearchRunner implements CancellableTask, UserTask, Callable<In
         return numberOfResults;
     }
 
+    private void saveCheckpoint(BatchSearchCheckpoint checkpoint, double progress) {
+        taskView.setCheckpoint(checkpoint.toJson());
+        updateCallback.apply(progress);
+    }
+
     @Override
     public User getUser() {
         return taskView.getUser();
@@ -179,4 +238,28 @@ public class BatchSearchRunner implements CancellableTask, UserTask, Callable<In
             logger.warn("batch search interrupted during cancel check status for {}", taskView.id);
         }
     }
+
+    /**
+     * @param queries number of queries done
+     * @param results number of results saved
+     * @param queryResults number of results saved for the current query
+     * @param search checkpoint of the current query searcher, or null to run the query from its start
+     */
+    record BatchSearchCheckpoint(int queries, int results, int queryResults, String search) {
+        static BatchSearchCheckpoint parse(String checkpoint) {
+            try {
+                return JsonObjectMapper.MAPPER.readValue(checkpoint, BatchSearchCheckpoint.class);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("invalid checkpoint " + checkpoint, e);
+            }
+        }
+
+        String toJson() {
+            try {
+                return JsonObjectMapper.MAPPER.writeValueAsString(this);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
 }
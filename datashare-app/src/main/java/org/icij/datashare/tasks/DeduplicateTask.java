@@ -7,17 +7,27 @@ import org.icij.datashare.Stage;
 import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.extract.DocumentCollectionFactory;
 import org.icij.extract.queue.DocumentQueue;
+import org.icij.extract.queue.DocumentSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * filters the document queue with extracted docs
+ * <p>
+ * The paths are taken from the input queue by batches and transferred to the output queue
+ * if they have not been seen yet, so the deduplication can run while the scan is still filling the input queue.
+ * The paths seen are kept in a set of the document collection factory, which deduplicates
+ * and transfers a batch in one round trip with redis.
  */
 public class DeduplicateTask extends PipelineTask<Path> {
+    static final int BATCH_SIZE = 1000;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final DocumentCollectionFactory<Path> factory;
 
@@ -30,27 +40,45 @@ public class DeduplicateTask extends PipelineTask<Path> {
     @Override
     public Long call() throws Exception {
         super.call();
-        int duplicates = inputQueue.removeDuplicates();
-        transferToOutputQueue();
+        long duplicates = transferToOutputQueue();
         logger.info("removed {} duplicate paths in inputQueue {}", duplicates, inputQueue.getName());
-        return (long)duplicates;
+        return duplicates;
     }
 
     long transferToOutputQueue() throws Exception {
         return transferToOutputQueue(p -> true);
     }
 
+    /**
+     * @return the number of paths that have not been transferred (filtered or duplicates)
+     */
     long transferToOutputQueue(Predicate<Path> filter) throws Exception {
-        long originalSize = inputQueue.size();
-        try (DocumentQueue<Path> outputQueue = factory.createQueue(getOutputQueueName(), Path.class)) {
-            Path path;
-            while (!(path = inputQueue.take()).equals(PATH_POISON)) {
-                if (filter.test(path)) {
-                    outputQueue.add(path);
+        long skipped = 0;
+        try (DocumentQueue<Path> outputQueue = factory.createQueue(getOutputQueueName(), Path.class);
+             DocumentSet<Path> seen = factory.createSet(getSeenSetName(), Path.class)) {
+            List<Path> batch = new ArrayList<>(BATCH_SIZE);
+            boolean poisoned = false;
+            while (!poisoned) {
+                batch.add(inputQueue.take());
+                inputQueue.drainTo(batch, BATCH_SIZE - 1);
+                int poisonIndex = batch.indexOf(PATH_POISON);
+                if (poisonIndex >= 0) {
+                    List<Path> afterPoison = batch.subList(poisonIndex + 1, batch.size());
+                    inputQueue.addAll(afterPoison);
+                    batch.subList(poisonIndex, batch.size()).clear();
+                    poisoned = true;
                 }
+                List<Path> filtered = batch.stream().filter(filter).collect(Collectors.toList());
+                skipped += batch.size() - factory.addAllIfAbsent(seen, outputQueue, filtered);
+                batch.clear();
             }
             outputQueue.add(PATH_POISON);
-            return originalSize - outputQueue.size();
+            seen.clear();
         }
+        return skipped;
+    }
+
+    String getSeenSetName() {
+        return inputQueue.getName() + ":seen";
     }
 }
@@ -3,13 +3,14 @@ package org.icij.datashare.tasks;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import java.util.Optional;
 import java.util.function.Function;
-import org.icij.datashare.Entity;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.Stage;
 import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.extract.DocumentCollectionFactory;
+import org.icij.datashare.json.JsonObjectMapper;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.ProjectProxy;
 import org.icij.datashare.text.indexing.Indexer;
@@ -19,19 +20,29 @@ import org.icij.extract.queue.DocumentQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 
 import static java.lang.Integer.parseInt;
 import static java.util.Collections.singletonList;
+import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
 import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_DEFAULT_PROJECT;
 import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_PROJECT_OPT;
 import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_SCROLL_DURATION;
 import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_SCROLL_SIZE;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_SCROLL_SLICES;
 import static org.icij.datashare.cli.DatashareCliOptions.NLP_PIPELINE_OPT;
 import static org.icij.datashare.cli.DatashareCliOptions.SCROLL_DURATION_OPT;
 import static org.icij.datashare.cli.DatashareCliOptions.SCROLL_SIZE_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.SCROLL_SLICES_OPT;
 import static org.icij.datashare.cli.DatashareCliOptions.SEARCH_QUERY_OPT;
+import static org.icij.datashare.text.indexing.ScrollQueryBuilder.createScrollQuery;
 
 public class EnqueueFromIndexTask extends PipelineTask<String> {
     private final DocumentCollectionFactory<String> factory;
@@ -42,6 +53,11 @@ public class EnqueueFromIndexTask extends PipelineTask<String> {
     private final Indexer indexer;
     private final String scrollDuration;
     private final int scrollSize;
+    private final int scrollSlices;
+    private final Function<Double, Void> updateCallback;
+    private final Task<Long> taskView;
+    // position of each slice, to resume from the task checkpoint
+    private final Map<Integer, SliceCheckpoint> slices;
 
     @Inject
     public EnqueueFromIndexTask(final DocumentCollectionFactory<String> factory, final Indexer indexer,
@@ -53,35 +69,107 @@ public class EnqueueFromIndexTask extends PipelineTask<String> {
         this.projectName = (String)taskView.args.getOrDefault(DEFAULT_PROJECT_OPT, DEFAULT_DEFAULT_PROJECT);
         this.scrollDuration = propertiesProvider.get(SCROLL_DURATION_OPT).orElse(DEFAULT_SCROLL_DURATION);
         this.scrollSize = parseInt(propertiesProvider.get(SCROLL_SIZE_OPT).orElse(String.valueOf(DEFAULT_SCROLL_SIZE)));
+        this.scrollSlices = parseInt(propertiesProvider.get(SCROLL_SLICES_OPT).orElse(String.valueOf(DEFAULT_SCROLL_SLICES)));
+        this.updateCallback = updateCallback;
         this.searchQuery = propertiesProvider.get(SEARCH_QUERY_OPT).orElse(null);
+        this.taskView = taskView;
+        this.slices = ofNullable(taskView.getCheckpoint()).map(SliceCheckpoint::parse).orElse(new HashMap<>());
     }
 
     @Override
     public Long call() throws Exception {
         super.call();
-        Indexer.Searcher searcher;
-        if (searchQuery == null) {
-            searcher = indexer.search(singletonList(projectName), Document.class)
-                    .without(nlpPipeline).withSource("rootDocument").limit(scrollSize);
-        } else {
-            searcher = indexer.search(singletonList(projectName), Document.class, new SearchQuery(searchQuery))
-                    .withoutSource("content", "contentTranslated").limit(scrollSize);
+        long count = createSearcher().count();
+        logger.info("enqueuing doc ids finding for index {} and {} with {} scroll, size of {} and {} slice(s) : {} documents found",
+                projectName, nlpPipeline, scrollDuration, scrollSize, scrollSlices, count);
+        AtomicLong nbEnqueued = new AtomicLong(slices.values().stream().mapToLong(SliceCheckpoint::enqueued).sum());
+        if (!slices.isEmpty()) {
+            logger.info("resuming enqueuing of {} after {} documents", projectName, nbEnqueued.get());
         }
-        logger.info("enqueuing doc ids finding for index {} and {} with {} scroll and size of {} : {} documents found", projectName, nlpPipeline,
-                scrollDuration, scrollSize, searcher.totalHits());
-        List<? extends Entity> docsToProcess = searcher.scroll(scrollDuration).collect(toList());
-        long totalHits = searcher.totalHits();
-
         try (DocumentQueue<String> outputQueue = factory.createQueue(getOutputQueueName(), String.class)) {
-            do {
-                docsToProcess.forEach(doc -> outputQueue.add(doc.getId()));
-                docsToProcess = searcher.scroll(scrollDuration).collect(toList());
-            } while (!docsToProcess.isEmpty());
+            IntStream.range(0, scrollSlices).parallel().forEach(sliceNum -> slicedScroll(sliceNum, outputQueue, nbEnqueued, count));
             outputQueue.add(STRING_POISON);
-            logger.info("enqueued into {} {} files", outputQueue.getName(), totalHits);
+            logger.info("enqueued into {} {} files", outputQueue.getName(), nbEnqueued.get());
+        }
+        return nbEnqueued.get();
+    }
+
+    /**
+     * pushes the ids of each scroll page with a single call (a single RPUSH for redis queues).
+     * When the searcher gives checkpoints, the position of the slice is saved in the task checkpoint after each page,
+     * so the ids enqueued after the last saved page are enqueued again if the task is resumed.
+     */
+    private void slicedScroll(int sliceNum, DocumentQueue<String> outputQueue, AtomicLong nbEnqueued, long count) {
+        SliceCheckpoint from = getSlice(sliceNum);
+        if (from != null && from.done()) {
+            return;
+        }
+        Indexer.Searcher searcher = createSearcher();
+        try {
+            List<String> idsToProcess;
+            String checkpoint = from == null ? null : from.search();
+            long sliceEnqueued = from == null ? 0 : from.enqueued();
+            boolean resumable = checkpoint != null;
+            do {
+                idsToProcess = searcher.scrollIds(createScrollQuery().withDuration(scrollDuration).withSlices(sliceNum, scrollSlices)
+                        .resumable().withCheckpoint(checkpoint).build()).collect(toList());
+                outputQueue.addAll(idsToProcess);
+                sliceEnqueued += idsToProcess.size();
+                long enqueued = nbEnqueued.addAndGet(idsToProcess.size());
+                checkpoint = searcher.checkpoint();
+                resumable |= checkpoint != null;
+                if (resumable) {
+                    setSlice(sliceNum, new SliceCheckpoint(checkpoint, sliceEnqueued, idsToProcess.isEmpty()));
+                }
+                if (updateCallback != null && count > 0) {
+                    updateCallback.apply(Math.min(1.0, (double) enqueued / count));
+                }
+                checkpoint = null;
+            } while (!idsToProcess.isEmpty());
             searcher.clearScroll();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized SliceCheckpoint getSlice(int sliceNum) {
+        return slices.get(sliceNum);
+    }
+
+    private synchronized void setSlice(int sliceNum, SliceCheckpoint slice) {
+        slices.put(sliceNum, slice);
+        taskView.setCheckpoint(SliceCheckpoint.toJson(slices));
+    }
+
+    private Indexer.Searcher createSearcher() {
+        if (searchQuery == null) {
+            return indexer.search(singletonList(projectName), Document.class)
+                    .without(nlpPipeline).limit(scrollSize);
         }
+        return indexer.search(singletonList(projectName), Document.class, new SearchQuery(searchQuery))
+                .limit(scrollSize);
+    }
 
-        return totalHits;
+    /**
+     * @param search checkpoint of the slice searcher
+     * @param enqueued number of ids enqueued by the slice
+     * @param done true when all the ids of the slice are enqueued
+     */
+    record SliceCheckpoint(String search, long enqueued, boolean done) {
+        static Map<Integer, SliceCheckpoint> parse(String checkpoint) {
+            try {
+                return JsonObjectMapper.MAPPER.readValue(checkpoint, new TypeReference<HashMap<Integer, SliceCheckpoint>>() {});
+            } catch (IOException e) {
+                throw new IllegalArgumentException("invalid checkpoint " + checkpoint, e);
+            }
+        }
+
+        static String toJson(Map<Integer, SliceCheckpoint> slices) {
+            try {
+                return JsonObjectMapper.MAPPER.writeValueAsString(slices);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
     }
 }
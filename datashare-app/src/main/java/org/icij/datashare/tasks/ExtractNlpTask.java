@@ -4,13 +4,16 @@ import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import java.util.function.Function;
 import org.icij.datashare.HumanReadableSize;
+import org.icij.datashare.PipelineHelper;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.Stage;
 import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.extension.PipelineRegistry;
 import org.icij.datashare.extract.DocumentCollectionFactory;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.monitoring.Monitorable;
 import org.icij.datashare.text.Document;
+import org.icij.datashare.text.Language;
 import org.icij.datashare.text.NamedEntity;
 import org.icij.datashare.text.Project;
 import org.icij.datashare.text.indexing.Indexer;
@@ -19,96 +22,231 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.lang.String.valueOf;
 import static java.util.Optional.ofNullable;
 import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_DEFAULT_PROJECT;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_NLP_BATCH_SIZE;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_NLP_PARALLELISM;
 import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_PROJECT_OPT;
 import static org.icij.datashare.cli.DatashareCliOptions.MAX_CONTENT_LENGTH_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.NLP_BATCH_SIZE_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.NLP_PARALLELISM_OPT;
 import static org.icij.datashare.cli.DatashareCliOptions.NLP_PIPELINE_OPT;
 import static org.icij.extract.document.Identifier.shorten;
 
 public class ExtractNlpTask extends PipelineTask<String> implements Monitorable {
     private static final int DEFAULT_MAX_CONTENT_LENGTH = 1024 * 1024;
+    static final int MAX_BUFFERED_ENTITIES = 10_000;
+    // source fields read by the pipelines: the translations and the other large fields are not fetched
+    static final List<String> SOURCE_INCLUDES = List.of("content", "contentType", "language", "metadata");
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final Indexer indexer;
     private final Pipeline nlpPipeline;
     private final Project project;
     private final int maxContentLengthChars;
+    private final int parallelism;
+    private final int batchSize;
+    private final Map<Document, List<NamedEntity>> namedEntitiesBuffer = new LinkedHashMap<>();
+    private final Set<Language> initializedLanguages = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nbSubmitted = new AtomicLong();
+    private final AtomicLong nbProcessed = new AtomicLong();
+    private final MetricRegistry.Histogram nerDuration;
+    private final MetricRegistry.Counter nbDocumentsMetric;
+    private final MetricRegistry.Counter nbEntitiesMetric;
+    private int nbBufferedEntities = 0;
 
     @Inject
-    public ExtractNlpTask(Indexer indexer, PipelineRegistry registry, final DocumentCollectionFactory<String> factory, @Assisted Task<Long> taskView, @Assisted final Function<Double, Void> updateCallback) {
-        this(indexer, registry.get(Pipeline.Type.parse((String)taskView.args.get(NLP_PIPELINE_OPT))), factory, taskView, updateCallback);
+    public ExtractNlpTask(Indexer indexer, PipelineRegistry registry, final DocumentCollectionFactory<String> factory, MetricRegistry metrics, @Assisted Task<Long> taskView, @Assisted final Function<Double, Void> updateCallback) {
+        this(indexer, registry.get(Pipeline.Type.parse((String)taskView.args.get(NLP_PIPELINE_OPT))), factory, metrics, taskView, updateCallback);
     }
 
-
-    ExtractNlpTask(Indexer indexer, Pipeline pipeline, final DocumentCollectionFactory<String> factory, @Assisted Task<Long> taskView, @Assisted final Function<Double, Void> updateCallback) {
+    ExtractNlpTask(Indexer indexer, Pipeline pipeline, final DocumentCollectionFactory<String> factory, MetricRegistry metrics, Task<Long> taskView, final Function<Double, Void> updateCallback) {
         super(Stage.NLP, taskView.getUser(), factory, new PropertiesProvider(taskView.args), String.class);
         this.nlpPipeline = pipeline;
         project = Project.project(ofNullable((String)taskView.args.get(DEFAULT_PROJECT_OPT)).orElse(DEFAULT_DEFAULT_PROJECT));
         maxContentLengthChars = (int) HumanReadableSize.parse(ofNullable((String)taskView.args.get(MAX_CONTENT_LENGTH_OPT)).orElse(valueOf(DEFAULT_MAX_CONTENT_LENGTH)));
+        parallelism = propertiesProvider.get(NLP_PARALLELISM_OPT).map(Integer::parseInt).orElse(DEFAULT_NLP_PARALLELISM);
+        batchSize = propertiesProvider.get(NLP_BATCH_SIZE_OPT).map(Integer::parseInt).orElse(DEFAULT_NLP_BATCH_SIZE);
         this.indexer = indexer;
+        String pipelineLabel = valueOf(ofNullable(pipeline).map(Pipeline::getType).orElse(null));
+        nerDuration = metrics.histogram("datashare_nlp_document_duration_seconds", "Duration of the named entities extraction for a document", "pipeline", pipelineLabel);
+        nbDocumentsMetric = metrics.counter("datashare_nlp_documents_total", "Documents processed by the named entities extraction", "pipeline", pipelineLabel);
+        nbEntitiesMetric = metrics.counter("datashare_nlp_named_entities_total", "Named entities extracted", "pipeline", pipelineLabel);
     }
 
     @Override
     public Long call() throws Exception {
         super.call();
-        logger.info("extracting Named Entities with pipeline {} for {} from queue {}", nlpPipeline.getType(), project, inputQueue.getName());
-        String docId;
-        long nbMessages = 0;
-        while (!(STRING_POISON.equals(docId = inputQueue.poll(60, TimeUnit.SECONDS)))) {
-            try {
-                if (docId != null) {
-                    findNamedEntities(project, docId);
-                    nbMessages++;
+        logger.info("extracting Named Entities with pipeline {} for {} from queue {} with {} worker(s)", nlpPipeline.getType(), project, inputQueue.getName(), parallelism);
+        boolean forward = new PipelineHelper(propertiesProvider).hasNextStage(stage);
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        // bounds the documents fetched and not processed yet
+        Semaphore prefetched = new Semaphore(parallelism * batchSize);
+        try {
+            boolean poisoned = false;
+            while (!poisoned) {
+                String docId = inputQueue.poll(60, TimeUnit.SECONDS);
+                List<String> ids = new ArrayList<>();
+                while (docId != null && !(poisoned = STRING_POISON.equals(docId))) {
+                    ids.add(docId);
+                    docId = ids.size() < batchSize ? inputQueue.poll() : null;
+                }
+                if (ids.isEmpty()) {
+                    continue;
+                }
+                nbSubmitted.addAndGet(ids.size());
+                List<Document> docs = indexer.bulkGet(project.getName(), ids, SOURCE_INCLUDES);
+                if (docs.size() < ids.size()) {
+                    logger.warn("{} document(s) not found in index {}", ids.size() - docs.size(), project.getName());
+                    nbProcessed.addAndGet(ids.size() - docs.size());
+                }
+                for (Document doc : docs) {
+                    prefetched.acquire();
+                    workers.execute(() -> {
+                        try {
+                            findNamedEntities(project, doc);
+                            if (forward) {
+                                outputQueue.put(doc.getId());
+                            }
+                        } catch (Throwable e) {
+                            logger.error("error in ExtractNlpTask loop", e);
+                        } finally {
+                            nbProcessed.incrementAndGet();
+                            prefetched.release();
+                        }
+                    });
                 }
-            } catch (Throwable e) {
-                logger.error("error in ExtractNlpTask loop", e);
             }
+            workers.shutdown();
+            while (!workers.awaitTermination(30, TimeUnit.MINUTES)) {
+                logger.info("NLP workers have not terminated yet");
+            }
+            flushNamedEntities(project);
+            terminatePipeline();
+        } finally {
+            workers.shutdownNow();
+        }
+        if (forward) {
+            outputQueue.put(STRING_POISON);
         }
-        logger.info("exiting ExtractNlpTask loop after {} messages.", nbMessages);
-        return nbMessages;
+        logger.info("exiting ExtractNlpTask loop after {} messages.", nbProcessed.get());
+        return nbProcessed.get();
     }
 
     void findNamedEntities(final Project project, final String id) throws InterruptedException {
+        Document doc = indexer.get(project.getName(), id, id, SOURCE_INCLUDES, List.of());
+        if (doc != null) {
+            findNamedEntities(project, doc);
+            flushNamedEntities(project);
+            terminatePipeline();
+        } else {
+            logger.warn("no document found in index with id " + id);
+        }
+    }
+
+    private void findNamedEntities(final Project project, final Document doc) throws InterruptedException {
         try {
-            Document doc = indexer.get(project.getName(), id);
-            if (doc != null) {
-                logger.info("extracting {} entities for document {}", nlpPipeline.getType(), shorten(doc.getId(), 4));
-                if (nlpPipeline.initialize(doc.getLanguage())) {
-                    int nbEntities = 0;
-                    if (doc.getContent().length() < this.maxContentLengthChars) {
-                        List<NamedEntity> namedEntities = nlpPipeline.process(doc);
-                        indexer.bulkAdd(project.getName(), nlpPipeline.getType(), namedEntities, doc);
-                        nbEntities = namedEntities.size();
-                    } else {
-                        int nbChunks = doc.getContent().length() / this.maxContentLengthChars + 1;
-                        logger.info("document is too large, extracting entities for {} document chunks", nbChunks);
-                        for (int chunkIndex = 0; chunkIndex < nbChunks; chunkIndex++) {
-                            List<NamedEntity> namedEntities = nlpPipeline.process(doc, maxContentLengthChars, chunkIndex * maxContentLengthChars);
-                            if (chunkIndex < nbChunks - 1) {
-                                indexer.bulkAdd(project.getName(), namedEntities);
-                            } else {
-                                indexer.bulkAdd(project.getName(), nlpPipeline.getType(), namedEntities, doc);
-                            }
-                            nbEntities += namedEntities.size();
+            logger.info("extracting {} entities for document {}", nlpPipeline.getType(), shorten(doc.getId(), 4));
+            long start = System.nanoTime();
+            if (nlpPipeline.initialize(doc.getLanguage())) {
+                initializedLanguages.add(doc.getLanguage());
+                int nbEntities = 0;
+                if (doc.getContent().length() < this.maxContentLengthChars) {
+                    List<NamedEntity> namedEntities = nlpPipeline.process(doc);
+                    addNamedEntities(project, doc, namedEntities);
+                    nbEntities = namedEntities.size();
+                } else {
+                    int nbChunks = doc.getContent().length() / this.maxContentLengthChars + 1;
+                    logger.info("document is too large, extracting entities for {} document chunks", nbChunks);
+                    for (int chunkIndex = 0; chunkIndex < nbChunks; chunkIndex++) {
+                        List<NamedEntity> namedEntities = nlpPipeline.process(doc, maxContentLengthChars, chunkIndex * maxContentLengthChars);
+                        if (chunkIndex < nbChunks - 1) {
+                            indexer.bulkAdd(project.getName(), namedEntities);
+                        } else {
+                            addNamedEntities(project, doc, namedEntities);
                         }
+                        nbEntities += namedEntities.size();
                     }
-                    logger.info("added {} named entities to document {}", nbEntities, shorten(doc.getId(), 4));
-                    nlpPipeline.terminate(doc.getLanguage());
                 }
-            } else {
-                logger.warn("no document found in index with id " + id);
+                nerDuration.observeSince(start);
+                nbDocumentsMetric.inc();
+                nbEntitiesMetric.inc(nbEntities);
+                logger.info("extracted {} named entities from document {}", nbEntities, shorten(doc.getId(), 4));
             }
         } catch (IOException e) {
-            logger.error("cannot extract entities of doc " + id, e);
+            logger.error("cannot extract entities of doc " + doc.getId(), e);
+        }
+    }
+
+    /**
+     * buffers the named entities of the documents processed by the workers, to write
+     * them with a single bulk request when there are enough of them.
+     */
+    private void addNamedEntities(final Project project, Document doc, List<NamedEntity> namedEntities) throws IOException {
+        Map<Document, List<NamedEntity>> toWrite = null;
+        synchronized (namedEntitiesBuffer) {
+            namedEntitiesBuffer.put(doc, namedEntities);
+            nbBufferedEntities += namedEntities.size();
+            if (namedEntitiesBuffer.size() >= batchSize || nbBufferedEntities >= MAX_BUFFERED_ENTITIES) {
+                toWrite = swapNamedEntitiesBuffer();
+            }
+        }
+        if (toWrite != null) {
+            writeNamedEntities(project, toWrite);
+        }
+    }
+
+    private void flushNamedEntities(final Project project) {
+        Map<Document, List<NamedEntity>> toWrite;
+        synchronized (namedEntitiesBuffer) {
+            toWrite = swapNamedEntitiesBuffer();
+        }
+        try {
+            writeNamedEntities(project, toWrite);
+        } catch (IOException e) {
+            logger.error("cannot write named entities of {} document(s)", toWrite.size(), e);
+        }
+    }
+
+    private Map<Document, List<NamedEntity>> swapNamedEntitiesBuffer() {
+        Map<Document, List<NamedEntity>> toWrite = new LinkedHashMap<>(namedEntitiesBuffer);
+        namedEntitiesBuffer.clear();
+        nbBufferedEntities = 0;
+        return toWrite;
+    }
+
+    private void writeNamedEntities(final Project project, Map<Document, List<NamedEntity>> namedEntities) throws IOException {
+        if (!namedEntities.isEmpty()) {
+            if (!indexer.bulkAdd(project.getName(), nlpPipeline.getType(), namedEntities)) {
+                logger.error("some named entities of {} document(s) could not be added", namedEntities.size());
+            }
+            logger.info("added named entities of {} document(s)", namedEntities.size());
+        }
+    }
+
+    private void terminatePipeline() throws InterruptedException {
+        for (Language language : initializedLanguages) {
+            nlpPipeline.terminate(language);
         }
+        initializedLanguages.clear();
     }
 
     @Override
     public double getProgressRate() {
-        return 0;
+        long processed = nbProcessed.get();
+        long total = nbSubmitted.get() + inputQueue.size();
+        return total == 0 ? 0 : (double) processed / total;
     }
 }
@@ -21,9 +21,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static java.lang.Math.max;
+import static java.util.Optional.ofNullable;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.icij.datashare.cli.DatashareCliOptions.*;
@@ -34,9 +40,13 @@ import static org.icij.datashare.cli.DatashareCliOptions.*;
 @Option(name = DEFAULT_PROJECT_OPT, description = "the default project name")
 @Option(name = "projectName", description = "task project name")
 public class IndexTask extends PipelineTask<Path> implements Monitorable{
+    // image files are only read with tesseract
+    static final Set<String> OCR_EXTENSIONS = Set.of("bmp", "gif", "jp2", "jpeg", "jpg", "png", "pnm", "tif", "tiff", "webp");
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final DocumentQueueDrainer<Path> drainer;
     private final DocumentConsumer consumer;
+    private final DocumentConsumer ocrConsumer;
+    private final ElasticsearchSpewer spewer;
     private long totalToProcess;
     private final Integer parallelism;
 
@@ -46,17 +56,46 @@ public class IndexTask extends PipelineTask<Path> implements Monitorable{
         parallelism = propertiesProvider.get(PARALLELISM_OPT).map(Integer::parseInt).orElse(Runtime.getRuntime().availableProcessors());
 
         Options<String> allTaskOptions = options().createFrom(Options.from(taskView.args));
+        this.spewer = spewer;
         ((ElasticsearchSpewer) spewer.configure(allTaskOptions)).createIndexIfNotExists();
+        if (propertiesProvider.get(OCR_CACHE_OPT).isPresent()) {
+            Files.createDirectories(Paths.get(propertiesProvider.get(OCR_CACHE_OPT).get()));
+        }
 
         DocumentFactory documentFactory = new DocumentFactory().configure(allTaskOptions);
-        Extractor extractor = new Extractor(documentFactory).configure(allTaskOptions);
+        consumer = new DocumentConsumer(spewer, new Extractor(documentFactory).configure(allTaskOptions), this.parallelism);
+
+        int ocrParallelism = propertiesProvider.get(OCR_PARALLELISM_OPT).map(Integer::parseInt).orElse(DEFAULT_OCR_PARALLELISM);
+        boolean ocr = propertiesProvider.get(OCR_OPT).map(Boolean::parseBoolean).orElse(DEFAULT_OCR);
+        ocrConsumer = ocr && ocrParallelism > 0 ?
+                new DocumentConsumer(spewer, new Extractor(documentFactory).configure(allTaskOptions), ocrParallelism) : null;
+        // each consumer closes the spewer when it terminates
+        spewer.sharedBy(ocrConsumer == null ? 1 : 2);
 
-        consumer = new DocumentConsumer(spewer, extractor, this.parallelism);
         if (propertiesProvider.getProperties().get(REPORT_NAME_OPT) != null) {
             logger.info("report map enabled with name set to {}", propertiesProvider.getProperties().get(REPORT_NAME_OPT));
-            consumer.setReporter(new Reporter(factory.createMap(propertiesProvider.getProperties().get(REPORT_NAME_OPT).toString())));
+            Reporter reporter = new Reporter(factory.createMap(propertiesProvider.getProperties().get(REPORT_NAME_OPT).toString()));
+            consumer.setReporter(reporter);
+            ofNullable(ocrConsumer).ifPresent(c -> c.setReporter(reporter));
+        }
+        drainer = new DocumentQueueDrainer<>(inputQueue, routingConsumer()).configure(allTaskOptions);
+    }
+
+    /**
+     * when there is an OCR consumer, the image files are extracted by its threads so that long
+     * tesseract runs are not holding the threads of the other files.
+     */
+    private Consumer<Path> routingConsumer() {
+        if (ocrConsumer == null) {
+            return consumer;
         }
-        drainer = new DocumentQueueDrainer<>(inputQueue, consumer).configure(allTaskOptions);
+        return path -> (needsOcr(path) ? ocrConsumer : consumer).accept(path);
+    }
+
+    static boolean needsOcr(Path path) {
+        String fileName = path.getFileName() == null ? "" : path.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 && OCR_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
     }
 
     @Override
@@ -69,12 +108,20 @@ public class IndexTask extends PipelineTask<Path> implements Monitorable{
         logger.info("drained {} documents. Waiting for consumer to shutdown", totalToProcess);
 
         consumer.shutdown();
+        ofNullable(ocrConsumer).ifPresent(DocumentConsumer::shutdown);
         // documents could be currently processed
         while (!consumer.awaitTermination(30, MINUTES)) {
             logger.info("Consumer has not terminated yet.");
         }
+        while (ocrConsumer != null && !ocrConsumer.awaitTermination(30, MINUTES)) {
+            logger.info("OCR consumer has not terminated yet.");
+        }
+        // the last terminated consumer has closed the spewer, that waited for the bulk requests
 
-        if (consumer.getReporter() != null) consumer.getReporter().close();
+        if (consumer.getReporter() != null) {
+            spewer.reportBulkFailures(consumer.getReporter());
+            consumer.getReporter().close();
+        }
         logger.info("exiting");
         return totalToProcess;
     }
@@ -3,7 +3,6 @@ package org.icij.datashare.tasks;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import java.util.function.Function;
-import org.icij.datashare.Entity;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.Stage;
 import org.icij.datashare.asynctasks.Task;
@@ -71,13 +70,14 @@ public class ScanIndexTask extends PipelineTask<Path> {
     }
 
     private Long slicedScroll(int sliceNum) {
-        Indexer.Searcher search = indexer.search(singletonList(projectName), Document.class).withSource("path").limit(scrollSize);
-        List<? extends Entity> docsToProcess = new ArrayList<>();
+        Indexer.Searcher search = indexer.search(singletonList(projectName), Document.class)
+                .withSource(false).withDocValueFields("path").limit(scrollSize);
+        List<DocumentPath> docsToProcess = new ArrayList<>();
         long nbProcessed = 0;
         do {
             try {
-                docsToProcess = search.scroll(createScrollQuery().withDuration(scrollDuration).withSlices(sliceNum, scrollSlices).build()).collect(toList());
-                reportMap.putAll(docsToProcess.stream().map(d -> ((Document) d).getPath()).collect(toMap(p -> p, p -> new Report(ExtractionStatus.SUCCESS), (a, b) -> b)));
+                docsToProcess = search.scroll(createScrollQuery().withDuration(scrollDuration).withSlices(sliceNum, scrollSlices).build(), DocumentPath.class).collect(toList());
+                reportMap.putAll(docsToProcess.stream().map(DocumentPath::path).collect(toMap(p -> p, p -> new Report(ExtractionStatus.SUCCESS), (a, b) -> b)));
                 nbProcessed += docsToProcess.size();
             } catch (IOException e) {
                 logger.error("error in slice {}", sliceNum, e);
@@ -90,4 +90,9 @@ public class ScanIndexTask extends PipelineTask<Path> {
     private String getMapName() {
         return propertiesProvider.get(REPORT_NAME_OPT).orElse("extract:report");
     }
+
+    /**
+     * path read from the doc values, without fetching the document source
+     */
+    record DocumentPath(Path path) {}
 }
@@ -4,17 +4,30 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.asynctasks.Task;
+import org.icij.datashare.asynctasks.TaskWorkerLoop;
+import org.icij.datashare.monitoring.MetricRegistry;
+
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_TASK_WORKERS;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_TASK_WORKERS_BUDGETS;
+import static org.icij.datashare.cli.DatashareCliOptions.TASK_WORKERS_BUDGETS_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.TASK_WORKERS_OPT;
 
 
 @Singleton
 public class TaskManagerMemory extends org.icij.datashare.asynctasks.TaskManagerMemory {
 
-    @Inject
     public TaskManagerMemory(BlockingQueue<Task<?>> taskQueue, DatashareTaskFactory taskFactory) {
         this(taskQueue, taskFactory, new CountDownLatch(1));
     }
 
+    @Inject
+    public TaskManagerMemory(BlockingQueue<Task<?>> taskQueue, DatashareTaskFactory taskFactory, PropertiesProvider propertiesProvider, MetricRegistry metrics) {
+        super(taskQueue, taskFactory, propertiesProvider.get(TASK_WORKERS_OPT).map(Integer::parseInt).orElse(DEFAULT_TASK_WORKERS),
+                TaskWorkerLoop.parseBudgets(propertiesProvider.get(TASK_WORKERS_BUDGETS_OPT).orElse(DEFAULT_TASK_WORKERS_BUDGETS)), metrics);
+    }
+
     TaskManagerMemory(BlockingQueue<Task<?>> taskQueue, DatashareTaskFactory taskFactory, CountDownLatch latch) {
         super(taskQueue, taskFactory, latch);
     }
@@ -1,25 +1,27 @@
 package org.icij.datashare.tasks;
 
 import com.google.inject.Singleton;
-import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.asynctasks.Task;
-import org.icij.extract.redis.RedissonClientFactory;
-import org.icij.task.Options;
-import org.redisson.api.RedissonClient;
+import org.icij.datashare.com.redis.RedissonClientProvider;
 
 import javax.inject.Inject;
+import java.io.IOException;
 import java.util.concurrent.BlockingQueue;
 
 @Singleton
 public class TaskSupplierRedis extends org.icij.datashare.asynctasks.TaskSupplierRedis {
     // Convenience class made to ease injection and test
+    private final RedissonClientProvider redissonClientProvider;
+
     @Inject
-    public TaskSupplierRedis(RedissonClient redissonClient, BlockingQueue<Task<?>> taskQueue) {
-        super(redissonClient, taskQueue);
+    public TaskSupplierRedis(RedissonClientProvider redissonClientProvider, BlockingQueue<Task<?>> taskQueue) {
+        super(redissonClientProvider.acquire(), taskQueue);
+        this.redissonClientProvider = redissonClientProvider;
     }
 
-    TaskSupplierRedis(PropertiesProvider propertiesProvider, BlockingQueue<Task<?>> taskQueue) {
-        this(new RedissonClientFactory().withOptions(Options.from(propertiesProvider.getProperties())).create(), taskQueue);
+    @Override
+    public void close() throws IOException {
+        super.close();
+        redissonClientProvider.release();
     }
-
 }
@@ -1,7 +1,9 @@
 package org.icij.datashare.utils;
 
 import net.codestory.http.payload.Payload;
+import net.codestory.http.payload.StreamingOutput;
 
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
@@ -24,6 +26,17 @@ public class PayloadFormatter {
         return new Payload("application/json", responseBody);
     }
 
+    /**
+     * streams the content to the response and closes it
+     */
+    static public Payload json(InputStream content) {
+        return new Payload("application/json", (StreamingOutput) output -> {
+            try (content) {
+                content.transferTo(output);
+            }
+        });
+    }
+
     static public Payload json(Object content) {
         return new Payload("application/json", content);
     }
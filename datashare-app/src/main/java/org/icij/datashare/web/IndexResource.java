@@ -10,11 +10,18 @@ import net.codestory.http.Context;
 import net.codestory.http.annotations.*;
 import net.codestory.http.constants.HttpStatus;
 import net.codestory.http.payload.Payload;
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.session.DatashareUser;
 import org.icij.datashare.text.indexing.Indexer;
 import org.icij.datashare.utils.IndexAccessVerifier;
 import org.icij.datashare.utils.PayloadFormatter;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.List;
+import java.util.Optional;
 
 import static net.codestory.http.payload.Payload.created;
 import static net.codestory.http.payload.Payload.ok;
@@ -23,10 +30,16 @@ import static net.codestory.http.payload.Payload.ok;
 @Prefix("/api/index")
 public class IndexResource {
     private final Indexer indexer;
+    private final SearchResultCache searchCache;
 
-    @Inject
     public IndexResource(Indexer indexer) {
+        this(indexer, new PropertiesProvider());
+    }
+
+    @Inject
+    public IndexResource(Indexer indexer, PropertiesProvider propertiesProvider) {
         this.indexer = indexer;
+        this.searchCache = SearchResultCache.create(propertiesProvider);
     }
     
     @Operation(description = "Create the index for the current user if it doesn't exist.")
@@ -74,13 +87,20 @@ public class IndexResource {
             "- index_name/_count<br>" +
             "- index_name1,index_name2/_count<br>" +
             "- index_name/doc/_search<br>" +
-            "- index_name1,index_name2/doc/_search")
+            "- index_name1,index_name2/doc/_search<br>" +
+            "The request body is streamed to Elasticsearch, it can be gzipped with a <code>Content-Encoding: gzip</code> header.<br>" +
+            "The responses of _search and _count requests are cached for a short time (see searchCacheTtlMilliseconds), unless they are scroll searches.")
     @ApiResponse(responseCode = "200", description = "returns 200")
     @ApiResponse(responseCode = "400", description = "returns 400 if there is an error from ElasticSearch")
     @Post("/search/:path:")
     public Payload esPost(@Parameter(name = "index", description = "elasticsearch path", in = ParameterIn.PATH) final String path, Context context, final net.codestory.http.Request request) throws IOException {
         try {
-            return PayloadFormatter.json(indexer.executeRaw("POST", IndexAccessVerifier.checkPath(path, context), new String(request.contentAsBytes())));
+            String url = IndexAccessVerifier.checkPath(path, context);
+            String contentEncoding = request.header("Content-Encoding");
+            if (contentEncoding == null && context.currentUser() instanceof DatashareUser && searchCache.isCacheable(path, context)) {
+                return cachedSearch("POST", path, url, request.contentAsBytes(), context);
+            }
+            return PayloadFormatter.json(indexer.executeRaw("POST", url, request.inputStream(), contentEncoding));
         } catch ( IllegalArgumentException e){
             return PayloadFormatter.error(e, HttpStatus.BAD_REQUEST);
         }
@@ -94,7 +114,11 @@ public class IndexResource {
     @Get("/search/:path:")
     public Payload esGet(@Parameter(name = "path", description = "elasticsearch path", in = ParameterIn.PATH) final String path, Context context) throws IOException {
         try {
-            return PayloadFormatter.json(indexer.executeRaw("GET", IndexAccessVerifier.checkPath(path, context), ""));
+            String url = IndexAccessVerifier.checkPath(path, context);
+            if (context.currentUser() instanceof DatashareUser && searchCache.isCacheable(path, context)) {
+                return cachedSearch("GET", path, url, null, context);
+            }
+            return PayloadFormatter.json(indexer.executeRaw("GET", url, null, null));
         } catch (IllegalArgumentException e){
             return PayloadFormatter.error(e, HttpStatus.BAD_REQUEST);
         }
@@ -112,4 +136,30 @@ public class IndexResource {
             return PayloadFormatter.error(e, HttpStatus.BAD_REQUEST);
         }
     }
+
+    /**
+     * returns the cached response of the request or sends it and caches its response if it is small enough
+     * and the last writes of the indices are visible. Bigger responses are streamed.
+     * The entries are keyed by the projects of the user, so only the requests of a {@link DatashareUser} are cached.
+     */
+    private Payload cachedSearch(String method, String path, String url, byte[] body, Context context) throws IOException {
+        List<String> indices = List.of(path.split("/")[0].split(","));
+        List<Long> generations = indices.stream().map(indexer::getGeneration).toList();
+        boolean refreshed = searchCache.isRefreshed(indices, generations);
+        SearchResultCache.Key key = SearchResultCache.key(method, url, body, ((DatashareUser) context.currentUser()).getProjectNames(), generations);
+        Optional<byte[]> cached = searchCache.get(key);
+        if (cached.isPresent()) {
+            return PayloadFormatter.json(new ByteArrayInputStream(cached.get()));
+        }
+        InputStream response = indexer.executeRaw(method, url, body == null ? null : new ByteArrayInputStream(body), null);
+        byte[] head = response.readNBytes(searchCache.maxEntryBytes() + 1);
+        if (head.length > searchCache.maxEntryBytes()) {
+            return PayloadFormatter.json(new SequenceInputStream(new ByteArrayInputStream(head), response));
+        }
+        response.close();
+        if (refreshed) {
+            searchCache.put(key, head);
+        }
+        return PayloadFormatter.json(new ByteArrayInputStream(head));
+    }
 }
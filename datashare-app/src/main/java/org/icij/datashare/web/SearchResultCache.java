@@ -0,0 +1,188 @@
+package org.icij.datashare.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import net.codestory.http.Context;
+import org.icij.datashare.HumanReadableSize;
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.cli.Mode;
+import org.icij.datashare.cli.QueueType;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.icij.datashare.cli.DatashareCliOptions.BATCH_QUEUE_TYPE_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_SEARCH_CACHE_REFRESH_INTERVAL;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_SEARCH_CACHE_SIZE;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_SEARCH_CACHE_TTL;
+import static org.icij.datashare.cli.DatashareCliOptions.MODE_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.SEARCH_CACHE_REFRESH_INTERVAL_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.SEARCH_CACHE_SIZE_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.SEARCH_CACHE_TTL_OPT;
+import static org.icij.datashare.mode.CommonMode.getQueueType;
+
+/**
+ * Short lived, size bounded LRU cache of the <code>_search</code> and <code>_count</code> responses proxied by
+ * {@link IndexResource}, so that the identical aggregations sent by the users of a project are computed once.
+ * <p>
+ * Entries are keyed by the request url, its normalized body, the projects granted to the user and the generations
+ * of the requested indices. The indexer increments the generation of an index after each write, so the entries
+ * computed before a write made by this process are not reachable anymore and are evicted as the least recently used.
+ * The generations are only counted in the process of the indexer: the cache is disabled when the tasks that write the
+ * indices run in other processes (server mode, or task workers reading a redis/amqp task queue).
+ * <p>
+ * A write is only visible to the searches after the next refresh of the index, so the responses are not cached
+ * while a generation of the requested indices has been seen for less than the refresh interval
+ * (<code>searchCacheRefreshIntervalMilliseconds</code>): they could have been computed before the write and would be
+ * cached with the new generation.
+ * <p>
+ * Responses bigger than a sixteenth of the cache size are not cached.
+ */
+class SearchResultCache {
+    private static final ObjectMapper NORMALIZER = new ObjectMapper().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final long refreshIntervalNanos;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Generation> generations = new HashMap<>();
+    private long bytes = 0;
+
+    SearchResultCache(long maxBytes, Duration ttl) {
+        this(maxBytes, ttl, Duration.ofMillis(DEFAULT_SEARCH_CACHE_REFRESH_INTERVAL));
+    }
+
+    SearchResultCache(long maxBytes, Duration ttl, Duration refreshInterval) {
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttl.toNanos();
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+    }
+
+    static SearchResultCache create(PropertiesProvider propertiesProvider) {
+        return new SearchResultCache(
+                writesInProcess(propertiesProvider) ? HumanReadableSize.parse(propertiesProvider.get(SEARCH_CACHE_SIZE_OPT).orElse(DEFAULT_SEARCH_CACHE_SIZE)) : 0,
+                Duration.ofMillis(propertiesProvider.get(SEARCH_CACHE_TTL_OPT).map(Long::parseLong).orElse(DEFAULT_SEARCH_CACHE_TTL)),
+                Duration.ofMillis(propertiesProvider.get(SEARCH_CACHE_REFRESH_INTERVAL_OPT).map(Long::parseLong).orElse(DEFAULT_SEARCH_CACHE_REFRESH_INTERVAL)));
+    }
+
+    /**
+     * @return true if the indices are written by the tasks of the web server process (local and embedded modes
+     * with a memory task queue), whose indexer counts the generations
+     */
+    static boolean writesInProcess(PropertiesProvider propertiesProvider) {
+        Mode mode = propertiesProvider.get(MODE_OPT).map(Mode::valueOf).orElse(Mode.LOCAL);
+        return (mode == Mode.LOCAL || mode == Mode.EMBEDDED) &&
+                getQueueType(propertiesProvider, BATCH_QUEUE_TYPE_OPT, QueueType.MEMORY) == QueueType.MEMORY;
+    }
+
+    /**
+     * @return true for the search and count requests on indices, that are read only, except for scroll searches
+     */
+    boolean isCacheable(String path, Context context) {
+        String[] pathParts = path.split("/");
+        if (maxBytes <= 0 || ttlNanos <= 0 || pathParts.length < 2 || pathParts.length > 3 || pathParts[0].startsWith("_")) {
+            return false;
+        }
+        String endpoint = pathParts[pathParts.length - 1];
+        return ("_search".equals(endpoint) || "_count".equals(endpoint)) && context.query().get("scroll") == null;
+    }
+
+    /**
+     * records the time when each generation of the indices is first seen. It should be called before sending
+     * the request, so that its response is only cached if the request has been sent after the index refresh.
+     *
+     * @return true if the generations of all the indices have been seen for more than the refresh interval.
+     * The generation 0 (no write made by this process) is always refreshed.
+     */
+    synchronized boolean isRefreshed(List<String> indices, List<Long> indicesGenerations) {
+        long now = System.nanoTime();
+        boolean refreshed = true;
+        for (int i = 0; i < indices.size(); i++) {
+            long generation = indicesGenerations.get(i);
+            if (generation == 0) {
+                continue;
+            }
+            Generation seen = generations.get(indices.get(i));
+            if (seen == null || seen.value != generation) {
+                seen = new Generation(generation, now);
+                generations.put(indices.get(i), seen);
+            }
+            refreshed &= now - seen.seenNanos >= refreshIntervalNanos;
+        }
+        return refreshed;
+    }
+
+    int maxEntryBytes() {
+        return (int) Math.min(Integer.MAX_VALUE - 1, maxBytes / 16);
+    }
+
+    synchronized Optional<byte[]> get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (System.nanoTime() - entry.cachedNanos > ttlNanos) {
+            remove(key);
+            return Optional.empty();
+        }
+        return Optional.of(entry.content);
+    }
+
+    synchronized void put(Key key, byte[] content) {
+        if (content.length > maxEntryBytes()) {
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry(content, System.nanoTime()));
+        bytes += content.length;
+        Iterator<Map.Entry<Key, Entry>> lru = entries.entrySet().iterator();
+        while (bytes > maxBytes && lru.hasNext()) {
+            bytes -= lru.next().getValue().content.length;
+            lru.remove();
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.content.length;
+        }
+    }
+
+    /**
+     * @return the key of the request. The JSON body is normalized by sorting the keys of its objects,
+     * a body that cannot be parsed is kept as is.
+     */
+    static Key key(String method, String url, byte[] body, List<String> projects, List<Long> generations) {
+        String normalizedBody = "";
+        if (body != null && body.length > 0) {
+            try {
+                normalizedBody = NORMALIZER.writeValueAsString(NORMALIZER.readValue(body, Object.class));
+            } catch (IOException e) {
+                normalizedBody = new String(body, UTF_8);
+            }
+        }
+        return new Key(method + " " + url, normalizedBody, projects.stream().sorted().toList(), generations);
+    }
+
+    record Key(String url, String body, List<String> projects, List<Long> generations) {}
+
+    private record Entry(byte[] content, long cachedNanos) {}
+
+    private record Generation(long value, long seenNanos) {}
+}
@@ -14,6 +14,7 @@ import net.codestory.http.constants.HttpStatus;
 import net.codestory.http.payload.Payload;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.Repository;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.openmetrics.StatusMapper;
 import org.icij.datashare.extract.DocumentCollectionFactory;
 import org.icij.datashare.text.indexing.Indexer;
@@ -30,16 +31,18 @@ public class StatusResource {
     private final PropertiesProvider propertiesProvider;
     private final Repository repository;
     private final Indexer indexer;
+    private final MetricRegistry metrics;
 
     @Inject
-    public StatusResource(PropertiesProvider propertiesProvider, Repository repository, Indexer indexer) {
+    public StatusResource(PropertiesProvider propertiesProvider, Repository repository, Indexer indexer, MetricRegistry metrics) {
         this.propertiesProvider = propertiesProvider;
         this.repository = repository;
         this.indexer = indexer;
+        this.metrics = metrics;
     }
 
     @Operation(description = "Retrieve the status of databus connection, database connection and index.",
-            parameters = { @Parameter(name = "format=openmetrics", description = "if provided in the URL it will return the status in openmetrics format", in = ParameterIn.QUERY) })
+            parameters = { @Parameter(name = "format=openmetrics", description = "if provided in the URL it will return the status and the processing metrics (documents, bulks, queues, tasks...) in openmetrics format", in = ParameterIn.QUERY) })
     @ApiResponse(responseCode = "200", description = "returns the status of datashare elements", useReturnTypeSchema = true)
     @ApiResponse(responseCode = "504", description = "proxy error when elasticsearch is down", useReturnTypeSchema = true)
     @ApiResponse(responseCode = "503", description = "service unavailable when other services are down", useReturnTypeSchema = true)
@@ -48,7 +51,7 @@ public class StatusResource {
         Status status = new Status(repository.getHealth(), indexer.getHealth());
         if ("openmetrics".equals(context.request().query().get("format"))) {
             return new Payload("text/plain;version=0.0.4",
-                    new StatusMapper("datashare", status, propertiesProvider.get("platform").orElse(null)).toString());
+                    new StatusMapper("datashare", status, propertiesProvider.get("platform").orElse(null)) + metrics.toOpenMetrics());
         } else {
             return new Payload("application/json", status, status.getHttpStatus());
         }
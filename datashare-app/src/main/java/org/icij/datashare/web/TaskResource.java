@@ -16,13 +16,16 @@ import net.codestory.http.annotations.Options;
 import net.codestory.http.annotations.Post;
 import net.codestory.http.annotations.Prefix;
 import net.codestory.http.annotations.Put;
+import net.codestory.http.constants.HttpStatus;
 import net.codestory.http.errors.ForbiddenException;
 import net.codestory.http.errors.HttpException;
 import net.codestory.http.payload.Payload;
 import org.apache.commons.lang3.StringUtils;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.asynctasks.Task;
+import org.icij.datashare.asynctasks.TaskFilter;
 import org.icij.datashare.asynctasks.TaskManager;
+import org.icij.datashare.asynctasks.TaskSummary;
 import org.icij.datashare.batch.BatchDownload;
 import org.icij.datashare.extract.OptionsWrapper;
 import org.icij.datashare.json.JsonObjectMapper;
@@ -36,23 +39,27 @@ import org.icij.datashare.tasks.ScanTask;
 import org.icij.datashare.asynctasks.bus.amqp.UriResult;
 import org.icij.datashare.text.Project;
 import org.icij.datashare.user.User;
+import org.icij.datashare.utils.PayloadFormatter;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import static java.lang.Boolean.parseBoolean;
 import static java.nio.file.Paths.get;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static net.codestory.http.errors.NotFoundException.notFoundIfNull;
 import static net.codestory.http.payload.Payload.forbidden;
 import static net.codestory.http.payload.Payload.ok;
@@ -75,6 +82,7 @@ public class TaskResource {
     private final DatashareTaskFactory taskFactory;
     private final TaskManager taskManager;
     private final PropertiesProvider propertiesProvider;
+    static final int DEFAULT_TASK_PAGE_SIZE = 50;
 
     @Inject
     public TaskResource(final DatashareTaskFactory taskFactory, final TaskManager taskManager, final PropertiesProvider propertiesProvider) {
@@ -83,13 +91,37 @@ public class TaskResource {
         this.propertiesProvider = propertiesProvider;
     }
     @Operation(description = "Gets all the user tasks.<br>" +
-            "A filter can be added with a pattern contained in the task name.",
-            parameters = {@Parameter(name = "filter", description = "pattern contained in the task name", in = ParameterIn.QUERY)})
-    @ApiResponse(responseCode = "200", description = "returns the list of tasks", useReturnTypeSchema = true)
+            "A filter can be added with a pattern contained in the task name, and with the task states.<br>" +
+            "If a page size or a cursor is given, a page of tasks is returned with the cursor of the next page " +
+            "(most recent tasks first when the tasks are stored in redis). " +
+            "With summary=true, the tasks are returned without their arguments and result.",
+            parameters = {@Parameter(name = "filter", description = "pattern contained in the task name", in = ParameterIn.QUERY),
+                    @Parameter(name = "state", description = "comma separated task states (CREATED, QUEUED, RUNNING, CANCELLED, ERROR, DONE)", in = ParameterIn.QUERY),
+                    @Parameter(name = "size", description = "page size (default " + DEFAULT_TASK_PAGE_SIZE + " if from is given)", in = ParameterIn.QUERY),
+                    @Parameter(name = "from", description = "cursor of the page (next field of the previous page)", in = ParameterIn.QUERY),
+                    @Parameter(name = "summary", description = "if true returns task summaries", in = ParameterIn.QUERY)})
+    @ApiResponse(responseCode = "200", description = "returns the list of tasks, or a page of tasks ({items: [...], next: cursor}) if size or from is given")
+    @ApiResponse(responseCode = "400", description = "if a state, the size or the cursor is invalid", content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     @Get("/all")
-    public List<Task<?>> tasks(Context context) {
+    public Payload tasks(Context context) {
         Pattern pattern = Pattern.compile(StringUtils.isEmpty(context.get("filter")) ? ".*": String.format(".*%s.*", context.get("filter")));
-        return taskManager.getTasks((User) context.currentUser(), pattern);
+        boolean summary = parseBoolean(context.get("summary"));
+        try {
+            TaskFilter taskFilter = new TaskFilter((User) context.currentUser(), states(context.get("state")), pattern);
+            if (context.get("size") == null && context.get("from") == null) {
+                List<Task<?>> tasks = taskManager.getTasks((User) context.currentUser(), pattern);
+                if (!taskFilter.states().isEmpty()) {
+                    tasks = tasks.stream().filter(t -> taskFilter.states().contains(t.getState())).collect(toList());
+                }
+                return new Payload(summary ? tasks.stream().map(TaskSummary::of).collect(toList()) : tasks);
+            }
+            int size = ofNullable(context.get("size")).map(Integer::parseInt).orElse(DEFAULT_TASK_PAGE_SIZE);
+            return new Payload(summary ?
+                    taskManager.getTaskSummaries(taskFilter, context.get("from"), size) :
+                    taskManager.getTasks(taskFilter, context.get("from"), size));
+        } catch (IllegalArgumentException e) {
+            return PayloadFormatter.error(e, HttpStatus.BAD_REQUEST);
+        }
     }
 
     @Operation(description = "Gets one task with its id.")
@@ -322,6 +354,11 @@ public class TaskResource {
         return task;
     }
 
+    private static Set<Task.State> states(String states) {
+        return StringUtils.isEmpty(states) ? Set.of() :
+                Arrays.stream(states.split(",")).map(String::trim).map(Task.State::valueOf).collect(toSet());
+    }
+
     // JSON responses
     public record ErrorResponse(String message) {}
     public record TaskResponse(String taskId) {}
@@ -14,52 +14,60 @@ import net.codestory.http.errors.ForbiddenException;
 import net.codestory.http.errors.NotFoundException;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.file.DirectoryReport;
-import org.icij.datashare.file.FileReportVisitor;
+import org.icij.datashare.file.FileTreeCache;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileVisitOption;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.EnumSet;
-import java.util.Set;
+import java.time.Duration;
 
 import static java.lang.Integer.parseInt;
 import static java.util.Optional.ofNullable;
 import static org.apache.commons.lang3.SystemUtils.IS_OS_WINDOWS;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_TREE_CACHE_SIZE;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_TREE_CACHE_TTL;
+import static org.icij.datashare.cli.DatashareCliOptions.TREE_CACHE_SIZE_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.TREE_CACHE_TTL_OPT;
 
 @Singleton
 @Prefix("/api/tree")
 public class TreeResource {
-
     private final PropertiesProvider propertiesProvider;
+    private final FileTreeCache treeCache;
 
     @Inject
     public TreeResource(final PropertiesProvider propertiesProvider) {
         this.propertiesProvider = propertiesProvider;
+        this.treeCache = new FileTreeCache(
+                propertiesProvider.get(TREE_CACHE_SIZE_OPT).map(Integer::parseInt).orElse(DEFAULT_TREE_CACHE_SIZE),
+                Duration.ofMillis(propertiesProvider.get(TREE_CACHE_TTL_OPT).map(Long::parseLong).orElse(DEFAULT_TREE_CACHE_TTL)));
     }
 
     @Operation(description = "Lists all files and directory for the given path. This endpoint returns a JSON using the same specification than the `tree` command on UNIX. It is roughly the equivalent of:<br>" +
-            "<pre>tree -L 1 -spJ --noreport /home/datashare/data</pre>")
+            "<pre>tree -L 1 -spJ --noreport /home/datashare/data</pre><br>" +
+            "The directory listings are cached and listed again when the directory is modified, or after treeCacheTtlMilliseconds. " +
+            "Large directories can be paged with <code>from</code> and <code>size</code>, then <code>count</code> is the number of entries of the directory.",
+            parameters = {
+                    @Parameter(name = "depth", in = ParameterIn.QUERY, description = "depth of the listed sub-directories. Default is 0"),
+                    @Parameter(name = "from", in = ParameterIn.QUERY, description = "index of the first entry of the directory. Default is 0"),
+                    @Parameter(name = "size", in = ParameterIn.QUERY, description = "maximum number of entries of the directory. Default is all the entries"),
+                    @Parameter(name = "totals", in = ParameterIn.QUERY, description = "if true, adds the total size and number of files under each directory (totalSize and totalFiles)")
+            })
     @ApiResponse(responseCode = "200", description = "returns the list of files and directory", useReturnTypeSchema = true)
     @Get(":dirPath:")
     public DirectoryReport getTree(@Parameter(name="dirPath", description="directory path in the tree", in = ParameterIn.PATH) final String dirPath, Context context) throws IOException {
         Path path = IS_OS_WINDOWS ?  Paths.get(dirPath) : Paths.get(File.separator, dirPath);
         int depth = parseInt(ofNullable(context.get("depth")).orElse("0"));
+        int from = parseInt(ofNullable(context.get("from")).orElse("0"));
+        int size = parseInt(ofNullable(context.get("size")).orElse(String.valueOf(Integer.MAX_VALUE)));
+        boolean totals = Boolean.parseBoolean(context.get("totals"));
         File dir = path.toFile();
         if (!dir.exists()) { throw new NotFoundException(); }
         if (!dir.isDirectory()) { throw new BadRequestException();}
         if (!isAllowed(dir)) { throw new ForbiddenException();}
-        return tree(path, depth);
-    }
-
-    private DirectoryReport tree(Path dir, int depth) throws IOException {
-        DirectoryReport rootReport = new DirectoryReport(dir.toFile());
-        FileReportVisitor visitor = new FileReportVisitor(rootReport, depth);
-        Set<FileVisitOption> options = EnumSet.of(FileVisitOption.FOLLOW_LINKS);
-        Files.walkFileTree(dir, options, Integer.MAX_VALUE, visitor);
-        return rootReport;
+        if (from < 0 || size < 0) { throw new BadRequestException();}
+        return treeCache.tree(path, depth, from, size, totals);
     }
 
     protected boolean isAllowed (File file) throws IOException {
@@ -1,6 +1,8 @@
 package org.icij.datashare.extract;
 
 import org.icij.datashare.PropertiesProvider;
+import org.icij.extract.queue.DocumentQueue;
+import org.icij.extract.queue.DocumentSet;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
@@ -8,6 +10,7 @@ import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
 import org.redisson.config.Config;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
 
@@ -34,6 +37,22 @@ public class DocumentCollectionFactoryTest {
         assertThat(factory.getQueues(String.class)).hasSize(2);
     }
 
+    @Test
+    public void test_add_all_if_absent() {
+        DocumentSet<String> set = factory.createSet("foo:seen", String.class);
+        DocumentQueue<String> queue = factory.createQueue("foo:output", String.class);
+        try {
+            assertThat(factory.addAllIfAbsent(set, queue, asList("bar", "baz", "bar"))).isEqualTo(2);
+            assertThat(factory.addAllIfAbsent(set, queue, asList("baz", "qux"))).isEqualTo(1);
+
+            assertThat(new ArrayList<>(queue)).containsExactly("bar", "baz", "qux");
+            assertThat(set).hasSize(3);
+        } finally {
+            set.clear();
+            queue.clear();
+        }
+    }
+
     @Parameterized.Parameters
     public static Collection<Object[]> maps() {
         PropertiesProvider propertiesProvider = new PropertiesProvider(Map.of( "queueName", "extract:test"));
@@ -1,6 +1,7 @@
 package org.icij.datashare.extract;
 
 import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.com.redis.RedissonClientProvider;
 import org.icij.datashare.user.User;
 import org.junit.After;
 import org.junit.Test;
@@ -15,17 +16,21 @@ import static org.icij.datashare.user.User.nullUser;
 
 public class RedisUserDocumentQueueTest {
     private Jedis redis = new Jedis("redis");
+    private final RedissonClientProvider redissonClientProvider = new RedissonClientProvider(new PropertiesProvider(new HashMap<>() {{
+        put("redisAddress", "redis://redis:6379");
+    }}));
 
     @After
     public void tearDown() {
         redis.del("extract:queue", "extract:queue_foo");
+        redissonClientProvider.close();
     }
 
     @Test
     public void test_redis_queue_name_with_null_user() {
         RedisUserDocumentQueue<Path> queue = new RedisUserDocumentQueue<>(nullUser(), new PropertiesProvider(new HashMap<>() {{
             put("redisAddress", "redis://redis:6379");
-        }}), Path.class);
+        }}), redissonClientProvider, Path.class);
         queue.offer(get("/path/to/doc"));
 
         assertThat(redis.keys("extract:queue")).hasSize(1);
@@ -35,7 +40,7 @@ public class RedisUserDocumentQueueTest {
     public void test_redis_queue_name_with_user_not_null_and_no_parameter_queue_name() {
         RedisUserDocumentQueue<Path> queue = new RedisUserDocumentQueue<>(new User("foo"), new PropertiesProvider(new HashMap<>() {{
             put("redisAddress", "redis://redis:6379");
-        }}), Path.class);
+        }}), redissonClientProvider, Path.class);
         queue.offer(get("/path/to/doc"));
 
         assertThat(redis.keys("extract:queue_foo")).hasSize(1);
@@ -48,7 +53,7 @@ public class RedisUserDocumentQueueTest {
                 new PropertiesProvider(new HashMap<>() {{
                     put("redisAddress", "redis://redis:6379");
                     put("queueName", "myqueue");
-                }}), Path.class);
+                }}), redissonClientProvider, Path.class);
         queue.offer(get("/path/to/doc"));
 
         assertThat(redis.keys("extract:queue_foo")).hasSize(1);
@@ -0,0 +1,123 @@
+package org.icij.datashare.file;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class FileTreeCacheTest {
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+    private final FileTreeCache cache = new FileTreeCache(10, Duration.ofHours(1));
+    private Path root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = temp.getRoot().toPath();
+        Files.writeString(root.resolve("a.txt"), "abc");
+        Files.writeString(root.resolve("b.txt"), "de");
+        Files.createDirectories(root.resolve("c/d"));
+        Files.writeString(root.resolve("c/e.txt"), "fghi");
+        Files.writeString(root.resolve("c/d/f.txt"), "j");
+    }
+
+    @Test
+    public void test_tree_depth_zero() throws IOException {
+        DirectoryReport report = cache.tree(root, 0, 0, Integer.MAX_VALUE, false);
+
+        List<AbstractFileReport> contents = report.getContents();
+        assertThat(contents).hasSize(3);
+        assertThat(contents.get(0).getName()).isEqualTo(root.resolve("a.txt").toString());
+        assertThat(contents.get(0).getSize()).isEqualTo(3);
+        assertThat(((DirectoryReport) contents.get(2)).getContents()).isEmpty();
+        assertThat(report.getCount()).isNull();
+        assertThat(report.getTotalSize()).isNull();
+    }
+
+    @Test
+    public void test_tree_with_depth() throws IOException {
+        DirectoryReport report = cache.tree(root, 3, 0, Integer.MAX_VALUE, false);
+
+        DirectoryReport c = (DirectoryReport) report.getContents().get(2);
+        assertThat(c.getContents()).hasSize(2);
+        assertThat(((DirectoryReport) c.getContents().get(0)).getContents()).hasSize(1);
+    }
+
+    @Test
+    public void test_tree_paged() throws IOException {
+        DirectoryReport report = cache.tree(root, 0, 1, 1, false);
+
+        assertThat(report.getCount()).isEqualTo(3);
+        assertThat(report.getContents()).hasSize(1);
+        assertThat(report.getContents().get(0).getName()).isEqualTo(root.resolve("b.txt").toString());
+        assertThat(cache.tree(root, 0, 5, 1, false).getContents()).isEmpty();
+    }
+
+    @Test
+    public void test_tree_with_totals() throws IOException {
+        DirectoryReport report = cache.tree(root, 0, 0, Integer.MAX_VALUE, true);
+
+        assertThat(report.getTotalSize()).isEqualTo(10);
+        assertThat(report.getTotalFiles()).isEqualTo(4);
+        DirectoryReport c = (DirectoryReport) report.getContents().get(2);
+        assertThat(c.getTotalSize()).isEqualTo(5);
+        assertThat(c.getTotalFiles()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_listing_is_reused_while_directory_is_unchanged() throws IOException {
+        FileTreeCache.Listing listing = cache.list(root);
+        assertThat(cache.list(root)).isSameAs(listing);
+
+        Files.writeString(root.resolve("g.txt"), "klm");
+        Files.setLastModifiedTime(root, FileTime.fromMillis(listing.attributes().lastModifiedTime().toMillis() + 1000));
+
+        assertThat(cache.list(root)).isNotSameAs(listing);
+        assertThat(cache.tree(root, 0, 0, Integer.MAX_VALUE, false).getContents()).hasSize(4);
+    }
+
+    @Test
+    public void test_listing_expires() throws IOException {
+        FileTreeCache expiringCache = new FileTreeCache(10, Duration.ZERO);
+        FileTreeCache.Listing listing = expiringCache.list(root);
+        assertThat(expiringCache.list(root)).isNotSameAs(listing);
+    }
+
+    @Test
+    public void test_totals_are_refreshed_when_a_sub_directory_changes() throws IOException {
+        cache.tree(root, 0, 0, Integer.MAX_VALUE, true);
+        FileTime subModified = cache.list(root.resolve("c/d")).attributes().lastModifiedTime();
+        Files.writeString(root.resolve("c/d/g.txt"), "jklmn");
+        Files.setLastModifiedTime(root.resolve("c/d"), FileTime.fromMillis(subModified.toMillis() + 1000));
+
+        DirectoryReport deepChange = cache.tree(root, 0, 0, Integer.MAX_VALUE, true);
+        assertThat(deepChange.getTotalSize()).isEqualTo(15);
+        assertThat(deepChange.getTotalFiles()).isEqualTo(5);
+        assertThat(((DirectoryReport) deepChange.getContents().get(2)).getTotalSize()).isEqualTo(10);
+
+        FileTime modified = cache.list(root).attributes().lastModifiedTime();
+        Files.writeString(root.resolve("g.txt"), "klm");
+        Files.setLastModifiedTime(root, FileTime.fromMillis(modified.toMillis() + 1000));
+        DirectoryReport report = cache.tree(root, 0, 0, Integer.MAX_VALUE, true);
+
+        assertThat(report.getTotalSize()).isEqualTo(18);
+        assertThat(report.getTotalFiles()).isEqualTo(6);
+    }
+
+    @Test
+    public void test_evicts_least_recently_used_directories() throws IOException {
+        FileTreeCache smallCache = new FileTreeCache(4, Duration.ofHours(1));
+        smallCache.list(root);
+        smallCache.list(root.resolve("c"));
+        assertThat(smallCache.size()).isEqualTo(1);
+        assertThat(smallCache.getEntries()).isEqualTo(2);
+    }
+}
@@ -5,6 +5,7 @@ import org.icij.datashare.asynctasks.TaskManager;
 import org.icij.datashare.asynctasks.TaskWorkerLoop;
 import org.icij.datashare.asynctasks.TaskSupplier;
 import org.icij.datashare.cli.QueueType;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.tasks.DatashareTaskFactory;
 import org.icij.datashare.text.indexing.Indexer;
 import org.junit.Rule;
@@ -26,7 +27,7 @@ public class CliModeTest {
             put("batchQueueType", QueueType.REDIS.name());
         }}));
 
-        TaskWorkerLoop taskWorkerLoop = new TaskWorkerLoop(mode.get(DatashareTaskFactory.class), mode.get(TaskSupplier.class));
+        TaskWorkerLoop taskWorkerLoop = new TaskWorkerLoop(mode.get(DatashareTaskFactory.class), mode.get(TaskSupplier.class), mode.get(MetricRegistry.class));
         mode.get(TaskManager.class).shutdownAndAwaitTermination(1, TimeUnit.SECONDS); // to enqueue poison
         taskWorkerLoop.call();
         taskWorkerLoop.close();
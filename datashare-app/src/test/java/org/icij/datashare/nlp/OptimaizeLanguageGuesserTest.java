@@ -0,0 +1,61 @@
+package org.icij.datashare.nlp;
+
+import org.icij.datashare.text.indexing.LanguageGuesser.Segment;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.text.Language.ENGLISH;
+import static org.icij.datashare.text.Language.FRENCH;
+
+public class OptimaizeLanguageGuesserTest {
+    private static final String FRENCH_TEXT = "Le gouvernement a annoncé mardi une série de mesures pour soutenir les entreprises " +
+            "qui ont été touchées par la crise. Les syndicats demandent que les salariés soient consultés avant la fin de l'année. ";
+    private static final String ENGLISH_TEXT = "The government announced on Tuesday a series of measures to support the companies " +
+            "that have been hit by the crisis. The unions are asking that the employees be consulted before the end of the year. ";
+
+    @Test
+    public void test_guess_short_text() throws Exception {
+        OptimaizeLanguageGuesser guesser = new OptimaizeLanguageGuesser();
+        assertThat(guesser.guess(FRENCH_TEXT)).isEqualTo(FRENCH);
+        assertThat(guesser.guess(ENGLISH_TEXT)).isEqualTo(ENGLISH);
+        assertThat(guesser.guess("")).isEqualTo(ENGLISH);
+    }
+
+    @Test
+    public void test_guess_sampled_long_text() throws Exception {
+        OptimaizeLanguageGuesser guesser = new OptimaizeLanguageGuesser(256, 8, 3, 0.9);
+        assertThat(guesser.guess(FRENCH_TEXT.repeat(100))).isEqualTo(FRENCH);
+        assertThat(guesser.guess(ENGLISH_TEXT.repeat(10) + FRENCH_TEXT.repeat(90))).isEqualTo(FRENCH);
+    }
+
+    @Test
+    public void test_guess_segments() throws Exception {
+        OptimaizeLanguageGuesser guesser = new OptimaizeLanguageGuesser(256, 8, 3, 0.9);
+        String text = FRENCH_TEXT.repeat(20) + ENGLISH_TEXT.repeat(20);
+
+        List<Segment> segments = guesser.guessSegments(text);
+
+        assertThat(segments).hasSize(2);
+        assertThat(segments.get(0).language()).isEqualTo(FRENCH);
+        assertThat(segments.get(0).start()).isEqualTo(0);
+        assertThat(segments.get(1).language()).isEqualTo(ENGLISH);
+        assertThat(segments.get(1).start()).isEqualTo(segments.get(0).end());
+        assertThat(segments.get(1).end()).isEqualTo(text.length());
+    }
+
+    @Test
+    public void test_window_moved_to_word_boundaries() {
+        assertThat(OptimaizeLanguageGuesser.window("foo bar baz qux", 5, 11).toString()).isEqualTo("baz");
+        assertThat(OptimaizeLanguageGuesser.window("foo bar baz qux", 5, 10).toString()).isEqualTo("ar ba");
+        assertThat(OptimaizeLanguageGuesser.window("foobarbazqux", 3, 6).toString()).isEqualTo("bar");
+    }
+
+    @Test
+    public void test_coarse_to_fine() {
+        assertThat(OptimaizeLanguageGuesser.coarseToFine(1)).containsExactly(0);
+        assertThat(OptimaizeLanguageGuesser.coarseToFine(5)).containsExactly(0, 4, 2, 1, 3);
+        assertThat(OptimaizeLanguageGuesser.coarseToFine(8)).hasSize(8);
+    }
+}
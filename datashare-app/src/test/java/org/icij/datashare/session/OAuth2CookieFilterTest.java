@@ -7,6 +7,7 @@ import net.codestory.http.misc.Env;
 import net.codestory.rest.FluentRestTest;
 import net.codestory.rest.Response;
 import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.com.redis.RedissonClientProvider;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -32,15 +33,16 @@ public class OAuth2CookieFilterTest implements FluentRestTest {
         put("oauthClientSecret", "abcdef");
         put("oauthCallbackPath", "/auth/callback");
     }});
+    static RedissonClientProvider redissonClientProvider = new RedissonClientProvider(propertiesProvider);
     static OAuth2CookieFilter oAuth2Filter = new OAuth2CookieFilter(propertiesProvider,
-            new UsersInRedis(propertiesProvider), new RedisSessionIdStore(propertiesProvider));
+            new UsersInRedis(propertiesProvider, redissonClientProvider), new RedisSessionIdStore(propertiesProvider, redissonClientProvider));
 
     @Test(expected = IllegalStateException.class)
     public void test_callback_url_should_not_start_with_login_url() {
         oAuth2Filter = new OAuth2CookieFilter(new PropertiesProvider(new HashMap<>() {{
             put("oauthSigninPath", "/auth/login/");
             put("oauthCallbackPath", "/auth/login/callback");
-        }}), new UsersInRedis(propertiesProvider), new RedisSessionIdStore(propertiesProvider));
+        }}), new UsersInRedis(propertiesProvider, redissonClientProvider), new RedisSessionIdStore(propertiesProvider, redissonClientProvider));
     }
 
     @Test
@@ -1,6 +1,7 @@
 package org.icij.datashare.session;
 
 import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.com.redis.RedissonClientProvider;
 import org.junit.Test;
 
 import java.util.HashMap;
@@ -8,10 +9,11 @@ import java.util.HashMap;
 import static org.fest.assertions.Assertions.assertThat;
 
 public class RedisSessionIdStoreTest {
-    RedisSessionIdStore sessionIdStore = new RedisSessionIdStore(new PropertiesProvider(new HashMap<>() {{
+    PropertiesProvider propertiesProvider = new PropertiesProvider(new HashMap<>() {{
         put("messageBusAddress", "redis://redis:6379");
         put("sessionTtlSeconds", "1");
-    }}));
+    }});
+    RedisSessionIdStore sessionIdStore = new RedisSessionIdStore(propertiesProvider, new RedissonClientProvider(propertiesProvider));
 
     @Test
     public void test_put_get_session() {
@@ -1,6 +1,7 @@
 package org.icij.datashare.session;
 
 import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.com.redis.RedissonClientProvider;
 import org.icij.datashare.text.Hasher;
 import org.junit.Test;
 
@@ -12,9 +13,10 @@ import static org.fest.assertions.Assertions.assertThat;
 
 
 public class UsersInRedisTest {
-    UsersInRedis users = new UsersInRedis(new PropertiesProvider(new HashMap<>() {{
+    PropertiesProvider propertiesProvider = new PropertiesProvider(new HashMap<>() {{
         put("messageBusAddress", "redis://redis:6379");
-    }}));
+    }});
+    UsersInRedis users = new UsersInRedis(propertiesProvider, new RedissonClientProvider(propertiesProvider));
 
     @Test
     public void test_get_user_with_password() {
@@ -5,6 +5,7 @@ import net.codestory.http.filters.PayloadSupplier;
 import net.codestory.http.payload.Payload;
 import net.codestory.http.security.User;
 import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.com.redis.RedissonClientProvider;
 import org.icij.datashare.db.JooqRepository;
 import org.icij.datashare.text.Project;
 import org.junit.Before;
@@ -38,7 +39,7 @@ public class YesCookieAuthFilterTest {
     public void test_matches() {
         when(jooqRepository.getProjects()).thenReturn(new ArrayList<>());
         PropertiesProvider propertiesProvider = new PropertiesProvider(Map.of("protectedUrlPrefix", "prefix"));
-        YesCookieAuthFilter filter = new YesCookieAuthFilter(propertiesProvider, jooqRepository);
+        YesCookieAuthFilter filter = new YesCookieAuthFilter(propertiesProvider, jooqRepository, new RedissonClientProvider(propertiesProvider));
         assertThat(filter.matches("foo", null)).isFalse();
         assertThat(filter.matches("prefix", null)).isTrue();
     }
@@ -49,7 +50,7 @@ public class YesCookieAuthFilterTest {
         PropertiesProvider propertiesProvider = new PropertiesProvider();
         propertiesProvider.getProperties().put("defaultProject", "demo");
         propertiesProvider.getProperties().put("messageBusAddress", "redis://redis:6379");
-        YesCookieAuthFilter filter = new YesCookieAuthFilter(propertiesProvider, jooqRepository);
+        YesCookieAuthFilter filter = new YesCookieAuthFilter(propertiesProvider, jooqRepository, new RedissonClientProvider(propertiesProvider));
         Payload payload = filter.apply("url", context, nextFilter);
 
         assertThat(payload).isSameAs(next);
@@ -65,7 +66,7 @@ public class YesCookieAuthFilterTest {
         PropertiesProvider propertiesProvider = new PropertiesProvider();
         propertiesProvider.getProperties().put("defaultProject", "demo");
         propertiesProvider.getProperties().put("messageBusAddress", "redis://redis:6379");
-        YesCookieAuthFilter filter = new YesCookieAuthFilter(propertiesProvider, jooqRepository);
+        YesCookieAuthFilter filter = new YesCookieAuthFilter(propertiesProvider, jooqRepository, new RedissonClientProvider(propertiesProvider));
         Payload payload = filter.apply("url", context, nextFilter);
 
         assertThat(payload).isSameAs(next);
@@ -7,6 +7,7 @@ import org.icij.datashare.asynctasks.TaskSupplier;
 import org.icij.datashare.batch.BatchDownload;
 import org.icij.datashare.com.mail.Mail;
 import org.icij.datashare.com.mail.MailSender;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.test.ElasticsearchRule;
 import org.icij.datashare.text.indexing.elasticsearch.ElasticsearchIndexer;
 import org.icij.datashare.user.User;
@@ -31,7 +32,7 @@ public class BatchDownloadRunnerEncryptedIntTest {
     @ClassRule public static ElasticsearchRule es = new ElasticsearchRule();
     @Rule public TemporaryFolder fs = new TemporaryFolder();
 
-    private final ElasticsearchIndexer indexer = new ElasticsearchIndexer(es.client, new PropertiesProvider()).withRefresh(Refresh.True);
+    private final ElasticsearchIndexer indexer = new ElasticsearchIndexer(es.client, new PropertiesProvider(), new MetricRegistry()).withRefresh(Refresh.True);
     @Mock TaskSupplier taskSupplier;
 
     @Test
@@ -44,7 +45,7 @@ public class BatchDownloadRunnerEncryptedIntTest {
                 new HashMap<>() {{
                     put("batchDownload", batchDownload);
                 }});
-        new BatchDownloadRunner(indexer, createProvider(), taskView.progress(taskSupplier::progress), taskView, (uri) -> mailSender).call();
+        new BatchDownloadRunner(indexer, createProvider(), new MetricRegistry(), taskView.progress(taskSupplier::progress), taskView, (uri) -> mailSender).call();
 
         assertThat(new net.lingala.zip4j.ZipFile(batchDownload.filename.toFile()).isEncrypted()).isTrue();
         ArgumentCaptor<Mail> mailCaptor = ArgumentCaptor.forClass(Mail.class);
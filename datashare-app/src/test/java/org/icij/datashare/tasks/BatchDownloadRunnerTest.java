@@ -7,6 +7,9 @@ import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.asynctasks.TaskModifier;
 import org.icij.datashare.asynctasks.bus.amqp.UriResult;
 import org.icij.datashare.batch.BatchDownload;
+import org.icij.datashare.com.mail.Mail;
+import org.icij.datashare.com.mail.MailSender;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.indexing.Indexer;
 import org.icij.datashare.user.User;
@@ -15,6 +18,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 
 import java.io.File;
@@ -23,16 +27,26 @@ import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import static java.lang.String.valueOf;
 import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static org.fest.assertions.Assertions.assertThat;
 import static org.icij.datashare.cli.DatashareCliOptions.*;
 import static org.icij.datashare.text.DocumentBuilder.createDoc;
 import static org.icij.datashare.text.Project.project;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 public class BatchDownloadRunnerTest {
@@ -43,7 +57,7 @@ public class BatchDownloadRunnerTest {
 
     @Test(expected = AssertionError.class)
     public void test_task_with_no_batch_download() {
-        new BatchDownloadRunner(indexer, new PropertiesProvider(), new Task<Serializable>("name", User.local(), new HashMap<>()), null);
+        new BatchDownloadRunner(indexer, new PropertiesProvider(), new MetricRegistry(), new Task<Serializable>("name", User.local(), new HashMap<>()), null);
     }
 
     @Test
@@ -55,7 +69,7 @@ public class BatchDownloadRunnerTest {
         UriResult result = new BatchDownloadRunner(indexer, new PropertiesProvider(new HashMap<>() {{
                     put(BATCH_DOWNLOAD_MAX_NB_FILES_OPT, "3");
                     put(SCROLL_SIZE_OPT, "3");
-                }}), taskView, taskView.progress(updater::progress)).call();
+                }}), new MetricRegistry(), taskView, taskView.progress(updater::progress)).call();
 
         assertThat(new ZipFile(new File(result.uri())).size()).isEqualTo(3);
     }
@@ -68,16 +82,98 @@ public class BatchDownloadRunnerTest {
         UriResult result = new BatchDownloadRunner(indexer, new PropertiesProvider(new HashMap<>() {{
             put(BATCH_DOWNLOAD_MAX_SIZE_OPT, valueOf("hello world 1".getBytes(StandardCharsets.UTF_8).length * 3 - 1)); // to avoid adding the 4th doc
             put(SCROLL_SIZE_OPT, "3");
-        }}), taskView, taskView.progress(updater::progress)).call();
+        }}), new MetricRegistry(), taskView, taskView.progress(updater::progress)).call();
 
         assertThat(new ZipFile(new File(result.uri())).size()).isEqualTo(3); // the 4th doc must have been skipped
     }
 
+    @Test
+    public void test_parallel_extraction_keeps_documents_order() throws Exception {
+        Document[] documents = IntStream.range(0, 20).mapToObj(i -> createDoc("doc" + i).with(createFile(i)).build()).toArray(Document[]::new);
+        mockSearch.willReturn(1, documents);
+        Task<File> taskView = getTaskView(new BatchDownload(singletonList(project("test-datashare")), User.local(), "query"));
+        UriResult result = new BatchDownloadRunner(indexer, new PropertiesProvider(new HashMap<>() {{
+            put(BATCH_DOWNLOAD_PARALLELISM_OPT, "4");
+            put(SCROLL_SIZE_OPT, "20");
+        }}), new MetricRegistry(), taskView, taskView.progress(updater::progress)).call();
+
+        try (ZipFile zipFile = new ZipFile(new File(result.uri()))) {
+            assertThat(zipFile.stream().map(ZipEntry::getName).collect(toList())).isEqualTo(
+                    IntStream.range(0, 20).mapToObj(i -> documents[i].getPath().toString().substring(1)).collect(toList()));
+            assertThat(new String(zipFile.getInputStream(zipFile.getEntry(documents[7].getPath().toString().substring(1))).readAllBytes())).isEqualTo("hello world 7");
+        }
+    }
+
+    @Test
+    public void test_parallel_extraction_with_password() throws Exception {
+        Document[] documents = IntStream.range(0, 10).mapToObj(i -> createDoc("doc" + i).with(createFile(i)).build()).toArray(Document[]::new);
+        mockSearch.willReturn(1, documents);
+        MailSender mailSender = mock(MailSender.class);
+        BatchDownload batchDownload = new BatchDownload(singletonList(project("test-datashare")), new User("foo", "bar", "foo@bar.com"), "query", null, fs.getRoot().toPath(), true);
+        Task<File> taskView = getTaskView(batchDownload);
+        UriResult result = new BatchDownloadRunner(indexer, new PropertiesProvider(new HashMap<>() {{
+            put(BATCH_DOWNLOAD_PARALLELISM_OPT, "4");
+            put(SCROLL_SIZE_OPT, "10");
+        }}), new MetricRegistry(), taskView.progress(updater::progress), taskView, uri -> mailSender).call();
+
+        ArgumentCaptor<Mail> mailCaptor = ArgumentCaptor.forClass(Mail.class);
+        verify(mailSender).send(mailCaptor.capture());
+        Matcher password = Pattern.compile("the password is \"(\\w+)\"").matcher(mailCaptor.getValue().messageBody);
+        assertThat(password.find()).isTrue();
+        net.lingala.zip4j.ZipFile zipFile = new net.lingala.zip4j.ZipFile(new File(result.uri()), password.group(1).toCharArray());
+        assertThat(zipFile.isEncrypted()).isTrue();
+        assertThat(zipFile.getFileHeaders()).hasSize(10);
+        assertThat(new String(zipFile.getInputStream(zipFile.getFileHeader(documents[3].getPath().toString().substring(1))).readAllBytes())).isEqualTo("hello world 3");
+    }
+
+    @Test
+    public void test_resume_from_checkpoint() throws Exception {
+        Document[] documents = IntStream.range(0, 5).mapToObj(i -> createDoc("doc" + i).with(createFile(i)).build()).toArray(Document[]::new);
+        Indexer.QueryBuilderSearcher firstRun = mockSearch.willReturn(1, Arrays.copyOfRange(documents, 0, 3));
+        when(firstRun.checkpoint()).thenReturn("page1");
+        Task<File> taskView = getTaskView(new BatchDownload(singletonList(project("test-datashare")), User.local(), "query"));
+        new BatchDownloadRunner(indexer, new PropertiesProvider(new HashMap<>() {{
+            put(SCROLL_SIZE_OPT, "3");
+        }}), new MetricRegistry(), taskView, taskView.progress(updater::progress)).call();
+        assertThat(BatchDownloadRunner.BatchDownloadCheckpoint.parse(taskView.getCheckpoint()))
+                .isEqualTo(new BatchDownloadRunner.BatchDownloadCheckpoint("page1", 3, 39));
+
+        Indexer.QueryBuilderSearcher secondRun = mockSearch.willReturn(0);
+        when(secondRun.scroll(any(Indexer.ScrollQuery.class))).thenAnswer(a -> Stream.of(documents[3], documents[4]));
+        UriResult result = new BatchDownloadRunner(indexer, new PropertiesProvider(new HashMap<>() {{
+            put(SCROLL_SIZE_OPT, "3");
+        }}), new MetricRegistry(), taskView, taskView.progress(updater::progress)).call();
+
+        ArgumentCaptor<Indexer.ScrollQuery> scrollQuery = ArgumentCaptor.forClass(Indexer.ScrollQuery.class);
+        verify(secondRun).scroll(scrollQuery.capture());
+        assertThat(scrollQuery.getValue().getCheckpoint()).isEqualTo("page1");
+        try (ZipFile zipFile = new ZipFile(new File(result.uri()))) {
+            assertThat(zipFile.stream().map(ZipEntry::getName).collect(toList())).isEqualTo(
+                    IntStream.range(0, 5).mapToObj(i -> documents[i].getPath().toString().substring(1)).collect(toList()));
+            assertThat(new String(zipFile.getInputStream(zipFile.getEntry(documents[1].getPath().toString().substring(1))).readAllBytes())).isEqualTo("hello world 1");
+        }
+    }
+
+    @Test
+    public void test_encrypted_archive_is_not_resumed() throws Exception {
+        Document[] documents = IntStream.range(0, 2).mapToObj(i -> createDoc("doc" + i).with(createFile(i)).build()).toArray(Document[]::new);
+        mockSearch.willReturn(1, documents);
+        BatchDownload batchDownload = new BatchDownload(singletonList(project("test-datashare")), new User("foo", "bar", "foo@bar.com"), "query", null, fs.getRoot().toPath(), true);
+        Task<File> taskView = getTaskView(batchDownload);
+        taskView.setCheckpoint(new BatchDownloadRunner.BatchDownloadCheckpoint("page1", 1, 13).toJson());
+        Files.write(batchDownload.filename, new byte[0]);
+
+        new BatchDownloadRunner(indexer, new PropertiesProvider(), new MetricRegistry(), taskView.progress(updater::progress), taskView, uri -> mock(MailSender.class)).call();
+
+        assertThat(BatchDownloadRunner.BatchDownloadCheckpoint.parse(taskView.getCheckpoint()).search()).isNull();
+        assertThat(new net.lingala.zip4j.ZipFile(batchDownload.filename.toFile()).getFileHeaders()).hasSize(2);
+    }
+
     @Test(expected = ElasticsearchException.class)
     public void test_elasticsearch_status_exception__should_be_sent() throws Exception {
         mockSearch.willThrow(new ElasticsearchException("error", RestStatus.BAD_REQUEST, new RuntimeException()));
         Task<File> taskView = getTaskView(new BatchDownload(singletonList(project("test-datashare")), User.local(), "query"));
-        new BatchDownloadRunner(indexer, new PropertiesProvider(), taskView, taskView.progress(updater::progress)).call();
+        new BatchDownloadRunner(indexer, new PropertiesProvider(), new MetricRegistry(), taskView, taskView.progress(updater::progress)).call();
     }
 
     private Path createFile(int index) {
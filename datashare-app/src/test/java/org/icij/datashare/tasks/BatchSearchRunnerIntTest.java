@@ -7,6 +7,7 @@ import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.batch.BatchSearch;
 import org.icij.datashare.batch.BatchSearchRepository;
 import org.icij.datashare.batch.SearchException;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.test.DatashareTimeRule;
 import org.icij.datashare.test.ElasticsearchRule;
 import org.icij.datashare.text.Document;
@@ -37,6 +38,7 @@ import static org.icij.datashare.test.ElasticsearchRule.TEST_INDEX;
 import static org.icij.datashare.text.DocumentBuilder.createDoc;
 import static org.icij.datashare.text.Project.project;
 import static org.icij.datashare.user.User.local;
+import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyList;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.never;
@@ -49,7 +51,7 @@ public class BatchSearchRunnerIntTest {
     @Rule public DatashareTimeRule timeRule = new DatashareTimeRule("2020-05-25T10:11:12Z");
     @Mock Function<Double, Void> progressCb;
     @Mock BatchSearchRepository repository;
-    private final ElasticsearchIndexer indexer = new ElasticsearchIndexer(es.client, new PropertiesProvider()).withRefresh(Refresh.True);
+    private final ElasticsearchIndexer indexer = new ElasticsearchIndexer(es.client, new PropertiesProvider(), new MetricRegistry()).withRefresh(Refresh.True);
     @After public void tearDown() throws IOException { es.removeAll();}
 
     @Test
@@ -59,8 +61,8 @@ public class BatchSearchRunnerIntTest {
         BatchSearch search = new BatchSearch(singletonList(project(TEST_INDEX)), "name", "desc", asSet("mydoc"), User.local(), false, singletonList("text/plain"), null, null, 0);
         when(repository.get(local(), search.uuid)).thenReturn(search);
 
-        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(search), progressCb).call();
-        verify(repository).saveResults(search.uuid, "mydoc", singletonList(mydoc));
+        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(search), progressCb).call();
+        verify(repository).appendResults(search.uuid, "mydoc", singletonList(mydoc), 0);
     }
 
     private Task<?> taskView(BatchSearch search) {
@@ -74,9 +76,9 @@ public class BatchSearchRunnerIntTest {
         BatchSearch searchKo = new BatchSearch(singletonList(project(TEST_INDEX)), "name", "desc", asSet("mydoc"), User.local(), false, singletonList("application/pdf"), null,null, 0);
         when(repository.get(local(), searchKo.uuid)).thenReturn(searchKo);
 
-        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(searchKo), progressCb).call();
+        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(searchKo), progressCb).call();
 
-        verify(repository, never()).saveResults(eq(searchKo.uuid), eq("mydoc"), anyList());
+        verify(repository, never()).appendResults(eq(searchKo.uuid), eq("mydoc"), anyList(), anyInt());
     }
 
     @Test
@@ -87,9 +89,9 @@ public class BatchSearchRunnerIntTest {
                 singletonList("/path/to"), 0);
         when(repository.get(local(), searchOk.uuid)).thenReturn(searchOk);
 
-        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(searchOk), progressCb).call();
+        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(searchOk), progressCb).call();
 
-        verify(repository).saveResults(searchOk.uuid, "mydoc", singletonList(mydoc));
+        verify(repository).appendResults(searchOk.uuid, "mydoc", singletonList(mydoc), 0);
     }
 
     @Test
@@ -100,9 +102,9 @@ public class BatchSearchRunnerIntTest {
                 singletonList("/foo/bar"), 0);
         when(repository.get(local(), searchKo.uuid)).thenReturn(searchKo);
 
-        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(searchKo), progressCb).call();
+        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(searchKo), progressCb).call();
 
-        verify(repository, never()).saveResults(eq(searchKo.uuid), eq("mydoc"), anyList());
+        verify(repository, never()).appendResults(eq(searchKo.uuid), eq("mydoc"), anyList(), anyInt());
     }
 
     @Test
@@ -119,13 +121,13 @@ public class BatchSearchRunnerIntTest {
         when(repository.get(local(), searchKo2.uuid)).thenReturn(searchKo2);
         when(repository.get(local(), searchOk.uuid)).thenReturn(searchOk);
 
-        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(searchKo1), progressCb).call();
-        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(searchKo2), progressCb).call();
-        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(searchOk), progressCb).call();
+        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(searchKo1), progressCb).call();
+        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(searchKo2), progressCb).call();
+        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(searchOk), progressCb).call();
 
-        verify(repository, never()).saveResults(eq(searchKo1.uuid), eq("doc"), anyList());
-        verify(repository, never()).saveResults(eq(searchKo2.uuid), eq("nodoc"), anyList());
-        verify(repository).saveResults(searchOk.uuid, "hedoc", singletonList(mydoc));
+        verify(repository, never()).appendResults(eq(searchKo1.uuid), eq("doc"), anyList(), anyInt());
+        verify(repository, never()).appendResults(eq(searchKo2.uuid), eq("nodoc"), anyList(), anyInt());
+        verify(repository).appendResults(searchOk.uuid, "hedoc", singletonList(mydoc), 0);
     }
 
     @Test
@@ -139,11 +141,11 @@ public class BatchSearchRunnerIntTest {
         when(repository.get(local(), searchKo.uuid)).thenReturn(searchKo);
         when(repository.get(local(), searchOk.uuid)).thenReturn(searchOk);
 
-        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(searchKo), progressCb).call();
-        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(searchOk), progressCb).call();
+        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(searchKo), progressCb).call();
+        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(searchOk), progressCb).call();
 
-        verify(repository, never()).saveResults(eq(searchKo.uuid), eq("to find mydoc"), anyList());
-        verify(repository).saveResults(searchOk.uuid, "mydoc to find", singletonList(mydoc));
+        verify(repository, never()).appendResults(eq(searchKo.uuid), eq("to find mydoc"), anyList(), anyInt());
+        verify(repository).appendResults(searchOk.uuid, "mydoc to find", singletonList(mydoc), 0);
     }
 
     @Test
@@ -158,11 +160,11 @@ public class BatchSearchRunnerIntTest {
         when(repository.get(local(), searchOk.uuid)).thenReturn(searchOk);
         when(repository.get(local(), searchKo.uuid)).thenReturn(searchKo);
 
-        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(searchKo), progressCb).call();
-        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(searchOk), progressCb).call();
+        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(searchKo), progressCb).call();
+        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(searchOk), progressCb).call();
 
-        verify(repository, never()).saveResults(eq(searchKo.uuid), eq("anne doc"), anyList());
-        verify(repository).saveResults(searchOk.uuid, "anne's doc", singletonList(mydoc));
+        verify(repository, never()).appendResults(eq(searchKo.uuid), eq("anne doc"), anyList(), anyInt());
+        verify(repository).appendResults(searchOk.uuid, "anne's doc", singletonList(mydoc), 0);
     }
 
     @Test
@@ -175,9 +177,9 @@ public class BatchSearchRunnerIntTest {
                  null, 2,true);
         when(repository.get(local(), search.uuid)).thenReturn(search);
 
-        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(search), progressCb).call();
+        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(search), progressCb).call();
 
-        verify(repository).saveResults(search.uuid, "find mydoc", singletonList(mydoc));
+        verify(repository).appendResults(search.uuid, "find mydoc", singletonList(mydoc), 0);
     }
 
     @Test
@@ -189,9 +191,9 @@ public class BatchSearchRunnerIntTest {
         BatchSearch search = new BatchSearch(singletonList(project(TEST_INDEX)), "name", "desc", asSet("mydoc AND one"), User.local());
         when(repository.get(local(), search.uuid)).thenReturn(search);
 
-        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(search), progressCb).call();
+        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(search), progressCb).call();
 
-        verify(repository).saveResults(search.uuid, "mydoc AND one", singletonList(mydoc1));
+        verify(repository).appendResults(search.uuid, "mydoc AND one", singletonList(mydoc1), 0);
     }
 
     @Test
@@ -203,9 +205,9 @@ public class BatchSearchRunnerIntTest {
                 null, 0);
         when(repository.get(local(), searchOk.uuid)).thenReturn(searchOk);
 
-        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(searchOk), progressCb).call();
+        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(searchOk), progressCb).call();
 
-        verify(repository).saveResults(searchOk.uuid, "mydoc", singletonList(mydoc));
+        verify(repository).appendResults(searchOk.uuid, "mydoc", singletonList(mydoc), 0);
     }
 
     @Test
@@ -216,9 +218,9 @@ public class BatchSearchRunnerIntTest {
                 null, 0);
         when(repository.get(local(), searchOk.uuid)).thenReturn(searchOk);
 
-        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(searchOk), progressCb).call();
+        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(searchOk), progressCb).call();
 
-        verify(repository).saveResults(searchOk.uuid, "mydoc", singletonList(mydoc));
+        verify(repository).appendResults(searchOk.uuid, "mydoc", singletonList(mydoc), 0);
     }
 
     @Test
@@ -228,7 +230,7 @@ public class BatchSearchRunnerIntTest {
         BatchSearch search = new BatchSearch(singletonList(project(TEST_INDEX)), "name", "desc", asSet("AND mydoc"), User.local());
         when(repository.get(local(), search.uuid)).thenReturn(search);
 
-        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(search), progressCb).call();
+        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(search), progressCb).call();
 
         ArgumentCaptor<SearchException> searchExceptionArgumentCaptor = ArgumentCaptor.forClass(SearchException.class);
         verify(repository).setState(eq(search.uuid), searchExceptionArgumentCaptor.capture());
@@ -244,7 +246,7 @@ public class BatchSearchRunnerIntTest {
                 null, 0);
         when(repository.get(local(), search.uuid)).thenReturn(search);
 
-        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(search), progressCb).call();
+        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(search), progressCb).call();
 
         ArgumentCaptor<SearchException> searchExceptionArgumentCaptor = ArgumentCaptor.forClass(SearchException.class);
         verify(repository).setState(eq(search.uuid), searchExceptionArgumentCaptor.capture());
@@ -260,7 +262,7 @@ public class BatchSearchRunnerIntTest {
         BatchSearch search = new BatchSearch(singletonList(project(TEST_INDEX)), "name", "desc", asSet("mydoc"), User.local(), false, null, null,null, 0);
         when(repository.get(local(), search.uuid)).thenReturn(search);
 
-        new BatchSearchRunner(indexer, propertiesProvider, repository, taskView(search), progressCb).call();
+        new BatchSearchRunner(indexer, propertiesProvider, repository, new MetricRegistry(), taskView(search), progressCb).call();
 
         ArgumentCaptor<SearchException> searchExceptionArgumentCaptor = ArgumentCaptor.forClass(SearchException.class);
         verify(repository).setState(eq(search.uuid), searchExceptionArgumentCaptor.capture());
@@ -275,7 +277,7 @@ public class BatchSearchRunnerIntTest {
         BatchSearch search = new BatchSearch(singletonList(project(TEST_INDEX)), "name", "desc", asSet("mydoc"), User.local(), false, null, null,null, 0);
         when(repository.get(local(), search.uuid)).thenReturn(search);
 
-        new BatchSearchRunner(indexer, propertiesProvider, repository, taskView(search), progressCb).call();
+        new BatchSearchRunner(indexer, propertiesProvider, repository, new MetricRegistry(), taskView(search), progressCb).call();
 
         ArgumentCaptor<SearchException> searchExceptionArgumentCaptor = ArgumentCaptor.forClass(SearchException.class);
         verify(repository).setState(eq(search.uuid), searchExceptionArgumentCaptor.capture());
@@ -290,7 +292,7 @@ public class BatchSearchRunnerIntTest {
         BatchSearch search = new BatchSearch(singletonList(project(TEST_INDEX)), "name", "desc", asSet("mydoc"), User.local(), false, null, null,null, 0);
         when(repository.get(local(), search.uuid)).thenReturn(search);
 
-        new BatchSearchRunner(indexer, propertiesProvider, repository, taskView(search), progressCb).call();
+        new BatchSearchRunner(indexer, propertiesProvider, repository, new MetricRegistry(), taskView(search), progressCb).call();
 
         ArgumentCaptor<SearchException> searchExceptionArgumentCaptor = ArgumentCaptor.forClass(SearchException.class);
         verify(repository).setState(eq(search.uuid), searchExceptionArgumentCaptor.capture());
@@ -5,6 +5,7 @@ import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.batch.BatchSearch;
 import org.icij.datashare.batch.BatchSearchRepository;
 import org.icij.datashare.batch.SearchException;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.test.DatashareTimeRule;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.indexing.Indexer;
@@ -23,10 +24,12 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.IntStream;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.fest.assertions.Assertions.assertThat;
 import static org.icij.datashare.CollectionUtils.asSet;
 import static org.icij.datashare.cli.DatashareCliOptions.BATCH_SEARCH_MAX_TIME_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.BATCH_SEARCH_SCROLL_SIZE_OPT;
 import static org.icij.datashare.cli.DatashareCliOptions.BATCH_THROTTLE_OPT;
 import static org.icij.datashare.tasks.BatchSearchRunner.MAX_BATCH_RESULT_SIZE;
 import static org.icij.datashare.tasks.BatchSearchRunner.MAX_SCROLL_SIZE;
@@ -35,6 +38,7 @@ import static org.icij.datashare.text.Project.project;
 import static org.icij.datashare.user.User.local;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.anyList;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.verify;
@@ -53,7 +57,7 @@ public class BatchSearchRunnerTest {
     @Test
     public void test_run_null_batch_search() throws Exception {
         BatchSearch search = new BatchSearch("uuid", singletonList(project("test-datashare")), "name1", "desc1", asSet("query1", "query2"), new Date(), BatchSearch.State.QUEUED, local());
-        assertThat(new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(search), progressCb).call()).isEqualTo(0);
+        assertThat(new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(search), progressCb).call()).isEqualTo(0);
     }
 
     @Test
@@ -63,7 +67,7 @@ public class BatchSearchRunnerTest {
         BatchSearch search = new BatchSearch("uuid1", singletonList(project("test-datashare")), "name1", "desc1", asSet("query1", "query2"), new Date(), BatchSearch.State.QUEUED, User.local());
         when(repository.get(local(), search.uuid)).thenReturn(search);
 
-        assertThat(new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(search), progressCb).call()).isEqualTo(2);
+        assertThat(new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(search), progressCb).call()).isEqualTo(2);
 
         verify(progressCb).apply( 1.0);
     }
@@ -78,19 +82,48 @@ public class BatchSearchRunnerTest {
         mockSearch.willReturn(1, documents);
         BatchSearch batchSearch = new BatchSearch("uuid1", singletonList(project("test-datashare")), "name1", "desc1", asSet("query1", "query2"), new Date(), BatchSearch.State.QUEUED, local());
         when(repository.get(local(), batchSearch.uuid)).thenReturn(batchSearch);
-        when(repository.saveResults(anyString(), any(), anyList())).thenThrow(new RuntimeException());
+        when(repository.appendResults(anyString(), any(), anyList(), anyInt())).thenThrow(new RuntimeException());
 
-        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(batchSearch), progressCb).call();
+        new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(batchSearch), progressCb).call();
     }
 
     @Test
     public void test_run_batch_search_truncate_to_60k_max_results() throws Exception {
-        Document[] documents = IntStream.range(0, MAX_SCROLL_SIZE).mapToObj(i -> createDoc("doc" + i).build()).toArray(Document[]::new);
-        mockSearch.willReturn(MAX_BATCH_RESULT_SIZE/MAX_SCROLL_SIZE + 1, documents);
+        Document[] documents = IntStream.range(0, 3500).mapToObj(i -> createDoc("doc" + i).build()).toArray(Document[]::new);
+        mockSearch.willReturn(MAX_BATCH_RESULT_SIZE/3500 + 1, documents);
         BatchSearch batchSearch = new BatchSearch("uuid1", singletonList(project("test-datashare")), "name", "desc", asSet("query"), new Date(), BatchSearch.State.QUEUED, local());
         when(repository.get(local(), batchSearch.uuid)).thenReturn(batchSearch);
 
-        assertThat(new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(batchSearch), progressCb).call()).isLessThan(60000);
+        assertThat(new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(batchSearch), progressCb).call()).isEqualTo(60000);
+        verify(repository).addResultsCount(batchSearch.uuid, "query", 60000);
+    }
+
+    @Test
+    public void test_run_batch_search_scroll_size_is_bounded_by_elasticsearch_max_result_window() throws Exception {
+        Indexer.QueryBuilderSearcher searcher = mockSearch.willReturn(1, createDoc("doc1").build());
+        BatchSearch batchSearch = new BatchSearch("uuid1", singletonList(project("test-datashare")), "name", "desc", asSet("query"), new Date(), BatchSearch.State.QUEUED, local());
+        when(repository.get(local(), batchSearch.uuid)).thenReturn(batchSearch);
+
+        new BatchSearchRunner(indexer, new PropertiesProvider(new HashMap<>() {{
+            put(BATCH_SEARCH_SCROLL_SIZE_OPT, "50000");
+        }}), repository, new MetricRegistry(), taskView(batchSearch), progressCb).call();
+
+        verify(searcher).limit(MAX_SCROLL_SIZE);
+    }
+
+    @Test
+    public void test_run_batch_search_updates_results_count_once_per_query() throws Exception {
+        Document[] documents = {createDoc("doc1").build(), createDoc("doc2").build()};
+        mockSearch.willReturn(3, documents);
+        BatchSearch batchSearch = new BatchSearch("uuid1", singletonList(project("test-datashare")), "name", "desc", asSet("query"), new Date(), BatchSearch.State.QUEUED, local());
+        when(repository.get(local(), batchSearch.uuid)).thenReturn(batchSearch);
+
+        assertThat(new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(batchSearch), progressCb).call()).isEqualTo(6);
+
+        verify(repository).appendResults(batchSearch.uuid, "query", asList(documents), 0);
+        verify(repository).appendResults(batchSearch.uuid, "query", asList(documents), 2);
+        verify(repository).appendResults(batchSearch.uuid, "query", asList(documents), 4);
+        verify(repository).addResultsCount(batchSearch.uuid, "query", 6);
     }
 
     @Test
@@ -102,7 +135,7 @@ public class BatchSearchRunnerTest {
 
         new BatchSearchRunner(indexer, new PropertiesProvider(new HashMap<>() {{
             put(BATCH_THROTTLE_OPT, "1000");
-        }}), repository, taskView(batchSearch), progressCb).call();
+        }}), repository, new MetricRegistry(), taskView(batchSearch), progressCb).call();
 
         assertThat(timeRule.now().getTime() - beforeBatch.getTime()).isEqualTo(1000);
     }
@@ -118,7 +151,7 @@ public class BatchSearchRunnerTest {
         SearchException searchException = assertThrows(SearchException.class, () -> new BatchSearchRunner(indexer, new PropertiesProvider(new HashMap<>() {{
             put(BATCH_THROTTLE_OPT, "1000");
             put(BATCH_SEARCH_MAX_TIME_OPT, "1");
-        }}), repository, taskView(batchSearch), progressCb).call());
+        }}), repository, new MetricRegistry(), taskView(batchSearch), progressCb).call());
 
         assertThat(searchException.toString()).contains("Batch timed out after 1s");
         assertThat(timeRule.now().getTime() - beforeBatch.getTime()).isEqualTo(1000);
@@ -130,7 +163,7 @@ public class BatchSearchRunnerTest {
         BatchSearch batchSearch = new BatchSearch("uuid1", singletonList(project("test-datashare")), "name1", "desc1", asSet("query1", "query2"), new Date(), BatchSearch.State.QUEUED, local());
         Document[] documents = {createDoc("doc").build()};
         mockSearch.willReturn(1,documents);
-        BatchSearchRunner batchSearchRunner = new BatchSearchRunner(indexer, new PropertiesProvider(), repository, taskView(batchSearch), progressCb, countDownLatch);
+        BatchSearchRunner batchSearchRunner = new BatchSearchRunner(indexer, new PropertiesProvider(), repository, new MetricRegistry(), taskView(batchSearch), progressCb, countDownLatch);
 
         executor.submit(batchSearchRunner);
         executor.shutdown();
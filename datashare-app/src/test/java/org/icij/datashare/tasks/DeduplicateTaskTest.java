@@ -36,6 +36,44 @@ public class DeduplicateTaskTest {
         assertThat(docCollectionFactory.createQueue("test:queue:index", Path.class).size()).isEqualTo(2); // with POISON
     }
 
+    @Test(timeout = 2000)
+    public void test_filter_queue_removes_duplicates_across_batches() throws Exception {
+        DocumentQueue<Path> inputQueue = docCollectionFactory.createQueue("test:queue:deduplicate", Path.class);
+        for (int i = 0; i < DeduplicateTask.BATCH_SIZE + 10; i++) {
+            inputQueue.put(get("/path/to/doc" + i % 20));
+        }
+        inputQueue.add(PATH_POISON);
+
+        assertThat(task.call()).isEqualTo(DeduplicateTask.BATCH_SIZE + 10 - 20);
+
+        DocumentQueue<Path> outputQueue = docCollectionFactory.createQueue("test:queue:index", Path.class);
+        assertThat(outputQueue.size()).isEqualTo(21);
+        assertThat(outputQueue.poll().toString()).isEqualTo("/path/to/doc0");
+        assertThat(docCollectionFactory.createSet(task.getSeenSetName(), Path.class)).isEmpty();
+    }
+
+    @Test(timeout = 5000)
+    public void test_filter_queue_while_producing() throws Exception {
+        DocumentQueue<Path> inputQueue = docCollectionFactory.createQueue("test:queue:deduplicate", Path.class);
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 10; i++) {
+                    inputQueue.put(get("/path/to/doc" + i % 5));
+                    Thread.sleep(10);
+                }
+                inputQueue.put(PATH_POISON);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+
+        assertThat(task.call()).isEqualTo(5);
+        producer.join();
+
+        assertThat(docCollectionFactory.createQueue("test:queue:index", Path.class).size()).isEqualTo(6);
+    }
+
     @Test(timeout = 2000)
     public void test_pipeline_task_transfer_to_output_queue() throws Exception {
         task.inputQueue.put(get("/path/to/doc1"));
@@ -4,6 +4,7 @@ import co.elastic.clients.elasticsearch._types.Refresh;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.extract.MemoryDocumentCollectionFactory;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.test.ElasticsearchRule;
 import org.icij.datashare.text.indexing.elasticsearch.ElasticsearchIndexer;
 import org.icij.datashare.text.nlp.Pipeline;
@@ -13,7 +14,9 @@ import org.junit.ClassRule;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.icij.datashare.cli.DatashareCliOptions.NLP_PIPELINE_OPT;
@@ -24,7 +27,7 @@ import static org.icij.datashare.text.Project.project;
 public class EnqueueFromIndexTaskTest {
     @ClassRule
     public static ElasticsearchRule es = new ElasticsearchRule();
-    private final ElasticsearchIndexer indexer = new ElasticsearchIndexer(es.client, new PropertiesProvider()).withRefresh(Refresh.True);
+    private final ElasticsearchIndexer indexer = new ElasticsearchIndexer(es.client, new PropertiesProvider(), new MetricRegistry()).withRefresh(Refresh.True);
 
     @After public void tearDown() throws IOException { es.removeAll();}
 
@@ -44,6 +47,28 @@ public class EnqueueFromIndexTaskTest {
         assertThat(factory.queues.get("test:queue:nlp")).hasSize(21); // with poison
     }
 
+    @Test
+    public void test_enqueue_with_slices_and_progress() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            indexer.add(TEST_INDEX, createDoc("doc" + i).with(Pipeline.Type.CORENLP).build());
+        }
+        Map<String, Object> properties = Map.of(
+                "defaultProject", "test-datashare",
+                "stages", "ENQUEUEIDX",
+                "queueName", "test:queue",
+                "scrollSize", "3",
+                "scrollSlices", "2",
+                NLP_PIPELINE_OPT, Pipeline.Type.OPENNLP.name());
+        MemoryDocumentCollectionFactory<String> factory = new MemoryDocumentCollectionFactory<>();
+        List<Double> progresses = new CopyOnWriteArrayList<>();
+        EnqueueFromIndexTask enqueueFromIndex = new EnqueueFromIndexTask(factory, indexer,
+                new Task<>(EnqueueFromIndexTask.class.getName(), new User("test"), properties), p -> { progresses.add(p); return null;});
+
+        assertThat(enqueueFromIndex.call()).isEqualTo(20);
+        assertThat(factory.queues.get("test:queue:nlp")).hasSize(21); // with poison
+        assertThat(progresses.stream().mapToDouble(Double::doubleValue).max().getAsDouble()).isEqualTo(1.0);
+    }
+
     @Test
     public void test_with_query_body() throws Exception {
         indexer.add(TEST_INDEX, createDoc("my_id").with("this is my precious doc")
@@ -10,6 +10,7 @@ import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.Stage;
 import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.extract.*;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.indexing.Indexer;
 import org.icij.datashare.text.nlp.AbstractPipeline;
@@ -27,6 +28,7 @@ import org.redisson.config.Config;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 
 import static java.util.Arrays.asList;
 import static org.icij.datashare.text.DocumentBuilder.createDoc;
@@ -54,7 +56,7 @@ public class ExtractNlpTaskIntTest {
         when(pipeline.getType()).thenReturn(Pipeline.Type.CORENLP);
         when(pipeline.initialize(any())).thenReturn(true);
         Document doc = createDoc("content").build();
-        when(indexer.get(anyString(), eq("docId"))).thenReturn(doc);
+        when(indexer.bulkGet(anyString(), eq(List.of("docId")), eq(ExtractNlpTask.SOURCE_INCLUDES))).thenReturn(List.of(doc));
 
         String queueName = new PipelineHelper(new PropertiesProvider()).getQueueNameFor(Stage.NLP);
         DocumentQueue<String> queue = factory.createQueue(queueName, String.class);
@@ -92,7 +94,7 @@ public class ExtractNlpTaskIntTest {
     @Before
     public void setUp() {
         initMocks(this);
-        nlpTask = new ExtractNlpTask(indexer, pipeline, factory, new Task<>(ExtractNlpTask.class.getName(), User.local(), new HashMap<>(){{
+        nlpTask = new ExtractNlpTask(indexer, pipeline, factory, new MetricRegistry(), new Task<>(ExtractNlpTask.class.getName(), User.local(), new HashMap<>(){{
             put("maxContentLength", "32");
         }}), null);
     }
@@ -2,24 +2,35 @@ package org.icij.datashare.tasks;
 
 import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.extract.MemoryDocumentCollectionFactory;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.Language;
+import org.icij.datashare.text.NamedEntity;
 import org.icij.datashare.text.indexing.Indexer;
 import org.icij.datashare.text.nlp.AbstractPipeline;
+import org.icij.datashare.text.nlp.Pipeline;
 import org.icij.datashare.user.User;
+import org.icij.extract.queue.DocumentQueue;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static java.util.Collections.emptyList;
+import static org.fest.assertions.Assertions.assertThat;
 import static org.icij.datashare.text.DocumentBuilder.createDoc;
 import static org.icij.datashare.text.Language.ENGLISH;
 import static org.icij.datashare.text.Project.project;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -30,12 +41,14 @@ public class ExtractNlpTaskTest {
     @Mock private Indexer indexer;
     @Mock private AbstractPipeline pipeline;
     private final MemoryDocumentCollectionFactory<String> factory = new MemoryDocumentCollectionFactory<>();
+    private final MetricRegistry metrics = new MetricRegistry();
     private ExtractNlpTask nlpTask;
 
     @Before
     public void setUp() {
         initMocks(this);
-        nlpTask = new ExtractNlpTask(indexer, pipeline, factory, new Task<>(ExtractNlpTask.class.getName(), User.local(), new HashMap<>(){{
+        when(pipeline.getType()).thenReturn(Pipeline.Type.CORENLP);
+        nlpTask = new ExtractNlpTask(indexer, pipeline, factory, metrics, new Task<>(ExtractNlpTask.class.getName(), User.local(), new HashMap<>(){{
             put("maxContentLength", "32");
         }}), null);
     }
@@ -51,7 +64,7 @@ public class ExtractNlpTaskTest {
     @Test
     public void test_on_message_do_not_processNLP__when_init_fails() throws Exception {
         when(pipeline.initialize(any())).thenReturn(false);
-        when(indexer.get(anyString(), anyString(), anyString())).thenReturn(createDoc("content").build());
+        when(indexer.get(anyString(), anyString(), anyString(), anyList(), anyList())).thenReturn(createDoc("content").build());
 
         nlpTask.findNamedEntities(project("projectName"),"id");
         verify(pipeline, never()).process(any());
@@ -62,12 +75,13 @@ public class ExtractNlpTaskTest {
         when(pipeline.initialize(any())).thenReturn(true);
         Document doc = createDoc("content").build();
         when(pipeline.process(doc)).thenReturn(emptyList());
-        when(indexer.get("projectName", doc.getId())).thenReturn(doc);
+        when(indexer.get("projectName", doc.getId(), doc.getId(), ExtractNlpTask.SOURCE_INCLUDES, List.of())).thenReturn(doc);
 
         nlpTask.findNamedEntities(project("projectName"), doc.getId());
 
         verify(pipeline).initialize(ENGLISH);
         verify(pipeline).process(doc);
+        assertThat(metrics.counter("datashare_nlp_documents_total", "", "pipeline", "CORENLP").get()).isEqualTo(1);
     }
 
     @Test
@@ -75,7 +89,7 @@ public class ExtractNlpTaskTest {
         when(pipeline.initialize(any())).thenReturn(true);
         Document doc = createDoc("huge_doc").with("0123456789abcdef0123456789abcdef+").build();
         when(pipeline.process(doc)).thenReturn(emptyList());
-        when(indexer.get("projectName", doc.getId())).thenReturn(doc);
+        when(indexer.get("projectName", doc.getId(), doc.getId(), ExtractNlpTask.SOURCE_INCLUDES, List.of())).thenReturn(doc);
 
         nlpTask.findNamedEntities(project("projectName"), doc.getId());
 
@@ -83,4 +97,30 @@ public class ExtractNlpTaskTest {
         verify(pipeline).process(doc, 32, 0);
         verify(pipeline).process(doc, 32, 32);
     }
+
+    @Test(timeout = 5000)
+    public void test_loop_with_workers_coalesces_named_entities_writes() throws Exception {
+        ExtractNlpTask parallelTask = new ExtractNlpTask(indexer, pipeline, factory, metrics, new Task<>(ExtractNlpTask.class.getName(), User.local(), new HashMap<>(){{
+            put("nlpParallelism", "2");
+            put("nlpBatchSize", "3");
+        }}), null);
+        when(pipeline.getType()).thenReturn(Pipeline.Type.CORENLP);
+        when(pipeline.initialize(any())).thenReturn(true);
+        Document doc1 = createDoc("doc1").build();
+        Document doc2 = createDoc("doc2").build();
+        Document doc3 = createDoc("doc3").build();
+        when(pipeline.process(any())).thenReturn(emptyList());
+        when(indexer.bulkGet("local-datashare", List.of("doc1", "doc2", "doc3"), ExtractNlpTask.SOURCE_INCLUDES)).thenReturn(List.of(doc1, doc2, doc3));
+        when(indexer.bulkAdd(anyString(), any(), anyMap())).thenReturn(true);
+        DocumentQueue<String> queue = factory.createQueue("extract:queue:nlp", String.class);
+        queue.addAll(List.of("doc1", "doc2", "doc3", PipelineTask.STRING_POISON));
+
+        assertThat(parallelTask.call()).isEqualTo(3);
+
+        verify(pipeline).process(doc1);
+        verify(pipeline).process(doc2);
+        verify(pipeline).process(doc3);
+        verify(indexer).bulkAdd(eq("local-datashare"), eq(Pipeline.Type.CORENLP), argThat((Map<Document, List<NamedEntity>> m) -> m.size() == 3));
+        assertThat(parallelTask.getProgressRate()).isEqualTo(1.0);
+    }
 }
@@ -6,6 +6,7 @@ import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.Stage;
 import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.extract.MemoryDocumentCollectionFactory;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.test.ElasticsearchRule;
 import org.icij.datashare.text.Language;
 import org.icij.datashare.text.indexing.elasticsearch.ElasticsearchIndexer;
@@ -34,8 +35,8 @@ public class IndexTaskIntTest {
         put("queueName", "test:queue");
     }};
     private final PropertiesProvider propertiesProvider = new PropertiesProvider(map);
-    private final ElasticsearchSpewer spewer = new ElasticsearchSpewer(new ElasticsearchIndexer(es.client, new PropertiesProvider()).withRefresh(Refresh.True),
-            outputQueueFactory, text -> Language.ENGLISH, new FieldNames(), propertiesProvider);
+    private final ElasticsearchSpewer spewer = new ElasticsearchSpewer(new ElasticsearchIndexer(es.client, new PropertiesProvider(), new MetricRegistry()).withRefresh(Refresh.True),
+            outputQueueFactory, text -> Language.ENGLISH, new FieldNames(), propertiesProvider, new MetricRegistry());
 
     @Test
     public void index_task_should_enqueue_poison_pill() throws Exception {
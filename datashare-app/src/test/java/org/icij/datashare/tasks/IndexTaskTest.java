@@ -2,23 +2,32 @@ package org.icij.datashare.tasks;
 
 import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.extract.DocumentCollectionFactory;
+import org.icij.datashare.extract.MemoryDocumentCollectionFactory;
 import org.icij.datashare.text.indexing.elasticsearch.ElasticsearchSpewer;
 import org.icij.task.Option;
 import org.icij.task.Options;
 import org.icij.task.StringOptionParser;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.icij.datashare.user.User.nullUser;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 public class IndexTaskTest {
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
 
     @Test
     public void test_options_include_ocr() throws Exception {
@@ -42,6 +51,48 @@ public class IndexTaskTest {
         assertThat(options.toString()).contains("ocrLanguage=");
     }
 
+    @Test
+    public void test_options_include_ocr_cache_and_timeout() throws Exception {
+        ElasticsearchSpewer spewer = mock(ElasticsearchSpewer.class);
+        Mockito.when(spewer.configure(Mockito.any())).thenReturn(spewer);
+        Path ocrCache = temp.getRoot().toPath().resolve("ocr");
+        IndexTask indexTask = new IndexTask(spewer, mock(DocumentCollectionFactory.class), new Task<>(IndexTask.class.getName(), nullUser(), new HashMap<>(){{
+            put("queueName", "test:queue");
+            put("ocrCache", ocrCache.toString());
+            put("ocrParallelism", "2");
+        }}), null);
+
+        assertThat(indexTask.options().toString()).contains("ocrCache=").contains("ocrTimeout=");
+        assertThat(ocrCache.toFile()).isDirectory();
+    }
+
+    @Test
+    public void test_spewer_is_shared_by_the_consumers() throws Exception {
+        ElasticsearchSpewer spewer = mock(ElasticsearchSpewer.class);
+        Mockito.when(spewer.configure(Mockito.any())).thenReturn(spewer);
+        MemoryDocumentCollectionFactory<Path> factory = new MemoryDocumentCollectionFactory<>();
+        IndexTask indexTask = new IndexTask(spewer, factory, new Task<>(IndexTask.class.getName(), nullUser(), new HashMap<>(){{
+            put("queueName", "test:queue");
+            put("ocr", "true");
+            put("ocrParallelism", "1");
+        }}), null);
+        factory.createQueue("test:queue:index", Path.class).add(PipelineTask.PATH_POISON);
+
+        indexTask.call();
+
+        InOrder inOrder = inOrder(spewer);
+        inOrder.verify(spewer).sharedBy(2);
+        inOrder.verify(spewer, times(2)).close();
+    }
+
+    @Test
+    public void test_needs_ocr() {
+        assertThat(IndexTask.needsOcr(Paths.get("/path/to/scan.TIFF"))).isTrue();
+        assertThat(IndexTask.needsOcr(Paths.get("/path/to/photo.jpg"))).isTrue();
+        assertThat(IndexTask.needsOcr(Paths.get("/path/to/doc.pdf"))).isFalse();
+        assertThat(IndexTask.needsOcr(Paths.get("/path/to/README"))).isFalse();
+    }
+
     @Test
     public void test_options_include_language() throws Exception {
         ElasticsearchSpewer spewer = mock(ElasticsearchSpewer.class);
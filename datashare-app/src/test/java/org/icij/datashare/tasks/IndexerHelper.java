@@ -6,6 +6,7 @@ import org.apache.commons.io.FilenameUtils;
 import org.icij.datashare.Entity;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.extract.MemoryDocumentCollectionFactory;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.test.ElasticsearchRule;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.DocumentBuilder;
@@ -37,7 +38,7 @@ public class IndexerHelper {
 
     public IndexerHelper(ElasticsearchClient elasticsearch) {
         this.client = elasticsearch;
-        this.indexer = new ElasticsearchIndexer(elasticsearch, new PropertiesProvider()).withRefresh(Refresh.True);
+        this.indexer = new ElasticsearchIndexer(elasticsearch, new PropertiesProvider(), new MetricRegistry()).withRefresh(Refresh.True);
     }
 
     File indexFile(String fileName, String content, TemporaryFolder fs) throws IOException {
@@ -62,10 +63,10 @@ public class IndexerHelper {
         extractor.setDigester(new UpdatableDigester(project, Entity.DEFAULT_DIGESTER.toString()));
         TikaDocument document = extractor.extract(path);
         ElasticsearchSpewer elasticsearchSpewer = new ElasticsearchSpewer(new ElasticsearchIndexer(client,
-                new PropertiesProvider()).withRefresh(Refresh.True), new MemoryDocumentCollectionFactory<>(), l -> ENGLISH,
+                new PropertiesProvider(), new MetricRegistry()).withRefresh(Refresh.True), new MemoryDocumentCollectionFactory<>(), l -> ENGLISH,
                 new FieldNames(), new PropertiesProvider(new HashMap<>() {{
                     put("defaultProject","test-datashare");
-        }}));
+        }}), new MetricRegistry());
         elasticsearchSpewer.write(document);
         return path.toFile();
     }
@@ -3,9 +3,10 @@ package org.icij.datashare.tasks;
 import org.icij.datashare.Entity;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.indexing.Indexer;
-import org.mockito.stubbing.OngoingStubbing;
+import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 import static java.util.Collections.singletonList;
@@ -26,27 +27,24 @@ class MockSearch<S extends Indexer.Searcher> {
         Indexer.Searcher searcher = mock(Indexer.Searcher.class);
         when(searcher.scroll(any(String.class))).thenThrow(expectedClassException);
         when(searcher.scroll(any(String.class), any(String.class))).thenThrow(expectedClassException);
+        when(searcher.scroll(any(Indexer.ScrollQuery.class))).thenThrow(expectedClassException);
         prepareSearcher(0, searcher);
     }
 
-    void willReturn(int nbOfScrolls, Document... documents) throws IOException {
+    S willReturn(int nbOfScrolls, Document... documents) throws IOException {
         S searcher = mock(searcherInstance);
-        OngoingStubbing<? extends Stream<? extends Entity>> ongoingStubbing = when(searcher.scroll(any(String.class)));
-        for (int i = 0 ; i<nbOfScrolls; i++) {
-            ongoingStubbing = ongoingStubbing.thenAnswer(a -> Stream.of(documents));
-        }
-        ongoingStubbing.thenAnswer(a -> Stream.empty());
-        ongoingStubbing = when(searcher.scroll(anyString()));
-        for (int i = 0 ; i<nbOfScrolls; i++) {
-            ongoingStubbing = ongoingStubbing.thenAnswer(a -> Stream.of(documents));
-        }
-        ongoingStubbing.thenAnswer(a -> Stream.empty());
+        AtomicInteger scrolls = new AtomicInteger();
+        Answer<Stream<? extends Entity>> page = a -> scrolls.getAndIncrement() < nbOfScrolls ? Stream.of(documents) : Stream.empty();
+        when(searcher.scroll(anyString())).thenAnswer(page);
+        when(searcher.scroll(any(Indexer.ScrollQuery.class))).thenAnswer(page);
         prepareSearcher(documents.length, searcher);
+        return searcher;
     }
 
     private void prepareSearcher(long length, Indexer.Searcher searcher) {
         when(searcher.with(anyInt(), anyBoolean())).thenReturn(searcher);
         when(searcher.withoutSource(any())).thenReturn(searcher);
+        when(searcher.withoutSource(any(String[].class))).thenReturn(searcher);
         if (searcher instanceof Indexer.QueryBuilderSearcher) {
             when(((Indexer.QueryBuilderSearcher)searcher).withFieldValues(anyString())).thenReturn((Indexer.QueryBuilderSearcher) searcher);
             when(((Indexer.QueryBuilderSearcher)searcher).withPrefixQuery(anyString())).thenReturn((Indexer.QueryBuilderSearcher) searcher);
@@ -6,6 +6,7 @@ import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.asynctasks.TaskModifier;
 import org.icij.datashare.asynctasks.bus.amqp.UriResult;
 import org.icij.datashare.batch.BatchDownload;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.test.DatashareTimeRule;
 import org.icij.datashare.test.ElasticsearchRule;
 import org.icij.datashare.text.Project;
@@ -47,14 +48,14 @@ public class TaskWorkerIntTest {
     @Rule public DatashareTimeRule timeRule = new DatashareTimeRule("2020-05-25T10:11:12Z");
     @Rule public TemporaryFolder fs = new TemporaryFolder();
 
-    private final ElasticsearchIndexer indexer = new ElasticsearchIndexer(es.client, new PropertiesProvider()).withRefresh(Refresh.True);
+    private final ElasticsearchIndexer indexer = new ElasticsearchIndexer(es.client, new PropertiesProvider(), new MetricRegistry()).withRefresh(Refresh.True);
     @Mock TaskModifier taskModifier;
 
     @Test
     public void test_empty_response() throws Exception {
         BatchDownload bd = createBatchDownload("query");
         Task<File> taskView = createTaskView(bd);
-        new BatchDownloadRunner(indexer, createProvider(), taskView, taskView.progress(taskModifier::progress)).call();
+        new BatchDownloadRunner(indexer, createProvider(), new MetricRegistry(), taskView, taskView.progress(taskModifier::progress)).call();
         assertThat(bd.filename.toFile()).doesNotExist();
         verify(taskModifier, never()).progress(any(), anyDouble());
     }
@@ -66,7 +67,7 @@ public class TaskWorkerIntTest {
         BatchDownload bd = createBatchDownload("fox");
 
         Task<File> taskView = createTaskView(bd);
-        new BatchDownloadRunner(indexer, createProvider(), taskView, taskView.progress(taskModifier::progress)).call();
+        new BatchDownloadRunner(indexer, createProvider(), new MetricRegistry(), taskView, taskView.progress(taskModifier::progress)).call();
 
         assertThat(bd.filename.toFile()).isFile();
         assertThat(new ZipFile(bd.filename.toFile()).size()).isEqualTo(1);
@@ -82,7 +83,7 @@ public class TaskWorkerIntTest {
         BatchDownload bd = createBatchDownload("{\"match_all\":{}}");
 
         Task<File> taskView = createTaskView(bd);
-        new BatchDownloadRunner(indexer, createProvider(), taskView, taskView.progress(taskModifier::progress)).call();
+        new BatchDownloadRunner(indexer, createProvider(), new MetricRegistry(), taskView, taskView.progress(taskModifier::progress)).call();
 
         assertThat(bd.filename.toFile()).isFile();
         assertThat(new ZipFile(bd.filename.toFile()).size()).isEqualTo(1);
@@ -95,7 +96,7 @@ public class TaskWorkerIntTest {
 
         BatchDownload bd = createBatchDownload("*");
         Task<File> taskView = createTaskView(bd);
-        new BatchDownloadRunner(indexer, createProvider(), taskView, taskView.progress(taskModifier::progress)).call();
+        new BatchDownloadRunner(indexer, createProvider(), new MetricRegistry(), taskView, taskView.progress(taskModifier::progress)).call();
 
         assertThat(bd.filename.toFile()).isFile();
         assertThat(new ZipFile(bd.filename.toFile()).size()).isEqualTo(2);
@@ -109,7 +110,7 @@ public class TaskWorkerIntTest {
 
         BatchDownload bd = createBatchDownload("*");
         Task<File> taskView = createTaskView(bd);
-        UriResult result = new BatchDownloadRunner(indexer, createProvider(), taskView, taskView.progress(taskModifier::progress)).call();
+        UriResult result = new BatchDownloadRunner(indexer, createProvider(), new MetricRegistry(), taskView, taskView.progress(taskModifier::progress)).call();
 
         assertThat(result.size()).isGreaterThan(0);
     }
@@ -121,7 +122,7 @@ public class TaskWorkerIntTest {
 
         BatchDownload bd = createBatchDownload("juge");
         Task<File> taskView = createTaskView(bd);
-        new BatchDownloadRunner(indexer, createProvider(), taskView, taskView.progress(taskModifier::progress)).call();
+        new BatchDownloadRunner(indexer, createProvider(), new MetricRegistry(), taskView, taskView.progress(taskModifier::progress)).call();
 
         assertThat(bd.filename.toFile()).isFile();
         assertThat(new ZipFile(bd.filename.toFile()).size()).isEqualTo(1);
@@ -134,7 +135,7 @@ public class TaskWorkerIntTest {
 
         BatchDownload bd = createBatchDownload("*");
         Task<File> taskView = createTaskView(bd);
-        new BatchDownloadRunner(indexer, createProvider(), taskView, taskView.progress(taskModifier::progress)).call();
+        new BatchDownloadRunner(indexer, createProvider(), new MetricRegistry(), taskView, taskView.progress(taskModifier::progress)).call();
 
         assertThat(bd.filename.toFile()).isFile();
         assertThat(new ZipFile(bd.filename.toFile()).size()).isEqualTo(2);
@@ -149,7 +150,7 @@ public class TaskWorkerIntTest {
 
         BatchDownload bd = createBatchDownload(asList(project(TEST_INDEXES[1]), project(TEST_INDEXES[2])),"*");
         Task<File> taskView = createTaskView(bd);
-        new BatchDownloadRunner(indexer, createProvider(), taskView, taskView.progress(taskModifier::progress)).call();
+        new BatchDownloadRunner(indexer, createProvider(), new MetricRegistry(), taskView, taskView.progress(taskModifier::progress)).call();
 
         assertThat(bd.filename.toFile()).isFile();
         assertThat(new ZipFile(bd.filename.toFile()).size()).isEqualTo(2);
@@ -161,7 +162,7 @@ public class TaskWorkerIntTest {
     public void test_progress_rate() throws Exception {
         new IndexerHelper(es.client).indexFile("mydoc.txt", "content", fs);
         Task<File> taskView = createTaskView(createBatchDownload("*"));
-        BatchDownloadRunner batchDownloadRunner = new BatchDownloadRunner(indexer, createProvider(), taskView, taskView.progress(taskModifier::progress));
+        BatchDownloadRunner batchDownloadRunner = new BatchDownloadRunner(indexer, createProvider(), new MetricRegistry(), taskView, taskView.progress(taskModifier::progress));
         assertThat(batchDownloadRunner.getProgressRate()).isEqualTo(0);
         batchDownloadRunner.call();
         assertThat(batchDownloadRunner.getProgressRate()).isEqualTo(1);
@@ -173,7 +174,7 @@ public class TaskWorkerIntTest {
 
         BatchDownload bd = createBatchDownload("*");
         Task<File> taskView = createTaskView(bd);
-        new BatchDownloadRunner(indexer, createProvider(), taskView, taskView.progress(taskModifier::progress)).call();
+        new BatchDownloadRunner(indexer, createProvider(), new MetricRegistry(), taskView, taskView.progress(taskModifier::progress)).call();
 
         assertThat(new ZipFile(bd.filename.toFile()).size()).isEqualTo(2);
         assertThat(new ZipFile(bd.filename.toFile()).getEntry(file.toString().substring(1))).isNotNull();
@@ -185,7 +186,7 @@ public class TaskWorkerIntTest {
 
         BatchDownload bd = createBatchDownload("*");
         Task<File> taskView = createTaskView(bd);
-        new BatchDownloadRunner(indexer, createProvider(), taskView, taskView.progress(taskModifier::progress)).call();
+        new BatchDownloadRunner(indexer, createProvider(), new MetricRegistry(), taskView, taskView.progress(taskModifier::progress)).call();
 
         assertThat(new ZipFile(bd.filename.toFile()).size()).isEqualTo(1);
     }
@@ -194,7 +195,7 @@ public class TaskWorkerIntTest {
     public void test_to_string_contains_batch_download_uuid() {
         BatchDownload bd = createBatchDownload("*");
         Task<File> taskView = createTaskView(bd);
-        BatchDownloadRunner batchDownloadRunner = new BatchDownloadRunner(indexer, createProvider(), taskView, taskView.progress(taskModifier::progress));
+        BatchDownloadRunner batchDownloadRunner = new BatchDownloadRunner(indexer, createProvider(), new MetricRegistry(), taskView, taskView.progress(taskModifier::progress));
 
         assertThat(batchDownloadRunner.toString()).startsWith("BatchDownloadRunner@");
         assertThat(batchDownloadRunner.toString()).contains(bd.uuid);
@@ -209,7 +210,7 @@ public class TaskWorkerIntTest {
             put(SCROLL_SIZE_OPT, "100");
             put(BATCH_DOWNLOAD_SCROLL_SIZE_OPT, "0");
         }});
-        new BatchDownloadRunner(indexer, propertiesProvider, taskView, taskView.progress(taskModifier::progress)).call();
+        new BatchDownloadRunner(indexer, propertiesProvider, new MetricRegistry(), taskView, taskView.progress(taskModifier::progress)).call();
     }
 
     @Test(expected = ElasticSearchAdapterException.class)
@@ -220,7 +221,7 @@ public class TaskWorkerIntTest {
             put(SCROLL_SIZE_OPT, "0");
         }});
         Task<File> taskView = createTaskView(bd);
-        new BatchDownloadRunner(indexer, propertiesProvider, taskView, taskView.progress(taskModifier::progress)).call();
+        new BatchDownloadRunner(indexer, propertiesProvider, new MetricRegistry(), taskView, taskView.progress(taskModifier::progress)).call();
     }
 
     @Test(expected = ElasticSearchAdapterException.class)
@@ -230,7 +231,7 @@ public class TaskWorkerIntTest {
                 Map.of("downloadFolder", "/unused",
                 BATCH_DOWNLOAD_SCROLL_DURATION_OPT, "10foo"));
         Task<File> taskView = createTaskView(bd);
-        new BatchDownloadRunner(indexer, propertiesProvider, taskView, taskView.progress(taskModifier::progress)).call();
+        new BatchDownloadRunner(indexer, propertiesProvider, new MetricRegistry(), taskView, taskView.progress(taskModifier::progress)).call();
     }
 
 
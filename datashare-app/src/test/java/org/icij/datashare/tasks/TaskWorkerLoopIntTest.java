@@ -4,6 +4,8 @@ import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.asynctasks.TaskWorkerLoop;
 import org.icij.datashare.batch.BatchDownload;
+import org.icij.datashare.com.redis.RedissonClientProvider;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.text.indexing.Indexer;
 import org.icij.datashare.user.User;
 import org.junit.Test;
@@ -23,13 +25,14 @@ import static org.mockito.Mockito.when;
 
 public class TaskWorkerLoopIntTest {
     private final LinkedBlockingQueue<Task<?>> taskQueue = new LinkedBlockingQueue<>();
-    private final TaskSupplierRedis taskSupplier = new TaskSupplierRedis(new PropertiesProvider(), taskQueue);
+    private final RedissonClientProvider redissonClientProvider = new RedissonClientProvider(new PropertiesProvider());
+    private final TaskSupplierRedis taskSupplier = new TaskSupplierRedis(redissonClientProvider, taskQueue);
 
 
     @Test(timeout=5000)
     public void test_batch_download_task_view_properties() throws Exception {
         CountDownLatch eventWaiter = new CountDownLatch(2); // progress, result(error)
-        try (TaskManagerRedis taskManager = new TaskManagerRedis(new PropertiesProvider(), "test:task:manager", taskQueue, eventWaiter::countDown)) {
+        try (TaskManagerRedis taskManager = new TaskManagerRedis(redissonClientProvider, "test:task:manager", taskQueue, eventWaiter::countDown)) {
             DatashareTaskFactory factory = mock(DatashareTaskFactory.class);
             BatchDownload batchDownload = new BatchDownload(singletonList(project("prj")), User.local(), "foo");
 
@@ -37,10 +40,10 @@ public class TaskWorkerLoopIntTest {
                 put("batchDownload", batchDownload);
             }};
             Task<File> taskView = new Task<>(BatchDownloadRunner.class.getName(), batchDownload.user, properties);
-            BatchDownloadRunner runner = new BatchDownloadRunner(mock(Indexer.class), new PropertiesProvider(), taskView, taskView.progress(taskSupplier::progress));
+            BatchDownloadRunner runner = new BatchDownloadRunner(mock(Indexer.class), new PropertiesProvider(), new MetricRegistry(), taskView, taskView.progress(taskSupplier::progress));
             when(factory.createBatchDownloadRunner(any(), any())).thenReturn(runner);
 
-            TaskWorkerLoop taskWorkerLoop = new TaskWorkerLoop(factory, taskSupplier);
+            TaskWorkerLoop taskWorkerLoop = new TaskWorkerLoop(factory, taskSupplier, new MetricRegistry());
 
             taskManager.startTask(BatchDownloadRunner.class.getName(), User.local(), properties);
             taskManager.shutdownAndAwaitTermination(1, TimeUnit.SECONDS);
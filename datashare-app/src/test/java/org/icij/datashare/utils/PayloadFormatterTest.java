@@ -1,11 +1,16 @@
 package org.icij.datashare.utils;
 
 import net.codestory.http.payload.Payload;
+import net.codestory.http.payload.StreamingOutput;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.fest.assertions.MapAssert.entry;
@@ -67,4 +72,20 @@ public class PayloadFormatterTest {
         Payload payload = PayloadFormatter.json(new String[]{"Foo", "Bar"});
         assertThat(payload.rawContentType()).isEqualTo("application/json");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void test_create_json_payload_with_input_stream() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        InputStream content = new ByteArrayInputStream("{\"foo\":\"bar\"}".getBytes()) {
+            @Override
+            public void close() { closed.set(true); }
+        };
+        Payload payload = PayloadFormatter.json(content);
+        assertThat(payload.rawContentType()).isEqualTo("application/json");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput) payload.rawContent()).write(output);
+        assertThat(output.toString()).isEqualTo("{\"foo\":\"bar\"}");
+        assertTrue(closed.get());
+    }
+}
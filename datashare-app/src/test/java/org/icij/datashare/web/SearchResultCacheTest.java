@@ -0,0 +1,144 @@
+package org.icij.datashare.web;
+
+import net.codestory.http.Context;
+import net.codestory.http.Query;
+import org.icij.datashare.PropertiesProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SearchResultCacheTest {
+    private final Context context = mock(Context.class);
+    private final Query query = mock(Query.class);
+    private final SearchResultCache cache = new SearchResultCache(1600, Duration.ofMinutes(1));
+
+    @Before
+    public void setUp() {
+        when(context.query()).thenReturn(query);
+    }
+
+    @Test
+    public void test_is_cacheable_for_search_and_count() {
+        assertThat(cache.isCacheable("local-datashare/_search", context)).isTrue();
+        assertThat(cache.isCacheable("local-datashare,other/_count", context)).isTrue();
+        assertThat(cache.isCacheable("local-datashare/_doc/_search", context)).isTrue();
+    }
+
+    @Test
+    public void test_is_not_cacheable() {
+        assertThat(cache.isCacheable("local-datashare/_doc/id", context)).isFalse();
+        assertThat(cache.isCacheable("local-datashare/_delete_by_query", context)).isFalse();
+        assertThat(cache.isCacheable("_search/scroll", context)).isFalse();
+        assertThat(cache.isCacheable("local-datashare/_search/template", context)).isFalse();
+    }
+
+    @Test
+    public void test_is_not_cacheable_for_scroll_search() {
+        when(query.get("scroll")).thenReturn("1m");
+        assertThat(cache.isCacheable("local-datashare/_search", context)).isFalse();
+    }
+
+    @Test
+    public void test_is_not_cacheable_when_disabled() {
+        assertThat(new SearchResultCache(0, Duration.ofMinutes(1)).isCacheable("local-datashare/_search", context)).isFalse();
+        assertThat(SearchResultCache.create(new PropertiesProvider(Map.of("searchCacheTtlMilliseconds", "0")))
+                .isCacheable("local-datashare/_search", context)).isFalse();
+    }
+
+    @Test
+    public void test_is_not_cacheable_when_indices_are_written_by_other_processes() {
+        assertThat(SearchResultCache.create(new PropertiesProvider(Map.of("mode", "SERVER")))
+                .isCacheable("local-datashare/_search", context)).isFalse();
+        assertThat(SearchResultCache.create(new PropertiesProvider(Map.of("mode", "LOCAL", "batchQueueType", "REDIS")))
+                .isCacheable("local-datashare/_search", context)).isFalse();
+        assertThat(SearchResultCache.create(new PropertiesProvider(Map.of("mode", "EMBEDDED", "batchQueueType", "MEMORY")))
+                .isCacheable("local-datashare/_search", context)).isTrue();
+    }
+
+    @Test
+    public void test_key_normalizes_json_body() {
+        SearchResultCache.Key key = SearchResultCache.key("POST", "local-datashare/_search",
+                "{\"size\": 0, \"aggs\": {\"b\": {}, \"a\": {}}}".getBytes(), List.of("p2", "p1"), List.of(1L));
+
+        assertThat(key).isEqualTo(SearchResultCache.key("POST", "local-datashare/_search",
+                "{\"aggs\":{\"a\":{},\"b\":{}},\"size\":0}".getBytes(), List.of("p1", "p2"), List.of(1L)));
+        assertThat(key).isNotEqualTo(SearchResultCache.key("POST", "local-datashare/_search",
+                "{\"aggs\":{\"a\":{},\"b\":{}},\"size\":0}".getBytes(), List.of("p1", "p2"), List.of(2L)));
+        assertThat(key).isNotEqualTo(SearchResultCache.key("POST", "local-datashare/_search",
+                "{\"aggs\":{\"a\":{},\"b\":{}},\"size\":0}".getBytes(), List.of("p1"), List.of(1L)));
+    }
+
+    @Test
+    public void test_key_with_invalid_json_body() {
+        assertThat(SearchResultCache.key("POST", "local-datashare/_search", "not json".getBytes(), List.of(), List.of(0L)).body())
+                .isEqualTo("not json");
+        assertThat(SearchResultCache.key("GET", "local-datashare/_search", null, List.of(), List.of(0L)).body()).isEmpty();
+    }
+
+    @Test
+    public void test_put_get() {
+        SearchResultCache.Key key = key("{}");
+        assertThat(cache.get(key).isPresent()).isFalse();
+
+        cache.put(key, "{\"count\":1}".getBytes());
+
+        assertThat(new String(cache.get(key).get())).isEqualTo("{\"count\":1}");
+        assertThat(cache.getBytes()).isEqualTo(11);
+    }
+
+    @Test
+    public void test_is_refreshed_after_the_refresh_interval_of_a_new_generation() {
+        SearchResultCache refreshingCache = new SearchResultCache(1600, Duration.ofMinutes(1), Duration.ofHours(1));
+        assertThat(refreshingCache.isRefreshed(List.of("local-datashare"), List.of(0L))).isTrue();
+        assertThat(refreshingCache.isRefreshed(List.of("local-datashare"), List.of(1L))).isFalse();
+        assertThat(refreshingCache.isRefreshed(List.of("other", "local-datashare"), List.of(0L, 1L))).isFalse();
+
+        SearchResultCache refreshedCache = new SearchResultCache(1600, Duration.ofMinutes(1), Duration.ZERO);
+        assertThat(refreshedCache.isRefreshed(List.of("local-datashare"), List.of(1L))).isTrue();
+    }
+
+    @Test
+    public void test_refresh_interval_option() {
+        assertThat(SearchResultCache.create(new PropertiesProvider(Map.of("searchCacheRefreshIntervalMilliseconds", "0")))
+                .isRefreshed(List.of("local-datashare"), List.of(1L))).isTrue();
+        assertThat(SearchResultCache.create(new PropertiesProvider(Map.of("searchCacheRefreshIntervalMilliseconds", "3600000")))
+                .isRefreshed(List.of("local-datashare"), List.of(1L))).isFalse();
+    }
+
+    @Test
+    public void test_entries_expire() {
+        SearchResultCache expiringCache = new SearchResultCache(1600, Duration.ZERO);
+        expiringCache.put(key("{}"), "{\"count\":1}".getBytes());
+
+        assertThat(expiringCache.get(key("{}")).isPresent()).isFalse();
+        assertThat(expiringCache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_does_not_cache_big_responses() {
+        cache.put(key("{}"), new byte[101]);
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_evicts_least_recently_used_entries() {
+        for (int i = 0; i < 20; i++) {
+            cache.put(key("{\"from\":" + i + "}"), new byte[100]);
+        }
+        assertThat(cache.size()).isEqualTo(16);
+        assertThat(cache.getBytes()).isEqualTo(1600);
+        assertThat(cache.get(key("{\"from\":0}")).isPresent()).isFalse();
+        assertThat(cache.get(key("{\"from\":19}")).isPresent()).isTrue();
+    }
+
+    private static SearchResultCache.Key key(String body) {
+        return SearchResultCache.key("POST", "local-datashare/_search", body.getBytes(), List.of("local-datashare"), List.of(0L));
+    }
+}
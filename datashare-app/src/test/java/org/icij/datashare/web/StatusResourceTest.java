@@ -2,6 +2,7 @@ package org.icij.datashare.web;
 
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.Repository;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.test.DatashareTimeRule;
 import org.icij.datashare.text.indexing.Indexer;
 import org.icij.datashare.web.testhelpers.AbstractProdWebServerTest;
@@ -21,11 +22,12 @@ public class StatusResourceTest extends AbstractProdWebServerTest {
     @Rule public DatashareTimeRule time = new DatashareTimeRule("2020-06-30T15:31:00Z");
     @Mock Repository repository;
     @Mock Indexer indexer;
+    private final MetricRegistry metrics = new MetricRegistry();
 
     @Before
     public void setUp() {
         initMocks(this);
-        configure(routes -> routes.add(new StatusResource(new PropertiesProvider(),repository,indexer)));
+        configure(routes -> routes.add(new StatusResource(new PropertiesProvider(),repository,indexer,metrics)));
     }
 
     @Test
@@ -77,11 +79,21 @@ public class StatusResourceTest extends AbstractProdWebServerTest {
     public void test_get_status_with_open_metrics_format_with_platform_name() {
         configure(routes -> routes.add(new StatusResource(new PropertiesProvider(new HashMap<>() {{
             put("platform", "platform");
-        }}),repository,indexer)));
+        }}),repository,indexer,metrics)));
         get("/api/status?format=openmetrics").should().respond(200).haveType("text/plain;version=0.0.4").contain("" +
                 "# HELP datashare The datashare resources status\n" +
                 "# TYPE datashare gauge\n" +
                 "datashare{environment=\"platform\",status=\"KO\",resource=\"database\"} 0 1593531060000\n" +
                 "datashare{environment=\"platform\",status=\"KO\",resource=\"index\"} 0 1593531060000");
     }
+
+    @Test
+    public void test_get_status_with_open_metrics_format_contains_metrics() {
+        metrics.counter("datashare_spewer_documents_total", "Documents written by the spewer", "type", "Document").inc(12);
+        get("/api/status?format=openmetrics").should().respond(200).contain("" +
+                "datashare{status=\"KO\",resource=\"index\"} 0 1593531060000\n" +
+                "# HELP datashare_spewer_documents_total Documents written by the spewer\n" +
+                "# TYPE datashare_spewer_documents_total counter\n" +
+                "datashare_spewer_documents_total{type=\"Document\"} 12\n");
+    }
 }
@@ -106,6 +106,30 @@ public class TreeResourceTest extends AbstractProdWebServerTest {
         assertThat(firstChild.get("contents")).isNull();
     }
 
+    @Test
+    public void test_get_files_tree_in_docs_directory_paged () throws ParseException {
+        String dirName = getClass().getResource("/docs/").getPath();
+        JSONObject result = getJSON("/api/tree" + dirName + "?from=1&size=1");
+        JSONArray children = (JSONArray) result.get("contents");
+        assertThat(children).hasSize(1);
+        assertThat(((JSONObject) children.get(0)).get("name")).isEqualTo(dirName + "embedded_doc.eml");
+        assertThat(result.get("count").toString()).isEqualTo("3");
+    }
+
+    @Test
+    public void test_get_files_tree_in_docs_directory_with_totals () throws ParseException {
+        String dirName = getClass().getResource("/docs/").getPath();
+        JSONObject result = getJSON("/api/tree" + dirName + "?totals=true");
+        assertThat(result.get("totalFiles").toString()).isEqualTo("3");
+        assertThat(getJSON("/api/tree" + dirName).get("totalFiles")).isNull();
+    }
+
+    @Test
+    public void test_reject_files_tree_with_negative_page () {
+        String dirName = getClass().getResource("/docs/").getPath();
+        get("/api/tree" + dirName + "?from=-1").should().respond(400);
+    }
+
     private JSONObject getJSON(String url) throws ParseException {
         RestAssert request = get(url);
         request.should().respond(200);
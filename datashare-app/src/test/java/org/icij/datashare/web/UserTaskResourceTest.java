@@ -142,6 +142,33 @@ public class UserTaskResourceTest extends AbstractProdWebServerTest {
         get("/api/task/all?filter=foo").withPreemptiveAuthentication("bar", "qux").should().contain("[]");
     }
 
+    @Test
+    public void test_task_page_with_summaries() throws IOException {
+        setupAppWith(new DummyUserTask<>("bar"), "bar");
+        String t1Id = taskManager.startTask("1", DummyUserTask.class.getName(), localUser("bar"));
+        String t2Id = taskManager.startTask("2", DummyUserTask.class.getName(), localUser("bar"));
+        taskManager.waitTasksToBeDone(1, SECONDS);
+
+        get("/api/task/all?size=1&summary=true").withPreemptiveAuthentication("bar", "qux").should().respond(200).
+                contain(format("{\"items\":[{\"id\":\"%s\",\"name\":\"%s\",\"state\":\"DONE\",\"progress\":1.0,\"userId\":\"bar\"}],\"next\":\"%s\"}", t1Id, DummyUserTask.class.getName(), t1Id));
+        get("/api/task/all?size=1&from=" + t1Id).withPreemptiveAuthentication("bar", "qux").should().respond(200).
+                contain(format("{\"items\":[{\"id\":\"%s\"", t2Id)).
+                contain("\"args\":{\"user\":").
+                not().contain("\"next\"");
+    }
+
+    @Test
+    public void test_task_list_with_state_filter() throws IOException {
+        setupAppWith(new DummyUserTask<>("bar"), "bar");
+        taskManager.startTask(DummyUserTask.class.getName(), localUser("bar"), new HashMap<>());
+        taskManager.waitTasksToBeDone(1, SECONDS);
+
+        get("/api/task/all?state=RUNNING,QUEUED").withPreemptiveAuthentication("bar", "qux").should().respond(200).contain("[]");
+        get("/api/task/all?state=DONE&summary=true").withPreemptiveAuthentication("bar", "qux").should().respond(200).contain("\"state\":\"DONE\"");
+        get("/api/task/all?state=FOO").withPreemptiveAuthentication("bar", "qux").should().respond(400);
+        get("/api/task/all?size=0").withPreemptiveAuthentication("bar", "qux").should().respond(400);
+    }
+
     @Test
     public void test_stop_all_in_server_mode() throws InterruptedException, IOException {
         setupAppWith(new SleepingUserTask("foo"), new SleepingUserTask("bar"), "foo", "bar");
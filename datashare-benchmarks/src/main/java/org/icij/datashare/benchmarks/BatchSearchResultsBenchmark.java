@@ -0,0 +1,85 @@
+package org.icij.datashare.benchmarks;
+
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.batch.BatchSearch;
+import org.icij.datashare.db.JooqBatchSearchRepository;
+import org.icij.datashare.db.RepositoryFactoryImpl;
+import org.icij.datashare.monitoring.MetricRegistry;
+import org.icij.datashare.text.Document;
+import org.icij.datashare.user.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.icij.datashare.CollectionUtils.asSet;
+import static org.icij.datashare.text.DocumentBuilder.createDoc;
+import static org.icij.datashare.text.ProjectProxy.proxy;
+
+/**
+ * Persistence of batch search results (JooqBatchSearchRepository.saveResults) in an in memory SQLite database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchSearchResultsBenchmark {
+    @Param({"100", "1000"})
+    int nbResults;
+
+    private JooqBatchSearchRepository repository;
+    private BatchSearch batchSearch;
+    private List<Document> results;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RepositoryFactoryImpl repositoryFactory = new RepositoryFactoryImpl(new PropertiesProvider(Map.of(
+                "dataSourceUrl", "jdbc:sqlite:file:benchmarks?mode=memory&cache=shared")), new MetricRegistry());
+        repositoryFactory.initDatabase();
+        repository = repositoryFactory.createBatchSearchRepository();
+        results = IntStream.range(0, nbResults).mapToObj(i -> createDoc("doc" + i)
+                .with(Paths.get("/data/project/folder/doc" + i + ".txt"))
+                .ofContentType("text/plain")
+                .withContentLength(1234L)
+                .extractedAt(new Date())
+                .build()).collect(toList());
+    }
+
+    @Setup(Level.Iteration)
+    public void createBatchSearch() {
+        batchSearch = new BatchSearch(singletonList(proxy("local-datashare")), "benchmark", "description", asSet("query"), User.local());
+        repository.save(batchSearch);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.deleteAll(User.local());
+        repository.close();
+    }
+
+    @Benchmark
+    public boolean saveResults() {
+        return repository.saveResults(batchSearch.uuid, "query", results);
+    }
+}
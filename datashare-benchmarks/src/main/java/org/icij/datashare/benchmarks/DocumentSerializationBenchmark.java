@@ -0,0 +1,60 @@
+package org.icij.datashare.benchmarks;
+
+import org.icij.datashare.json.JsonObjectMapper;
+import org.icij.datashare.text.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.icij.datashare.text.DocumentBuilder.createDoc;
+
+/**
+ * Document to/from JSON as done by the indexer for each document written to or read from elasticsearch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentSerializationBenchmark {
+    @Param({"1024", "1048576"})
+    int contentLength;
+
+    private Document document;
+    private Map<String, Object> json;
+
+    @Setup
+    public void setUp() {
+        document = createDoc("docId")
+                .with(Samples.text(contentLength))
+                .with(Paths.get("/data/project/folder/doc.txt"))
+                .ofContentType("text/plain")
+                .with(new HashMap<>(Map.of("tika_metadata_author", "John Smith", "tika_metadata_title", "Report")))
+                .build();
+        json = JsonObjectMapper.getJson(document);
+    }
+
+    @Benchmark
+    public Map<String, Object> serialize() {
+        return JsonObjectMapper.getJson(document);
+    }
+
+    @Benchmark
+    public Document deserialize() {
+        return JsonObjectMapper.getObject(document.getId(), "local-datashare", json, Document.class);
+    }
+}
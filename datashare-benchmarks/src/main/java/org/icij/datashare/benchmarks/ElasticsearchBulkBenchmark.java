@@ -0,0 +1,104 @@
+package org.icij.datashare.benchmarks;
+
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.monitoring.MetricRegistry;
+import org.icij.datashare.text.Document;
+import org.icij.datashare.text.NamedEntity;
+import org.icij.datashare.text.indexing.elasticsearch.ElasticsearchBulkIngester;
+import org.icij.datashare.text.indexing.elasticsearch.ElasticsearchIndexer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.icij.datashare.text.DocumentBuilder.createDoc;
+import static org.icij.datashare.text.NamedEntity.Category.PERSON;
+import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchConfiguration.INDEX_ADDRESS_PROP;
+import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchConfiguration.createESClient;
+import static org.icij.datashare.text.nlp.Pipeline.Type.CORENLP;
+
+/**
+ * ElasticsearchIndexer bulk paths against a local stand-in (see {@link ElasticsearchStandIn}):
+ * the measures include JSON serialization, HTTP round trips and bulk responses parsing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ElasticsearchBulkBenchmark {
+    private static final String INDEX_NAME = "benchmark-datashare";
+
+    @Param({"100", "1000"})
+    int nbDocuments;
+
+    @Param({"10000"})
+    int contentLength;
+
+    private ElasticsearchStandIn standIn;
+    private ElasticsearchIndexer indexer;
+    private ElasticsearchBulkIngester bulkIngester;
+    private List<Document> documents;
+    private Document parent;
+    private List<NamedEntity> namedEntities;
+
+    @Setup
+    public void setUp() throws IOException {
+        standIn = new ElasticsearchStandIn();
+        indexer = new ElasticsearchIndexer(createESClient(new PropertiesProvider(Map.of(INDEX_ADDRESS_PROP, standIn.getAddress()))), new PropertiesProvider(), new MetricRegistry());
+        bulkIngester = new ElasticsearchBulkIngester(indexer, nbDocuments / 4, 10 * 1024 * 1024, 0, 2);
+        String content = Samples.text(contentLength);
+        documents = IntStream.range(0, nbDocuments).mapToObj(i -> createDoc("doc" + i)
+                .with(content)
+                .with(Paths.get("/data/project/folder/doc" + i + ".txt"))
+                .ofContentType("text/plain")
+                .build()).collect(toList());
+        parent = documents.get(0);
+        namedEntities = IntStream.range(0, nbDocuments).mapToObj(i -> NamedEntity.create(PERSON, "John Smith " + i,
+                singletonList((long) i), parent.getId(), parent.getId(), CORENLP, parent.getLanguage())).collect(toList());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        bulkIngester.close();
+        indexer.close();
+        standIn.close();
+    }
+
+    @Benchmark
+    public boolean bulkAddDocuments() throws IOException {
+        return indexer.bulkAdd(INDEX_NAME, documents);
+    }
+
+    @Benchmark
+    public boolean bulkAddNamedEntities() throws IOException {
+        return indexer.bulkAdd(INDEX_NAME, CORENLP, namedEntities, parent);
+    }
+
+    @Benchmark
+    public long bulkIngesterDocuments() throws IOException {
+        for (Document document : documents) {
+            bulkIngester.add(INDEX_NAME, document);
+        }
+        bulkIngester.flush();
+        return bulkIngester.getFailures();
+    }
+}
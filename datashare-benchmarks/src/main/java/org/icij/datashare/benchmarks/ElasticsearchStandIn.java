@@ -0,0 +1,106 @@
+package org.icij.datashare.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.icij.datashare.json.JsonObjectMapper.MAPPER;
+
+/**
+ * Minimal HTTP server answering the elasticsearch _bulk and _mget requests as if they succeeded,
+ * so that the client side of the bulk paths (serialization, request building, response parsing)
+ * can be measured without a cluster. Documents are not stored: multi get always answers "not found".
+ */
+class ElasticsearchStandIn implements Closeable {
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    ElasticsearchStandIn() throws IOException {
+        // without TCP_NODELAY the responses wait for delayed ACKs and the benchmarks measure network stalls
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String getAddress() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        ObjectNode response;
+        if (path.endsWith("/_bulk")) {
+            response = bulkResponse(exchange);
+        } else if (path.endsWith("/_mget")) {
+            response = mgetResponse(exchange);
+        } else {
+            exchange.getRequestBody().readAllBytes();
+            response = MAPPER.createObjectNode().put("acknowledged", true);
+        }
+        byte[] body = MAPPER.writeValueAsBytes(response);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.getResponseHeaders().add("X-Elastic-Product", "Elasticsearch");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    private ObjectNode bulkResponse(HttpExchange exchange) throws IOException {
+        ObjectNode response = MAPPER.createObjectNode().put("took", 1).put("errors", false);
+        ArrayNode items = response.putArray("items");
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode action = MAPPER.readTree(line);
+                String operation = action.fieldNames().next();
+                JsonNode metadata = action.get(operation);
+                items.addObject().putObject(operation)
+                        .put("_index", metadata.path("_index").asText("index"))
+                        .put("_id", metadata.path("_id").asText())
+                        .put("_version", 1)
+                        .put("result", "delete".equals(operation) ? "deleted" : "created")
+                        .put("status", "delete".equals(operation) ? 200 : 201)
+                        .put("_seq_no", 0)
+                        .put("_primary_term", 1);
+                if (!"delete".equals(operation)) {
+                    reader.readLine(); // source line
+                }
+            }
+        }
+        return response;
+    }
+
+    private ObjectNode mgetResponse(HttpExchange exchange) throws IOException {
+        String index = exchange.getRequestURI().getPath().split("/")[1];
+        JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+        ObjectNode response = MAPPER.createObjectNode();
+        ArrayNode docs = response.putArray("docs");
+        request.path("ids").forEach(id -> docs.addObject().put("_index", index).put("_id", id.asText()).put("found", false));
+        request.path("docs").forEach(doc -> docs.addObject().put("_index", index).put("_id", doc.path("_id").asText()).put("found", false));
+        return response;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
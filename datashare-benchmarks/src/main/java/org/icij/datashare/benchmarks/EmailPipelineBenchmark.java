@@ -0,0 +1,66 @@
+package org.icij.datashare.benchmarks;
+
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.nlp.EmailPipeline;
+import org.icij.datashare.text.Document;
+import org.icij.datashare.text.NamedEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.icij.datashare.nlp.EmailPipeline.tikaMsgHeader;
+import static org.icij.datashare.text.DocumentBuilder.createDoc;
+
+/**
+ * Email addresses extraction with the EmailPipeline regular expression, on content and mail headers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailPipelineBenchmark {
+    @Param({"10000", "1048576"})
+    int contentLength;
+
+    private EmailPipeline pipeline;
+    private Document textDocument;
+    private Document emailDocument;
+
+    @Setup
+    public void setUp() {
+        pipeline = new EmailPipeline(new PropertiesProvider());
+        String content = Samples.emailText(contentLength);
+        textDocument = createDoc("textDocId").with(content).ofContentType("text/plain").build();
+        emailDocument = createDoc("emailDocId").with(content).ofContentType("message/rfc822")
+                .with(new HashMap<>(Map.of(
+                        tikaMsgHeader("To"), "mary.jones@example.org, legal@offshore-services.pa",
+                        tikaMsgHeader("From"), "john.smith@acme.com",
+                        tikaMsgHeader("Cc"), "accounting@acme.com")))
+                .build();
+    }
+
+    @Benchmark
+    public List<NamedEntity> processText() {
+        return pipeline.process(textDocument);
+    }
+
+    @Benchmark
+    public List<NamedEntity> processEmail() {
+        return pipeline.process(emailDocument);
+    }
+}
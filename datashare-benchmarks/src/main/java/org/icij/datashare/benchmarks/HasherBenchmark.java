@@ -0,0 +1,61 @@
+package org.icij.datashare.benchmarks;
+
+import org.icij.datashare.text.Hasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Digest computation used for document ids (short strings) and file contents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HasherBenchmark {
+    @Param({"SHA_256", "SHA_384", "SHA_512"})
+    Hasher hasher;
+
+    @Param({"128", "1048576"})
+    int length;
+
+    private String message;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        message = Samples.text(length);
+        bytes = message.getBytes(UTF_8);
+    }
+
+    @Benchmark
+    public String hashString() {
+        return hasher.hash(message);
+    }
+
+    @Benchmark
+    public String hashStream() {
+        return hasher.hash(new ByteArrayInputStream(bytes));
+    }
+
+    @Benchmark
+    public List<String> hashStreamWithLegacyAndProjectPrefixes() {
+        return hasher.hash(new ByteArrayInputStream(bytes), List.of("", "local-datashare"));
+    }
+}
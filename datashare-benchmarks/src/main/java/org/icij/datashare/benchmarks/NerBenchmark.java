@@ -0,0 +1,58 @@
+package org.icij.datashare.benchmarks;
+
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.text.Document;
+import org.icij.datashare.text.Language;
+import org.icij.datashare.text.NamedEntity;
+import org.icij.datashare.text.nlp.corenlp.CorenlpPipeline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.icij.datashare.text.DocumentBuilder.createDoc;
+
+/**
+ * CoreNLP named entities extraction throughput per language. The models are downloaded
+ * (if they are not already in the datashare home) and loaded in the setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.system.class.loader=org.icij.datashare.DynamicClassLoader"})
+public class NerBenchmark {
+    @Param({"ENGLISH", "FRENCH", "SPANISH", "GERMAN"})
+    Language language;
+
+    @Param({"10000"})
+    int contentLength;
+
+    private CorenlpPipeline pipeline;
+    private Document document;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        pipeline = new CorenlpPipeline(new PropertiesProvider());
+        document = createDoc("docId").with(Samples.text(language, contentLength)).with(language).build();
+        if (!pipeline.initialize(language)) {
+            throw new IllegalStateException("cannot initialize CoreNLP for " + language);
+        }
+    }
+
+    @Benchmark
+    public List<NamedEntity> process() throws InterruptedException {
+        return pipeline.process(document);
+    }
+}
@@ -0,0 +1,55 @@
+package org.icij.datashare.benchmarks;
+
+import org.icij.datashare.text.Language;
+
+import java.util.Map;
+
+import static org.icij.datashare.text.Language.ENGLISH;
+import static org.icij.datashare.text.Language.FRENCH;
+import static org.icij.datashare.text.Language.GERMAN;
+import static org.icij.datashare.text.Language.SPANISH;
+
+/**
+ * texts used as document contents by the benchmarks
+ */
+final class Samples {
+    private static final Map<Language, String> PARAGRAPHS = Map.of(
+            ENGLISH, "John Smith met the board of Acme Corporation in London on Monday. " +
+                    "According to the documents, the company transferred funds to an account in Panama " +
+                    "controlled by Mary Jones. The International Consortium of Investigative Journalists obtained the files. ",
+            FRENCH, "Jean Dupont a rencontré le conseil d'administration de la Société Générale à Paris lundi. " +
+                    "Selon les documents, l'entreprise a transféré des fonds sur un compte au Panama " +
+                    "contrôlé par Marie Martin. Le Consortium international des journalistes d'investigation a obtenu les fichiers. ",
+            SPANISH, "Juan García se reunió con el consejo de Banco Santander en Madrid el lunes. " +
+                    "Según los documentos, la empresa transfirió fondos a una cuenta en Panamá " +
+                    "controlada por María López. El Consorcio Internacional de Periodistas de Investigación obtuvo los archivos. ",
+            GERMAN, "Hans Müller traf am Montag den Vorstand der Deutschen Bank in Berlin. " +
+                    "Laut den Dokumenten überwies das Unternehmen Geld auf ein Konto in Panama, " +
+                    "das von Anna Schmidt kontrolliert wird. Das Internationale Konsortium investigativer Journalisten erhielt die Dateien. "
+    );
+
+    private static final String EMAILS = "From: john.smith@acme.com To: mary.jones@example.org, legal@offshore-services.pa\n" +
+            "Please forward the wire details to accounting@acme.com and keep compliance@acme.com out of the loop.\n";
+
+    private Samples() {}
+
+    static String text(Language language, int length) {
+        return repeat(PARAGRAPHS.get(language), length);
+    }
+
+    static String text(int length) {
+        return text(ENGLISH, length);
+    }
+
+    static String emailText(int length) {
+        return repeat(PARAGRAPHS.get(ENGLISH) + EMAILS, length);
+    }
+
+    private static String repeat(String paragraph, int length) {
+        StringBuilder builder = new StringBuilder(length + paragraph.length());
+        while (builder.length() < length) {
+            builder.append(paragraph);
+        }
+        return builder.substring(0, length);
+    }
+}
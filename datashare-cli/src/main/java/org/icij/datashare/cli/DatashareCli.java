@@ -118,9 +118,13 @@ public class DatashareCli {
         DatashareCliOptions.enableOcr(parser);
         DatashareCliOptions.language(parser);
         DatashareCliOptions.ocrLanguage(parser);
+        DatashareCliOptions.ocrCache(parser);
+        DatashareCliOptions.ocrParallelism(parser);
+        DatashareCliOptions.ocrTimeout(parser);
         DatashareCliOptions.nlpPipeline(parser);
         DatashareCliOptions.resume(parser);
         DatashareCliOptions.scroll(parser);
+        DatashareCliOptions.scrollPointInTime(parser);
         DatashareCliOptions.scrollSize(parser);
         DatashareCliOptions.scrollSlices(parser);
         DatashareCliOptions.batchSearchScroll(parser);
@@ -128,11 +132,13 @@ public class DatashareCli {
         DatashareCliOptions.batchDownloadScroll(parser);
         DatashareCliOptions.batchDownloadScrollSize(parser);
         DatashareCliOptions.redisPoolSize(parser);
+        DatashareCliOptions.redisTimeout(parser);
         DatashareCliOptions.elasticsearchDataPath(parser);
         DatashareCliOptions.reportName(parser);
         DatashareCliOptions.parallelism(parser);
         DatashareCliOptions.fileParserParallelism(parser);
         DatashareCliOptions.nlpParallelism(parser);
+        DatashareCliOptions.nlpBatchSize(parser);
         DatashareCliOptions.followSymlinks(parser);
         DatashareCliOptions.enableBrowserOpenLink(parser);
         DatashareCliOptions.embeddedDocumentDownloadMaxSize(parser);
@@ -143,17 +149,37 @@ public class DatashareCli {
         DatashareCliOptions.batchDownloadTimeToLive(parser);
         DatashareCliOptions.batchDownloadMaxNbFiles(parser);
         DatashareCliOptions.batchDownloadMaxSize(parser);
+        DatashareCliOptions.batchDownloadParallelism(parser);
+        DatashareCliOptions.taskWorkers(parser);
+        DatashareCliOptions.taskWorkersBudgets(parser);
+        DatashareCliOptions.taskProgressInterval(parser);
         DatashareCliOptions.batchDownloadEncrypt(parser);
         DatashareCliOptions.batchDownloadDir(parser);
         DatashareCliOptions.smtpUrl(parser);
         DatashareCliOptions.maxContentLength(parser);
+        DatashareCliOptions.indexBulkSize(parser);
+        DatashareCliOptions.indexBulkMaxSize(parser);
+        DatashareCliOptions.indexBulkFlushInterval(parser);
+        DatashareCliOptions.indexBulkConcurrency(parser);
+        DatashareCliOptions.contentCacheSize(parser);
+        DatashareCliOptions.contentCacheDir(parser);
+        DatashareCliOptions.contentCacheDiskSize(parser);
+        DatashareCliOptions.embeddedSourceCacheDir(parser);
+        DatashareCliOptions.embeddedSourceCacheSize(parser);
         DatashareCliOptions.clusterName(parser);
         DatashareCliOptions.createIndex(parser);
         DatashareCliOptions.defaultUser(parser);
         DatashareCliOptions.defaultProject(parser);
         DatashareCliOptions.oauthClaimIdAttribute(parser);
         DatashareCliOptions.esHost(parser);
+        DatashareCliOptions.esProxyTimeout(parser);
+        DatashareCliOptions.searchCacheSize(parser);
+        DatashareCliOptions.searchCacheTtl(parser);
+        DatashareCliOptions.searchCacheRefreshInterval(parser);
+        DatashareCliOptions.treeCacheSize(parser);
+        DatashareCliOptions.treeCacheTtl(parser);
         DatashareCliOptions.queueName(parser);
+        DatashareCliOptions.queueCapacity(parser);
         DatashareCliOptions.cors(parser);
         DatashareCliOptions.queueType(parser);
         DatashareCliOptions.busType(parser);
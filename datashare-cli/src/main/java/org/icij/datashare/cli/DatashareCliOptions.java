@@ -30,6 +30,7 @@ public final class DatashareCliOptions {
     public static final String BATCH_DOWNLOAD_ENCRYPT_OPT = "batchDownloadEncrypt";
     public static final String BATCH_DOWNLOAD_MAX_NB_FILES_OPT = "batchDownloadMaxNbFiles";
     public static final String BATCH_DOWNLOAD_MAX_SIZE_OPT = "batchDownloadMaxSize";
+    public static final String BATCH_DOWNLOAD_PARALLELISM_OPT = "batchDownloadParallelism";
     public static final String BATCH_DOWNLOAD_SCROLL_DURATION_OPT = "batchDownloadScroll";
     public static final String BATCH_DOWNLOAD_SCROLL_SIZE_OPT = "batchDownloadScrollSize";
     public static final String BATCH_DOWNLOAD_ZIP_TTL_OPT = "batchDownloadTimeToLive";
@@ -42,6 +43,9 @@ public final class DatashareCliOptions {
     public static final String BUS_TYPE_OPT = "busType";
     public static final String CHARSET_OPT = "charset";
     public static final String CLUSTER_NAME_OPT = "clusterName";
+    public static final String CONTENT_CACHE_DIR_OPT = "contentCacheDir";
+    public static final String CONTENT_CACHE_DISK_SIZE_OPT = "contentCacheDiskSize";
+    public static final String CONTENT_CACHE_SIZE_OPT = "contentCacheSize";
     public static final String CORS_OPT = "cors";
     public static final String CREATE_INDEX_OPT = "createIndex";
     public static final String CRE_API_KEY_ABBR_OPT = "k";
@@ -58,7 +62,10 @@ public final class DatashareCliOptions {
     public static final String DIGEST_PROJECT_NAME_OPT = "digestProjectName";
     public static final String ELASTICSEARCH_ADDRESS_OPT = "elasticsearchAddress";
     public static final String ELASTICSEARCH_DATA_PATH_OPT = "elasticsearchDataPath";
+    public static final String ELASTICSEARCH_PROXY_TIMEOUT_OPT = "elasticsearchProxyTimeoutMilliseconds";
     public static final String EMBEDDED_DOCUMENT_DOWNLOAD_MAX_SIZE_OPT = "embeddedDocumentDownloadMaxSize";
+    public static final String EMBEDDED_SOURCE_CACHE_DIR_OPT = "embeddedSourceCacheDir";
+    public static final String EMBEDDED_SOURCE_CACHE_SIZE_OPT = "embeddedSourceCacheSize";
     public static final String EXTENSIONS_DIR_OPT = "extensionsDir";
     public static final String EXTENSION_DELETE_OPT = "extensionDelete";
     public static final String EXTENSION_INSTALL_OPT = "extensionInstall";
@@ -68,6 +75,10 @@ public final class DatashareCliOptions {
     public static final String GET_API_KEY_OPT = "apiKey";
     public static final String HELP_ABBR_OPT = "h";
     public static final String HELP_OPT = "help";
+    public static final String INDEX_BULK_CONCURRENCY_OPT = "indexBulkConcurrency";
+    public static final String INDEX_BULK_FLUSH_INTERVAL_OPT = "indexBulkFlushIntervalMilliseconds";
+    public static final String INDEX_BULK_MAX_SIZE_OPT = "indexBulkMaxSize";
+    public static final String INDEX_BULK_SIZE_OPT = "indexBulkSize";
     public static final String LANGUAGE_ABBR_OPT = "l";
     public static final String LANGUAGE_OPT = "language";
     public static final String LOG_LEVEL_OPT = "logLevel";
@@ -75,6 +86,7 @@ public final class DatashareCliOptions {
     public static final String MESSAGE_BUS_OPT = "messageBusAddress";
     public static final String MODE_ABBR_OPT = "m";
     public static final String MODE_OPT = "mode";
+    public static final String NLP_BATCH_SIZE_OPT = "nlpBatchSize";
     public static final String NLP_PARALLELISM_ABBR_OPT = "np";
     public static final String NLP_PARALLELISM_OPT = "nlpParallelism";
     public static final String NLP_PIPELINE_ABBR_OPT = "nlpp";
@@ -89,8 +101,11 @@ public final class DatashareCliOptions {
     public static final String OAUTH_SCOPE_OPT = "oauthScope";
     public static final String OAUTH_TOKEN_URL_OPT = "oauthTokenUrl";
     public static final String OCR_ABBR_OPT = "o";
+    public static final String OCR_CACHE_OPT = "ocrCache";
     public static final String OCR_LANGUAGE_OPT = "ocrLanguage";
     public static final String OCR_OPT = "ocr";
+    public static final String OCR_PARALLELISM_OPT = "ocrParallelism";
+    public static final String OCR_TIMEOUT_OPT = "ocrTimeout";
     public static final String PARALLELISM_OPT = "parallelism";
     public static final String PARSER_PARALLELISM_ABBR_OPT = "pp";
     public static final String PARSER_PARALLELISM_OPT = "parserParallelism";
@@ -101,21 +116,32 @@ public final class DatashareCliOptions {
     public static final String PORT_OPT = "port";
     public static final String PROTECTED_URI_PREFIX_OPT = "protectedUriPrefix";
     public static final String QUEUE_NAME_OPT = "queueName";
+    public static final String QUEUE_CAPACITY_OPT = "queueCapacity";
     public static final String QUEUE_TYPE_OPT = "queueType";
     public static final String REDIS_ADDRESS_OPT = "redisAddress";
     public static final String REDIS_POOL_SIZE_OPT = "redisPoolSize";
+    public static final String REDIS_TIMEOUT_OPT = "redisTimeout";
     public static final String REPORT_NAME_OPT = "reportName";
     public static final String RESUME_ABBR_OPT = "r";
     public static final String RESUME_OPT = "resume";
     public static final String ROOT_HOST_OPT = "rootHost";
     public static final String SCROLL_DURATION_OPT = "scroll";
+    public static final String SCROLL_POINT_IN_TIME_OPT = "scrollPointInTime";
     public static final String SCROLL_SIZE_OPT = "scrollSize";
     public static final String SCROLL_SLICES_OPT = "scrollSlices";
+    public static final String SEARCH_CACHE_SIZE_OPT = "searchCacheSize";
+    public static final String SEARCH_CACHE_TTL_OPT = "searchCacheTtlMilliseconds";
+    public static final String SEARCH_CACHE_REFRESH_INTERVAL_OPT = "searchCacheRefreshIntervalMilliseconds";
+    public static final String TREE_CACHE_SIZE_OPT = "treeCacheSize";
+    public static final String TREE_CACHE_TTL_OPT = "treeCacheTtlMilliseconds";
     public static final String SESSION_STORE_TYPE_OPT = "sessionStoreType";
     public static final String SESSION_TTL_SECONDS_OPT = "sessionTtlSeconds";
     public static final String SETTINGS_OPT = "settings";
     public static final String SETTING_ABBR_OPT = "s";
     public static final String SMTP_URL_OPT = "smtpUrl";
+    public static final String TASK_PROGRESS_INTERVAL_OPT = "taskProgressInterval";
+    public static final String TASK_WORKERS_BUDGETS_OPT = "taskWorkersBudgets";
+    public static final String TASK_WORKERS_OPT = "taskWorkers";
     public static final String TCP_LISTEN_PORT_OPT = "tcpListenPort";
     public static final String VERSION_ABBR_OPT = "v";
     public static final String VERSION_OPT = "version";
@@ -123,7 +149,8 @@ public final class DatashareCliOptions {
     public static final String SEARCH_QUERY_OPT = "searchQuery";
 
     private static final Path DEFAULT_DATASHARE_HOME = Paths.get(System.getProperty("user.home"), ".local/share/datashare");
-    private static final Integer DEFAULT_NLP_PARALLELISM = 1;
+    public static final Integer DEFAULT_NLP_PARALLELISM = 1;
+    public static final Integer DEFAULT_NLP_BATCH_SIZE = 32;
     private static final Integer DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors() == 1 ? 2 : Runtime.getRuntime().availableProcessors();
     private static final Integer DEFAULT_PARSER_PARALLELISM = 1;
     public static final DigestAlgorithm DEFAULT_DIGEST_METHOD = DigestAlgorithm.SHA_384;
@@ -144,6 +171,7 @@ public final class DatashareCliOptions {
     public static final String DEFAULT_DEFAULT_PROJECT = "local-datashare";
     public static final String DEFAULT_ELASTICSEARCH_ADDRESS = "http://elasticsearch:9200";
     public static final String DEFAULT_ELASTICSEARCH_DATA_PATH = DEFAULT_DATASHARE_HOME.resolve("es").toString();
+    public static final int DEFAULT_ELASTICSEARCH_PROXY_TIMEOUT = 30000;
     public static final String DEFAULT_EMBEDDED_DOCUMENT_DOWNLOAD_MAX_SIZE = "1G";
     public static final String DEFAULT_EXTENSIONS_DIR = DEFAULT_DATASHARE_HOME.resolve("extensions").toString();
     public static final boolean DEFAULT_FOLLOW_SYMLINKS = true;
@@ -152,21 +180,42 @@ public final class DatashareCliOptions {
     public static final String DEFAULT_NLP_PIPELINE = "CORENLP";
     public static final String DEFAULT_PROTECTED_URI_PREFIX = "/api/";
     public static final String DEFAULT_QUEUE_NAME = "extract:queue";
+    public static final int DEFAULT_QUEUE_CAPACITY = 1_000_000;
     public static final String DEFAULT_REDIS_ADDRESS = "redis://redis:6379";
     public static final String DEFAULT_USER = "local";
     public static final boolean DEFAULT_BROWSER_OPEN_LINK = false;
     public static final boolean DEFAULT_NO_DIGEST_PROJECT = false;
     public static final boolean DEFAULT_OCR = true;
+    public static final int DEFAULT_OCR_PARALLELISM = 0;
+    public static final String DEFAULT_OCR_TIMEOUT = "12h";
     public static final int DEFAULT_BATCH_DOWNLOAD_MAX_NB_FILES = 10000;
+    public static final int DEFAULT_BATCH_DOWNLOAD_PARALLELISM = 4;
     public static final int DEFAULT_BATCH_DOWNLOAD_ZIP_TTL = 24;
     public static final String DEFAULT_PLUGIN_DIR = DEFAULT_DATASHARE_HOME.resolve("plugins").toString();
-    public static final int DEFAULT_REDIS_POOL_SIZE = 5;
+    public static final int DEFAULT_REDIS_POOL_SIZE = 16;
+    public static final int DEFAULT_REDIS_TIMEOUT = 60000;
     public static final String DEFAULT_SCROLL_DURATION = "60000ms";
+    public static final boolean DEFAULT_SCROLL_POINT_IN_TIME = false;
     public static final int DEFAULT_SCROLL_SIZE = 1000;
     public static final int DEFAULT_SCROLL_SLICES = 1;
     public static final int DEFAULT_TCP_LISTEN_PORT = 8080;
+    public static final String DEFAULT_SEARCH_CACHE_SIZE = "20M";
+    public static final long DEFAULT_SEARCH_CACHE_TTL = 10000;
+    public static final long DEFAULT_SEARCH_CACHE_REFRESH_INTERVAL = 1000;
+    public static final int DEFAULT_TREE_CACHE_SIZE = 200_000;
+    public static final long DEFAULT_TREE_CACHE_TTL = 60000;
     public static final int DEFAULT_SESSION_TTL_SECONDS = 43200;
     public static final String DEFAULT_MAX_CONTENT_LENGTH = "20000000";
+    public static final int DEFAULT_INDEX_BULK_SIZE = 0;
+    public static final String DEFAULT_INDEX_BULK_MAX_SIZE = "10M";
+    public static final long DEFAULT_INDEX_BULK_FLUSH_INTERVAL = 5000;
+    public static final int DEFAULT_INDEX_BULK_CONCURRENCY = 2;
+    public static final String DEFAULT_CONTENT_CACHE_SIZE = "100M";
+    public static final String DEFAULT_CONTENT_CACHE_DISK_SIZE = "1G";
+    public static final String DEFAULT_EMBEDDED_SOURCE_CACHE_SIZE = "1G";
+    public static final int DEFAULT_TASK_PROGRESS_INTERVAL = 1000;
+    public static final int DEFAULT_TASK_WORKERS = 1;
+    public static final String DEFAULT_TASK_WORKERS_BUDGETS = "BatchDownloadRunner=2";
 
     // A list of aliases for retro-compatibility when an option changed
     public static final Map<String, String> OPT_ALIASES = Map.ofEntries(
@@ -407,6 +456,15 @@ public final class DatashareCliOptions {
                 .defaultsTo(DEFAULT_NLP_PARALLELISM);
     }
 
+    static void nlpBatchSize(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(NLP_BATCH_SIZE_OPT),
+                "Number of documents fetched from the index with one request and of documents whose named entities are written with one bulk request.")
+                .withRequiredArg()
+                .ofType( Integer.class )
+                .defaultsTo(DEFAULT_NLP_BATCH_SIZE);
+    }
+
     public static void batchSearchMaxTime(OptionParser parser) {
          parser.acceptsAll(
                  singletonList(BATCH_SEARCH_MAX_TIME_OPT), "Max time for batch search in seconds")
@@ -428,6 +486,15 @@ public final class DatashareCliOptions {
                 .ofType(String.class)
                 .defaultsTo(DEFAULT_SCROLL_DURATION);
     }
+
+    public static void scrollPointInTime(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(SCROLL_POINT_IN_TIME_OPT), "Iterate over search results with a point in time and search_after " +
+                        "instead of elasticsearch scrolls (requires elasticsearch 7.12 or later)")
+                .withRequiredArg()
+                .ofType(Boolean.class)
+                .defaultsTo(DEFAULT_SCROLL_POINT_IN_TIME);
+    }
     public static void scrollSize(OptionParser parser) {
         parser.acceptsAll(
                 singletonList(SCROLL_SIZE_OPT), "Scroll size used for elasticsearch scrolls (SCANIDX task)")
@@ -438,7 +505,7 @@ public final class DatashareCliOptions {
 
      public static void scrollSlices(OptionParser parser) {
         parser.acceptsAll(
-                singletonList(SCROLL_SLICES_OPT), "Scroll slice max number used for elasticsearch scrolls (SCANIDX task)")
+                singletonList(SCROLL_SLICES_OPT), "Scroll slice max number used for elasticsearch scrolls (SCANIDX and ENQUEUEIDX tasks)")
                 .withRequiredArg()
                 .ofType(Integer.class)
                 .defaultsTo(DEFAULT_SCROLL_SLICES);
@@ -478,12 +545,20 @@ public final class DatashareCliOptions {
 
      public static void redisPoolSize(OptionParser parser) {
         parser.acceptsAll(
-                singletonList(REDIS_POOL_SIZE_OPT), "Pool size for main Redis client")
+                singletonList(REDIS_POOL_SIZE_OPT), "Connection pool size of the Redis client shared by the queues, maps, task managers and sessions")
                 .withRequiredArg()
                 .ofType(Integer.class)
                 .defaultsTo(DEFAULT_REDIS_POOL_SIZE);
     }
 
+    public static void redisTimeout(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(REDIS_TIMEOUT_OPT), "Timeout in milliseconds of the Redis commands")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(DEFAULT_REDIS_TIMEOUT);
+    }
+
     public static void elasticsearchDataPath(OptionParser parser) {
         parser.acceptsAll(
                 singletonList(ELASTICSEARCH_DATA_PATH_OPT), "Data path used for embedded Elasticsearch")
@@ -535,6 +610,34 @@ public final class DatashareCliOptions {
                 .ofType(String.class);
     }
 
+    static void ocrCache(OptionParser parser) {
+        parser.acceptsAll(
+                        List.of(OCR_CACHE_OPT),
+                        "Directory where OCR results are cached by file digest, so that re-extracting a file does not run tesseract again " +
+                                "(no cache if not set)")
+                .withRequiredArg()
+                .ofType(String.class);
+    }
+
+    static void ocrParallelism(OptionParser parser) {
+        parser.acceptsAll(
+                        List.of(OCR_PARALLELISM_OPT),
+                        "Number of threads extracting the image files that need OCR, apart from the other files. " +
+                                "With 0, they are extracted with the other files.")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(DEFAULT_OCR_PARALLELISM);
+    }
+
+    static void ocrTimeout(OptionParser parser) {
+        parser.acceptsAll(
+                        List.of(OCR_TIMEOUT_OPT),
+                        "Time limit of tesseract for one file (duration with unit, for example 30m or 12h)")
+                .withRequiredArg()
+                .ofType(String.class)
+                .defaultsTo(DEFAULT_OCR_TIMEOUT);
+    }
+
     static void nlpPipeline(OptionParser parser) {
         parser.acceptsAll(
                 asList(NLP_PIPELINE_ABBR_OPT, NLP_PIPELINE_OPT),
@@ -560,6 +663,14 @@ public final class DatashareCliOptions {
                 .defaultsTo(DEFAULT_ELASTICSEARCH_ADDRESS);
     }
 
+    static void esProxyTimeout(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(ELASTICSEARCH_PROXY_TIMEOUT_OPT), "Timeout in milliseconds of the requests proxied to Elasticsearch by the search API")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(DEFAULT_ELASTICSEARCH_PROXY_TIMEOUT);
+    }
+
     static void dataSourceUrl(OptionParser parser) {
         parser.acceptsAll(
                 singletonList(DATA_SOURCE_URL_OPT), "Datasource URL. For using memory you can use 'jdbc:sqlite:file:memorydb.db?mode=memory&cache=shared'")
@@ -592,6 +703,15 @@ public final class DatashareCliOptions {
                 .defaultsTo(DEFAULT_QUEUE_NAME);
     }
 
+    static void queueCapacity(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(QUEUE_CAPACITY_OPT), "Capacity of the memory queues between pipeline stages. " +
+                        "When a queue is full the stage writing into it waits for the next stage.")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(DEFAULT_QUEUE_CAPACITY);
+    }
+
     static OptionSpec<Void> help(OptionParser parser) {
         return parser.acceptsAll(asList(HELP_OPT, HELP_ABBR_OPT, "?")).forHelp();
     }
@@ -687,6 +807,40 @@ public final class DatashareCliOptions {
                 .defaultsTo(DEFAULT_BATCH_DOWNLOAD_MAX_NB_FILES);
     }
 
+    public static void batchDownloadParallelism(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(BATCH_DOWNLOAD_PARALLELISM_OPT), "Number of threads extracting the documents sources of a batch download (Default 4)")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(DEFAULT_BATCH_DOWNLOAD_PARALLELISM);
+    }
+
+    public static void taskWorkers(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(TASK_WORKERS_OPT), "Number of tasks (batch searches, batch downloads...) run concurrently by a task worker (Default 1)")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(DEFAULT_TASK_WORKERS);
+    }
+
+    public static void taskWorkersBudgets(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(TASK_WORKERS_BUDGETS_OPT), "Maximum number of tasks of a type run concurrently by a task worker, " +
+                        "as comma separated <task class>=<number> (Default " + DEFAULT_TASK_WORKERS_BUDGETS + ")")
+                .withRequiredArg()
+                .ofType(String.class)
+                .defaultsTo(DEFAULT_TASK_WORKERS_BUDGETS);
+    }
+
+    public static void taskProgressInterval(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(TASK_PROGRESS_INTERVAL_OPT), "Minimum interval in milliseconds between two progress updates of a task sent by a task worker. " +
+                        "The last progress is always sent, 0 sends all the updates (Default " + DEFAULT_TASK_PROGRESS_INTERVAL + ")")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(DEFAULT_TASK_PROGRESS_INTERVAL);
+    }
+
     public static void batchDownloadEncrypt(OptionParser parser) {
         parser.acceptsAll(
                 singletonList(BATCH_DOWNLOAD_ENCRYPT_OPT), "Whether Batch download zip files are encrypted or not. SmtpUrl should be set to send the password. (default false)")
@@ -735,6 +889,125 @@ public final class DatashareCliOptions {
                 .withValuesConvertedBy(regex("[0-9]+[KMG]?"));
     }
 
+    public static void indexBulkSize(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(INDEX_BULK_SIZE_OPT), "Number of documents sent to elasticsearch in one bulk request when indexing " +
+                        "(0 means that documents are indexed one by one)")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(DEFAULT_INDEX_BULK_SIZE);
+    }
+
+    public static void indexBulkMaxSize(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(INDEX_BULK_MAX_SIZE_OPT), "Maximum size of an indexing bulk request before it is sent. " +
+                        "Human readable suffix K/M/G for KB/MB/GB (Default 10M)")
+                .withRequiredArg()
+                .withValuesConvertedBy(regex("[0-9]+[KMG]?"))
+                .defaultsTo(DEFAULT_INDEX_BULK_MAX_SIZE);
+    }
+
+    public static void indexBulkFlushInterval(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(INDEX_BULK_FLUSH_INTERVAL_OPT), "Maximum time in milliseconds that documents wait in the indexing bulk buffer")
+                .withRequiredArg()
+                .ofType(Long.class)
+                .defaultsTo(DEFAULT_INDEX_BULK_FLUSH_INTERVAL);
+    }
+
+    public static void indexBulkConcurrency(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(INDEX_BULK_CONCURRENCY_OPT), "Maximum number of indexing bulk requests in flight. " +
+                        "Indexing threads are blocked when they are all busy")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(DEFAULT_INDEX_BULK_CONCURRENCY);
+    }
+
+    public static void searchCacheSize(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(SEARCH_CACHE_SIZE_OPT), "Memory size of the cache of the _search and _count responses of the search API " +
+                        "(0 disables the cache). Human readable suffix K/M/G for KB/MB/GB (Default 20M)")
+                .withRequiredArg()
+                .withValuesConvertedBy(regex("[0-9]+[KMG]?"))
+                .defaultsTo(DEFAULT_SEARCH_CACHE_SIZE);
+    }
+
+    public static void searchCacheTtl(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(SEARCH_CACHE_TTL_OPT), "Time in milliseconds that the responses of the search API are cached (0 disables the cache)")
+                .withRequiredArg()
+                .ofType(Long.class)
+                .defaultsTo(DEFAULT_SEARCH_CACHE_TTL);
+    }
+
+    public static void searchCacheRefreshInterval(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(SEARCH_CACHE_REFRESH_INTERVAL_OPT), "Time in milliseconds after a write before the responses of the search API " +
+                        "are cached again. It should not be less than the index.refresh_interval of the indices (Default 1000)")
+                .withRequiredArg()
+                .ofType(Long.class)
+                .defaultsTo(DEFAULT_SEARCH_CACHE_REFRESH_INTERVAL);
+    }
+
+    public static void treeCacheSize(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(TREE_CACHE_SIZE_OPT), "Maximum number of directory entries kept in the cache of the tree API (Default 200000)")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(DEFAULT_TREE_CACHE_SIZE);
+    }
+
+    public static void treeCacheTtl(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(TREE_CACHE_TTL_OPT), "Time in milliseconds that the directory listings of the tree API are cached " +
+                        "when the directories are not modified, so that the file sizes are refreshed (Default 60000)")
+                .withRequiredArg()
+                .ofType(Long.class)
+                .defaultsTo(DEFAULT_TREE_CACHE_TTL);
+    }
+
+    public static void contentCacheSize(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(CONTENT_CACHE_SIZE_OPT), "Memory size of the documents content cache used to paginate " +
+                        "extracted texts and search occurrences (0 disables the cache). Human readable suffix K/M/G for KB/MB/GB (Default 100M)")
+                .withRequiredArg()
+                .withValuesConvertedBy(regex("[0-9]+[KMG]?"))
+                .defaultsTo(DEFAULT_CONTENT_CACHE_SIZE);
+    }
+
+    public static void contentCacheDir(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(CONTENT_CACHE_DIR_OPT), "Directory where the documents content cache spills the contents " +
+                        "evicted from memory. If not set, evicted contents are dropped")
+                .withRequiredArg();
+    }
+
+    public static void contentCacheDiskSize(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(CONTENT_CACHE_DISK_SIZE_OPT), "Disk size of the documents content cache in contentCacheDir. " +
+                        "Human readable suffix K/M/G for KB/MB/GB (Default 1G)")
+                .withRequiredArg()
+                .withValuesConvertedBy(regex("[0-9]+[KMG]?"))
+                .defaultsTo(DEFAULT_CONTENT_CACHE_DISK_SIZE);
+    }
+
+    public static void embeddedSourceCacheDir(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(EMBEDDED_SOURCE_CACHE_DIR_OPT), "Directory where all the embedded documents of a root document " +
+                        "are extracted when one of them is downloaded, if artifactDir is not set (Default <java.io.tmpdir>/datashare-embedded-sources-<pid>)")
+                .withRequiredArg();
+    }
+
+    public static void embeddedSourceCacheSize(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(EMBEDDED_SOURCE_CACHE_SIZE_OPT), "Disk size of the embedded documents cache in embeddedSourceCacheDir " +
+                        "(0 disables the cache). Human readable suffix K/M/G for KB/MB/GB (Default 1G)")
+                .withRequiredArg()
+                .withValuesConvertedBy(regex("[0-9]+[KMG]?"))
+                .defaultsTo(DEFAULT_EMBEDDED_SOURCE_CACHE_SIZE);
+    }
+
     public static void sessionStoreType(OptionParser parser) {
         parser.acceptsAll(
                 singletonList(SESSION_STORE_TYPE_OPT), "Type of session store")
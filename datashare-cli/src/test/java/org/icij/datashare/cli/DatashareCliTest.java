@@ -110,6 +110,13 @@ public class DatashareCliTest {
         cli.asProperties(cli.createParser().parse("--embeddedDocumentDownloadMaxSize", "123A"), null);
     }
 
+    @Test
+    public void test_index_bulk_options() {
+        cli.parseArguments(new String[] {"--indexBulkSize", "200", "--indexBulkMaxSize", "5M"});
+        assertThat(cli.properties).includes(entry("indexBulkSize", "200"), entry("indexBulkMaxSize", "5M"),
+                entry("indexBulkConcurrency", "2"), entry("indexBulkFlushIntervalMilliseconds", "5000"));
+    }
+
     @Test
     public void test_embedded_document_download_max_size() {
         cli.parseArguments(new String[] {"--embeddedDocumentDownloadMaxSize", "123"});
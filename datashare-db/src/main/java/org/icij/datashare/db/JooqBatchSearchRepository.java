@@ -4,18 +4,21 @@ import org.icij.datashare.batch.*;
 import org.icij.datashare.batch.BatchSearchRecord.State;
 import org.icij.datashare.db.tables.records.BatchSearchProjectRecord;
 import org.icij.datashare.db.tables.records.BatchSearchQueryRecord;
-import org.icij.datashare.db.tables.records.BatchSearchResultRecord;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.ProjectProxy;
 import org.icij.datashare.user.User;
 import org.jooq.*;
 import org.jooq.Record;
 import org.jooq.impl.DSL;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
 
 import javax.sql.DataSource;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
@@ -23,6 +26,7 @@ import java.util.*;
 import java.util.stream.IntStream;
 
 import static java.lang.String.join;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static java.util.Arrays.stream;
 import static java.util.Collections.singletonList;
@@ -39,6 +43,9 @@ import static org.jooq.impl.DSL.*;
 
 public class JooqBatchSearchRepository implements BatchSearchRepository {
     private static final String LIST_SEPARATOR = ",";
+    private static final List<Field<?>> RESULT_FIELDS = List.of(BATCH_SEARCH_RESULT.SEARCH_UUID, BATCH_SEARCH_RESULT.QUERY, BATCH_SEARCH_RESULT.DOC_NB,
+            BATCH_SEARCH_RESULT.DOC_ID, BATCH_SEARCH_RESULT.ROOT_ID, BATCH_SEARCH_RESULT.DOC_PATH, BATCH_SEARCH_RESULT.CREATION_DATE,
+            BATCH_SEARCH_RESULT.CONTENT_TYPE, BATCH_SEARCH_RESULT.CONTENT_LENGTH, BATCH_SEARCH_RESULT.PRJ_ID);
     final DataSource dataSource;
     final SQLDialect dialect;
 
@@ -77,34 +84,86 @@ public class JooqBatchSearchRepository implements BatchSearchRepository {
         DSLContext context = DSL.using(dataSource, dialect);
             return context.transactionResult(configuration -> {
                 DSLContext inner = DSL.using(configuration);
-                    UpdateSetMoreStep<BatchSearchQueryRecord> updateBatchSearchQuery = inner.update(BATCH_SEARCH_QUERY).set(BATCH_SEARCH_QUERY.QUERY_RESULTS,
-                            BATCH_SEARCH_QUERY.QUERY_RESULTS.plus(documents.size()));
-                        updateBatchSearchQuery.
-                                where(BATCH_SEARCH_QUERY.SEARCH_UUID.eq(batchSearchId).
-                                        and(BATCH_SEARCH_QUERY.QUERY.eq(query))).execute();
-
-
-                    UpdateSetMoreStep<org.icij.datashare.db.tables.records.BatchSearchRecord> updateBatchSearch = inner.update(BATCH_SEARCH).set(BATCH_SEARCH.BATCH_RESULTS,
-                            BATCH_SEARCH.BATCH_RESULTS.plus(documents.size()));
-                        updateBatchSearch.
-                                where(BATCH_SEARCH.UUID.eq(batchSearchId)).execute();
-
-
-                    InsertValuesStep10<BatchSearchResultRecord, String, String, Integer, String, String, String, LocalDateTime, String, Long, String>
-                            insertQuery =
-                            inner.insertInto(BATCH_SEARCH_RESULT, BATCH_SEARCH_RESULT.SEARCH_UUID, BATCH_SEARCH_RESULT.QUERY, BATCH_SEARCH_RESULT.DOC_NB,
-                                    BATCH_SEARCH_RESULT.DOC_ID, BATCH_SEARCH_RESULT.ROOT_ID, BATCH_SEARCH_RESULT.DOC_PATH, BATCH_SEARCH_RESULT.CREATION_DATE,
-                                    BATCH_SEARCH_RESULT.CONTENT_TYPE, BATCH_SEARCH_RESULT.CONTENT_LENGTH, BATCH_SEARCH_RESULT.PRJ_ID);
-                    IntStream.range(0, documents.size()).forEach(i -> insertQuery.values(batchSearchId, query, i,
-                            documents.get(i).getId(), documents.get(i).getRootDocument(), documents.get(i).getPath().toString(),
-                            documents.get(i).getCreationDate() == null ? null :
-                                    new Timestamp(documents.get(i).getCreationDate().getTime()).toLocalDateTime(),
-                            documents.get(i).getContentType(), documents.get(i).getContentLength(), documents.get(i).getProject().getId()));
-                    return insertQuery.execute() > 0;
+                    updateResultsCount(inner, batchSearchId, query, documents.size());
+                    return insertResults(inner, batchSearchId, query, documents, 0) > 0;
                 });
 
     }
 
+    @Override
+    public boolean appendResults(String batchSearchId, String query, List<Document> documents, int firstDocNb) {
+        DSLContext context = DSL.using(dataSource, dialect);
+        return context.transactionResult(configuration ->
+                insertResults(DSL.using(configuration), batchSearchId, query, documents, firstDocNb) > 0);
+    }
+
+    @Override
+    public boolean addResultsCount(String batchSearchId, String query, int nbResults) {
+        DSLContext context = DSL.using(dataSource, dialect);
+        return context.transactionResult(configuration ->
+                updateResultsCount(DSL.using(configuration), batchSearchId, query, nbResults) > 0);
+    }
+
+    private int updateResultsCount(DSLContext inner, String batchSearchId, String query, int nbResults) {
+        inner.update(BATCH_SEARCH).set(BATCH_SEARCH.BATCH_RESULTS, BATCH_SEARCH.BATCH_RESULTS.plus(nbResults)).
+                where(BATCH_SEARCH.UUID.eq(batchSearchId)).execute();
+        return inner.update(BATCH_SEARCH_QUERY).set(BATCH_SEARCH_QUERY.QUERY_RESULTS, BATCH_SEARCH_QUERY.QUERY_RESULTS.plus(nbResults)).
+                where(BATCH_SEARCH_QUERY.SEARCH_UUID.eq(batchSearchId).and(BATCH_SEARCH_QUERY.QUERY.eq(query))).execute();
+    }
+
+    /**
+     * inserts the results without binding all their values in a single statement (that would be limited by the
+     * max number of bind variables): with COPY on postgresql and with a batch of the same prepared statement otherwise.
+     */
+    private int insertResults(DSLContext inner, String batchSearchId, String query, List<Document> documents, int firstDocNb) {
+        if (documents.isEmpty()) {
+            return 0;
+        }
+        if (dialect.family() == SQLDialect.POSTGRES) {
+            return inner.connectionResult(connection -> copyResults(connection, batchSearchId, query, documents, firstDocNb));
+        }
+        BatchBindStep batch = inner.batch(inner.insertInto(BATCH_SEARCH_RESULT, RESULT_FIELDS).values(new Object[RESULT_FIELDS.size()]));
+        IntStream.range(0, documents.size()).forEach(i -> batch.bind(resultValues(batchSearchId, query, firstDocNb + i, documents.get(i))));
+        batch.execute();
+        return documents.size();
+    }
+
+    private static int copyResults(Connection connection, String batchSearchId, String query, List<Document> documents, int firstDocNb) throws SQLException {
+        String copySql = "COPY " + BATCH_SEARCH_RESULT.getName() + " (" +
+                RESULT_FIELDS.stream().map(Field::getName).collect(joining(", ")) + ") FROM STDIN WITH (FORMAT csv)";
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql);
+        try {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < documents.size(); i++) {
+                line.setLength(0);
+                Object[] values = resultValues(batchSearchId, query, firstDocNb + i, documents.get(i));
+                for (int v = 0; v < values.length; v++) {
+                    if (v > 0) {
+                        line.append(',');
+                    }
+                    if (values[v] instanceof Number) {
+                        line.append(values[v]);
+                    } else if (values[v] != null) { // unquoted empty values are NULL
+                        line.append('"').append(values[v].toString().replace("\"", "\"\"")).append('"');
+                    }
+                }
+                byte[] bytes = line.append('\n').toString().getBytes(UTF_8);
+                copyIn.writeToCopy(bytes, 0, bytes.length);
+            }
+            return (int) copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static Object[] resultValues(String batchSearchId, String query, int docNb, Document document) {
+        return new Object[]{batchSearchId, query, docNb, document.getId(), document.getRootDocument(), document.getPath().toString(),
+                document.getCreationDate() == null ? null : new Timestamp(document.getCreationDate().getTime()).toLocalDateTime(),
+                document.getContentType(), document.getContentLength(), document.getProject().getId()};
+    }
+
     @Override
     public boolean setState(String batchSearchId, State state) {
         UpdateSetMoreStep<org.icij.datashare.db.tables.records.BatchSearchRecord> updateBatchSearch = DSL.using(dataSource, dialect).update(BATCH_SEARCH).
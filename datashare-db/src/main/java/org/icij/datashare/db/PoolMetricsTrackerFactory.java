@@ -0,0 +1,64 @@
+package org.icij.datashare.db;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.icij.datashare.monitoring.MetricRegistry;
+
+/**
+ * Records the HikariCP connection pool metrics (connections acquisition and usage, timeouts and pool state)
+ * in the {@link MetricRegistry}.
+ */
+class PoolMetricsTrackerFactory implements MetricsTrackerFactory {
+    private final MetricRegistry metrics;
+
+    PoolMetricsTrackerFactory(MetricRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        metrics.gauge("datashare_db_pool_connections", "Connections of the database pool", poolStats::getTotalConnections, "pool", poolName, "state", "total");
+        metrics.gauge("datashare_db_pool_connections", "Connections of the database pool", poolStats::getActiveConnections, "pool", poolName, "state", "active");
+        metrics.gauge("datashare_db_pool_connections", "Connections of the database pool", poolStats::getIdleConnections, "pool", poolName, "state", "idle");
+        metrics.gauge("datashare_db_pool_pending_threads", "Threads waiting for a connection of the database pool", poolStats::getPendingThreads, "pool", poolName);
+        return new Tracker(poolName);
+    }
+
+    private class Tracker implements IMetricsTracker {
+        private final String poolName;
+        private final MetricRegistry.Histogram acquireDuration;
+        private final MetricRegistry.Histogram usageDuration;
+        private final MetricRegistry.Counter timeouts;
+
+        Tracker(String poolName) {
+            this.poolName = poolName;
+            acquireDuration = metrics.histogram("datashare_db_pool_acquire_duration_seconds", "Duration of the connections acquisition from the database pool", "pool", poolName);
+            usageDuration = metrics.histogram("datashare_db_pool_usage_duration_seconds", "Duration of the database connections usage", "pool", poolName);
+            timeouts = metrics.counter("datashare_db_pool_timeouts_total", "Timeouts of the connections acquisition from the database pool", "pool", poolName);
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquireDuration.observeNanos(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usageDuration.observe(elapsedBorrowedMillis / 1000.0);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.inc();
+        }
+
+        @Override
+        public void close() {
+            metrics.remove("datashare_db_pool_connections", "pool", poolName, "state", "total");
+            metrics.remove("datashare_db_pool_connections", "pool", poolName, "state", "active");
+            metrics.remove("datashare_db_pool_connections", "pool", poolName, "state", "idle");
+            metrics.remove("datashare_db_pool_pending_threads", "pool", poolName);
+        }
+    }
+}
@@ -13,6 +13,7 @@ import liquibase.ui.LoggerUIService;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.Repository;
 import org.icij.datashare.RepositoryFactory;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.jooq.SQLDialect;
 
 import javax.sql.DataSource;
@@ -23,14 +24,16 @@ import java.util.function.BiFunction;
 
 public class RepositoryFactoryImpl implements RepositoryFactory {
     private final PropertiesProvider propertiesProvider;
+    private final MetricRegistry metrics;
     private final DataSource dataSource;
 
     RepositoryFactoryImpl() {
-        this(new PropertiesProvider());
+        this(new PropertiesProvider(), new MetricRegistry());
     }
 
-    public RepositoryFactoryImpl(final PropertiesProvider propertiesProvider) {
+    public RepositoryFactoryImpl(final PropertiesProvider propertiesProvider, final MetricRegistry metrics) {
         this.propertiesProvider = propertiesProvider;
+        this.metrics = metrics;
         System.getProperties().setProperty("org.jooq.no-logo", "true");
         System.getProperties().setProperty("org.jooq.no-tips", "true");
         System.getProperties().setProperty("org.jooq.log.org.jooq.impl.DefaultExecuteContext.logVersionSupport", "ERROR");
@@ -89,6 +92,7 @@ public class RepositoryFactoryImpl implements RepositoryFactory {
         if (dataSourceUrl.contains("sqlite")) {
             config.setDriverClassName("org.sqlite.JDBC");
         }
+        config.setMetricsTrackerFactory(new PoolMetricsTrackerFactory(metrics));
         return new HikariDataSource(config);
     }
 
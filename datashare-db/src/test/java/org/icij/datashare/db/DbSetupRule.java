@@ -6,6 +6,7 @@ import com.ninja_squad.dbsetup.operation.Operation;
 import com.ninja_squad.dbsetup.operation.SqlOperation;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.batch.BatchSearchRepository;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.junit.rules.ExternalResource;
 
 import javax.sql.DataSource;
@@ -55,6 +56,6 @@ public class DbSetupRule extends ExternalResource {
     private static DataSource createDatasource(final String jdbcUrl) {
         return new RepositoryFactoryImpl(new PropertiesProvider(new HashMap<>() {{
             put("dataSourceUrl", ofNullable(jdbcUrl).orElse("jdbc:sqlite:file:memorydb.db?mode=memory&cache=shared"));
-        }})).createDatasource();
+        }}), new MetricRegistry()).createDatasource();
     }
 }
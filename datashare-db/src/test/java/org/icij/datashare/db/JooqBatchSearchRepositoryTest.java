@@ -15,12 +15,14 @@ import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.stream.IntStream;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static org.fest.assertions.Assertions.assertThat;
 import static org.fest.assertions.MapAssert.entry;
 import static org.icij.datashare.CollectionUtils.asSet;
@@ -380,6 +382,36 @@ public class JooqBatchSearchRepositoryTest {
         assertThat(repository.get(User.local(), batchSearch.uuid).queries).includes(entry("my query", 4), entry("my other query", 0));
     }
 
+    @Test
+    public void test_append_results_then_add_results_count() {
+        BatchSearch batchSearch = new BatchSearch(singletonList(proxy("prj")), "name", "description", asSet("my query", "my other query"), User.local());
+        repository.save(batchSearch);
+        Document doc1 = createDoc("doc1").with(Paths.get("/path/to/\"quoted\", doc\n1")).with(Map.of("tika_metadata_dcterms_created", "2020-08-04T10:20:30Z")).build();
+        Document doc2 = createDoc("doc2").ofContentType("application/pdf").withContentLength(123).build();
+
+        assertThat(repository.appendResults(batchSearch.uuid, "my query", singletonList(doc1), 0)).isTrue();
+        assertThat(repository.appendResults(batchSearch.uuid, "my query", singletonList(doc2), 1)).isTrue();
+        assertThat(repository.get(User.local(), batchSearch.uuid).nbResults).isEqualTo(0);
+
+        assertThat(repository.addResultsCount(batchSearch.uuid, "my query", 2)).isTrue();
+        assertThat(repository.get(User.local(), batchSearch.uuid).nbResults).isEqualTo(2);
+        assertThat(repository.get(User.local(), batchSearch.uuid).queries).includes(entry("my query", 2), entry("my other query", 0));
+        assertThat(repository.getResults(User.local(), batchSearch.uuid)).containsExactly(
+                resultFrom(doc1, 1, "my query"), resultFrom(doc2, 2, "my query"));
+    }
+
+    @Test
+    public void test_save_results_more_than_sql_bind_variables_limit() {
+        BatchSearch batchSearch = new BatchSearch(singletonList(proxy("prj")), "name", "description", asSet("query"), User.local());
+        repository.save(batchSearch);
+
+        assertThat(repository.saveResults(batchSearch.uuid, "query",
+                IntStream.range(0, 10000).mapToObj(i -> createDoc("doc" + i).build()).collect(toList()))).isTrue();
+
+        assertThat(repository.get(User.local(), batchSearch.uuid).nbResults).isEqualTo(10000);
+        assertThat(repository.getResultsTotal(User.local(), batchSearch.uuid, WebQueryBuilder.createWebQuery().queryAll().build())).isEqualTo(10000);
+    }
+
     @Test
     public void test_results_by_query_are_isolated() {
         BatchSearch batchSearch1 = new BatchSearch(singletonList(proxy("prj")), "name1", "description1", asSet("my query", "my other query"), User.local());
@@ -1,13 +1,29 @@
 package org.icij.datashare.extract;
 
 import org.icij.extract.queue.DocumentQueue;
+import org.icij.extract.queue.DocumentSet;
 import org.icij.extract.report.ReportMap;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public interface DocumentCollectionFactory<T> {
     DocumentQueue<T> createQueue(String queueName, Class<T> clazz);
+    DocumentSet<T> createSet(String setName, Class<T> clazz);
     ReportMap createMap(String mapName);
     List<DocumentQueue<T>> getQueues(Class<T> clazz);
     List<DocumentQueue<T>> getQueues(String wildcardMatcher, Class<T> clazz);
+
+    /**
+     * adds to the queue the elements that are not in the set, and adds them to the set
+     * so that they are not added again by the following calls.
+     *
+     * @return the number of elements added to the queue
+     */
+    default int addAllIfAbsent(DocumentSet<T> set, DocumentQueue<T> queue, Collection<T> elements) {
+        List<T> absent = elements.stream().filter(set::add).collect(Collectors.toList());
+        queue.addAll(absent);
+        return absent.size();
+    }
 }
@@ -2,7 +2,9 @@ package org.icij.datashare.extract;
 
 import com.google.inject.Singleton;
 import org.icij.extract.queue.DocumentQueue;
+import org.icij.extract.queue.DocumentSet;
 import org.icij.extract.queue.MemoryDocumentQueue;
+import org.icij.extract.queue.MemoryDocumentSet;
 import org.icij.extract.report.HashMapReportMap;
 import org.icij.extract.report.ReportMap;
 
@@ -12,22 +14,32 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import static org.apache.commons.io.FilenameUtils.wildcardMatch;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_QUEUE_CAPACITY;
 
 @Singleton
 public class MemoryDocumentCollectionFactory<T> implements DocumentCollectionFactory<T> {
     public final Map<String, DocumentQueue<T>> queues = new ConcurrentHashMap<>();
+    final Map<String, DocumentSet<T>> sets = new ConcurrentHashMap<>();
     final Map<String, ReportMap> maps = new ConcurrentHashMap<>();
     // The size of the internal file path buffer used by the queue
-    final int QUEUE_CAPACITY = (int) 1e6;
+    final int queueCapacity;
+
+    public MemoryDocumentCollectionFactory() {
+        this(DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public MemoryDocumentCollectionFactory(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
 
     @Override
     public DocumentQueue<T> createQueue(String queueName, Class<T> clazz) {
-        if (!queues.containsKey(queueName)) {
-            synchronized (queues) {
-                queues.put(queueName, new MemoryDocumentQueue<>(queueName, QUEUE_CAPACITY));
-            }
-        }
-        return queues.get(queueName);
+        return queues.computeIfAbsent(queueName, name -> new MemoryDocumentQueue<>(name, queueCapacity));
+    }
+
+    @Override
+    public DocumentSet<T> createSet(String setName, Class<T> clazz) {
+        return sets.computeIfAbsent(setName, name -> new MemoryDocumentSet<>(name));
     }
 
     @Override
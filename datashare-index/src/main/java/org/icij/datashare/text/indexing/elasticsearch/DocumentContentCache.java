@@ -0,0 +1,277 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import org.icij.datashare.HumanReadableSize;
+import org.icij.datashare.PropertiesProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import static java.nio.charset.StandardCharsets.UTF_16BE;
+import static org.icij.datashare.cli.DatashareCliOptions.CONTENT_CACHE_DIR_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.CONTENT_CACHE_DISK_SIZE_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.CONTENT_CACHE_SIZE_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_CONTENT_CACHE_DISK_SIZE;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_CONTENT_CACHE_SIZE;
+import static org.icij.datashare.cli.DatashareCliOptions.MAX_CONTENT_LENGTH_OPT;
+
+/**
+ * Size bounded LRU cache of documents contents (or translated contents) used to paginate
+ * extracted texts and to search occurrences without loading the document source for each request.
+ * <p>
+ * Contents are kept in memory up to <code>maxMemoryBytes</code>. When a spill directory is given, the contents
+ * evicted from memory are written there (UTF-16 so that a page is read with a single seek) up to
+ * <code>maxDiskBytes</code>, otherwise they are dropped. Spill files are written and deleted outside of the cache lock,
+ * the contents being written stay readable from memory meanwhile. Contents longer than <code>maxContentLength</code>
+ * characters are not cached.
+ * <p>
+ * Each entry keeps the elasticsearch sequence number and primary term of the document, so that callers
+ * can check that the document hasn't been reindexed since.
+ */
+public class DocumentContentCache {
+    private static final Logger logger = LoggerFactory.getLogger(DocumentContentCache.class);
+
+    private final long maxMemoryBytes;
+    private final long maxDiskBytes;
+    private final long maxContentLength;
+    private final Path spillDir;
+    private final LinkedHashMap<Key, Content> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Key, Content> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Key, Content> spilling = new HashMap<>();
+    private long memoryBytes = 0;
+    private long diskBytes = 0;
+
+    public DocumentContentCache(long maxMemoryBytes, Path spillDir, long maxDiskBytes, long maxContentLength) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.spillDir = spillDir;
+        this.maxDiskBytes = spillDir == null ? 0 : maxDiskBytes;
+        this.maxContentLength = maxContentLength;
+    }
+
+    public static DocumentContentCache create(PropertiesProvider propertiesProvider) {
+        return new DocumentContentCache(
+                HumanReadableSize.parse(propertiesProvider.get(CONTENT_CACHE_SIZE_OPT).orElse(DEFAULT_CONTENT_CACHE_SIZE)),
+                propertiesProvider.get(CONTENT_CACHE_DIR_OPT).filter(Predicate.not(String::isBlank)).map(Paths::get).orElse(null),
+                HumanReadableSize.parse(propertiesProvider.get(CONTENT_CACHE_DISK_SIZE_OPT).orElse(DEFAULT_CONTENT_CACHE_DISK_SIZE)),
+                HumanReadableSize.parse(propertiesProvider.get(MAX_CONTENT_LENGTH_OPT).orElse("-1")));
+    }
+
+    public boolean isEnabled() {
+        return maxMemoryBytes > 0 || maxDiskBytes > 0;
+    }
+
+    synchronized Optional<Content> get(Key key) {
+        Content content = memory.get(key);
+        if (content == null) {
+            content = spilling.get(key);
+        }
+        return Optional.ofNullable(content == null ? disk.get(key) : content);
+    }
+
+    /**
+     * caches the content if it fits.
+     * @return the content wrapper, that can be used even if the content has not been cached
+     */
+    Content put(Key key, String text, long seqNo, long primaryTerm) {
+        Content content = new Content(text, seqNo, primaryTerm);
+        if (maxContentLength >= 0 && text.length() > maxContentLength) {
+            return content;
+        }
+        List<Content> evicted = new ArrayList<>();
+        List<Map.Entry<Key, Content>> toSpill = new ArrayList<>();
+        synchronized (this) {
+            removeEntry(key, evicted);
+            if (content.bytes() <= maxMemoryBytes) {
+                memory.put(key, content);
+                memoryBytes += content.bytes();
+                Iterator<Map.Entry<Key, Content>> lru = memory.entrySet().iterator();
+                while (memoryBytes > maxMemoryBytes && lru.hasNext()) {
+                    Map.Entry<Key, Content> eldest = lru.next();
+                    lru.remove();
+                    memoryBytes -= eldest.getValue().bytes();
+                    startSpill(eldest.getKey(), eldest.getValue(), toSpill);
+                }
+            } else {
+                startSpill(key, content, toSpill);
+            }
+        }
+        evicted.forEach(Content::delete);
+        toSpill.forEach(entry -> spill(entry.getKey(), entry.getValue()));
+        return content;
+    }
+
+    public void invalidate(String indexName, String id) {
+        removeIf(key -> key.indexName.equals(indexName) && key.id.equals(id));
+    }
+
+    public void invalidateAll(String indexName) {
+        removeIf(key -> key.indexName.equals(indexName));
+    }
+
+    public void clear() {
+        removeIf(key -> true);
+    }
+
+    synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    synchronized long getDiskBytes() {
+        return diskBytes;
+    }
+
+    private void removeIf(Predicate<Key> predicate) {
+        List<Content> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (memory.isEmpty() && disk.isEmpty() && spilling.isEmpty()) {
+                return;
+            }
+            new ArrayList<>(memory.keySet()).stream().filter(predicate).forEach(key -> removeEntry(key, evicted));
+            new ArrayList<>(spilling.keySet()).stream().filter(predicate).forEach(key -> removeEntry(key, evicted));
+            new ArrayList<>(disk.keySet()).stream().filter(predicate).forEach(key -> removeEntry(key, evicted));
+        }
+        evicted.forEach(Content::delete);
+    }
+
+    private void removeEntry(Key key, List<Content> evicted) {
+        Content inMemory = memory.remove(key);
+        if (inMemory != null) {
+            memoryBytes -= inMemory.bytes();
+        }
+        spilling.remove(key);
+        Content onDisk = disk.remove(key);
+        if (onDisk != null) {
+            diskBytes -= onDisk.bytes();
+            evicted.add(onDisk);
+        }
+    }
+
+    private void startSpill(Key key, Content content, List<Map.Entry<Key, Content>> toSpill) {
+        if (content.bytes() <= maxDiskBytes) {
+            spilling.put(key, content);
+            toSpill.add(Map.entry(key, content));
+        }
+    }
+
+    /**
+     * writes the spill file without holding the lock. The file is dropped if the entry
+     * has been replaced or invalidated meanwhile.
+     */
+    private void spill(Key key, Content content) {
+        Content spilled;
+        try {
+            spilled = content.spill(spillDir);
+        } catch (IOException e) {
+            logger.warn("cannot spill content of {} to {}", key, spillDir, e);
+            synchronized (this) {
+                spilling.remove(key, content);
+            }
+            return;
+        }
+        List<Content> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (spilling.remove(key, content)) {
+                disk.put(key, spilled);
+                diskBytes += spilled.bytes();
+                Iterator<Map.Entry<Key, Content>> lru = disk.entrySet().iterator();
+                while (diskBytes > maxDiskBytes && lru.hasNext()) {
+                    Content eldest = lru.next().getValue();
+                    lru.remove();
+                    diskBytes -= eldest.bytes();
+                    evicted.add(eldest);
+                }
+            } else {
+                evicted.add(spilled);
+            }
+        }
+        evicted.forEach(Content::delete);
+    }
+
+    record Key(String indexName, String id, String routing, String targetLanguage) {}
+
+    /**
+     * Content of a document, in memory or in a spill file.
+     * Reading a spilled content can fail with an IOException if it has been evicted meanwhile.
+     */
+    static class Content {
+        final long seqNo;
+        final long primaryTerm;
+        private final int length;
+        private final String text;
+        private final Path file;
+
+        Content(String text, long seqNo, long primaryTerm) {
+            this(text, null, text.length(), seqNo, primaryTerm);
+        }
+
+        private Content(String text, Path file, int length, long seqNo, long primaryTerm) {
+            this.text = text;
+            this.file = file;
+            this.length = length;
+            this.seqNo = seqNo;
+            this.primaryTerm = primaryTerm;
+        }
+
+        int length() {
+            return length;
+        }
+
+        String text() throws IOException {
+            return text != null ? text : new String(Files.readAllBytes(file), UTF_16BE);
+        }
+
+        /**
+         * same contract as {@link String#substring(int, int)}
+         */
+        String slice(int begin, int end) throws IOException {
+            if (begin < 0 || end > length || begin > end) {
+                throw new StringIndexOutOfBoundsException("begin " + begin + ", end " + end + ", length " + length);
+            }
+            if (text != null) {
+                return text.substring(begin, end);
+            }
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "r")) {
+                byte[] bytes = new byte[(end - begin) * 2];
+                randomAccessFile.seek(begin * 2L);
+                randomAccessFile.readFully(bytes);
+                return new String(bytes, UTF_16BE);
+            }
+        }
+
+        long bytes() {
+            return length * 2L;
+        }
+
+        Content spill(Path dir) throws IOException {
+            if (file != null) {
+                return this;
+            }
+            Files.createDirectories(dir);
+            Path spillFile = Files.createTempFile(dir, "content-", ".utf16");
+            Files.write(spillFile, text.getBytes(UTF_16BE));
+            return new Content(null, spillFile, length, seqNo, primaryTerm);
+        }
+
+        void delete() {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    logger.warn("cannot delete spilled content {}", file, e);
+                }
+            }
+        }
+    }
+}
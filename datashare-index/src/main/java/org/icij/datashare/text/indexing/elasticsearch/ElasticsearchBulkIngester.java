@@ -0,0 +1,330 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import org.icij.datashare.Entity;
+import org.icij.datashare.text.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Buffers entities and sends them to elasticsearch with _bulk requests.
+ * <p>
+ * The buffer is flushed when it holds <code>maxDocs</code> entities, when its estimated size reaches
+ * <code>maxBytes</code>, or every <code>flushIntervalMs</code>. At most <code>maxConcurrentRequests</code>
+ * bulk requests are in flight: when they are all busy the threads adding entities are blocked until one
+ * of them is done. Only the failed items of a bulk response are sent again (if elasticsearch rejected them
+ * because it was overloaded).
+ * <p>
+ * Root documents duplicate lookups done concurrently are grouped into a single multi get request.
+ * <p>
+ * Each entity has a callback called when it has been indexed, and a callback called with the cause
+ * when it could not be indexed (after the retries, or because the ingester was closed).
+ */
+public class ElasticsearchBulkIngester implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ElasticsearchBulkIngester.class);
+    static final int MAX_RETRIES = 3;
+    static final long RETRY_BACKOFF_MS = 200;
+    static final int ENTITY_SIZE_OVERHEAD = 1024;
+
+    private final ElasticsearchIndexer indexer;
+    private final int maxDocs;
+    private final long maxBytes;
+    private final int maxConcurrentRequests;
+    private final Semaphore inFlightRequests;
+    private final ExecutorService bulkExecutor;
+    private final ScheduledExecutorService flushScheduler;
+    private final Set<String> pendingRoots = ConcurrentHashMap.newKeySet();
+    private final Map<String, Map<String, CompletableFuture<Boolean>>> pendingLookups = new HashMap<>();
+    private final AtomicLong failures = new AtomicLong();
+    private boolean lookupRunning = false;
+    private List<BulkItem> buffer = new ArrayList<>();
+    private long bufferBytes = 0;
+
+    public ElasticsearchBulkIngester(ElasticsearchIndexer indexer, int maxDocs, long maxBytes, long flushIntervalMs, int maxConcurrentRequests) {
+        this.indexer = indexer;
+        this.maxDocs = maxDocs;
+        this.maxBytes = maxBytes;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.inFlightRequests = new Semaphore(maxConcurrentRequests);
+        this.bulkExecutor = Executors.newFixedThreadPool(maxConcurrentRequests, ElasticsearchBulkIngester::daemonThread);
+        this.flushScheduler = Executors.newSingleThreadScheduledExecutor(ElasticsearchBulkIngester::daemonThread);
+        if (flushIntervalMs > 0) {
+            flushScheduler.scheduleWithFixedDelay(this::sendBuffer, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        logger.info("bulk ingester defined with maxDocs={} maxBytes={} flushInterval={}ms maxConcurrentRequests={}",
+                maxDocs, maxBytes, flushIntervalMs, maxConcurrentRequests);
+    }
+
+    public <T extends Entity> void add(String indexName, T entity) {
+        add(indexName, entity, () -> {}, cause -> {});
+    }
+
+    /**
+     * adds an entity to the buffer. onIndexed is called when the entity has been indexed,
+     * onFailed is called with the cause if it could not be indexed.
+     * This call blocks if the buffer is full and all the bulk requests are in flight.
+     */
+    public <T extends Entity> void add(String indexName, T entity, Runnable onIndexed, Consumer<Exception> onFailed) {
+        BulkItem item = new BulkItem(indexName, entity, indexer.indexOperation(indexName, entity), onIndexed, onFailed);
+        if (item.isRoot) {
+            pendingRoots.add(item.key);
+        }
+        List<BulkItem> toSend = null;
+        synchronized (this) {
+            buffer.add(item);
+            bufferBytes += item.estimatedSize;
+            if (buffer.size() >= maxDocs || bufferBytes >= maxBytes) {
+                toSend = swapBuffer();
+            }
+        }
+        if (toSend != null) {
+            send(toSend);
+        }
+    }
+
+    /**
+     * @return true if the root document is already indexed or waiting to be indexed.
+     */
+    public boolean isDuplicate(String indexName, String rootId) throws IOException {
+        if (pendingRoots.contains(key(indexName, rootId))) {
+            return true;
+        }
+        CompletableFuture<Boolean> exists;
+        boolean leader;
+        synchronized (pendingLookups) {
+            exists = pendingLookups.computeIfAbsent(indexName, k -> new HashMap<>()).computeIfAbsent(rootId, k -> new CompletableFuture<>());
+            leader = !lookupRunning;
+            lookupRunning = true;
+        }
+        if (leader) {
+            runLookups();
+        }
+        try {
+            return exists.get() || pendingRoots.contains(key(indexName, rootId));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while looking up " + rootId);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * sends the buffered entities and waits for all the bulk requests in flight.
+     */
+    public void flush() throws IOException {
+        sendBuffer();
+        try {
+            inFlightRequests.acquire(maxConcurrentRequests);
+            inFlightRequests.release(maxConcurrentRequests);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for bulk requests");
+        }
+        if (failures.get() > 0) {
+            logger.warn("{} entities could not be indexed", failures.get());
+        }
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flushScheduler.shutdown();
+        flush();
+        bulkExecutor.shutdown();
+    }
+
+    private void runLookups() {
+        while (true) {
+            Map<String, Map<String, CompletableFuture<Boolean>>> lookups;
+            synchronized (pendingLookups) {
+                if (pendingLookups.isEmpty()) {
+                    lookupRunning = false;
+                    return;
+                }
+                lookups = new HashMap<>(pendingLookups);
+                pendingLookups.clear();
+            }
+            lookups.forEach((indexName, futures) -> {
+                try {
+                    Set<String> existing = indexer.existing(indexName, futures.keySet());
+                    logger.debug("looked up {} root document(s) in {} ({} found)", futures.size(), indexName, existing.size());
+                    futures.forEach((id, future) -> future.complete(existing.contains(id)));
+                } catch (IOException | RuntimeException e) {
+                    futures.values().forEach(future -> future.completeExceptionally(e));
+                }
+            });
+        }
+    }
+
+    private void sendBuffer() {
+        List<BulkItem> toSend;
+        synchronized (this) {
+            toSend = swapBuffer();
+        }
+        if (!toSend.isEmpty()) {
+            send(toSend);
+        }
+    }
+
+    private List<BulkItem> swapBuffer() {
+        List<BulkItem> items = buffer;
+        buffer = new ArrayList<>();
+        bufferBytes = 0;
+        return items;
+    }
+
+    private void send(List<BulkItem> items) {
+        try {
+            inFlightRequests.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("interrupted before sending {} entities", items.size());
+            InterruptedIOException cause = new InterruptedIOException("interrupted before sending bulk request");
+            items.forEach(item -> failed(item, cause));
+            return;
+        }
+        try {
+            bulkExecutor.execute(() -> {
+                try {
+                    execute(items);
+                } finally {
+                    inFlightRequests.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlightRequests.release();
+            logger.error("cannot send {} entities (ingester closed)", items.size());
+            IOException cause = new IOException("bulk ingester is closed", e);
+            items.forEach(item -> failed(item, cause));
+        }
+    }
+
+    private void execute(List<BulkItem> items) {
+        List<BulkItem> toSend = items;
+        for (int attempt = 0; !toSend.isEmpty(); attempt++) {
+            List<BulkItem> toRetry = new ArrayList<>();
+            try {
+                List<BulkOperation> operations = toSend.stream().map(i -> i.operation).collect(toList());
+                BulkResponse response = indexer.bulk(BulkRequest.of(b -> b.operations(operations).refresh(indexer.getRefreshPolicy())));
+                List<BulkResponseItem> responseItems = response.items();
+                for (int i = 0; i < responseItems.size(); i++) {
+                    BulkResponseItem responseItem = responseItems.get(i);
+                    BulkItem item = toSend.get(i);
+                    if (responseItem.error() == null) {
+                        succeeded(item);
+                    } else if (isRetriable(responseItem.status()) && attempt < MAX_RETRIES) {
+                        toRetry.add(item);
+                    } else {
+                        logger.error("bulk indexing of {} failed : {}", item.id, responseItem.error().reason());
+                        failed(item, new IOException(format("bulk indexing of %s failed : %s", item.id, responseItem.error().reason())));
+                    }
+                }
+            } catch (IOException | ElasticsearchException e) {
+                if (attempt < MAX_RETRIES) {
+                    logger.warn("bulk request of {} entities failed (attempt {}/{})", toSend.size(), attempt + 1, MAX_RETRIES + 1, e);
+                    toRetry = toSend;
+                } else {
+                    logger.error("bulk request of {} entities failed", toSend.size(), e);
+                    toSend.forEach(item -> failed(item, e));
+                }
+            }
+            if (!toRetry.isEmpty()) {
+                logger.info("retrying {} entities", toRetry.size());
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MS << attempt);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    InterruptedIOException cause = new InterruptedIOException("interrupted while retrying bulk request");
+                    toRetry.forEach(item -> failed(item, cause));
+                    return;
+                }
+            }
+            toSend = toRetry;
+        }
+    }
+
+    private void succeeded(BulkItem item) {
+        pendingRoots.remove(item.key);
+        try {
+            item.onIndexed.run();
+        } catch (RuntimeException e) {
+            logger.error("error after indexing {}", item.id, e);
+        }
+    }
+
+    private void failed(BulkItem item, Exception cause) {
+        pendingRoots.remove(item.key);
+        failures.incrementAndGet();
+        try {
+            item.onFailed.accept(cause);
+        } catch (RuntimeException e) {
+            logger.error("error after failing to index {}", item.id, e);
+        }
+    }
+
+    private static boolean isRetriable(int status) {
+        return status == 429 || status == 503;
+    }
+
+    private static Thread daemonThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "bulk-ingester");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static String key(String indexName, String id) {
+        return indexName + "/" + id;
+    }
+
+    private static class BulkItem {
+        final String id;
+        final String key;
+        final boolean isRoot;
+        final BulkOperation operation;
+        final Runnable onIndexed;
+        final Consumer<Exception> onFailed;
+        final long estimatedSize;
+
+        <T extends Entity> BulkItem(String indexName, T entity, BulkOperation operation, Runnable onIndexed, Consumer<Exception> onFailed) {
+            this.id = entity.getId();
+            this.key = key(indexName, entity.getId());
+            this.isRoot = entity instanceof Document && ((Document) entity).isRootDocument();
+            this.operation = operation;
+            this.onIndexed = onIndexed;
+            this.onFailed = onFailed;
+            this.estimatedSize = entity instanceof Document && ((Document) entity).getContent() != null ?
+                    ((Document) entity).getContentTextLength() + ENTITY_SIZE_OVERHEAD : ENTITY_SIZE_OVERHEAD;
+        }
+    }
+}
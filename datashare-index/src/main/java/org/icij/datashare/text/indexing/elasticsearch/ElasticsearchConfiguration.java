@@ -33,6 +33,10 @@ import static java.lang.String.format;
 import static java.util.Collections.singletonList;
 import static org.apache.commons.lang3.SystemUtils.IS_OS_WINDOWS;
 import static org.apache.http.HttpHost.create;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_ELASTICSEARCH_PROXY_TIMEOUT;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_SCROLL_POINT_IN_TIME;
+import static org.icij.datashare.cli.DatashareCliOptions.ELASTICSEARCH_PROXY_TIMEOUT_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.SCROLL_POINT_IN_TIME_OPT;
 
 public class ElasticsearchConfiguration {
     static final String MAPPING_RESOURCE_NAME = "datashare_index_mappings.json";
@@ -64,6 +68,8 @@ public class ElasticsearchConfiguration {
 
     final String indexJoinField;
     final String docTypeField;
+    final boolean pointInTime;
+    final int proxyTimeout;
     Refresh refreshPolicy = Refresh.False;
 
     final int shards = 1;
@@ -72,6 +78,8 @@ public class ElasticsearchConfiguration {
     ElasticsearchConfiguration(PropertiesProvider propertiesProvider) {
         indexJoinField = propertiesProvider.get(INDEX_JOIN_FIELD_NAME_PROP).orElse(DEFAULT_INDEX_JOIN_FIELD);
         docTypeField = propertiesProvider.get(INDEX_TYPE_FIELD_NAME_PROP).orElse(DEFAULT_DOC_TYPE_FIELD);
+        pointInTime = propertiesProvider.get(SCROLL_POINT_IN_TIME_OPT).map(Boolean::parseBoolean).orElse(DEFAULT_SCROLL_POINT_IN_TIME);
+        proxyTimeout = propertiesProvider.get(ELASTICSEARCH_PROXY_TIMEOUT_OPT).map(Integer::parseInt).orElse(DEFAULT_ELASTICSEARCH_PROXY_TIMEOUT);
     }
 
     public static ElasticsearchClient createESClient(final PropertiesProvider propertiesProvider) {
@@ -151,6 +159,8 @@ public class ElasticsearchConfiguration {
         return "cfg{" +
                 "indexJoinField='" + indexJoinField + '\'' +
                 ", docTypeField='" + docTypeField + '\'' +
+                ", pointInTime=" + pointInTime +
+                ", proxyTimeout=" + proxyTimeout +
                 ", shards=" + shards +
                 ", replicas=" + replicas +
                 '}';
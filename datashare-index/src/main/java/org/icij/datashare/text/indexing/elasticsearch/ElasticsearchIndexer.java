@@ -14,6 +14,8 @@ import co.elastic.clients.elasticsearch.core.ExistsRequest;
 import co.elastic.clients.elasticsearch.core.GetRequest;
 import co.elastic.clients.elasticsearch.core.GetResponse;
 import co.elastic.clients.elasticsearch.core.IndexRequest;
+import co.elastic.clients.elasticsearch.core.MgetRequest;
+import co.elastic.clients.elasticsearch.core.MgetResponse;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.UpdateByQueryRequest;
@@ -21,10 +23,14 @@ import co.elastic.clients.elasticsearch.core.UpdateByQueryResponse;
 import co.elastic.clients.elasticsearch.core.UpdateRequest;
 import co.elastic.clients.elasticsearch.core.UpdateResponse;
 import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperationBase;
 import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
 import co.elastic.clients.elasticsearch.core.bulk.IndexOperation;
 import co.elastic.clients.elasticsearch.core.bulk.UpdateAction;
 import co.elastic.clients.elasticsearch.core.bulk.UpdateOperation;
+import co.elastic.clients.elasticsearch.core.get.GetResult;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetOperation;
+import co.elastic.clients.elasticsearch.core.mget.MultiGetResponseItem;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.elasticsearch.core.search.SourceConfigParam;
 import co.elastic.clients.json.JsonData;
@@ -34,10 +40,13 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.inject.Inject;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.nio.entity.NStringEntity;
 import org.apache.http.util.EntityUtils;
 import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.Response;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.rest.RestStatus;
@@ -52,30 +61,40 @@ import org.icij.datashare.text.indexing.ExtractedText;
 import org.icij.datashare.text.indexing.Indexer;
 import org.icij.datashare.text.indexing.SearchQuery;
 import org.icij.datashare.text.indexing.SearchedText;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.text.nlp.Pipeline;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
+import java.util.stream.StreamSupport;
 
 import static co.elastic.clients.elasticsearch.core.UpdateRequest.Builder;
 import static java.lang.String.format;
 import static java.util.Arrays.stream;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.icij.datashare.json.JsonObjectMapper.MAPPER;
 import static org.icij.datashare.json.JsonObjectMapper.getJson;
 import static org.icij.datashare.json.JsonObjectMapper.getParent;
 import static org.icij.datashare.json.JsonObjectMapper.getRoot;
 import static org.icij.datashare.json.JsonObjectMapper.getType;
 import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchConfiguration.DEFAULT_SEARCH_SIZE;
+import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchConfiguration.ES_CONTENT_FIELD;
 import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchSearcher.searchHitStream;
 import static org.icij.datashare.utils.JsonUtils.mapObjectTomapJsonData;
 
@@ -83,17 +102,29 @@ import static org.icij.datashare.utils.JsonUtils.mapObjectTomapJsonData;
 public class ElasticsearchIndexer implements Indexer {
     public final ElasticsearchClient client;
     private final ElasticsearchConfiguration esCfg;
+    private final DocumentContentCache contentCache;
+    private final RequestOptions proxyOptions;
+    private final MetricRegistry.Histogram bulkDuration;
+    private final MetricRegistry.Counter bulkOperations;
+    private final MetricRegistry.Counter bulkErrors;
 
     static private final Map<String, String> memoizeScript = new HashMap<>();
+    static private final Map<String, Optional<Class<? extends Entity>>> entityClasses = new ConcurrentHashMap<>();
+    static private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
 
     public static Map<String, String> getMemoizeScript() {
         return memoizeScript;
     }
 
     @Inject
-    public ElasticsearchIndexer(final ElasticsearchClient esClient, final PropertiesProvider propertiesProvider) {
+    public ElasticsearchIndexer(final ElasticsearchClient esClient, final PropertiesProvider propertiesProvider, final MetricRegistry metrics) {
         this.client = esClient;
+        bulkDuration = metrics.histogram("datashare_index_bulk_duration_seconds", "Duration of the elasticsearch bulk requests");
+        bulkOperations = metrics.counter("datashare_index_bulk_operations_total", "Operations sent in elasticsearch bulk requests");
+        bulkErrors = metrics.counter("datashare_index_bulk_errors_total", "Operations of elasticsearch bulk requests that failed");
         esCfg = new ElasticsearchConfiguration(propertiesProvider);
+        contentCache = DocumentContentCache.create(propertiesProvider);
+        proxyOptions = proxyOptions(esCfg.proxyTimeout);
         LOGGER.info("indexer defined with {}", esCfg);
     }
 
@@ -106,33 +137,44 @@ public class ElasticsearchIndexer implements Indexer {
 
     @Override
     public boolean bulkAdd(final String indexName, Pipeline.Type nerType, List<NamedEntity> namedEntities, Document parent) throws IOException {
-        BulkRequest.Builder bulkRequest = new BulkRequest.Builder();
+        return bulkAdd(indexName, nerType, Map.of(parent, namedEntities));
+    }
 
-        String routing = ofNullable(parent.getRootDocument()).orElse(parent.getId());
+    @Override
+    public boolean bulkAdd(final String indexName, Pipeline.Type nerType, Map<Document, List<NamedEntity>> namedEntitiesByParent) throws IOException {
+        if (namedEntitiesByParent.isEmpty()) {
+            return true;
+        }
+        BulkRequest.Builder bulkRequest = new BulkRequest.Builder();
         HashMap<String, Object> status = new HashMap<>() {{
             put("status", Document.Status.DONE);
         }};
-        bulkRequest.operations(
-            BulkOperation.of(op -> op.update(up -> up.index(indexName)
-                    .id(parent.getId())
-                    .routing(routing)
-                    .action(a -> a.doc(status)))),
-            BulkOperation.of(op -> op.update(up -> up.index(indexName)
-                    .id(parent.getId())
-                    .routing(routing)
-                    .action(a -> a.script(scr -> scr.inline(iscr -> iscr.lang("painless")
-                            .source("if (!ctx._source.nerTags.contains(params.nerTag)) ctx._source.nerTags.add(params.nerTag);")
-                            .params("nerTag", JsonData.of(nerType.toString())))))))
-        );
-
-        for (Entity child : namedEntities) {
-            bulkRequest.operations(op -> op.index(createIndexRequest(indexName, JsonObjectMapper.getType(child), child.getId(),
-                    getJson(child), parent.getId(), routing)));
+
+        for (Map.Entry<Document, List<NamedEntity>> parentEntities : namedEntitiesByParent.entrySet()) {
+            Document parent = parentEntities.getKey();
+            String routing = ofNullable(parent.getRootDocument()).orElse(parent.getId());
+            bulkRequest.operations(
+                BulkOperation.of(op -> op.update(up -> up.index(indexName)
+                        .id(parent.getId())
+                        .routing(routing)
+                        .action(a -> a.doc(status)))),
+                BulkOperation.of(op -> op.update(up -> up.index(indexName)
+                        .id(parent.getId())
+                        .routing(routing)
+                        .action(a -> a.script(scr -> scr.inline(iscr -> iscr.lang("painless")
+                                .source("if (!ctx._source.nerTags.contains(params.nerTag)) ctx._source.nerTags.add(params.nerTag);")
+                                .params("nerTag", JsonData.of(nerType.toString())))))))
+            );
+
+            for (Entity child : parentEntities.getValue()) {
+                bulkRequest.operations(op -> op.index(createIndexRequest(indexName, JsonObjectMapper.getType(child), child.getId(),
+                        getJson(child), parent.getId(), routing)));
+            }
         }
 
         bulkRequest.refresh(esCfg.refreshPolicy);
 
-        BulkResponse bulkResponse = client.bulk(bulkRequest.build());
+        BulkResponse bulkResponse = bulk(bulkRequest.build());
         if (bulkResponse.errors()) {
             for (BulkResponseItem resp : bulkResponse.items()) {
                 if (resp.error() != null) {
@@ -148,15 +190,44 @@ public class ElasticsearchIndexer implements Indexer {
     public <T extends Entity> boolean bulkAdd(final String indexName, List<T> objs) throws IOException {
         BulkRequest.Builder bulkRequest = new BulkRequest.Builder();
         for (T obj : objs) {
-            bulkRequest.operations(op -> op.index(createIndexRequest(indexName, getType(obj), obj.getId(), getJson(obj), getParent(obj), getRoot(obj))));
+            bulkRequest.operations(indexOperation(indexName, obj));
         }
         return executeBulk(bulkRequest);
     }
 
+    <T extends Entity> BulkOperation indexOperation(final String indexName, T obj) {
+        contentCache.invalidate(indexName, obj.getId());
+        return BulkOperation.of(op -> op.index(createIndexRequest(indexName, getType(obj), obj.getId(), getJson(obj), getParent(obj), getRoot(obj))));
+    }
+
+    /**
+     * Returns the ids among the given ones that are already in the index, with a single multi get request.
+     * The ids are supposed to be root documents ids (i.e. routed with their own id).
+     */
+    public Set<String> existing(String indexName, Collection<String> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        MgetResponse<ObjectNode> response = client.mget(MgetRequest.of(m -> m.index(indexName)
+                .ids(new ArrayList<>(ids))
+                .source(SourceConfigParam.of(scp -> scp.fetch(false)))), ObjectNode.class);
+        return response.docs().stream()
+                .filter(MultiGetResponseItem::isResult)
+                .map(MultiGetResponseItem::result)
+                .filter(GetResult::found)
+                .map(GetResult::id)
+                .collect(toSet());
+    }
+
+    Refresh getRefreshPolicy() {
+        return esCfg.refreshPolicy;
+    }
+
     @Override
     public <T extends Entity> boolean bulkUpdate(String indexName, List<T> entities) throws IOException {
         BulkRequest.Builder bulkRequest = new BulkRequest.Builder();
         for (T e : entities) {
+            contentCache.invalidate(indexName, e.getId());
             bulkRequest.operations(op -> op.update(createUpdateRequest(indexName, getType(e), e.getId(), getJson(e), getParent(e), getRoot(e))));
         }
         return executeBulk(bulkRequest);
@@ -178,7 +249,9 @@ public class ElasticsearchIndexer implements Indexer {
         if (parent != null) {
             req.routing(root);
         }
+        contentCache.invalidate(indexName, id);
         client.index(req.build());
+        incrementGeneration(indexName);
     }
 
     @Override
@@ -197,7 +270,9 @@ public class ElasticsearchIndexer implements Indexer {
         if (parent != null) {
             req.routing(root);
         }
+        contentCache.invalidate(indexName, id);
         client.update(req.build(), Object.class);
+        incrementGeneration(indexName);
     }
 
     @Override
@@ -223,6 +298,34 @@ public class ElasticsearchIndexer implements Indexer {
         return entity != null ? EntityUtils.toString(entity) : null;
     }
 
+    @Override
+    public InputStream executeRaw(String method, String url, InputStream body, String contentEncoding) throws IOException {
+        Request request = new Request(method, url.startsWith("/") ? url : "/" + url);
+        if (body != null) {
+            InputStreamEntity entity = new InputStreamEntity(body, ContentType.APPLICATION_JSON);
+            entity.setContentEncoding(contentEncoding);
+            request.setEntity(entity);
+        }
+        request.setOptions(proxyOptions);
+        RestClient restClient = ((RestClientTransport) client._transport()).restClient();
+        HttpEntity entity = restClient.performRequest(request).getEntity();
+        return entity != null ? entity.getContent() : InputStream.nullInputStream();
+    }
+
+    /**
+     * The responses are requested gzipped: the rest client buffers the compressed response,
+     * and inflates it while it is read.
+     */
+    static RequestOptions proxyOptions(int timeoutMillis) {
+        return RequestOptions.DEFAULT.toBuilder()
+                .addHeader("Accept-Encoding", "gzip")
+                .setRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(timeoutMillis)
+                        .setConnectTimeout(timeoutMillis)
+                        .setSocketTimeout(timeoutMillis).build())
+                .build();
+    }
+
     private IndexOperation<Map<String, Object>> createIndexRequest(String index, String type, String id, Map<String, Object> json, String parent, String root) {
         IndexOperation.Builder<Map<String, Object>> req = new IndexOperation.Builder<>();
         req.index(index).id(id);
@@ -278,29 +381,111 @@ public class ElasticsearchIndexer implements Indexer {
 
     @Override
     public <T extends Entity> T get(String indexName, String id, String root, List<String> sourceExcludes) {
-        String type = null;
+        return get(indexName, id, root, List.of(), sourceExcludes);
+    }
+
+    /**
+     * Gets the entity with only the given source fields. The type field is always fetched as it is
+     * needed to deserialize the entity. Empty sourceIncludes fetches the whole source.
+     */
+    @Override
+    public <T extends Entity> T get(String indexName, String id, String root, List<String> sourceIncludes, List<String> sourceExcludes) {
         try {
-            final GetRequest req = new GetRequest.Builder()
+            final GetRequest.Builder req = new GetRequest.Builder()
                     .index(indexName)
                     .id(id)
                     .routing(root)
-                    .sourceExcludes(sourceExcludes)
-                    .build();
-            GetResponse<ObjectNode> resp = client.get(req, ObjectNode.class);
+                    .sourceExcludes(sourceExcludes);
+            if (!sourceIncludes.isEmpty()) {
+                req.sourceIncludes(withTypeField(sourceIncludes));
+            }
+            GetResponse<ObjectNode> resp = client.get(req.build(), ObjectNode.class);
             if (resp.found()) {
-                Map<String, Object> sourceAsMap = MAPPER.readValue(MAPPER.writeValueAsString(resp.source()), new TypeReference<>() {});
-                sourceAsMap.put("rootDocument", ofNullable(resp.routing()).orElse(id));
-                type = (String) sourceAsMap.get(esCfg.docTypeField);
-                Class<T> tClass = (Class<T>) Class.forName("org.icij.datashare.text." + type);
-                return JsonObjectMapper.getObject(id, resp.index(), sourceAsMap, tClass);
+                return toEntity(resp);
             }
         } catch (IOException e) {
             LOGGER.error("Failed to get entity " + id + " in index " + indexName, e);
-        } catch (ClassNotFoundException e) {
-            LOGGER.error("No entity for type " + type);
         }
         return null;
     }
+
+    @Override
+    public <T extends Entity> List<T> bulkGet(String indexName, List<String> ids) {
+        return bulkGet(indexName, ids, List.of());
+    }
+
+    /**
+     * Gets the entities with a single multi get request. Like {@link #get(String, String)} the ids are
+     * used as routing. The entities not found are not in the returned list.
+     */
+    @Override
+    public <T extends Entity> List<T> bulkGet(String indexName, List<String> ids, List<String> sourceIncludes) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<T> entities = new ArrayList<>();
+        try {
+            MgetRequest.Builder request = new MgetRequest.Builder().index(indexName)
+                    .docs(ids.stream().map(id -> MultiGetOperation.of(o -> o.id(id).routing(id))).collect(toList()));
+            if (!sourceIncludes.isEmpty()) {
+                request.sourceIncludes(withTypeField(sourceIncludes));
+            }
+            MgetResponse<ObjectNode> response = client.mget(request.build(), ObjectNode.class);
+            for (MultiGetResponseItem<ObjectNode> item : response.docs()) {
+                if (item.isFailure()) {
+                    LOGGER.error("Failed to get entity {} in index {} : {}", item.failure().id(), indexName, item.failure().error().reason());
+                } else if (item.result().found()) {
+                    T entity = toEntity(item.result());
+                    if (entity != null) {
+                        entities.add(entity);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to get {} entities in index {}", ids.size(), indexName, e);
+        }
+        return entities;
+    }
+
+    private List<String> withTypeField(List<String> sourceIncludes) {
+        if (sourceIncludes.contains(esCfg.docTypeField)) {
+            return sourceIncludes;
+        }
+        List<String> includes = new ArrayList<>(sourceIncludes);
+        includes.add(esCfg.docTypeField);
+        return includes;
+    }
+
+    /**
+     * The source tree parsed by the client is deserialized directly, without being written
+     * again to a JSON string: the content of large documents is not copied.
+     */
+    private <T extends Entity> T toEntity(GetResult<ObjectNode> result) {
+        ObjectNode source = result.source();
+        String type = source == null ? null : source.path(esCfg.docTypeField).asText(null);
+        Class<T> tClass = entityClass(type);
+        if (tClass == null) {
+            LOGGER.error("No entity for type " + type);
+            return null;
+        }
+        source.put("rootDocument", ofNullable(result.routing()).orElse(result.id()));
+        return JsonObjectMapper.getObject(result.id(), result.index(), source, tClass);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T extends Entity> Class<T> entityClass(String type) {
+        if (type == null) {
+            return null;
+        }
+        return (Class<T>) entityClasses.computeIfAbsent(type, t -> {
+            try {
+                return Optional.of(Class.forName("org.icij.datashare.text." + t).asSubclass(Entity.class));
+            } catch (ClassNotFoundException | ClassCastException e) {
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
     public static String readScriptFile(String painlessFilename) throws IOException {
         InputStream inputStream = ElasticsearchIndexer.class.getClassLoader().getResourceAsStream(painlessFilename);
         if (inputStream != null) {
@@ -339,6 +524,9 @@ public class ElasticsearchIndexer implements Indexer {
     }
 
     private ExtractedText getExtractedContent(String indexName, String id, String routing, final int offset, final int limit, String targetLanguage) throws IOException {
+        if (contentCache.isEnabled()) {
+            return getCachedExtractedContent(indexName, id, routing, offset, limit, targetLanguage);
+        }
         SearchRequest.Builder sourceBuilder = new SearchRequest.Builder().index(indexName).size(DEFAULT_SEARCH_SIZE).timeout("30m");
         if (offset < 0 || limit < 0) {
             throw new StringIndexOutOfBoundsException(format("offset or limit should not be negative (offset=%d, limit=%d)", offset, limit));
@@ -374,6 +562,115 @@ public class ElasticsearchIndexer implements Indexer {
        return extractedText;
     }
 
+    private ExtractedText getCachedExtractedContent(String indexName, String id, String routing, final int offset, final int limit, String targetLanguage) throws IOException {
+        if (offset < 0 || limit < 0) {
+            throw new StringIndexOutOfBoundsException(format("offset or limit should not be negative (offset=%d, limit=%d)", offset, limit));
+        }
+        DocumentContentCache.Content content = getContent(indexName, id, routing, targetLanguage);
+        int end = offset + limit;
+        if (end > content.length()) {
+            throw new StringIndexOutOfBoundsException(format("Range [%d-%d] is out of document range ([0-%d])", offset, end, content.length()));
+        }
+        String page = sliceContent(content, indexName, id, routing, targetLanguage, offset, end);
+        return targetLanguage != null ?
+                new ExtractedText(page, offset, limit, content.length(), targetLanguage) :
+                new ExtractedText(page, offset, limit, content.length());
+    }
+
+    private SearchedText searchCachedContentOccurrences(String indexName, String id, String routing, final String query, String targetLanguage) throws IOException {
+        String contentLanguage = "original".equals(targetLanguage) ? null : targetLanguage;
+        DocumentContentCache.Content content = getContent(indexName, id, routing, contentLanguage);
+        String text;
+        try {
+            text = content.text();
+        } catch (IOException e) {
+            contentCache.invalidate(indexName, id);
+            text = getContent(indexName, id, routing, contentLanguage).text();
+        }
+        int[] offsets = occurrenceOffsets(text, query);
+        return targetLanguage != null ?
+                new SearchedText(offsets, offsets.length, query, targetLanguage) :
+                new SearchedText(offsets, offsets.length, query);
+    }
+
+    private String sliceContent(DocumentContentCache.Content content, String indexName, String id, String routing, String targetLanguage, int begin, int end) throws IOException {
+        try {
+            return content.slice(begin, end);
+        } catch (IOException e) {
+            LOGGER.debug("cached content of {} is not readable anymore, loading it again", id, e);
+            contentCache.invalidate(indexName, id);
+            return getContent(indexName, id, routing, targetLanguage).slice(begin, end);
+        }
+    }
+
+    /**
+     * returns the (translated) content of the document from the content cache, if the document hasn't been
+     * reindexed since it has been cached. Else the content is read from the index and cached.
+     */
+    private DocumentContentCache.Content getContent(String indexName, String id, String routing, String targetLanguage) throws IOException {
+        DocumentContentCache.Key key = new DocumentContentCache.Key(indexName, id, routing, targetLanguage);
+        Optional<DocumentContentCache.Content> cached = contentCache.get(key);
+        if (cached.isPresent()) {
+            GetResponse<ObjectNode> version = client.get(GetRequest.of(g -> g.index(indexName).id(id).routing(routing)
+                    .source(SourceConfigParam.of(scp -> scp.fetch(false)))), ObjectNode.class);
+            if (!version.found()) {
+                contentCache.invalidate(indexName, id);
+                throw new IllegalArgumentException("Document not found");
+            }
+            if (Objects.equals(version.seqNo(), cached.get().seqNo) && Objects.equals(version.primaryTerm(), cached.get().primaryTerm)) {
+                return cached.get();
+            }
+        }
+        String field = targetLanguage == null ? ES_CONTENT_FIELD : "content_translated";
+        GetResponse<ObjectNode> response = client.get(GetRequest.of(g -> g.index(indexName).id(id).routing(routing)
+                .sourceIncludes(field)), ObjectNode.class);
+        if (!response.found() || response.source() == null) {
+            throw new IllegalArgumentException("Document not found");
+        }
+        String text;
+        if (targetLanguage == null) {
+            text = response.source().path(ES_CONTENT_FIELD).asText("");
+        } else {
+            text = StreamSupport.stream(response.source().path(field).spliterator(), false)
+                    .filter(translation -> targetLanguage.equals(translation.path("target_language").asText()))
+                    .map(translation -> translation.path("content").asText(""))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Translated content in " + targetLanguage + " not found"));
+        }
+        return contentCache.put(key, text, ofNullable(response.seqNo()).orElse(-1L), ofNullable(response.primaryTerm()).orElse(-1L));
+    }
+
+    /**
+     * case and diacritics insensitive occurrences of query in content (same as searchOccurrences.painless.java)
+     */
+    static int[] occurrenceOffsets(String content, String query) {
+        String normalizedContent = normalizeLetters(content.toLowerCase());
+        String normalizedQuery = normalizeLetters(query.toLowerCase());
+        List<Integer> offsets = new ArrayList<>();
+        int lastIndex = normalizedContent.indexOf(normalizedQuery);
+        while (lastIndex != -1) {
+            offsets.add(lastIndex);
+            lastIndex = normalizedContent.indexOf(normalizedQuery, lastIndex + query.length());
+        }
+        return offsets.stream().mapToInt(i -> i).toArray();
+    }
+
+    private static String normalizeLetters(String input) {
+        StringBuilder output = new StringBuilder(input.length());
+        for (char c : input.toCharArray()) {
+            if (Character.getType(c) == Character.LOWERCASE_LETTER) {
+                for (char n : Normalizer.normalize(Character.toString(c), Normalizer.Form.NFKD).toCharArray()) {
+                    if (Character.getType(n) != Character.NON_SPACING_MARK) {
+                        output.append(n);
+                    }
+                }
+            } else {
+                output.append(c);
+            }
+        }
+        return output.toString();
+    }
+
     private static InlineScript searchQueryOccurrencesScript(final String query, String targetLanguage) throws IOException {
         Map<String,Object> params = new HashMap<String, Object>() {{
             put("query", query);
@@ -402,6 +699,9 @@ public class ElasticsearchIndexer implements Indexer {
         if (query.isEmpty()) {
             throw new IllegalArgumentException();
         }
+        if (contentCache.isEnabled()) {
+            return searchCachedContentOccurrences(indexName, id, routing, query, targetLanguage);
+        }
         sourceBuilder.query(Query.of(q -> q.bool(bq -> bq.must(qt -> qt.term(t -> t.field("_id").value(id))))));
         InlineScript script = searchQueryOccurrencesScript(query, targetLanguage);
         sourceBuilder.scriptFields("pagination", ScriptField.of(sf -> sf.script(scr -> scr.inline(script))));
@@ -455,6 +755,7 @@ public class ElasticsearchIndexer implements Indexer {
         updateRequest.script(co.elastic.clients.elasticsearch._types.Script.of(scr -> scr.inline(untagScript)));
         updateRequest.refresh(esCfg.refreshPolicy);
         UpdateResponse<Object> updateResponse = client.update(updateRequest.build(), ObjectNode.class);
+        incrementGeneration(prj.getId());
         return updateResponse.result() == Result.Updated;
     }
 
@@ -476,6 +777,7 @@ public class ElasticsearchIndexer implements Indexer {
         updateByQuery.script(scr -> scr.inline(untagScript));
         updateByQuery.refresh(esCfg.refreshPolicy.equals(Refresh.True));
         UpdateByQueryResponse updateResponse = client.updateByQuery(updateByQuery.build());
+        incrementGeneration(prj.getId());
         int updated = updateResponse.updated() != null ? updateResponse.updated().intValue() : 0;
         return updateResponse.failures().size() == 0 && updated > 0;
     }
@@ -513,38 +815,79 @@ public class ElasticsearchIndexer implements Indexer {
 
     @Override
     public QueryBuilderSearcher search(List<String> indexesNames, Class<? extends Entity> entityClass) {
-        return new ElasticsearchQueryBuilderSearcher(client, indexesNames, entityClass);
+        return new ElasticsearchQueryBuilderSearcher(client, indexesNames, entityClass).withPointInTime(esCfg.pointInTime);
     }
 
     @Override
     public Searcher search(final List<String> indexesNames, Class<? extends Entity> entityClass, SearchQuery query) {
         return query.isJsonQuery() ?
-                new ElasticsearchSearcher(client, indexesNames, entityClass, query.asJson()):
-                new ElasticsearchQueryBuilderSearcher(client, indexesNames, entityClass, query);
+                new ElasticsearchSearcher(client, indexesNames, entityClass, query.asJson()).withPointInTime(esCfg.pointInTime):
+                new ElasticsearchQueryBuilderSearcher(client, indexesNames, entityClass, query).withPointInTime(esCfg.pointInTime);
     }
 
     @Override
     public boolean createIndex(final String indexName) {
-        return ElasticsearchConfiguration.createIndex(client, indexName);
+        boolean created = ElasticsearchConfiguration.createIndex(client, indexName);
+        incrementGeneration(indexName);
+        return created;
     }
 
     @Override
     public boolean deleteAll(String indexName) throws IOException {
+        contentCache.invalidateAll(indexName);
         Request post = new Request("POST", indexName + "/_delete_by_query?refresh");
         post.setEntity(new NStringEntity("{\"query\":{\"match_all\": {}}}", ContentType.APPLICATION_JSON));
         RestClient restClient = ((RestClientTransport) client._transport()).restClient();
         Response response = restClient.performRequest(post);
+        incrementGeneration(indexName);
         return response.getStatusLine().getStatusCode() == RestStatus.OK.getStatus();
     }
 
+    @Override
+    public long getGeneration(String indexName) {
+        AtomicLong generation = generations.get(indexName);
+        return generation == null ? 0 : generation.get();
+    }
+
+    /**
+     * increments the generation of the index, after the write has been made so that a search
+     * running during the write cannot be cached with the new generation.
+     */
+    void incrementGeneration(String indexName) {
+        generations.computeIfAbsent(indexName, i -> new AtomicLong()).incrementAndGet();
+    }
+
     public ElasticsearchIndexer withRefresh(Refresh refresh) {
         esCfg.withRefresh(refresh);
         return this;
     }
 
+    /**
+     * sends the bulk request, recording its duration, its number of operations and its errors,
+     * and increments the generations of the written indices
+     */
+    BulkResponse bulk(BulkRequest request) throws IOException {
+        long start = System.nanoTime();
+        try {
+            BulkResponse response = client.bulk(request);
+            if (response.errors()) {
+                bulkErrors.inc(response.items().stream().filter(item -> item.error() != null).count());
+            }
+            return response;
+        } finally {
+            bulkDuration.observeSince(start);
+            bulkOperations.inc(request.operations().size());
+            request.operations().stream()
+                    .map(operation -> ((BulkOperationBase) operation._get()).index())
+                    .map(index -> index == null ? request.index() : index)
+                    .filter(Objects::nonNull).distinct()
+                    .forEach(this::incrementGeneration);
+        }
+    }
+
     private boolean executeBulk(BulkRequest.Builder bulkRequest) throws IOException {
       bulkRequest.refresh(esCfg.refreshPolicy);
-      BulkResponse bulkResponse = client.bulk(bulkRequest.build());
+      BulkResponse bulkResponse = bulk(bulkRequest.build());
       if (bulkResponse.errors()) {
           for (BulkResponseItem resp : bulkResponse.items()) {
               if (resp.error() != null) {
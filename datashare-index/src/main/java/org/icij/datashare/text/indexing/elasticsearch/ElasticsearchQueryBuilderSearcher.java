@@ -38,6 +38,12 @@ class ElasticsearchQueryBuilderSearcher extends ElasticsearchSearcher implements
         this.stringQuery = query.toString();
     }
     
+    @Override
+    ElasticsearchQueryBuilderSearcher withPointInTime(boolean pointInTime) {
+        super.withPointInTime(pointInTime);
+        return this;
+    }
+
     @Override
     public Indexer.QueryBuilderSearcher ofStatus(Document.Status status) {
         this.boolQueryBuilder.must(must -> must.match(mq -> mq.field("status").query(status.toString())));
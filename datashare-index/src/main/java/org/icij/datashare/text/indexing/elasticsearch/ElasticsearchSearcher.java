@@ -1,14 +1,21 @@
 package org.icij.datashare.text.indexing.elasticsearch;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOrder;
 import co.elastic.clients.elasticsearch._types.Time;
 import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.FieldAndFormat;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch.core.ClearScrollRequest;
+import co.elastic.clients.elasticsearch.core.ClosePointInTimeRequest;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeRequest;
 import co.elastic.clients.elasticsearch.core.ScrollRequest;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.elasticsearch.core.search.ResponseBody;
+import co.elastic.clients.json.JsonpMapper;
 import co.elastic.clients.json.JsonpMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -16,11 +23,11 @@ import jakarta.json.JsonException;
 import org.icij.datashare.Entity;
 import org.icij.datashare.json.JsonObjectMapper;
 import org.icij.datashare.text.indexing.Indexer;
-import org.icij.datashare.utils.JsonUtils;
 
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -41,6 +48,12 @@ class ElasticsearchSearcher implements Indexer.Searcher {
     private String scrollId;
     private SearchRequest scrollSearchRequest;
     private long totalHits;
+    private boolean pointInTime = false;
+    private boolean resumable = false;
+    private String pitId;
+    private List<FieldValue> searchAfter;
+    private Query query;
+    private String queryStringQuery;
     private final JsonNode jsonBoolQuery;
     private final static String TEMPLATE_QUERY = "<query>";
 
@@ -64,7 +77,7 @@ class ElasticsearchSearcher implements Indexer.Searcher {
     }
 
     static <T extends Entity> T hitToObject(Hit<ObjectNode> searchHit, Class<T> cls) {
-        return (T) JsonObjectMapper.getObject(searchHit.id(), searchHit.index(), JsonUtils.nodeToMap(searchHit.source()), cls);
+        return (T) JsonObjectMapper.getObject(searchHit.id(), searchHit.index(), searchHit.source(), cls);
     }
 
     @Override
@@ -108,19 +121,88 @@ class ElasticsearchSearcher implements Indexer.Searcher {
         }
     }
 
+    /**
+     * builds the query once, as the query builders can only be used once: it is shared by
+     * {@link #count()} and the scroll requests.
+     */
+    private Query query(String stringQuery) {
+        if (query == null) {
+            BoolQuery.Builder boolQueryBuilder = getBoolQueryBuilder(queryAsString(stringQuery));
+            query = Query.of(q -> q.bool(boolQueryBuilder.build()));
+            queryStringQuery = stringQuery;
+        } else if (!Objects.equals(queryStringQuery, stringQuery)) {
+            throw new IllegalStateException("cannot change query when scroll is pending");
+        }
+        return query;
+    }
+
     private boolean isTemplate() {
         return jsonBoolQuery.toString().contains(TEMPLATE_QUERY);
     }
 
     @Override
     public Stream<? extends Entity> scroll(ScrollQuery scrollQuery) throws IOException {
+        List<Hit<ObjectNode>> hits = scrollHits(scrollQuery);
+        return resultStream(this.cls, hits);
+    }
+
+    @Override
+    public Stream<String> scrollIds(String duration) throws IOException {
+        return scrollIds(createScrollQuery().withDuration(duration).withSlices(0,0).build());
+    }
+
+    @Override
+    public Stream<String> scrollIds(ScrollQuery scrollQuery) throws IOException {
+        if (scrollSearchRequest == null) {
+            sourceBuilder.source(s -> s.fetch(false));
+        }
+        return searchHitStream(scrollHits(scrollQuery)).map(Hit::id);
+    }
+
+    @Override
+    public <T> Stream<T> scroll(ScrollQuery scrollQuery, Class<T> projection) throws IOException {
+        List<Hit<ObjectNode>> hits = scrollHits(scrollQuery);
+        JsonpMapper mapper = client._transport().jsonpMapper();
+        return searchHitStream(hits).map(hit -> hitToProjection(hit, projection, mapper));
+    }
+
+    static <T> T hitToProjection(Hit<ObjectNode> hit, Class<T> projection, JsonpMapper mapper) {
+        ObjectNode node = ofNullable(hit.source()).orElseGet(JsonObjectMapper.MAPPER::createObjectNode);
+        node.put("id", hit.id());
+        node.put("projectId", hit.index());
+        hit.fields().forEach((field, values) -> {
+            JsonNode valuesNode = values.to(JsonNode.class, mapper);
+            node.set(field, valuesNode.size() == 1 ? valuesNode.get(0) : valuesNode);
+        });
+        try {
+            return JsonObjectMapper.MAPPER.treeToValue(node, projection);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot deserialize hit " + hit.id() + " to " + projection.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Resumable iterations are sorted by _id: the sort values of the last hit of a page are the position
+     * returned by {@link #checkpoint()}. They don't depend on the scroll or the point in time, which
+     * expire with the scroll duration, so an iteration is resumed from its checkpoint with a new point in time.
+     */
+    private List<Hit<ObjectNode>> scrollHits(ScrollQuery scrollQuery) throws IOException {
+        if (scrollSearchRequest == null) {
+            resumable = scrollQuery.isResumable();
+            pointInTime |= scrollQuery.getCheckpoint() != null;
+        }
+        if (pointInTime) {
+            return pointInTimeHits(scrollQuery);
+        }
         ResponseBody<ObjectNode> response;
         if (scrollSearchRequest == null) {
-            BoolQuery.Builder boolQueryBuilder = getBoolQueryBuilder(queryAsString(scrollQuery.getStringQuery()));
-            sourceBuilder.index(indexesNames).query(q -> q.bool(boolQueryBuilder.build()));
+            sourceBuilder.index(indexesNames).query(query(scrollQuery.getStringQuery()));
             if (scrollQuery.getNbSlices() > 1) {
                 sourceBuilder.slice(s -> s.id(String.valueOf(scrollQuery.getNumSlice())).max(scrollQuery.getNbSlices()));
             }
+            if (resumable) {
+                sourceBuilder.sort(so -> so.field(f -> f.field("_id").order(SortOrder.Asc)));
+            }
             scrollSearchRequest = sourceBuilder.scroll(Time.of(t -> t.time(scrollQuery.getDuration()))).build();
             response = client.search(scrollSearchRequest, ObjectNode.class);
             totalHits = response.hits().total().value();
@@ -132,7 +214,70 @@ class ElasticsearchSearcher implements Indexer.Searcher {
             throw new IllegalStateException("cannot change query when scroll is pending");
         }
         scrollId = response.scrollId();
-        return resultStream(this.cls, () -> response.hits().hits().iterator());
+        List<Hit<ObjectNode>> hits = response.hits().hits();
+        searchAfter = hits.isEmpty() ? null : hits.get(hits.size() - 1).sort();
+        return hits;
+    }
+
+    /**
+     * Same iteration as scrolls but with a point in time and search_after: the cluster keeps the
+     * point in time (a view of the index segments) instead of a search context per shard. The pages are
+     * sorted by _shard_doc, or by _id for resumable iterations. The point in time is closed when the last page is read.
+     */
+    private List<Hit<ObjectNode>> pointInTimeHits(ScrollQuery scrollQuery) throws IOException {
+        boolean firstPage = scrollSearchRequest == null;
+        if (firstPage) {
+            sourceBuilder.query(query(scrollQuery.getStringQuery()));
+            if (scrollQuery.getNbSlices() > 1) {
+                sourceBuilder.slice(s -> s.id(String.valueOf(scrollQuery.getNumSlice())).max(scrollQuery.getNbSlices()));
+            }
+            scrollSearchRequest = sourceBuilder.build();
+            if (scrollQuery.getCheckpoint() != null) {
+                searchAfter = SearchAfterCheckpoint.parse(scrollQuery.getCheckpoint()).searchAfter()
+                        .stream().map(FieldValue::of).collect(Collectors.toList());
+            }
+            pitId = client.openPointInTime(OpenPointInTimeRequest.of(p -> p.index(indexesNames)
+                    .keepAlive(Time.of(t -> t.time(scrollQuery.getDuration()))))).id();
+        } else if (scrollQuery.getStringQuery() != null) {
+            throw new IllegalStateException("cannot change query when scroll is pending");
+        }
+        if (pitId == null) {
+            return List.of();
+        }
+        SearchRequest base = scrollSearchRequest;
+        SearchRequest request = SearchRequest.of(r -> {
+            r.query(base.query()).source(base.source()).size(base.size()).timeout(base.timeout()).slice(base.slice())
+                    .sort(so -> so.field(f -> f.field(resumable ? "_id" : "_shard_doc").order(SortOrder.Asc)))
+                    .pit(p -> p.id(pitId).keepAlive(Time.of(t -> t.time(scrollQuery.getDuration()))))
+                    .trackTotalHits(t -> t.enabled(firstPage));
+            if (!base.docvalueFields().isEmpty()) {
+                r.docvalueFields(base.docvalueFields());
+            }
+            if (searchAfter != null) {
+                r.searchAfter(searchAfter);
+            }
+            return r;
+        });
+        SearchResponse<ObjectNode> response = client.search(request, ObjectNode.class);
+        pitId = ofNullable(response.pitId()).orElse(pitId);
+        if (firstPage) {
+            totalHits = response.hits().total().value();
+        }
+        List<Hit<ObjectNode>> hits = response.hits().hits();
+        if (hits.isEmpty()) {
+            closePointInTime();
+        } else {
+            searchAfter = hits.get(hits.size() - 1).sort();
+        }
+        return hits;
+    }
+
+    private void closePointInTime() throws IOException {
+        if (pitId != null) {
+            client.closePointInTime(ClosePointInTimeRequest.of(c -> c.id(pitId)));
+            pitId = null;
+            searchAfter = null;
+        }
     }
 
     @Override
@@ -159,6 +304,12 @@ class ElasticsearchSearcher implements Indexer.Searcher {
         return this;
     }
 
+    @Override
+    public Indexer.Searcher withDocValueFields(String... fields) {
+        sourceBuilder.docvalueFields(stream(fields).map(field -> FieldAndFormat.of(f -> f.field(field))).collect(Collectors.toList()));
+        return this;
+    }
+
     protected static String buildQueryString(String query, int fuzziness, boolean phraseMatches, String phraseMatchDoubleQuotes) {
         String queryString;
         if (phraseMatches) {
@@ -180,6 +331,11 @@ class ElasticsearchSearcher implements Indexer.Searcher {
 
     @Override
     public void clearScroll() throws IOException {
+        if (pointInTime) {
+            closePointInTime();
+            totalHits = 0;
+            return;
+        }
         this.client.clearScroll(ClearScrollRequest.of(csr -> csr.scrollId(scrollId)));
         scrollId = null;
         totalHits = 0;
@@ -190,8 +346,44 @@ class ElasticsearchSearcher implements Indexer.Searcher {
         return totalHits;
     }
 
+    @Override
+    public long count() throws IOException {
+        return client.count(c -> c.index(indexesNames).query(query(null))).count();
+    }
+
+    @Override
+    public String checkpoint() {
+        if (!resumable || searchAfter == null) {
+            return null;
+        }
+        return new SearchAfterCheckpoint(searchAfter.stream().map(FieldValue::stringValue).collect(Collectors.toList())).toJson();
+    }
+
+    ElasticsearchSearcher withPointInTime(boolean pointInTime) {
+        this.pointInTime = pointInTime;
+        return this;
+    }
+
     @Override
     public String toString() {
         return "query : " + jsonBoolQuery;
     }
-}
\ No newline at end of file
+
+    record SearchAfterCheckpoint(List<String> searchAfter) {
+        static SearchAfterCheckpoint parse(String checkpoint) {
+            try {
+                return JsonObjectMapper.MAPPER.readValue(checkpoint, SearchAfterCheckpoint.class);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("invalid checkpoint " + checkpoint, e);
+            }
+        }
+
+        String toJson() {
+            try {
+                return JsonObjectMapper.MAPPER.writeValueAsString(this);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -4,11 +4,14 @@ import com.google.inject.Inject;
 import org.icij.datashare.*;
 import org.icij.datashare.extract.DocumentCollectionFactory;
 import org.icij.datashare.json.JsonObjectMapper;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.text.*;
 import org.icij.datashare.text.indexing.Indexer;
 import org.icij.datashare.text.indexing.LanguageGuesser;
 import org.icij.extract.document.TikaDocument;
+import org.icij.extract.extractor.ExtractionStatus;
 import org.icij.extract.queue.DocumentQueue;
+import org.icij.extract.report.Reporter;
 import org.icij.spewer.FieldNames;
 import org.icij.spewer.Spewer;
 import org.icij.task.Options;
@@ -20,10 +23,23 @@ import java.io.OutputStream;
 import java.io.Serializable;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.lang.System.currentTimeMillis;
 import static java.util.Optional.ofNullable;
 import static org.apache.tika.metadata.HttpHeaders.*;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_INDEX_BULK_CONCURRENCY;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_INDEX_BULK_FLUSH_INTERVAL;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_INDEX_BULK_MAX_SIZE;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_INDEX_BULK_SIZE;
+import static org.icij.datashare.cli.DatashareCliOptions.INDEX_BULK_CONCURRENCY_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.INDEX_BULK_FLUSH_INTERVAL_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.INDEX_BULK_MAX_SIZE_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.INDEX_BULK_SIZE_OPT;
 import static org.icij.datashare.text.Hasher.shorten;
 
 public class ElasticsearchSpewer extends Spewer implements Serializable {
@@ -35,19 +51,32 @@ public class ElasticsearchSpewer extends Spewer implements Serializable {
     private final int maxContentLength;
     private final Hasher digestAlgorithm;
     private final DocumentQueue<String> nlpQueue;
+    private final boolean nlpQueueConsumed;
+    private final ElasticsearchBulkIngester bulkIngester;
+    private final Map<Path, Exception> bulkFailures = new ConcurrentHashMap<>();
+    private final AtomicInteger users = new AtomicInteger(1);
+    private final MetricRegistry metrics;
+    private final MetricRegistry.Histogram writeDuration;
     public String indexName;
 
     @Inject
     public ElasticsearchSpewer(final Indexer indexer, DocumentCollectionFactory<String> nlpQueueFactory, LanguageGuesser languageGuesser, final FieldNames fields,
-                               final PropertiesProvider propertiesProvider) {
+                               final PropertiesProvider propertiesProvider, final MetricRegistry metrics) {
         super(fields);
+        this.metrics = metrics;
+        this.writeDuration = metrics.histogram(
+                "datashare_spewer_document_duration_seconds", "Duration of the documents conversion and indexing (or buffering in bulk mode)");
         this.indexer = indexer;
         this.languageGuesser = languageGuesser;
         this.maxContentLength = getMaxContentLength(propertiesProvider);
         this.digestAlgorithm = getDigestAlgorithm(propertiesProvider);
-        this.nlpQueue = nlpQueueFactory.createQueue(new PipelineHelper(propertiesProvider).getOutputQueueNameFor(Stage.INDEX), String.class);
+        PipelineHelper pipelineHelper = new PipelineHelper(propertiesProvider);
+        this.nlpQueue = nlpQueueFactory.createQueue(pipelineHelper.getOutputQueueNameFor(Stage.INDEX), String.class);
+        // stages are only given on the command line, where they run concurrently
+        this.nlpQueueConsumed = propertiesProvider.get(PipelineHelper.STAGES_OPT).isPresent() && pipelineHelper.hasNextStage(Stage.INDEX);
         this.indexName = propertiesProvider.get("defaultProject").orElse("local-datashare");
-        logger.info("spewer defined with {}", indexer);
+        this.bulkIngester = createBulkIngester(indexer, propertiesProvider);
+        logger.info("spewer defined with {}{}", indexer, bulkIngester == null ? "" : " in bulk mode");
     }
 
     @Override
@@ -61,21 +90,77 @@ public class ElasticsearchSpewer extends Spewer implements Serializable {
         if (parent == null && isDuplicate(doc.getId())) {
             doc.setDuplicate(true);
             copy(doc.getReader(), OutputStream.nullOutputStream()); // flush document content reader
-            indexer.add(indexName, new Duplicate(doc.getPath(), doc.getId(), digestAlgorithm));
+            add(new Duplicate(doc.getPath(), doc.getId(), digestAlgorithm), doc.getPath());
             docType = "Duplicate";
         } else {
             Document document = getDocument(doc, root, parent, (short) level);
-            indexer.add(indexName, document);
-            if (!nlpQueue.offer(document.getId())) {
-                logger.warn("cannot offer {} to queue {}", document.getId(), nlpQueue.getName());
+            if (bulkIngester == null) {
+                indexer.add(indexName, document);
+                offerToNlpQueue(document.getId());
+            } else {
+                bulkIngester.add(indexName, document, () -> offerToNlpQueue(document.getId()), cause -> bulkFailures.put(doc.getPath(), cause));
             }
         }
-        logger.info("{} {} added to elasticsearch in {}ms: {}", docType,
-                shorten(doc.getId(), 4), currentTimeMillis() - before, doc);
+        long duration = currentTimeMillis() - before;
+        writeDuration.observe(duration / 1000.0);
+        metrics.counter("datashare_spewer_documents_total", "Documents written by the spewer", "type", docType).inc();
+        logger.info("{} {} {} in {}ms: {}", docType, shorten(doc.getId(), 4),
+                bulkIngester == null ? "added to elasticsearch" : "buffered for bulk", duration, doc);
+    }
+
+    /**
+     * sends the documents buffered in bulk mode and waits for their indexing.
+     * It does nothing in single document mode.
+     */
+    public void flush() throws IOException {
+        if (bulkIngester != null) {
+            bulkIngester.flush();
+        }
+    }
+
+    /**
+     * saves the files of the documents that could not be indexed in bulk mode as not saved in the report map,
+     * like the extractor does when the spewer fails in single document mode. It should be called after {@link #flush()}.
+     */
+    public void reportBulkFailures(Reporter reporter) {
+        for (Path path : List.copyOf(bulkFailures.keySet())) {
+            Exception cause = bulkFailures.remove(path);
+            logger.error("{} could not be indexed", path, cause);
+            reporter.save(path, ExtractionStatus.FAILURE_NOT_SAVED, cause);
+        }
+    }
+
+    Map<Path, Exception> getBulkFailures() {
+        return bulkFailures;
+    }
+
+    private <T extends Entity> void add(T entity, Path path) throws IOException {
+        if (bulkIngester == null) {
+            indexer.add(indexName, entity);
+        } else {
+            bulkIngester.add(indexName, entity, () -> {}, cause -> bulkFailures.put(path, cause));
+        }
+    }
+
+    private void offerToNlpQueue(String documentId) {
+        if (!nlpQueueConsumed) {
+            // nobody reads the queue in this run: don't wait for room
+            if (!nlpQueue.offer(documentId)) {
+                logger.warn("cannot offer {} to queue {}", documentId, nlpQueue.getName());
+            }
+            return;
+        }
+        try {
+            // blocks when the queue is full so that a slower next stage slows down indexing
+            nlpQueue.put(documentId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("cannot offer {} to queue {}", documentId, nlpQueue.getName());
+        }
     }
 
     private boolean isDuplicate(String docId) throws IOException {
-        return indexer.exists(indexName, docId);
+        return bulkIngester == null ? indexer.exists(indexName, docId) : bulkIngester.isDuplicate(indexName, docId);
     }
 
     Document getDocument(TikaDocument document, TikaDocument root, TikaDocument parent, short level) throws IOException {
@@ -113,6 +198,20 @@ public class ElasticsearchSpewer extends Spewer implements Serializable {
         return (int) Math.min(HumanReadableSize.parse(propertiesProvider.get("maxContentLength").orElse("-1")), Integer.MAX_VALUE);
     }
 
+    static ElasticsearchBulkIngester createBulkIngester(Indexer indexer, PropertiesProvider propertiesProvider) {
+        int bulkSize = propertiesProvider.get(INDEX_BULK_SIZE_OPT).map(Integer::parseInt).orElse(DEFAULT_INDEX_BULK_SIZE);
+        if (bulkSize <= 0) {
+            return null;
+        }
+        if (!(indexer instanceof ElasticsearchIndexer)) {
+            throw new IllegalArgumentException("bulk mode needs an elasticsearch indexer (got " + indexer + ")");
+        }
+        return new ElasticsearchBulkIngester((ElasticsearchIndexer) indexer, bulkSize,
+                HumanReadableSize.parse(propertiesProvider.get(INDEX_BULK_MAX_SIZE_OPT).orElse(DEFAULT_INDEX_BULK_MAX_SIZE)),
+                propertiesProvider.get(INDEX_BULK_FLUSH_INTERVAL_OPT).map(Long::parseLong).orElse(DEFAULT_INDEX_BULK_FLUSH_INTERVAL),
+                propertiesProvider.get(INDEX_BULK_CONCURRENCY_OPT).map(Integer::parseInt).orElse(DEFAULT_INDEX_BULK_CONCURRENCY));
+    }
+
     private Hasher getDigestAlgorithm(PropertiesProvider propertiesProvider) {
         return Hasher.parse(propertiesProvider.get("digestAlgorithm")
                 .orElse(Entity.DEFAULT_DIGESTER.name())).orElse(Entity.DEFAULT_DIGESTER);
@@ -136,9 +235,25 @@ public class ElasticsearchSpewer extends Spewer implements Serializable {
         return this;
     }
 
+    /**
+     * shares the spewer between document consumers, that each close their spewer when they terminate.
+     * The spewer is closed (bulk flushed and POISON sent to the nlp queue) by the last of them.
+     */
+    public ElasticsearchSpewer sharedBy(int consumers) {
+        users.set(consumers);
+        return this;
+    }
+
     @Override
     public void close() throws Exception {
-        nlpQueue.put("POISON");
+        if (users.decrementAndGet() > 0) {
+            logger.info("spewer still used by {} consumer(s)", users.get());
+            return;
+        }
+        if (bulkIngester != null) {
+            bulkIngester.close();
+        }
+        offerToNlpQueue("POISON");
     }
 
     private void setIndex(String indexName) {
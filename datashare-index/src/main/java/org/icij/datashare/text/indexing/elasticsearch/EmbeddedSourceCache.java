@@ -0,0 +1,270 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import org.apache.tika.exception.TikaException;
+import org.icij.datashare.HumanReadableSize;
+import org.icij.datashare.PropertiesProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_EMBEDDED_SOURCE_CACHE_SIZE;
+import static org.icij.datashare.cli.DatashareCliOptions.EMBEDDED_SOURCE_CACHE_DIR_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.EMBEDDED_SOURCE_CACHE_SIZE_OPT;
+
+/**
+ * Size bounded LRU store of the embedded documents of root documents.
+ * <p>
+ * The first time an embedded document of a root is requested, all the embedded documents of the root are extracted
+ * in one parsing, in a directory of the root laid out by digest like the artifact directory. The other embedded
+ * documents of the root are then read from this directory instead of parsing the root again. The roots are cached by
+ * project, as the same root can be indexed in several projects with different digesters.
+ * <p>
+ * The extraction is tried with each candidate digester until the document is found, and the digester that matched
+ * is kept with the root directory so that the next lookups don't try the other ones. When the store exceeds
+ * <code>maxBytes</code>, the least recently used roots are deleted. A root whose extraction alone exceeds
+ * <code>maxBytes</code> is not cached: the requested document is read from a file deleted when its stream is closed.
+ * A root whose directory has been removed meanwhile is extracted again.
+ * <p>
+ * The cache only deletes the root directories it has created. Without an explicit directory, each process uses its own
+ * directory in <code>java.io.tmpdir</code>, deleted when the process exits. The directories left by the processes
+ * that have not exited normally are deleted when the default cache is created.
+ * <p>
+ * {@link SourceExtractor} is created for each request, so the caches are shared by directory (see {@link #get(PropertiesProvider)}).
+ */
+public class EmbeddedSourceCache {
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedSourceCache.class);
+    private static final Map<Path, EmbeddedSourceCache> caches = new ConcurrentHashMap<>();
+    static final String ROOT_DIR_PREFIX = "root-";
+    static final String DEFAULT_DIR_PREFIX = "datashare-embedded-sources-";
+    private static final int NB_LOCKS = 64;
+
+    private final Path cacheDir;
+    private final long maxBytes;
+    private final Object[] rootLocks = new Object[NB_LOCKS];
+    private final LinkedHashMap<RootKey, Root> roots = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    EmbeddedSourceCache(Path cacheDir, long maxBytes) {
+        this.cacheDir = cacheDir;
+        this.maxBytes = maxBytes;
+        for (int i = 0; i < NB_LOCKS; i++) {
+            rootLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * @return the cache shared by the SourceExtractors using the same directory, or empty if the cache is disabled
+     */
+    public static Optional<EmbeddedSourceCache> get(PropertiesProvider propertiesProvider) {
+        long maxBytes = HumanReadableSize.parse(propertiesProvider.get(EMBEDDED_SOURCE_CACHE_SIZE_OPT).orElse(DEFAULT_EMBEDDED_SOURCE_CACHE_SIZE));
+        if (maxBytes <= 0) {
+            return Optional.empty();
+        }
+        Optional<Path> cacheDir = propertiesProvider.get(EMBEDDED_SOURCE_CACHE_DIR_OPT).filter(dir -> !dir.isBlank()).map(dir -> Paths.get(dir).toAbsolutePath());
+        if (cacheDir.isPresent()) {
+            return Optional.of(caches.computeIfAbsent(cacheDir.get(), dir -> new EmbeddedSourceCache(dir, maxBytes)));
+        }
+        Path defaultDir = Paths.get(System.getProperty("java.io.tmpdir"), DEFAULT_DIR_PREFIX + ProcessHandle.current().pid()).toAbsolutePath();
+        return Optional.of(caches.computeIfAbsent(defaultDir, dir -> createDefault(dir, maxBytes)));
+    }
+
+    private static EmbeddedSourceCache createDefault(Path cacheDir, long maxBytes) {
+        // a directory with the pid of this process has been left by a previous process with the same pid
+        deleteDirectoriesOfExitedProcesses(cacheDir.getParent());
+        if (Files.isDirectory(cacheDir)) {
+            delete(cacheDir);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (Files.isDirectory(cacheDir)) {
+                delete(cacheDir);
+            }
+        }));
+        return new EmbeddedSourceCache(cacheDir, maxBytes);
+    }
+
+    /**
+     * deletes the default cache directories whose process is not running anymore
+     */
+    static void deleteDirectoriesOfExitedProcesses(Path tmpDir) {
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(tmpDir, DEFAULT_DIR_PREFIX + "*")) {
+            for (Path dir : dirs) {
+                String pid = dir.getFileName().toString().substring(DEFAULT_DIR_PREFIX.length());
+                if (pid.matches("[0-9]+") && ProcessHandle.of(Long.parseLong(pid)).isEmpty()) {
+                    logger.info("deleting embedded sources directory {} of exited process", dir);
+                    delete(dir);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("cannot list embedded sources directories in {}", tmpDir, e);
+        }
+    }
+
+    /**
+     * @param projectId id of the project of the document
+     * @param rootId id of the root document
+     * @param documentId id of the embedded document
+     * @param candidates extractions of all the embedded documents of the root, by digester name, in the order they should be tried
+     * @return the embedded document source, or empty if none of the digesters produced it
+     */
+    public Optional<InputStream> getSource(String projectId, String rootId, String documentId, List<Candidate> candidates) throws IOException {
+        return getSource(projectId, rootId, documentId, candidates.stream().map(Candidate::digester).collect(toList()), () -> candidates);
+    }
+
+    /**
+     * @param projectId id of the project of the document
+     * @param rootId id of the root document
+     * @param documentId id of the embedded document
+     * @param digesters names of the digesters that can have produced the document
+     * @param candidates extractions of the root by these digesters, in the order they should be tried. Only called
+     *                   when the root is not in the cache, so that the candidates can be costly to order.
+     * @return the embedded document source, or empty if none of the digesters produced it
+     */
+    public Optional<InputStream> getSource(String projectId, String rootId, String documentId, Collection<String> digesters, Supplier<List<Candidate>> candidates) throws IOException {
+        RootKey key = new RootKey(projectId, rootId);
+        synchronized (rootLocks[Math.floorMod(key.hashCode(), NB_LOCKS)]) {
+            Root root = getRoot(key);
+            if (root != null && !Files.isDirectory(root.dir)) {
+                logger.warn("embedded sources directory {} of {} has been removed, extracting again", root.dir, rootId);
+                removeRoot(key, root);
+            } else if (root != null && digesters.contains(root.digester)) {
+                Path source = embeddedPath(root.dir, documentId);
+                return Files.exists(source) ? Optional.of(Files.newInputStream(source)) : Optional.empty();
+            }
+            for (Candidate candidate : candidates.get()) {
+                Files.createDirectories(cacheDir);
+                Path rootDir = Files.createTempDirectory(cacheDir, ROOT_DIR_PREFIX);
+                try {
+                    candidate.extraction.extractAll(rootDir);
+                } catch (IOException | SAXException | TikaException | RuntimeException ex) {
+                    logger.debug("cannot extract embedded documents of {} with digester {}", rootId, candidate.digester, ex);
+                }
+                Path source = embeddedPath(rootDir, documentId);
+                if (Files.exists(source)) {
+                    long rootBytes = size(rootDir);
+                    if (rootBytes > maxBytes) {
+                        logger.info("embedded sources of {} ({} bytes) exceed the cache size, not caching them", rootId, rootBytes);
+                        return Optional.of(uncachedSource(rootDir, source));
+                    }
+                    putRoot(key, new Root(rootDir, candidate.digester, rootBytes));
+                    return Optional.of(Files.newInputStream(source));
+                }
+                delete(rootDir);
+            }
+            return Optional.empty();
+        }
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    Path getCacheDir() {
+        return cacheDir;
+    }
+
+    private synchronized Root getRoot(RootKey key) {
+        return roots.get(key);
+    }
+
+    private synchronized void removeRoot(RootKey key, Root root) {
+        if (roots.remove(key, root)) {
+            bytes -= root.bytes;
+        }
+    }
+
+    private void putRoot(RootKey key, Root root) {
+        List<Root> evicted = new ArrayList<>();
+        synchronized (this) {
+            Root previous = roots.put(key, root);
+            if (previous != null) {
+                bytes -= previous.bytes;
+                evicted.add(previous);
+            }
+            bytes += root.bytes;
+            Iterator<Map.Entry<RootKey, Root>> lru = roots.entrySet().iterator();
+            while (bytes > maxBytes && lru.hasNext()) {
+                Root eldest = lru.next().getValue();
+                lru.remove();
+                bytes -= eldest.bytes;
+                evicted.add(eldest);
+            }
+        }
+        evicted.forEach(evictedRoot -> delete(evictedRoot.dir));
+    }
+
+    /**
+     * moves the source out of the root directory that is deleted, the source is deleted when its stream is closed
+     */
+    private InputStream uncachedSource(Path rootDir, Path source) throws IOException {
+        Path uncached = Files.createTempFile(cacheDir, "source-", "");
+        try {
+            Files.move(source, uncached, StandardCopyOption.REPLACE_EXISTING);
+            return Files.newInputStream(uncached, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            Files.deleteIfExists(uncached);
+            throw e;
+        } finally {
+            delete(rootDir);
+        }
+    }
+
+    /**
+     * same layout as the extract-lib EmbeddedDocumentExtractor artifact directory
+     */
+    static Path embeddedPath(Path rootDir, String documentId) {
+        return rootDir.resolve(documentId.substring(0, 2)).resolve(documentId.substring(2, 4)).resolve(documentId).resolve("raw");
+    }
+
+    private static long size(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static void delete(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("cannot delete embedded sources directory {}", dir, e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface RootExtraction {
+        void extractAll(Path rootDir) throws IOException, SAXException, TikaException;
+    }
+
+    public record Candidate(String digester, RootExtraction extraction) {}
+
+    private record RootKey(String projectId, String rootId) {}
+
+    private record Root(Path dir, String digester, long bytes) {}
+}
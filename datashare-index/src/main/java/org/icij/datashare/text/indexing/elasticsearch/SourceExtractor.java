@@ -30,14 +30,20 @@ import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
 
+import static java.util.stream.Collectors.toList;
 import static org.icij.datashare.PropertiesProvider.DEFAULT_PROJECT_OPTION;
 
 
 public class SourceExtractor {
     Logger LOGGER = LoggerFactory.getLogger(SourceExtractor.class);
+    private static final String COMMONS_DIGESTER = "commons";
+    private static final String PROJECT_DIGESTER_PREFIX = "project:";
     private final PropertiesProvider propertiesProvider;
     private final boolean filterMetadata;
     private final MetadataCleaner metadataCleaner = new MetadataCleaner();
@@ -75,19 +81,25 @@ public class SourceExtractor {
     public InputStream getEmbeddedSource(final Project project, final Document document) {
         Hasher hasher = Hasher.valueOf(document.getId().length());
         int i = 0;
-        List<DigestingParser.Digester> digesters = new ArrayList<>(List.of());
+        Map<String, DigestingParser.Digester> digesters = new LinkedHashMap<>();
         // Digester without the project name
-        digesters.add(new CommonsDigester(20 * 1024 * 1024,  hasher.toStringWithoutDash()));
+        digesters.put(COMMONS_DIGESTER, new CommonsDigester(20 * 1024 * 1024,  hasher.toStringWithoutDash()));
         // Digester with the project name
-        digesters.add(new UpdatableDigester(project.getId(), hasher.toString()));
+        digesters.put(PROJECT_DIGESTER_PREFIX + project.getId(), new UpdatableDigester(project.getId(), hasher.toString()));
         // Digester with the project name set on "defaultProject" for retro-compatibility
         if (mightUseLegacyDigester(document)) {
-            digesters.add(new UpdatableDigester(getDefaultProject(), hasher.toString()));
+            digesters.put(PROJECT_DIGESTER_PREFIX + getDefaultProject(), new UpdatableDigester(getDefaultProject(), hasher.toString()));
         }
 
+        Optional<EmbeddedSourceCache> cache = getArtifactPath(project) == null ? EmbeddedSourceCache.get(propertiesProvider) : Optional.empty();
+        if (cache.isPresent()) {
+            return getCachedEmbeddedSource(cache.get(), project, document, hasher, digesters);
+        }
+        digesters = rootDigesterFirst(document, hasher, digesters);
+
         // Try each digester to find embedded doc and ensure we 
         // used every available digesters to find it.
-        for (DigestingParser.Digester digester : digesters) {
+        for (DigestingParser.Digester digester : digesters.values()) {
             Identifier identifier = new DigestIdentifier(hasher.toString(), Charset.defaultCharset());
             TikaDocument rootDocument = new DocumentFactory().withIdentifier(identifier).create(document.getPath());
 
@@ -113,6 +125,30 @@ public class SourceExtractor {
         throw new ContentNotFoundException(document.getRootDocument(), document.getId());
     }
 
+    /**
+     * The root is hashed to order the digesters only when it is not in the cache.
+     */
+    private InputStream getCachedEmbeddedSource(EmbeddedSourceCache cache, Project project, Document document, Hasher hasher, Map<String, DigestingParser.Digester> digesters) {
+        Supplier<List<EmbeddedSourceCache.Candidate>> candidates = () -> rootDigesterFirst(document, hasher, digesters).entrySet().stream().map(digester ->
+                new EmbeddedSourceCache.Candidate(digester.getKey(), rootDir -> {
+                    Identifier identifier = new DigestIdentifier(hasher.toString(), Charset.defaultCharset());
+                    TikaDocument rootDocument = new DocumentFactory().withIdentifier(identifier).create(document.getPath());
+                    new EmbeddedDocumentExtractor(digester.getValue(), hasher.toString(), rootDir, false).extractAll(rootDocument);
+                })).collect(toList());
+        try {
+            InputStream inputStream = cache.getSource(project.getId(), document.getRootDocument(), document.getId(), digesters.keySet(), candidates)
+                    .orElseThrow(() -> new ContentNotFoundException(document.getRootDocument(), document.getId()));
+            if (filterMetadata) {
+                try (inputStream) {
+                    return new ByteArrayInputStream(metadataCleaner.clean(inputStream).getContent());
+                }
+            }
+            return inputStream;
+        } catch (IOException e) {
+            throw new ExtractException("cannot read embedded document " + document.getId() + " from cache", e);
+        }
+    }
+
     public void extractEmbeddedSources(final Project project, Document document) throws TikaException, IOException, SAXException {
         Hasher hasher = Hasher.valueOf(document.getId().length());
         DigestingParser.Digester digester = noDigestProject() ?
@@ -125,6 +161,30 @@ public class SourceExtractor {
         embeddedExtractor.extractAll(tikaDocument);
     }
 
+    /**
+     * Hashes the root file once with the prefixes of all the digesters (none for commons, the project name for the others)
+     * to put first the digester that gave the root document id: the root is then parsed only with this digester.
+     */
+    private Map<String, DigestingParser.Digester> rootDigesterFirst(Document document, Hasher hasher, Map<String, DigestingParser.Digester> digesters) {
+        List<String> names = new ArrayList<>(digesters.keySet());
+        List<String> rootIds;
+        try {
+            rootIds = hasher.hash(document.getPath(), names.stream().map(name ->
+                    name.startsWith(PROJECT_DIGESTER_PREFIX) ? name.substring(PROJECT_DIGESTER_PREFIX.length()) : "").collect(toList()));
+        } catch (IllegalArgumentException ex) {
+            LOGGER.debug("cannot hash root document {} of {}", document.getPath(), document.getId(), ex);
+            return digesters;
+        }
+        int matching = rootIds.indexOf(document.getRootDocument());
+        if (matching <= 0) {
+            return digesters;
+        }
+        Map<String, DigestingParser.Digester> ordered = new LinkedHashMap<>();
+        ordered.put(names.get(matching), digesters.get(names.get(matching)));
+        ordered.putAll(digesters);
+        return ordered;
+    }
+
     private Path getArtifactPath(Project project) {
         return propertiesProvider.get(DatashareCliOptions.ARTIFACT_DIR_OPT).map(dir -> Path.of(dir).resolve(project.name)).orElse(null);
     }
@@ -0,0 +1,161 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.text.indexing.elasticsearch.DocumentContentCache.Content;
+import org.icij.datashare.text.indexing.elasticsearch.DocumentContentCache.Key;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertArrayEquals;
+
+public class DocumentContentCacheTest {
+    @Rule public TemporaryFolder spillDir = new TemporaryFolder();
+
+    @Test
+    public void test_get_unknown_content() {
+        DocumentContentCache cache = new DocumentContentCache(1024, null, 0, -1);
+        assertThat(cache.get(key("id")).isPresent()).isFalse();
+    }
+
+    @Test
+    public void test_put_get_content_in_memory() throws Exception {
+        DocumentContentCache cache = new DocumentContentCache(1024, null, 0, -1);
+
+        cache.put(key("id"), "content with john doe", 12, 1);
+
+        Content content = cache.get(key("id")).get();
+        assertThat(content.slice(8, 12)).isEqualTo("with");
+        assertThat(content.length()).isEqualTo(21);
+        assertThat(content.seqNo).isEqualTo(12);
+        assertThat(content.primaryTerm).isEqualTo(1);
+        assertThat(cache.getMemoryBytes()).isEqualTo(42);
+    }
+
+    @Test
+    public void test_evicts_least_recently_used_content() {
+        DocumentContentCache cache = new DocumentContentCache(40, null, 0, -1);
+        cache.put(key("id1"), "0123456789", 1, 1);
+        cache.put(key("id2"), "0123456789", 1, 1);
+        cache.get(key("id1"));
+
+        cache.put(key("id3"), "0123456789", 1, 1);
+
+        assertThat(cache.get(key("id1")).isPresent()).isTrue();
+        assertThat(cache.get(key("id2")).isPresent()).isFalse();
+        assertThat(cache.get(key("id3")).isPresent()).isTrue();
+        assertThat(cache.getMemoryBytes()).isEqualTo(40);
+    }
+
+    @Test
+    public void test_evicted_content_is_spilled_to_disk() throws Exception {
+        DocumentContentCache cache = new DocumentContentCache(30, spillDir.getRoot().toPath(), 1024, -1);
+        cache.put(key("id1"), "content é 1", 1, 1);
+
+        cache.put(key("id2"), "content 2", 1, 1);
+
+        Content spilled = cache.get(key("id1")).get();
+        assertThat(spilled.slice(8, 11)).isEqualTo("é 1");
+        assertThat(spilled.text()).isEqualTo("content é 1");
+        assertThat(cache.getDiskBytes()).isEqualTo(22);
+        assertThat(spillDir.getRoot().list()).hasSize(1);
+    }
+
+    @Test
+    public void test_content_bigger_than_memory_goes_to_disk() throws Exception {
+        DocumentContentCache cache = new DocumentContentCache(10, spillDir.getRoot().toPath(), 1024, -1);
+
+        cache.put(key("id"), "content with john doe", 1, 1);
+
+        assertThat(cache.getMemoryBytes()).isEqualTo(0);
+        assertThat(cache.get(key("id")).get().slice(13, 17)).isEqualTo("john");
+    }
+
+    @Test
+    public void test_disk_eviction_deletes_spilled_files() {
+        DocumentContentCache cache = new DocumentContentCache(10, spillDir.getRoot().toPath(), 30, -1);
+
+        cache.put(key("id1"), "0123456789", 1, 1);
+        cache.put(key("id2"), "0123456789", 1, 1);
+
+        assertThat(cache.get(key("id1")).isPresent()).isFalse();
+        assertThat(cache.getDiskBytes()).isEqualTo(20);
+        assertThat(spillDir.getRoot().list()).hasSize(1);
+    }
+
+    @Test
+    public void test_content_is_dropped_when_spill_fails() throws Exception {
+        Path notADirectory = spillDir.newFile("file").toPath();
+        DocumentContentCache cache = new DocumentContentCache(10, notADirectory, 1024, -1);
+
+        cache.put(key("id"), "content with john doe", 1, 1);
+
+        assertThat(cache.get(key("id")).isPresent()).isFalse();
+        assertThat(cache.getDiskBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_content_longer_than_max_content_length_is_not_cached() throws Exception {
+        DocumentContentCache cache = new DocumentContentCache(1024, null, 0, 10);
+
+        Content content = cache.put(key("id"), "content with john doe", 1, 1);
+
+        assertThat(content.slice(0, 7)).isEqualTo("content");
+        assertThat(cache.get(key("id")).isPresent()).isFalse();
+    }
+
+    @Test
+    public void test_invalidate_document_contents() {
+        DocumentContentCache cache = new DocumentContentCache(1024, spillDir.getRoot().toPath(), 1024, -1);
+        cache.put(key("id"), "content", 1, 1);
+        cache.put(new Key("index", "id", "root", "ENGLISH"), "translated", 1, 1);
+        cache.put(key("other"), "other", 1, 1);
+
+        cache.invalidate("index", "id");
+
+        assertThat(cache.get(key("id")).isPresent()).isFalse();
+        assertThat(cache.get(new Key("index", "id", "root", "ENGLISH")).isPresent()).isFalse();
+        assertThat(cache.get(key("other")).isPresent()).isTrue();
+        assertThat(cache.getMemoryBytes()).isEqualTo(10);
+    }
+
+    @Test
+    public void test_invalidate_index_deletes_spilled_files() {
+        DocumentContentCache cache = new DocumentContentCache(10, spillDir.getRoot().toPath(), 1024, -1);
+        cache.put(key("id1"), "0123456789", 1, 1);
+        cache.put(key("id2"), "0123456789", 1, 1);
+
+        cache.invalidateAll("index");
+
+        assertThat(cache.getDiskBytes()).isEqualTo(0);
+        assertThat(spillDir.getRoot().list()).isEmpty();
+    }
+
+    @Test(expected = StringIndexOutOfBoundsException.class)
+    public void test_slice_out_of_range() throws Exception {
+        new DocumentContentCache(1024, null, 0, -1).put(key("id"), "content", 1, 1).slice(0, 8);
+    }
+
+    @Test
+    public void test_create_from_properties() {
+        Path dir = spillDir.getRoot().toPath();
+        assertThat(DocumentContentCache.create(new PropertiesProvider()).isEnabled()).isTrue();
+        assertThat(DocumentContentCache.create(new PropertiesProvider(Map.of("contentCacheSize", "0"))).isEnabled()).isFalse();
+        assertThat(DocumentContentCache.create(new PropertiesProvider(Map.of("contentCacheSize", "0", "contentCacheDir", dir.toString()))).isEnabled()).isTrue();
+    }
+
+    @Test
+    public void test_occurrence_offsets() {
+        assertArrayEquals(new int[]{5, 13, 22, 30}, ElasticsearchIndexer.occurrenceOffsets("this content contains content containing john doe", "CONT"));
+        assertArrayEquals(new int[]{17, 27, 30}, ElasticsearchIndexer.occurrenceOffsets("contigüe et accentué s'est tueTuE", "tué"));
+        assertArrayEquals(new int[]{6, 42, 63}, ElasticsearchIndexer.occurrenceOffsets("L’en-½tête UDP n’a pas de notion\nMethod...tete de numérotation tête", "tête"));
+    }
+
+    private static Key key(String id) {
+        return new Key("index", id, "root", null);
+    }
+}
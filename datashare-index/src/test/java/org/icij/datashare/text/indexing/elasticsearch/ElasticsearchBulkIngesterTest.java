@@ -0,0 +1,77 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import co.elastic.clients.elasticsearch._types.ErrorCause;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import org.icij.datashare.text.Document;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.text.DocumentBuilder.createDoc;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ElasticsearchBulkIngesterTest {
+    private final ElasticsearchIndexer indexer = mock(ElasticsearchIndexer.class);
+    private final List<String> indexed = new CopyOnWriteArrayList<>();
+    private final Map<String, Exception> failed = new ConcurrentHashMap<>();
+    private final ElasticsearchBulkIngester ingester = new ElasticsearchBulkIngester(indexer, 2, 1_000_000, 0, 1);
+
+    @After
+    public void tearDown() throws IOException {
+        ingester.close();
+    }
+
+    @Test
+    public void test_callbacks_for_indexed_and_failed_items() throws Exception {
+        when(indexer.bulk(any(BulkRequest.class))).thenReturn(BulkResponse.of(b -> b.errors(true).took(1).items(
+                BulkResponseItem.of(i -> i.index("test-datashare").id("doc1").status(201).operationType(OperationType.Index)),
+                BulkResponseItem.of(i -> i.index("test-datashare").id("doc2").status(400).operationType(OperationType.Index)
+                        .error(ErrorCause.of(e -> e.type("mapper_parsing_exception").reason("failed to parse")))))));
+
+        add(createDoc("doc1").build());
+        add(createDoc("doc2").build());
+        ingester.flush();
+
+        assertThat(indexed).containsExactly("doc1");
+        assertThat(failed.keySet()).containsOnly("doc2");
+        assertThat(failed.get("doc2").getMessage()).contains("failed to parse");
+        assertThat(ingester.getFailures()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_failed_callback_after_retries() throws Exception {
+        when(indexer.bulk(any(BulkRequest.class))).thenThrow(new IOException("connection refused"));
+
+        add(createDoc("doc1").build());
+        ingester.flush();
+
+        assertThat(indexed).isEmpty();
+        assertThat(failed.get("doc1").getMessage()).isEqualTo("connection refused");
+    }
+
+    @Test
+    public void test_failed_callback_when_closed() throws Exception {
+        ingester.close();
+
+        add(createDoc("doc1").build());
+        add(createDoc("doc2").build());
+
+        assertThat(failed.keySet()).containsOnly("doc1", "doc2");
+        assertThat(failed.get("doc1").getMessage()).isEqualTo("bulk ingester is closed");
+    }
+
+    private void add(Document document) {
+        ingester.add("test-datashare", document, () -> indexed.add(document.getId()), cause -> failed.put(document.getId(), cause));
+    }
+}
@@ -9,6 +9,7 @@ import org.elasticsearch.script.Script;
 import org.elasticsearch.script.ScriptType;
 import org.icij.datashare.Entity;
 import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.test.ElasticsearchRule;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.Duplicate;
@@ -22,15 +23,20 @@ import org.junit.After;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
@@ -60,7 +66,7 @@ public class ElasticsearchIndexerTest {
     static final String KEEP_ALIVE = "60000ms";
     @ClassRule
     public static ElasticsearchRule es = new ElasticsearchRule(TEST_INDEXES);
-    private final ElasticsearchIndexer indexer = new ElasticsearchIndexer(es.client, new PropertiesProvider()).withRefresh(Refresh.True);
+    private final ElasticsearchIndexer indexer = new ElasticsearchIndexer(es.client, new PropertiesProvider(), new MetricRegistry()).withRefresh(Refresh.True);
 
     @After
     public void tearDown() throws Exception {
@@ -73,6 +79,30 @@ public class ElasticsearchIndexerTest {
         assertThat(doc).isNull();
     }
 
+    @Test
+    public void test_get_with_source_includes() throws IOException {
+        Document doc = createDoc("id").with("content").with(Language.FRENCH).build();
+        indexer.add(TEST_INDEX, doc);
+
+        Document actual = indexer.get(TEST_INDEX, doc.getId(), doc.getId(), List.of("language"), List.of());
+
+        assertThat(actual.getId()).isEqualTo(doc.getId());
+        assertThat(actual.getLanguage()).isEqualTo(Language.FRENCH);
+        assertThat(actual.getContent()).isEmpty();
+        assertThat(actual.getPath()).isNull();
+    }
+
+    @Test
+    public void test_bulk_get_with_source_includes() throws IOException {
+        indexer.bulkAdd(TEST_INDEX, asList(createDoc("doc1").with("content1").build(), createDoc("doc2").with("content2").build()));
+
+        List<Document> docs = indexer.bulkGet(TEST_INDEX, List.of("doc1", "unknown", "doc2"), List.of("content"));
+
+        assertThat(docs).onProperty("id").containsExactly("doc1", "doc2");
+        assertThat(docs).onProperty("content").containsExactly("content1", "content2");
+        assertThat(docs.get(0).getPath()).isNull();
+    }
+
     @Test
     public void test_bulk_add() throws IOException {
         Document doc1 = createDoc("doc1").build();
@@ -401,6 +431,35 @@ public class ElasticsearchIndexerTest {
         searcher.clearScroll();
     }
 
+    @Test
+    public void test_scroll_ids() throws IOException {
+        for (int i = 0 ; i < 7; i++) {
+            indexer.add(TEST_INDEX, createDoc("id" + i).build());
+        }
+
+        Indexer.Searcher searcher = indexer.search(singletonList(TEST_INDEX), Document.class).limit(5);
+        List<String> ids = searcher.scrollIds(KEEP_ALIVE).collect(toList());
+        ids.addAll(searcher.scrollIds(KEEP_ALIVE).collect(toList()));
+
+        assertThat(ids).containsOnly("id0", "id1", "id2", "id3", "id4", "id5", "id6");
+        assertThat(searcher.scrollIds(KEEP_ALIVE).count()).isEqualTo(0);
+        searcher.clearScroll();
+    }
+
+    @Test
+    public void test_scroll_projection_with_doc_values() throws IOException {
+        indexer.add(TEST_INDEX, createDoc("id").with(Paths.get("/path/to/doc.txt")).with(Language.FRENCH).build());
+
+        Indexer.Searcher searcher = indexer.search(singletonList(TEST_INDEX), Document.class)
+                .withSource("language").withDocValueFields("path").limit(5);
+        List<DocumentProjection> projections = searcher.scroll(createScrollQuery().withDuration(KEEP_ALIVE).build(), DocumentProjection.class).collect(toList());
+
+        assertThat(projections).containsExactly(new DocumentProjection("id", TEST_INDEX, Paths.get("/path/to/doc.txt"), Language.FRENCH));
+        searcher.clearScroll();
+    }
+
+    record DocumentProjection(String id, String projectId, Path path, Language language) {}
+
     @Test
     public void test_scroll_with_json_query() throws IOException {
         for (int i = 0; i < 12; i++) {
@@ -516,6 +575,48 @@ public class ElasticsearchIndexerTest {
         assertThat(indexer.executeRaw("POST", TEST_INDEX + "/_search", "{\"query\":{\"match\":{\"content\":\"foo\"}}}")).doesNotContain("my content");
     }
 
+    @Test
+    public void test_execute_raw_search_streamed() throws Exception {
+        indexer.add(TEST_INDEX, createDoc("id").with("my content").with(OPENNLP).build());
+        byte[] query = "{\"query\":{\"match_all\":{}}}".getBytes(UTF_8);
+
+        try (InputStream response = indexer.executeRaw("POST", TEST_INDEX + "/_search", new ByteArrayInputStream(query), null)) {
+            assertThat(new String(response.readAllBytes(), UTF_8)).contains("my content");
+        }
+        try (InputStream response = indexer.executeRaw("GET", TEST_INDEX + "/_count", null, null)) {
+            assertThat(new String(response.readAllBytes(), UTF_8)).contains("\"count\":1");
+        }
+    }
+
+    @Test
+    public void test_execute_raw_search_streamed_with_gzipped_body() throws Exception {
+        indexer.add(TEST_INDEX, createDoc("id").with("my content").with(OPENNLP).build());
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+            gzip.write("{\"query\":{\"match\":{\"content\":\"foo\"}}}".getBytes(UTF_8));
+        }
+
+        try (InputStream response = indexer.executeRaw("POST", TEST_INDEX + "/_search", new ByteArrayInputStream(gzipped.toByteArray()), "gzip")) {
+            assertThat(new String(response.readAllBytes(), UTF_8)).doesNotContain("my content");
+        }
+    }
+
+    @Test
+    public void test_generation_is_incremented_by_writes() throws Exception {
+        long generation = indexer.getGeneration(TEST_INDEX);
+        Document doc = createDoc("id").with("my content").build();
+
+        indexer.add(TEST_INDEX, doc);
+        assertThat(indexer.getGeneration(TEST_INDEX)).isEqualTo(generation + 1);
+
+        indexer.bulkAdd(TEST_INDEX, singletonList(createDoc("id2").build()));
+        assertThat(indexer.getGeneration(TEST_INDEX)).isEqualTo(generation + 2);
+
+        indexer.tag(project(TEST_INDEX), doc.getId(), doc.getId(), tag("foo"));
+        assertThat(indexer.getGeneration(TEST_INDEX)).isEqualTo(generation + 3);
+        assertThat(indexer.getGeneration("unknown")).isEqualTo(0);
+    }
+
     @Test
     public void test_execute_raw_with_head() throws Exception {
         assertThat(indexer.executeRaw("HEAD", TEST_INDEX, "")).isNull();
@@ -645,6 +746,28 @@ public class ElasticsearchIndexerTest {
         assertThat(actual.content).isEqualTo("content");
         assertThat(actual.content.length()).isEqualTo(7);
     }
+    @Test
+    public void test_get_slice_of_reindexed_document_content() throws Exception {
+        indexer.add(TEST_INDEX, createDoc("id").with("content with john doe").build());
+        assertThat(indexer.getExtractedText(TEST_INDEX, "id", null, 0, 7, null).content).isEqualTo("content");
+
+        indexer.add(TEST_INDEX, createDoc("id").with("new text with john doe").build());
+
+        assertThat(indexer.getExtractedText(TEST_INDEX, "id", null, 0, 8, null).content).isEqualTo("new text");
+    }
+
+    @Test
+    public void test_get_slice_of_document_content_reindexed_by_another_indexer() throws Exception {
+        indexer.add(TEST_INDEX, createDoc("id").with("content with john doe").build());
+        assertThat(indexer.getExtractedText(TEST_INDEX, "id", null, 0, 7, null).content).isEqualTo("content");
+
+        new ElasticsearchIndexer(es.client, new PropertiesProvider(), new MetricRegistry()).withRefresh(Refresh.True)
+                .add(TEST_INDEX, createDoc("id").with("new text with john doe").build());
+
+        assertThat(indexer.getExtractedText(TEST_INDEX, "id", null, 0, 8, null).content).isEqualTo("new text");
+        assertArrayEquals(new int[]{14}, indexer.searchTextOccurrences(TEST_INDEX, "id", "john", null).offsets);
+    }
+
     @Test
     public void test_search_occurrences_of_query_in_content_of_existing_document() throws Exception {
         Document doc = createDoc("id").with("this content contains content containing john doe").withContentLength(49L).build();
@@ -0,0 +1,210 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch.core.ClosePointInTimeRequest;
+import co.elastic.clients.elasticsearch.core.ClosePointInTimeResponse;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeRequest;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeResponse;
+import co.elastic.clients.elasticsearch.core.ScrollRequest;
+import co.elastic.clients.elasticsearch.core.ScrollResponse;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.icij.datashare.json.JsonObjectMapper;
+import org.icij.datashare.text.Document;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.text.indexing.ScrollQueryBuilder.createScrollQuery;
+import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchSearcher.SearchAfterCheckpoint;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ElasticsearchSearcherTest {
+    private final ElasticsearchClient client = mock(ElasticsearchClient.class);
+
+    @Before
+    public void setUp() throws IOException {
+        when(client.openPointInTime(any(OpenPointInTimeRequest.class))).thenReturn(OpenPointInTimeResponse.of(r -> r.id("pit_id")));
+        when(client.closePointInTime(any(ClosePointInTimeRequest.class))).thenReturn(ClosePointInTimeResponse.of(r -> r.succeeded(true).numFreed(1)));
+    }
+
+    @Test
+    public void test_checkpoint_before_iteration() {
+        ElasticsearchSearcher searcher = searcher().withPointInTime(true);
+        assertThat(searcher.checkpoint()).isNull();
+    }
+
+    @Test
+    public void test_point_in_time_pages_with_search_after() throws Exception {
+        when(client.search(any(SearchRequest.class), eq(ObjectNode.class)))
+                .thenReturn(searchResponse(hit("doc1", 1L), hit("doc2", 2L)), searchResponse(hit("doc3", 3L)), searchResponse());
+        ElasticsearchSearcher searcher = searcher().withPointInTime(true);
+
+        assertThat(ids(searcher.scrollIds(createScrollQuery().withDuration("1m").build()))).containsExactly("doc1", "doc2");
+        assertThat(searcher.totalHits()).isEqualTo(3);
+        assertThat(searcher.checkpoint()).isNull();
+        assertThat(ids(searcher.scrollIds("1m"))).containsExactly("doc3");
+        assertThat(ids(searcher.scrollIds("1m"))).isEmpty();
+
+        List<SearchRequest> requests = searchRequests(3);
+        assertThat(requests.get(0).pit().id()).isEqualTo("pit_id");
+        assertThat(requests.get(0).sort().get(0).field().field()).isEqualTo("_shard_doc");
+        assertThat(requests.get(0).searchAfter()).isEmpty();
+        assertThat(values(requests.get(1).searchAfter())).containsExactly(2L);
+        assertThat(values(requests.get(2).searchAfter())).containsExactly(3L);
+        verify(client).openPointInTime(any(OpenPointInTimeRequest.class));
+        verify(client).closePointInTime(any(ClosePointInTimeRequest.class));
+    }
+
+    @Test
+    public void test_point_in_time_slice() throws Exception {
+        when(client.search(any(SearchRequest.class), eq(ObjectNode.class))).thenReturn(searchResponse());
+        ElasticsearchSearcher searcher = searcher().withPointInTime(true);
+
+        searcher.scrollIds(createScrollQuery().withDuration("1m").withSlices(1, 2).build());
+
+        SearchRequest request = searchRequests(1).get(0);
+        assertThat(request.slice().id()).isEqualTo("1");
+        assertThat(request.slice().max()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_resumable_point_in_time_checkpoint() throws Exception {
+        when(client.search(any(SearchRequest.class), eq(ObjectNode.class)))
+                .thenReturn(searchResponse(hit("doc1", "doc1"), hit("doc2", "doc2")), searchResponse());
+        ElasticsearchSearcher searcher = searcher().withPointInTime(true);
+
+        searcher.scrollIds(createScrollQuery().withDuration("1m").resumable().build());
+        assertThat(searcher.checkpoint()).isEqualTo(new SearchAfterCheckpoint(List.of("doc2")).toJson());
+        searcher.scrollIds("1m");
+        assertThat(searcher.checkpoint()).isNull();
+
+        assertThat(searchRequests(2).get(0).sort().get(0).field().field()).isEqualTo("_id");
+    }
+
+    @Test
+    public void test_resumable_scroll_checkpoint() throws Exception {
+        when(client.search(any(SearchRequest.class), eq(ObjectNode.class))).thenReturn(searchResponse(hit("doc1", "doc1"), hit("doc2", "doc2")));
+        when(client.scroll(any(ScrollRequest.class), eq(ObjectNode.class))).thenReturn(scrollResponse(hit("doc3", "doc3")), scrollResponse());
+        ElasticsearchSearcher searcher = searcher();
+
+        assertThat(ids(searcher.scrollIds(createScrollQuery().withDuration("1m").resumable().build()))).containsExactly("doc1", "doc2");
+        assertThat(searcher.checkpoint()).isEqualTo(new SearchAfterCheckpoint(List.of("doc2")).toJson());
+        assertThat(ids(searcher.scrollIds("1m"))).containsExactly("doc3");
+        assertThat(searcher.checkpoint()).isEqualTo(new SearchAfterCheckpoint(List.of("doc3")).toJson());
+        assertThat(ids(searcher.scrollIds("1m"))).isEmpty();
+        assertThat(searcher.checkpoint()).isNull();
+
+        SearchRequest request = searchRequests(1).get(0);
+        assertThat(request.scroll().time()).isEqualTo("1m");
+        assertThat(request.sort().get(0).field().field()).isEqualTo("_id");
+        verify(client, never()).openPointInTime(any(OpenPointInTimeRequest.class));
+    }
+
+    @Test
+    public void test_scroll_is_not_resumable_by_default() throws Exception {
+        when(client.search(any(SearchRequest.class), eq(ObjectNode.class))).thenReturn(searchResponse(hit("doc1", 1L)));
+        ElasticsearchSearcher searcher = searcher();
+
+        searcher.scrollIds("1m");
+
+        assertThat(searcher.checkpoint()).isNull();
+        assertThat(searchRequests(1).get(0).sort()).isEmpty();
+    }
+
+    @Test
+    public void test_resume_from_checkpoint_opens_a_new_point_in_time() throws Exception {
+        when(client.search(any(SearchRequest.class), eq(ObjectNode.class))).thenReturn(searchResponse(hit("doc3", "doc3")), searchResponse());
+        ElasticsearchSearcher searcher = searcher();
+
+        assertThat(ids(searcher.scrollIds(createScrollQuery().withDuration("1m").withSlices(1, 2)
+                .withCheckpoint(new SearchAfterCheckpoint(List.of("doc2")).toJson()).build()))).containsExactly("doc3");
+        assertThat(searcher.checkpoint()).isEqualTo(new SearchAfterCheckpoint(List.of("doc3")).toJson());
+        searcher.scrollIds("1m");
+
+        List<SearchRequest> requests = searchRequests(2);
+        assertThat(requests.get(0).pit().id()).isEqualTo("pit_id");
+        assertThat(requests.get(0).sort().get(0).field().field()).isEqualTo("_id");
+        assertThat(values(requests.get(0).searchAfter())).containsExactly("doc2");
+        assertThat(requests.get(0).slice().id()).isEqualTo("1");
+        assertThat(values(requests.get(1).searchAfter())).containsExactly("doc3");
+        verify(client).openPointInTime(any(OpenPointInTimeRequest.class));
+        verify(client).closePointInTime(any(ClosePointInTimeRequest.class));
+        verify(client, never()).scroll(any(ScrollRequest.class), eq(ObjectNode.class));
+    }
+
+    @Test
+    public void test_clear_scroll_closes_point_in_time() throws Exception {
+        when(client.search(any(SearchRequest.class), eq(ObjectNode.class))).thenReturn(searchResponse(hit("doc1", 1L)));
+        ElasticsearchSearcher searcher = searcher().withPointInTime(true);
+        searcher.scrollIds("1m");
+
+        searcher.clearScroll();
+
+        ArgumentCaptor<ClosePointInTimeRequest> close = ArgumentCaptor.forClass(ClosePointInTimeRequest.class);
+        verify(client).closePointInTime(close.capture());
+        assertThat(close.getValue().id()).isEqualTo("pit_id");
+        assertThat(searcher.totalHits()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_search_after_checkpoint_serialization() {
+        SearchAfterCheckpoint checkpoint = new SearchAfterCheckpoint(List.of("doc_id"));
+
+        assertThat(SearchAfterCheckpoint.parse(checkpoint.toJson())).isEqualTo(checkpoint);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_invalid_search_after_checkpoint() {
+        SearchAfterCheckpoint.parse("not a checkpoint");
+    }
+
+    private ElasticsearchSearcher searcher() {
+        return new ElasticsearchSearcher(client, List.of("index"), Document.class, JsonObjectMapper.MAPPER.createObjectNode()
+                .set("match_all", JsonObjectMapper.MAPPER.createObjectNode()));
+    }
+
+    private List<SearchRequest> searchRequests(int times) throws IOException {
+        ArgumentCaptor<SearchRequest> requests = ArgumentCaptor.forClass(SearchRequest.class);
+        verify(client, times(times)).search(requests.capture(), eq(ObjectNode.class));
+        return requests.getAllValues();
+    }
+
+    private static List<Object> values(List<FieldValue> fieldValues) {
+        return fieldValues.stream().map(FieldValue::_get).collect(Collectors.toList());
+    }
+
+    private static List<String> ids(Stream<String> ids) {
+        return ids.collect(Collectors.toList());
+    }
+
+    private static Hit<ObjectNode> hit(String id, Object sort) {
+        return Hit.of(h -> h.index("index").id(id).sort(sort instanceof Long ? FieldValue.of((Long) sort) : FieldValue.of((String) sort)));
+    }
+
+    @SafeVarargs
+    private static SearchResponse<ObjectNode> searchResponse(Hit<ObjectNode>... hits) {
+        return SearchResponse.of(r -> r.took(1).timedOut(false).pitId("pit_id").scrollId("scroll_id")
+                .shards(s -> s.failed(0).successful(1).total(1))
+                .hits(h -> h.hits(List.of(hits)).total(t -> t.value(3).relation(TotalHitsRelation.Eq))));
+    }
+
+    @SafeVarargs
+    private static ScrollResponse<ObjectNode> scrollResponse(Hit<ObjectNode>... hits) {
+        return ScrollResponse.of(r -> r.took(1).timedOut(false).scrollId("scroll_id")
+                .shards(s -> s.failed(0).successful(1).total(1))
+                .hits(h -> h.hits(List.of(hits))));
+    }
+}
@@ -16,6 +16,7 @@ import org.icij.datashare.HumanReadableSize;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.extract.DocumentCollectionFactory;
 import org.icij.datashare.extract.MemoryDocumentCollectionFactory;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.test.ElasticsearchRule;
 import org.icij.datashare.text.*;
 import org.icij.datashare.text.indexing.Indexer;
@@ -37,6 +38,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 
@@ -56,10 +58,11 @@ public class ElasticsearchSpewerTest {
     @ClassRule
     public static ElasticsearchRule es = new ElasticsearchRule();
     private final MemoryDocumentCollectionFactory<String> documentQueueFactory = new MemoryDocumentCollectionFactory<>();
-    private final ElasticsearchSpewer spewer = new ElasticsearchSpewer(new ElasticsearchIndexer(es.client, new PropertiesProvider()).withRefresh(Refresh.True),
+    private final List<ElasticsearchSpewer> bulkSpewers = new ArrayList<>();
+    private final ElasticsearchSpewer spewer = new ElasticsearchSpewer(new ElasticsearchIndexer(es.client, new PropertiesProvider(), new MetricRegistry()).withRefresh(Refresh.True),
             documentQueueFactory, text -> Language.ENGLISH, new FieldNames(), new PropertiesProvider(new HashMap<>() {{
                 put("defaultProject", "test-datashare");
-    }}));
+    }}), new MetricRegistry());
 
     @Test
     public void test_simple_write() throws Exception {
@@ -78,6 +81,36 @@ public class ElasticsearchSpewerTest {
         assertThat(documentQueueFactory.createQueue("extract:queue:nlp", String.class).size()).isEqualTo(1);
     }
 
+    @Test
+    public void test_shared_spewer_is_closed_by_the_last_consumer() throws Exception {
+        spewer.sharedBy(2);
+
+        spewer.close();
+        assertThat(documentQueueFactory.createQueue("extract:queue:nlp", String.class).size()).isEqualTo(0);
+
+        spewer.close();
+        assertThat(documentQueueFactory.createQueue("extract:queue:nlp", String.class).contains("POISON")).isTrue();
+    }
+
+    @Test(timeout = 10_000)
+    public void test_write_does_not_wait_for_nlp_queue_without_next_stage() throws Exception {
+        MemoryDocumentCollectionFactory<String> smallQueueFactory = new MemoryDocumentCollectionFactory<>(1);
+        ElasticsearchSpewer indexOnlySpewer = new ElasticsearchSpewer(new ElasticsearchIndexer(es.client, new PropertiesProvider(), new MetricRegistry()).withRefresh(Refresh.True),
+                smallQueueFactory, text -> Language.ENGLISH, new FieldNames(), new PropertiesProvider(new HashMap<>() {{
+                    put("defaultProject", "test-datashare");
+                    put("stages", "SCAN,INDEX");
+        }}), new MetricRegistry());
+
+        for (String content : List.of("test1", "test2")) {
+            TikaDocument document = new DocumentFactory().withIdentifier(new PathIdentifier()).create(get(content + ".txt"));
+            document.setReader(new ParsingReader(new ByteArrayInputStream(content.getBytes())));
+            indexOnlySpewer.write(document);
+        }
+        indexOnlySpewer.close();
+
+        assertThat(smallQueueFactory.createQueue("extract:queue:nlp", String.class).size()).isEqualTo(1);
+    }
+
     @Test
     public void test_write_with_correct_iso1_language() throws Exception {
         Path path = get(requireNonNull(getClass().getResource("/docs/a/b/c/zho.txt")).getPath());
@@ -337,8 +370,8 @@ public class ElasticsearchSpewerTest {
             put("defaultProject", "test-datashare");
             put("defaultProject", "test-datashare");
         }};
-        ElasticsearchSpewer spewer256 = new ElasticsearchSpewer(new ElasticsearchIndexer(es.client, new PropertiesProvider()),
-                documentQueueFactory, text -> Language.ENGLISH, new FieldNames(), new PropertiesProvider(properties));
+        ElasticsearchSpewer spewer256 = new ElasticsearchSpewer(new ElasticsearchIndexer(es.client, new PropertiesProvider(), new MetricRegistry()),
+                documentQueueFactory, text -> Language.ENGLISH, new FieldNames(), new PropertiesProvider(properties), new MetricRegistry());
         Options<String> from = Options.from(properties);
         DocumentFactory tikaFactory = new DocumentFactory().configure(from);
         Extractor extractor = new Extractor(tikaFactory).configure(from);
@@ -375,18 +408,18 @@ public class ElasticsearchSpewerTest {
         assert duplicateDoc.source() != null;
         assertThat(duplicateDoc.source().path.toString()).endsWith("embedded_doc_duplicate.eml");
 
-        Stream<? extends Entity> searcher = new ElasticsearchIndexer(es.client, new PropertiesProvider()).search(asList(TEST_INDEX), Document.class).
+        Stream<? extends Entity> searcher = new ElasticsearchIndexer(es.client, new PropertiesProvider(), new MetricRegistry()).search(asList(TEST_INDEX), Document.class).
                 thatMatchesFieldValue("path", path2).execute();
         assertThat(searcher.count()).isEqualTo(0);
     }
 
     @Test
     public void test_truncated_content() throws Exception {
-        ElasticsearchSpewer limitedContentSpewer = new ElasticsearchSpewer(new ElasticsearchIndexer(es.client, new PropertiesProvider()),
+        ElasticsearchSpewer limitedContentSpewer = new ElasticsearchSpewer(new ElasticsearchIndexer(es.client, new PropertiesProvider(), new MetricRegistry()),
                 documentQueueFactory, text -> Language.ENGLISH, new FieldNames(), new PropertiesProvider(new HashMap<>() {{
             put("maxContentLength", "20");
             put("defaultProject", "test-datashare");
-        }}));
+        }}), new MetricRegistry());
         final TikaDocument document = new DocumentFactory().withIdentifier(new PathIdentifier()).create(get("fake-file.txt"));
         final ParsingReader reader = new ParsingReader(new ByteArrayInputStream("this content should be truncated".getBytes()));
         document.setReader(reader);
@@ -399,11 +432,11 @@ public class ElasticsearchSpewerTest {
 
     @Test
     public void test_truncated_content_if_document_is_smaller_than_limit() throws Exception {
-        ElasticsearchSpewer limitedContentSpewer = new ElasticsearchSpewer(new ElasticsearchIndexer(es.client, new PropertiesProvider()),
+        ElasticsearchSpewer limitedContentSpewer = new ElasticsearchSpewer(new ElasticsearchIndexer(es.client, new PropertiesProvider(), new MetricRegistry()),
                 documentQueueFactory, text -> Language.ENGLISH, new FieldNames(), new PropertiesProvider(new HashMap<>() {{
             put("maxContentLength", "20");
             put("defaultProject", "test-datashare");
-        }}));
+        }}), new MetricRegistry());
         final TikaDocument document = new DocumentFactory().withIdentifier(new PathIdentifier()).create(get("ok-file.txt"));
         final ParsingReader reader = new ParsingReader(new ByteArrayInputStream("this content is ok".getBytes()));
         document.setReader(reader);
@@ -425,7 +458,7 @@ public class ElasticsearchSpewerTest {
     @Test
     public void test_configure_is_creating_index() throws Exception {
         Indexer indexer = Mockito.mock(Indexer.class);
-        ElasticsearchSpewer spewer = new ElasticsearchSpewer(indexer, Mockito.mock(DocumentCollectionFactory.class), Mockito.mock(LanguageGuesser.class), new FieldNames(), new PropertiesProvider());
+        ElasticsearchSpewer spewer = new ElasticsearchSpewer(indexer, Mockito.mock(DocumentCollectionFactory.class), Mockito.mock(LanguageGuesser.class), new FieldNames(), new PropertiesProvider(), new MetricRegistry());
         spewer.configure(Options.from(new HashMap<>() {{
             put("defaultProject", "foo");
         }}));
@@ -436,7 +469,7 @@ public class ElasticsearchSpewerTest {
     @Test
     public void test_configure_is_creating_index_with_legacy_property() throws Exception {
         Indexer indexer = Mockito.mock(Indexer.class);
-        ElasticsearchSpewer spewer = new ElasticsearchSpewer(indexer, Mockito.mock(DocumentCollectionFactory.class), Mockito.mock(LanguageGuesser.class), new FieldNames(), new PropertiesProvider());
+        ElasticsearchSpewer spewer = new ElasticsearchSpewer(indexer, Mockito.mock(DocumentCollectionFactory.class), Mockito.mock(LanguageGuesser.class), new FieldNames(), new PropertiesProvider(), new MetricRegistry());
         spewer.configure(Options.from(new HashMap<>() {{
             put("defaultProject", "foo");
         }}));
@@ -447,7 +480,7 @@ public class ElasticsearchSpewerTest {
     @Test
     public void test_configure_is_creating_index_with_legacy_and_new_property() throws Exception {
         Indexer indexer = Mockito.mock(Indexer.class);
-        ElasticsearchSpewer spewer = new ElasticsearchSpewer(indexer, Mockito.mock(DocumentCollectionFactory.class), Mockito.mock(LanguageGuesser.class), new FieldNames(), new PropertiesProvider());
+        ElasticsearchSpewer spewer = new ElasticsearchSpewer(indexer, Mockito.mock(DocumentCollectionFactory.class), Mockito.mock(LanguageGuesser.class), new FieldNames(), new PropertiesProvider(), new MetricRegistry());
         spewer.configure(Options.from(new HashMap<>() {{
             put("projectName", "bar");
             put("defaultProject", "foo");
@@ -456,8 +489,74 @@ public class ElasticsearchSpewerTest {
         Mockito.verify(indexer).createIndex("bar");
     }
 
+    @Test
+    public void test_bulk_mode_write_is_sent_on_flush() throws Exception {
+        ElasticsearchSpewer bulkSpewer = createBulkSpewer();
+        final TikaDocument document = new DocumentFactory().withIdentifier(new PathIdentifier()).create(get("bulk-file.txt"));
+        document.setReader(new ParsingReader(new ByteArrayInputStream("bulk content".getBytes())));
+
+        bulkSpewer.write(document);
+        assertThat(documentQueueFactory.createQueue("extract:queue:nlp", String.class).size()).isEqualTo(0);
+        bulkSpewer.flush();
+
+        GetResponse<ObjectNode> documentFields = es.client.get(doc -> doc.index(TEST_INDEX).id(document.getId()), ObjectNode.class);
+        assertThat(documentFields.found()).isTrue();
+        assertThat(documentQueueFactory.createQueue("extract:queue:nlp", String.class).size()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_bulk_mode_duplicate_file_in_buffer() throws Exception {
+        ElasticsearchSpewer bulkSpewer = createBulkSpewer();
+        Extractor extractor = new Extractor(new DocumentFactory());
+        final TikaDocument document = extractor.extract(get(requireNonNull(getClass().getResource("/docs/doc.txt")).getPath()));
+        final TikaDocument document2 = extractor.extract(get(requireNonNull(getClass().getResource("/docs/doc-duplicate.txt")).getPath()));
+
+        bulkSpewer.write(document);
+        bulkSpewer.write(document2);
+        bulkSpewer.flush();
+
+        assertThat(document2.isDuplicate()).isTrue();
+        GetResponse<Duplicate> duplicate = es.client.get(doc -> doc.index(TEST_INDEX).id(Document.DEFAULT_DIGESTER.hash(document2.getPath().toString())), Duplicate.class);
+        assertThat(duplicate.found()).isTrue();
+    }
+
+    @Test
+    public void test_bulk_mode_duplicate_file_already_indexed() throws Exception {
+        Extractor extractor = new Extractor(new DocumentFactory());
+        final TikaDocument document = extractor.extract(get(requireNonNull(getClass().getResource("/docs/doc.txt")).getPath()));
+        final TikaDocument document2 = extractor.extract(get(requireNonNull(getClass().getResource("/docs/doc-duplicate.txt")).getPath()));
+        spewer.write(document);
+
+        ElasticsearchSpewer bulkSpewer = createBulkSpewer();
+        bulkSpewer.write(document2);
+        bulkSpewer.flush();
+
+        assertThat(document2.isDuplicate()).isTrue();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_bulk_mode_needs_elasticsearch_indexer() {
+        new ElasticsearchSpewer(Mockito.mock(Indexer.class), documentQueueFactory, text -> Language.ENGLISH, new FieldNames(),
+                new PropertiesProvider(new HashMap<>() {{
+                    put("indexBulkSize", "10");
+                }}), new MetricRegistry());
+    }
+
+    private ElasticsearchSpewer createBulkSpewer() {
+        ElasticsearchSpewer bulkSpewer = new ElasticsearchSpewer(new ElasticsearchIndexer(es.client, new PropertiesProvider(), new MetricRegistry()).withRefresh(Refresh.True),
+                documentQueueFactory, text -> Language.ENGLISH, new FieldNames(), new PropertiesProvider(new HashMap<>() {{
+                    put("defaultProject", "test-datashare");
+                    put("indexBulkSize", "10");
+                }}), new MetricRegistry());
+        bulkSpewers.add(bulkSpewer);
+        return bulkSpewer;
+    }
+
     @After
-    public void after() {
+    public void after() throws Exception {
+        for (ElasticsearchSpewer bulkSpewer : bulkSpewers) {
+            bulkSpewer.close();
+        }
         try {
             DeleteByQueryRequest.Builder deleteByQueryRequest = new DeleteByQueryRequest.Builder().index("test-datashare");
             deleteByQueryRequest.query(Query.of(q -> q.matchAll(ma -> ma)));
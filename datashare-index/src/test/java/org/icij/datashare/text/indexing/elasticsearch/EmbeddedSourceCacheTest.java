@@ -0,0 +1,218 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.text.indexing.elasticsearch.EmbeddedSourceCache.Candidate;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class EmbeddedSourceCacheTest {
+    private static final String PROJECT = "project";
+    @Rule public TemporaryFolder cacheDir = new TemporaryFolder();
+    private final AtomicInteger nbExtractions = new AtomicInteger();
+
+    @Test
+    public void test_extracts_all_embedded_documents_of_root_once() throws Exception {
+        EmbeddedSourceCache cache = new EmbeddedSourceCache(cacheDir.getRoot().toPath(), 1024);
+        List<Candidate> candidates = singletonList(candidate("digester", "embedded1", "embedded2"));
+
+        assertThat(read(cache.getSource(PROJECT, "root", "embedded1", candidates))).isEqualTo("embedded1 content");
+        assertThat(read(cache.getSource(PROJECT, "root", "embedded2", candidates))).isEqualTo("embedded2 content");
+        assertThat(nbExtractions.get()).isEqualTo(1);
+        assertThat(cache.getBytes()).isEqualTo(34);
+    }
+
+    @Test
+    public void test_tries_digesters_until_document_is_found_and_keeps_the_matching_one() throws Exception {
+        EmbeddedSourceCache cache = new EmbeddedSourceCache(cacheDir.getRoot().toPath(), 1024);
+        List<Candidate> candidates = asList(candidate("commons", "other"), failingCandidate("project"), candidate("legacy", "embedded1", "embedded2"));
+
+        assertThat(cache.getSource(PROJECT, "root", "embedded1", candidates).isPresent()).isTrue();
+        assertThat(nbExtractions.get()).isEqualTo(3);
+
+        assertThat(cache.getSource(PROJECT, "root", "embedded2", candidates).isPresent()).isTrue();
+        assertThat(cache.getSource(PROJECT, "root", "unknown", candidates).isPresent()).isFalse();
+        assertThat(nbExtractions.get()).isEqualTo(3);
+        assertThat(cacheDir.getRoot().list()).hasSize(1);
+    }
+
+    @Test
+    public void test_candidates_are_only_computed_when_root_is_not_cached() throws Exception {
+        EmbeddedSourceCache cache = new EmbeddedSourceCache(cacheDir.getRoot().toPath(), 1024);
+        AtomicInteger nbOrderings = new AtomicInteger();
+        Supplier<List<Candidate>> candidates = () -> {
+            nbOrderings.incrementAndGet();
+            return singletonList(candidate("digester", "embedded1", "embedded2"));
+        };
+
+        assertThat(cache.getSource(PROJECT, "root", "embedded1", singletonList("digester"), candidates).isPresent()).isTrue();
+        assertThat(cache.getSource(PROJECT, "root", "embedded2", singletonList("digester"), candidates).isPresent()).isTrue();
+
+        assertThat(nbOrderings.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_document_not_found() throws Exception {
+        EmbeddedSourceCache cache = new EmbeddedSourceCache(cacheDir.getRoot().toPath(), 1024);
+
+        assertThat(cache.getSource(PROJECT, "root", "embedded", asList(candidate("commons", "other"), candidate("project", "other"))).isPresent()).isFalse();
+
+        assertThat(cacheDir.getRoot().list()).isEmpty();
+        assertThat(cache.getBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_extracts_again_when_matching_digester_is_not_a_candidate_anymore() throws Exception {
+        EmbeddedSourceCache cache = new EmbeddedSourceCache(cacheDir.getRoot().toPath(), 1024);
+        cache.getSource(PROJECT, "root", "embedded1", asList(candidate("project", "other"), candidate("legacy", "embedded1")));
+
+        assertThat(cache.getSource(PROJECT, "root", "embedded1", singletonList(candidate("project", "other"))).isPresent()).isFalse();
+
+        assertThat(nbExtractions.get()).isEqualTo(3);
+        assertThat(cacheDir.getRoot().list()).hasSize(1);
+    }
+
+    @Test
+    public void test_evicts_least_recently_used_roots() throws Exception {
+        EmbeddedSourceCache cache = new EmbeddedSourceCache(cacheDir.getRoot().toPath(), 40);
+        List<Candidate> candidates = singletonList(candidate("digester", "embedded1"));
+        cache.getSource(PROJECT, "root1", "embedded1", candidates);
+        cache.getSource(PROJECT, "root2", "embedded1", candidates);
+        cache.getSource(PROJECT, "root1", "embedded1", candidates);
+
+        cache.getSource(PROJECT, "root3", "embedded1", candidates);
+
+        assertThat(cache.getBytes()).isEqualTo(34);
+        assertThat(cacheDir.getRoot().list()).hasSize(2);
+        cache.getSource(PROJECT, "root1", "embedded1", candidates);
+        assertThat(nbExtractions.get()).isEqualTo(3);
+        cache.getSource(PROJECT, "root2", "embedded1", candidates);
+        assertThat(nbExtractions.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void test_does_not_cache_root_bigger_than_cache() throws Exception {
+        EmbeddedSourceCache cache = new EmbeddedSourceCache(cacheDir.getRoot().toPath(), 10);
+        List<Candidate> candidates = singletonList(candidate("digester", "embedded1"));
+
+        assertThat(read(cache.getSource(PROJECT, "root", "embedded1", candidates))).isEqualTo("embedded1 content");
+        assertThat(cache.getBytes()).isEqualTo(0);
+        assertThat(cacheDir.getRoot().list()).isEmpty();
+
+        assertThat(read(cache.getSource(PROJECT, "root", "embedded1", candidates))).isEqualTo("embedded1 content");
+        assertThat(nbExtractions.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_roots_are_cached_by_project() throws Exception {
+        EmbeddedSourceCache cache = new EmbeddedSourceCache(cacheDir.getRoot().toPath(), 1024);
+
+        assertThat(read(cache.getSource("project1", "root", "embedded1", singletonList(candidate("digester", "embedded1"))))).isEqualTo("embedded1 content");
+        assertThat(cache.getSource("project2", "root", "embedded1", singletonList(candidate("digester", "other"))).isPresent()).isFalse();
+        assertThat(read(cache.getSource("project1", "root", "embedded1", singletonList(candidate("digester", "other"))))).isEqualTo("embedded1 content");
+
+        assertThat(nbExtractions.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_extracts_again_when_root_directory_has_been_removed() throws Exception {
+        EmbeddedSourceCache cache = new EmbeddedSourceCache(cacheDir.getRoot().toPath(), 1024);
+        List<Candidate> candidates = singletonList(candidate("digester", "embedded1"));
+        read(cache.getSource(PROJECT, "root", "embedded1", candidates));
+        deleteRecursively(cacheDir.getRoot().listFiles()[0].toPath());
+
+        assertThat(read(cache.getSource(PROJECT, "root", "embedded1", candidates))).isEqualTo("embedded1 content");
+        assertThat(nbExtractions.get()).isEqualTo(2);
+        assertThat(cache.getBytes()).isEqualTo(17);
+    }
+
+    @Test
+    public void test_does_not_delete_directories_of_other_caches() throws Exception {
+        Path otherRoot = cacheDir.newFolder(EmbeddedSourceCache.ROOT_DIR_PREFIX + "other").toPath();
+        Files.writeString(otherRoot.resolve("raw"), "content");
+        EmbeddedSourceCache cache = new EmbeddedSourceCache(cacheDir.getRoot().toPath(), 20);
+        List<Candidate> candidates = singletonList(candidate("digester", "embedded1"));
+
+        cache.getSource(PROJECT, "root1", "embedded1", candidates);
+        cache.getSource(PROJECT, "root2", "embedded1", candidates);
+
+        assertThat(Files.readString(otherRoot.resolve("raw"))).isEqualTo("content");
+        assertThat(cacheDir.getRoot().list()).hasSize(2);
+    }
+
+    @Test
+    public void test_default_directory_is_per_process() {
+        EmbeddedSourceCache cache = EmbeddedSourceCache.get(new PropertiesProvider(Map.of())).get();
+        assertThat(cache.getCacheDir().getFileName().toString()).isEqualTo("datashare-embedded-sources-" + ProcessHandle.current().pid());
+    }
+
+    @Test
+    public void test_deletes_default_directories_of_exited_processes() throws Exception {
+        File exited = cacheDir.newFolder(EmbeddedSourceCache.DEFAULT_DIR_PREFIX + Long.MAX_VALUE);
+        File running = cacheDir.newFolder(EmbeddedSourceCache.DEFAULT_DIR_PREFIX + ProcessHandle.current().pid());
+        File other = cacheDir.newFolder("other");
+
+        EmbeddedSourceCache.deleteDirectoriesOfExitedProcesses(cacheDir.getRoot().toPath());
+
+        assertThat(exited).doesNotExist();
+        assertThat(running).exists();
+        assertThat(other).exists();
+    }
+
+    @Test
+    public void test_get_from_properties() {
+        Path dir = cacheDir.getRoot().toPath();
+        assertThat(EmbeddedSourceCache.get(new PropertiesProvider(Map.of("embeddedSourceCacheSize", "0"))).isPresent()).isFalse();
+        assertThat(EmbeddedSourceCache.get(new PropertiesProvider(Map.of("embeddedSourceCacheDir", dir.toString()))).get())
+                .isSameAs(EmbeddedSourceCache.get(new PropertiesProvider(Map.of("embeddedSourceCacheDir", dir.toString()))).get());
+    }
+
+    private Candidate candidate(String digester, String... documentIds) {
+        return new Candidate(digester, rootDir -> {
+            nbExtractions.incrementAndGet();
+            for (String documentId : documentIds) {
+                Path embeddedPath = EmbeddedSourceCache.embeddedPath(rootDir, documentId);
+                Files.createDirectories(embeddedPath.getParent());
+                Files.writeString(embeddedPath, documentId + " content");
+            }
+        });
+    }
+
+    private static String read(Optional<InputStream> source) throws IOException {
+        try (InputStream inputStream = source.get()) {
+            return new String(inputStream.readAllBytes());
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private Candidate failingCandidate(String digester) {
+        return new Candidate(digester, rootDir -> {
+            nbExtractions.incrementAndGet();
+            throw new IOException("cannot parse root");
+        });
+    }
+}
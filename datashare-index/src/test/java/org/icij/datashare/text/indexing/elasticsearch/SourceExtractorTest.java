@@ -3,6 +3,7 @@ package org.icij.datashare.text.indexing.elasticsearch;
 import co.elastic.clients.elasticsearch._types.Refresh;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.extract.MemoryDocumentCollectionFactory;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.test.ElasticsearchRule;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.DocumentBuilder;
@@ -31,6 +32,7 @@ import java.util.Map;
 import static java.nio.file.Paths.get;
 import static org.fest.assertions.Assertions.assertThat;
 import static org.icij.datashare.cli.DatashareCliOptions.ARTIFACT_DIR_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.EMBEDDED_SOURCE_CACHE_DIR_OPT;
 import static org.icij.datashare.cli.DatashareCliOptions.NO_DIGEST_PROJECT_OPT;
 import static org.icij.datashare.test.ElasticsearchRule.TEST_INDEX;
 import static org.icij.datashare.text.Project.project;
@@ -142,6 +144,26 @@ public class SourceExtractorTest {
         assertThat(cachedArtifact.toFile()).hasSize(49779);
     }
 
+    @Test
+    public void test_get_source_for_embedded_doc_with_embedded_source_cache() throws Exception {
+        Path path = get(getClass().getResource("/docs/embedded_doc.eml").getPath());
+        Map<String, Object> stringProperties = Map.of(
+            "digestAlgorithm", Document.DEFAULT_DIGESTER.toString(),
+            "digestProjectName", TEST_INDEX,
+            EMBEDDED_SOURCE_CACHE_DIR_OPT, tmpDir.getRoot().toString(),
+            "defaultProject", TEST_INDEX);
+        ElasticsearchIndexer elasticsearchIndexer = indexDocument(stringProperties, path, stringProperties);
+        Document attachedPdf = elasticsearchIndexer.
+                get(TEST_INDEX, "1bf2b6aa27dd8b45c7db58875004b8cb27a78ced5200b4976b63e351ebbae5ececb86076d90e156a7cdea06cde9573ca",
+                        "f4078910c3e73a192e3a82d205f3c0bdb749c4e7b23c1d05a622db0f07d7f0ededb335abdb62aef41ace5d3cdb9298bc");
+
+        InputStream source = new SourceExtractor(new PropertiesProvider(stringProperties)).getSource(project(TEST_INDEX), attachedPdf);
+        assertThat(getBytes(source)).hasSize(49779);
+        File[] rootDirs = tmpDir.getRoot().listFiles();
+        assertThat(rootDirs).hasSize(1);
+        assertThat(EmbeddedSourceCache.embeddedPath(rootDirs[0].toPath(), attachedPdf.getId()).toFile()).hasSize(49779);
+    }
+
     @Test
     public void test_get_source_for_embedded_doc_without_metadata() throws Exception {
         Path path = get(getClass().getResource("/docs/embedded_doc.eml").getPath());
@@ -223,13 +245,13 @@ public class SourceExtractorTest {
         final TikaDocument document = extractor.extract(path);
         ElasticsearchIndexer indexer = createIndexer(TEST_INDEX);
         ElasticsearchSpewer spewer = new ElasticsearchSpewer(indexer,
-                new MemoryDocumentCollectionFactory<>(), l -> Language.ENGLISH, new FieldNames(), new PropertiesProvider(spewerProperties));
+                new MemoryDocumentCollectionFactory<>(), l -> Language.ENGLISH, new FieldNames(), new PropertiesProvider(spewerProperties), new MetricRegistry());
         spewer.write(document);
         return indexer;
     }
 
     private static ElasticsearchIndexer createIndexer(String defaultProject) {
-        return new ElasticsearchIndexer(es.client, new PropertiesProvider(Map.of("defaultProject", defaultProject))).withRefresh(Refresh.True);
+        return new ElasticsearchIndexer(es.client, new PropertiesProvider(Map.of("defaultProject", defaultProject)), new MetricRegistry()).withRefresh(Refresh.True);
     }
 
     @Test
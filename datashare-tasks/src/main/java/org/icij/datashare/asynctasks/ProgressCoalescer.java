@@ -0,0 +1,130 @@
+package org.icij.datashare.asynctasks;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limits the progress updates of the tasks before they are sent to the task manager.
+ * <p>
+ * A progress is sent right away if the previous one of the task was sent more than <code>intervalMillis</code> ago.
+ * Otherwise, it replaces the pending progress of the task, which is sent at the end of the interval.
+ * {@link #flush(String)} sends the pending progress when the task is finished, so that the last progress is never
+ * lost and is sent before the result.
+ * <p>
+ * With an interval of 0, all the progress updates are sent.
+ * <p>
+ * The checkpoint of a task is sent with its progress when it has changed since the last one sent,
+ * a pending progress keeps the last checkpoint.
+ */
+public class ProgressCoalescer implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ProgressCoalescer.class);
+    private final TaskModifier sink;
+    private final long intervalNanos;
+    private final Map<String, Progress> progresses = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public ProgressCoalescer(TaskModifier sink, long intervalMillis) {
+        this.sink = sink;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        if (intervalMillis > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "progress-coalescer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::sendPending, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    public Void progress(String taskId, double rate) {
+        return progress(taskId, rate, null);
+    }
+
+    public Void progress(String taskId, double rate, String checkpoint) {
+        if (scheduler == null && checkpoint == null) {
+            return sink.progress(taskId, rate);
+        }
+        Progress progress = progresses.computeIfAbsent(taskId, id -> new Progress());
+        synchronized (progress) {
+            long now = System.nanoTime();
+            if (checkpoint != null && !checkpoint.equals(progress.sentCheckpoint)) {
+                progress.checkpoint = checkpoint;
+            }
+            if (scheduler == null || progress.sentNanos == null || now - progress.sentNanos >= intervalNanos) {
+                send(taskId, progress, rate, now);
+            } else {
+                progress.pending = rate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * sends the pending progress of the task and forgets it
+     */
+    public void flush(String taskId) {
+        Progress progress = progresses.remove(taskId);
+        if (progress != null) {
+            synchronized (progress) {
+                if (progress.pending != null) {
+                    send(taskId, progress, progress.pending, System.nanoTime());
+                }
+            }
+        }
+    }
+
+    int size() {
+        return progresses.size();
+    }
+
+    private void sendPending() {
+        long now = System.nanoTime();
+        progresses.forEach((taskId, progress) -> {
+            synchronized (progress) {
+                if (progress.pending != null && now - progress.sentNanos >= intervalNanos) {
+                    try {
+                        send(taskId, progress, progress.pending, now);
+                    } catch (RuntimeException e) {
+                        logger.warn("cannot send progress of task {}", taskId, e);
+                    }
+                }
+            }
+        });
+    }
+
+    private void send(String taskId, Progress progress, double rate, long now) {
+        String checkpoint = progress.checkpoint;
+        progress.sentNanos = now;
+        progress.pending = null;
+        progress.checkpoint = null;
+        if (checkpoint == null) {
+            sink.progress(taskId, rate);
+        } else {
+            progress.sentCheckpoint = checkpoint;
+            sink.progress(taskId, rate, checkpoint);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static class Progress {
+        Long sentNanos;
+        Double pending;
+        String checkpoint;
+        String sentCheckpoint;
+    }
+}
@@ -41,6 +41,8 @@ public class Task<V> extends Event implements Entity {
     volatile TaskError error;
     private volatile State state;
     private volatile double progress;
+    // position of the task in its iteration, sent with the progress so that a requeued task can resume from it
+    private volatile String checkpoint;
 
     @JsonSubTypes({
         @JsonSubTypes.Type(value = UriResult.class),
@@ -135,6 +137,17 @@ public class Task<V> extends Event implements Entity {
         return progress;
     }
 
+    public String getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * sets the position where the task should resume if it is run again. It is sent with the next progress.
+     */
+    public void setCheckpoint(String checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
     public TaskError getError() {
         return error;
     }
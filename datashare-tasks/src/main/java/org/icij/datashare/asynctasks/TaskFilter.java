@@ -0,0 +1,41 @@
+package org.icij.datashare.asynctasks;
+
+import org.icij.datashare.user.User;
+
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Criteria of the task lists. Null user/name and empty states match all the tasks.
+ *
+ * @param user owner of the tasks
+ * @param states states of the tasks
+ * @param name pattern that the task names must match
+ */
+public record TaskFilter(User user, Set<Task.State> states, Pattern name) {
+    public TaskFilter {
+        states = states == null ? Set.of() : Set.copyOf(states);
+    }
+
+    public static TaskFilter all() {
+        return new TaskFilter(null, Set.of(), null);
+    }
+
+    public TaskFilter withUser(User user) {
+        return new TaskFilter(user, states, name);
+    }
+
+    public TaskFilter withStates(Set<Task.State> states) {
+        return new TaskFilter(user, states, name);
+    }
+
+    public TaskFilter withName(Pattern name) {
+        return new TaskFilter(user, states, name);
+    }
+
+    public boolean test(TaskSummary task) {
+        return (user == null || user.id.equals(task.userId())) &&
+                (states.isEmpty() || states.contains(task.state())) &&
+                (name == null || task.name() != null && name.matcher(task.name()).matches());
+    }
+}
@@ -44,6 +44,38 @@ public interface TaskManager extends Closeable {
                 collect(toList());
     }
 
+    /**
+     * Gets a page of the tasks matching the filter, most recent tasks first (ties are ordered by descending ids).
+     * This implementation filters all the tasks, the task managers with indexes should override it.
+     *
+     * @param cursor the next cursor of the previous page, or null for the first page
+     * @param size max number of tasks of the page
+     */
+    default TaskPage<Task<?>> getTasks(TaskFilter filter, String cursor, int size) {
+        checkPageSize(size);
+        TaskPage.Cursor from = TaskPage.Cursor.parse(cursor);
+        List<Task<?>> tasks = getTasks().stream().
+                filter(t -> TaskPage.Cursor.of(t).isAfter(from)).
+                filter(t -> filter.test(TaskSummary.of(t))).
+                sorted(TaskPage.Cursor.order(TaskPage.Cursor::of)).
+                limit(size + 1L).collect(toList());
+        return TaskPage.of(tasks, size, t -> TaskPage.Cursor.of(t).toString());
+    }
+
+    /**
+     * Same as {@link #getTasks(TaskFilter, String, int)} but with the summaries of the tasks, for the list views.
+     */
+    default TaskPage<TaskSummary> getTaskSummaries(TaskFilter filter, String cursor, int size) {
+        TaskPage<Task<?>> page = getTasks(filter, cursor, size);
+        return new TaskPage<>(page.items().stream().map(TaskSummary::of).collect(toList()), page.next());
+    }
+
+    static void checkPageSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("page size should be positive: " + size);
+        }
+    }
+
     default Map<String, Boolean> stopAllTasks(User user) {
         return getTasks().stream().
                 filter(t -> user.equals(t.getUser())).
@@ -125,6 +157,9 @@ public interface TaskManager extends Closeable {
         Task<?> taskView = getTask(e.taskId);
         if (taskView != null) {
             taskView.setProgress(e.progress);
+            if (e.checkpoint != null) {
+                taskView.setCheckpoint(e.checkpoint);
+            }
             save(taskView);
         }
         return taskView;
@@ -3,6 +3,7 @@ package org.icij.datashare.asynctasks;
 import org.apache.commons.lang3.NotImplementedException;
 import org.icij.datashare.asynctasks.bus.amqp.TaskError;
 import org.icij.datashare.asynctasks.bus.amqp.TaskEvent;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.user.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +12,8 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
@@ -45,6 +48,16 @@ public class TaskManagerMemory implements TaskManager, TaskSupplier {
         executor.submit(loop);
     }
 
+    /**
+     * @param nbWorkers number of tasks run concurrently
+     * @param budgets max number of running tasks by task type (see {@link TaskWorkerLoop#parseBudgets(String)})
+     */
+    public TaskManagerMemory(BlockingQueue<Task<?>> taskQueue, TaskFactory taskFactory, int nbWorkers, Map<String, Integer> budgets, MetricRegistry metrics) {
+        this.taskQueue = taskQueue;
+        loop = new TaskWorkerLoop(taskFactory, this, nbWorkers, budgets, metrics);
+        executor.submit(loop);
+    }
+
     public <V> Task<V> getTask(final String taskId) {
         return (Task<V>) tasks.get(taskId);
     }
@@ -61,9 +74,17 @@ public class TaskManagerMemory implements TaskManager, TaskSupplier {
 
     @Override
     public Void progress(String taskId, double rate) {
+        return progress(taskId, rate, null);
+    }
+
+    @Override
+    public Void progress(String taskId, double rate, String checkpoint) {
         Task<?> taskView = tasks.get(taskId);
         if (taskView != null) {
             taskView.setProgress(rate);
+            if (checkpoint != null) {
+                taskView.setCheckpoint(checkpoint);
+            }
         } else {
             logger.warn("unknown task id <{}> for progress={} call", taskId, rate);
         }
@@ -92,6 +113,15 @@ public class TaskManagerMemory implements TaskManager, TaskSupplier {
         }
     }
 
+    @Override
+    public void requeue(Task<?> task) {
+        if (taskQueue instanceof BlockingDeque<Task<?>> taskDeque) {
+            taskDeque.offerFirst(task);
+        } else {
+            taskQueue.offer(task);
+        }
+    }
+
     @Override
     public void error(String taskId, TaskError reason) {
         Task<?> taskView = tasks.get(taskId);
@@ -6,27 +6,47 @@ import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufOutputStream;
 import org.icij.datashare.asynctasks.bus.amqp.CancelEvent;
+import org.icij.datashare.asynctasks.bus.amqp.ProgressEvent;
 import org.icij.datashare.asynctasks.bus.amqp.TaskEvent;
 import org.icij.datashare.json.JsonObjectMapper;
 import org.icij.datashare.user.User;
 import org.redisson.Redisson;
-import org.redisson.RedissonBlockingQueue;
 import org.redisson.RedissonMap;
+import org.redisson.api.RBatch;
+import org.redisson.api.RMap;
+import org.redisson.api.RObject;
+import org.redisson.api.RScript;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RSet;
 import org.redisson.api.RTopic;
 import org.redisson.api.RedissonClient;
 import org.redisson.client.codec.BaseCodec;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.StringCodec;
 import org.redisson.client.handler.State;
 import org.redisson.client.protocol.Decoder;
 import org.redisson.client.protocol.Encoder;
+import org.redisson.client.protocol.ScoredEntry;
+import org.redisson.codec.TypedJsonJacksonCodec;
 import org.redisson.command.CommandSyncService;
 import org.redisson.liveobject.core.RedissonObjectBuilder;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
@@ -34,13 +54,51 @@ import java.util.regex.Pattern;
 
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
 public class TaskManagerRedis implements TaskManager {
     private final Runnable eventCallback; // for test
     public static final String EVENT_CHANNEL_NAME = "EVENT";
+    private static final int MIN_INDEX_BATCH_SIZE = 100;
+    // KEYS: tasks, summaries, progresses, created index, users, user index (or created index) then the state indexes
+    // ARGV: task id, task, summary key, summary, progress key, state, score, user id (or ''), '1' to remove the progress
+    // then the states of the state indexes. Returns 1 if the task is new.
+    static final String SAVE_SCRIPT = "local stateIndexes = {}\n" +
+            "for i = 7, #KEYS do stateIndexes[ARGV[i + 3]] = KEYS[i] end\n" +
+            "local previous = redis.call('hget', KEYS[2], ARGV[3])\n" +
+            "redis.call('hset', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "redis.call('hset', KEYS[2], ARGV[3], ARGV[4])\n" +
+            "if ARGV[9] == '1' then\n" +
+            "  redis.call('hdel', KEYS[3], ARGV[5])\n" +
+            "end\n" +
+            "if not previous then\n" +
+            "  redis.call('zadd', KEYS[4], ARGV[7], ARGV[1])\n" +
+            "  redis.call('zadd', stateIndexes[ARGV[6]], ARGV[7], ARGV[1])\n" +
+            "  if ARGV[8] ~= '' then\n" +
+            "    redis.call('zadd', KEYS[6], ARGV[7], ARGV[1])\n" +
+            "    redis.call('sadd', KEYS[5], ARGV[8])\n" +
+            "  end\n" +
+            "  return 1\n" +
+            "end\n" +
+            "local previousState = cjson.decode(previous)['state']\n" +
+            "if previousState ~= ARGV[6] then\n" +
+            "  redis.call('zrem', stateIndexes[previousState], ARGV[1])\n" +
+            "  redis.call('zadd', stateIndexes[ARGV[6]], ARGV[7], ARGV[1])\n" +
+            "end\n" +
+            "return 0";
+    private final RedissonClient redissonClient;
+    private final TaskViewCodec taskCodec = new TaskViewCodec();
     private final RedissonMap<String, Task<?>> tasks;
     private final BlockingQueue<Task<?>> taskQueue;
     private final RTopic eventTopic;
+    // secondary indexes: task summaries, and task ids scored by creation date (all/by user/by state)
+    private final Codec summaryCodec = new TypedJsonJacksonCodec(String.class, TaskSummary.class, JsonObjectMapper.MAPPER);
+    private final RMap<String, TaskSummary> summaries;
+    private final RScoredSortedSet<String> createdIndex;
+    private final RSet<String> indexedUsers;
+    // progress of the running tasks, updated without writing the whole task
+    private final Codec progressCodec = new TypedJsonJacksonCodec(String.class, Double.class);
+    private final RMap<String, Double> progresses;
 
     public TaskManagerRedis(RedissonClient redissonClient, BlockingQueue<Task<?>> taskQueue, String taskMapName) {
         this(redissonClient, taskQueue, taskMapName,null);
@@ -48,36 +106,139 @@ public class TaskManagerRedis implements TaskManager {
 
     public TaskManagerRedis(RedissonClient redissonClient, BlockingQueue<Task<?>> taskQueue, String taskMapName, Runnable eventCallback) {
         CommandSyncService commandSyncService = new CommandSyncService(((Redisson) redissonClient).getConnectionManager(), new RedissonObjectBuilder(redissonClient));
-        this.tasks = new RedissonMap<>(new TaskViewCodec(), commandSyncService, taskMapName, redissonClient, null, null);
+        this.redissonClient = redissonClient;
+        this.tasks = new RedissonMap<>(taskCodec, commandSyncService, taskMapName, redissonClient, null, null);
         this.taskQueue = taskQueue;
         this.eventTopic = redissonClient.getTopic(EVENT_CHANNEL_NAME);
         this.eventCallback = eventCallback;
+        this.summaries = redissonClient.getMap(taskMapName + ":summaries", summaryCodec);
+        this.createdIndex = redissonClient.getScoredSortedSet(taskMapName + ":created", StringCodec.INSTANCE);
+        this.indexedUsers = redissonClient.getSet(taskMapName + ":users", StringCodec.INSTANCE);
+        this.progresses = redissonClient.getMap(taskMapName + ":progress", progressCodec);
+        if (!createdIndex.isExists() && !tasks.isEmpty()) {
+            rebuildIndexes();
+        }
         addEventListener(this::handleEvent);
     }
 
     @Override
     public <V> Task<V> getTask(String id) {
-        return (Task<V>) tasks.get(id);
+        Task<V> task = (Task<V>) tasks.get(id);
+        Double progress = progresses.get(id);
+        if (task != null && progress != null) {
+            task.setProgress(progress);
+        }
+        return task;
     }
 
     @Override
     public List<Task<?>> getTasks() {
-        return new LinkedList<>(tasks.values());
+        return new LinkedList<>(withProgresses(tasks.values()));
     }
 
     @Override
     public List<Task<?>> getTasks(User user, Pattern pattern) {
-        return TaskManager.getTasks(tasks.values().stream(), user, pattern);
+        return TaskManager.getTasks(withProgresses(tasks.values()).stream(), user, pattern);
+    }
+
+    @Override
+    public TaskPage<TaskSummary> getTaskSummaries(TaskFilter filter, String cursor, int size) {
+        TaskPage<TaskSummary> page = summaryPage(filter, cursor, size);
+        Map<String, Double> progressesById = progresses.getAll(page.items().stream().map(TaskSummary::id).collect(toSet()));
+        return progressesById.isEmpty() ? page : new TaskPage<>(page.items().stream().map(summary ->
+                ofNullable(progressesById.get(summary.id())).map(summary::withProgress).orElse(summary)).collect(toList()), page.next());
+    }
+
+    /**
+     * Gets the page from the most selective index (user, then state), most recent tasks first.
+     * Only the task summaries are read for filtering.
+     */
+    private TaskPage<TaskSummary> summaryPage(TaskFilter filter, String cursor, int size) {
+        TaskManager.checkPageSize(size);
+        RScoredSortedSet<String> index = filter.user() != null ? userIndex(filter.user().id) :
+                filter.states().size() == 1 ? stateIndex(filter.states().iterator().next()) : createdIndex;
+        TaskPage.Cursor from = TaskPage.Cursor.parse(cursor);
+        double maxScore = from == null ? Double.POSITIVE_INFINITY : from.createdAt();
+        List<TaskSummary> page = new ArrayList<>(size + 1);
+        int offset = 0;
+        while (page.size() <= size) {
+            Collection<ScoredEntry<String>> entries = index.entryRangeReversed(maxScore, true,
+                    Double.NEGATIVE_INFINITY, true, offset, Math.max(size + 1, MIN_INDEX_BATCH_SIZE));
+            if (entries.isEmpty()) {
+                break;
+            }
+            offset += entries.size();
+            // ties are in reverse lexicographic order of ids, as in the cursor order
+            List<String> ids = entries.stream().filter(e -> new TaskPage.Cursor(e.getScore().longValue(), e.getValue()).isAfter(from))
+                    .map(ScoredEntry::getValue).collect(toList());
+            Map<String, TaskSummary> summariesById = summaries.getAll(new HashSet<>(ids));
+            for (Iterator<String> it = ids.iterator(); it.hasNext() && page.size() <= size; ) {
+                TaskSummary summary = summariesById.get(it.next());
+                if (summary != null && filter.test(summary)) {
+                    page.add(summary);
+                }
+            }
+        }
+        return TaskPage.of(page, size, summary -> TaskPage.Cursor.of(summary).toString());
+    }
+
+    @Override
+    public TaskPage<Task<?>> getTasks(TaskFilter filter, String cursor, int size) {
+        TaskPage<TaskSummary> page = summaryPage(filter, cursor, size);
+        Map<String, Task<?>> tasksById = tasks.getAll(page.items().stream().map(TaskSummary::id).collect(toSet()));
+        return new TaskPage<>(withProgresses(page.items().stream().map(s -> tasksById.get(s.id())).filter(Objects::nonNull).collect(toList())), page.next());
+    }
+
+    /**
+     * The progress of the running tasks is written alone in the progress hash: the first progress event of a run
+     * saves the task (that becomes RUNNING) and the next ones only set the field of the task, without reading it.
+     * The progress events with a checkpoint save the task, to keep the checkpoint with it.
+     *
+     * @return the task for the first progress event of a run or with a checkpoint, else null as the task is not read
+     */
+    @Override
+    public Task<?> setProgress(ProgressEvent e) {
+        if (progresses.fastPut(e.taskId, e.progress) || e.checkpoint != null) {
+            Task<?> task = TaskManager.super.setProgress(e);
+            if (task == null) {
+                progresses.fastRemove(e.taskId);
+            }
+            return task;
+        }
+        logger.debug("progress event for {}", e.taskId);
+        return null;
     }
 
     @Override
     public List<Task<?>> clearDoneTasks() {
-        return tasks.values().stream().filter(Task::isFinished).map(t -> tasks.remove(t.id)).collect(toList());
+        Set<String> ids = new HashSet<>();
+        for (Task.State state : List.of(Task.State.DONE, Task.State.CANCELLED, Task.State.ERROR)) {
+            ids.addAll(stateIndex(state).readAll());
+        }
+        if (ids.isEmpty()) {
+            return new LinkedList<>();
+        }
+        Map<String, Task<?>> doneTasks = tasks.getAll(ids);
+        Collection<TaskSummary> doneSummaries = summaries.getAll(ids).values();
+        RBatch batch = redissonClient.createBatch();
+        batch.getMap(tasks.getName(), taskCodec).fastRemoveAsync(ids.toArray());
+        batch.getMap(summaries.getName(), summaryCodec).fastRemoveAsync(ids.toArray());
+        doneSummaries.forEach(summary -> removeFromIndexes(batch, summary));
+        batch.execute();
+        return new LinkedList<>(doneTasks.values());
     }
 
     @Override
     public Task<?> clearTask(String taskId) {
-        return tasks.remove(taskId);
+        Task<?> task = tasks.remove(taskId);
+        progresses.fastRemove(taskId);
+        TaskSummary summary = summaries.remove(taskId);
+        if (summary != null) {
+            RBatch batch = redissonClient.createBatch();
+            removeFromIndexes(batch, summary);
+            batch.execute();
+        }
+        return task;
     }
 
     @Override
@@ -111,20 +272,116 @@ public class TaskManagerRedis implements TaskManager {
         // we cannot close RedissonClient connection pool as it may be used by other keys
         eventTopic.removeAllListeners();
         tasks.delete();
-        if (taskQueue instanceof RedissonBlockingQueue) {
-            ((RedissonBlockingQueue<Task<?>>) taskQueue).delete();
+        deleteIndexes();
+        if (taskQueue instanceof RObject redisQueue) {
+            redisQueue.delete();
         }
     }
 
     @Override
     public void clear() {
         tasks.clear();
+        deleteIndexes();
         taskQueue.clear();
     }
 
+    /**
+     * Saves the task, its summary and updates the indexes in one atomic script: the previous summary
+     * tells if the task is new, and in which state index it was.
+     */
     public boolean save(Task<?> task) {
-        Task<?> oldVal = tasks.put(task.id, task);
-        return oldVal == null;
+        TaskSummary summary = TaskSummary.of(task, task.createdAt);
+        List<Object> keys = new ArrayList<>(List.of(tasks.getName(), summaries.getName(), progresses.getName(), createdIndex.getName(),
+                indexedUsers.getName(), summary.userId() == null ? createdIndex.getName() : userIndexName(summary.userId())));
+        List<Object> values = new ArrayList<>(List.of(task.id, encode(taskCodec.getMapValueEncoder(), task),
+                encode(summaryCodec.getMapKeyEncoder(), task.id), encode(summaryCodec.getMapValueEncoder(), summary),
+                encode(progressCodec.getMapKeyEncoder(), task.id), summary.state().name(), String.valueOf((long) score(summary)),
+                ofNullable(summary.userId()).orElse(""), task.getState() == Task.State.RUNNING ? "0" : "1"));
+        for (Task.State state : Task.State.values()) {
+            keys.add(stateIndexName(state));
+            values.add(state.name());
+        }
+        return redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE,
+                SAVE_SCRIPT, RScript.ReturnType.BOOLEAN, keys, values.toArray());
+    }
+
+    /**
+     * Indexes the tasks saved before the indexes existed, with their creation date.
+     */
+    private void rebuildIndexes() {
+        logger.info("rebuilding indexes of {} tasks", tasks.size());
+        deleteIndexes();
+        RBatch batch = redissonClient.createBatch();
+        for (Task<?> task : tasks.values()) {
+            TaskSummary summary = TaskSummary.of(task, task.createdAt);
+            batch.getMap(summaries.getName(), summaryCodec).fastPutAsync(task.id, summary);
+            addToIndexes(batch, summary);
+        }
+        batch.execute();
+    }
+
+    private void addToIndexes(RBatch batch, TaskSummary summary) {
+        double score = score(summary);
+        batch.getScoredSortedSet(createdIndex.getName(), StringCodec.INSTANCE).addAsync(score, summary.id());
+        batch.getScoredSortedSet(stateIndexName(summary.state()), StringCodec.INSTANCE).addAsync(score, summary.id());
+        if (summary.userId() != null) {
+            batch.getScoredSortedSet(userIndexName(summary.userId()), StringCodec.INSTANCE).addAsync(score, summary.id());
+            batch.getSet(indexedUsers.getName(), StringCodec.INSTANCE).addAsync(summary.userId());
+        }
+    }
+
+    private void removeFromIndexes(RBatch batch, TaskSummary summary) {
+        batch.getScoredSortedSet(createdIndex.getName(), StringCodec.INSTANCE).removeAsync(summary.id());
+        batch.getScoredSortedSet(stateIndexName(summary.state()), StringCodec.INSTANCE).removeAsync(summary.id());
+        if (summary.userId() != null) {
+            batch.getScoredSortedSet(userIndexName(summary.userId()), StringCodec.INSTANCE).removeAsync(summary.id());
+        }
+    }
+
+    private void deleteIndexes() {
+        List<String> names = new ArrayList<>(List.of(summaries.getName(), progresses.getName(), createdIndex.getName(), indexedUsers.getName()));
+        Arrays.stream(Task.State.values()).map(this::stateIndexName).forEach(names::add);
+        indexedUsers.readAll().stream().map(this::userIndexName).forEach(names::add);
+        redissonClient.getKeys().delete(names.toArray(new String[0]));
+    }
+
+    private <T extends Collection<Task<?>>> T withProgresses(T tasksToUpdate) {
+        Map<String, Double> progressesById = progresses.readAllMap();
+        tasksToUpdate.forEach(task -> ofNullable(progressesById.get(task.id)).ifPresent(task::setProgress));
+        return tasksToUpdate;
+    }
+
+    private RScoredSortedSet<String> stateIndex(Task.State state) {
+        return redissonClient.getScoredSortedSet(stateIndexName(state), StringCodec.INSTANCE);
+    }
+
+    private RScoredSortedSet<String> userIndex(String userId) {
+        return redissonClient.getScoredSortedSet(userIndexName(userId), StringCodec.INSTANCE);
+    }
+
+    private String stateIndexName(Task.State state) {
+        return tasks.getName() + ":state:" + state;
+    }
+
+    private String userIndexName(String userId) {
+        return tasks.getName() + ":user:" + userId;
+    }
+
+    private static double score(TaskSummary summary) {
+        return summary.createdAt().getTime();
+    }
+
+    private static String encode(Encoder encoder, Object value) {
+        try {
+            ByteBuf buf = encoder.encode(value);
+            try {
+                return buf.toString(StandardCharsets.UTF_8);
+            } finally {
+                buf.release();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Override
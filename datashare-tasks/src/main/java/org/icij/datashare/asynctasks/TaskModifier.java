@@ -3,4 +3,12 @@ package org.icij.datashare.asynctasks;
 @FunctionalInterface
 public interface TaskModifier {
     Void progress(String taskId, double rate);
+
+    /**
+     * progress with the checkpoint of the task (see {@link Task#setCheckpoint(String)}).
+     * The default implementation ignores the checkpoint.
+     */
+    default Void progress(String taskId, double rate, String checkpoint) {
+        return progress(taskId, rate);
+    }
 }
@@ -0,0 +1,77 @@
+package org.icij.datashare.asynctasks;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingLong;
+
+/**
+ * Page of a task list.
+ *
+ * @param items tasks of the page
+ * @param next cursor of the next page (opaque for the clients), null if this page is the last one
+ */
+public record TaskPage<T>(List<T> items, String next) {
+    /**
+     * @param items up to size + 1 items: the extra item tells that there is a next page
+     * @param cursor gives the cursor of the item after which the next page starts
+     */
+    static <T> TaskPage<T> of(List<T> items, int size, Function<T, String> cursor) {
+        if (items.size() <= size) {
+            return new TaskPage<>(items, null);
+        }
+        List<T> page = items.subList(0, size);
+        return new TaskPage<>(page, cursor.apply(page.get(size - 1)));
+    }
+
+    /**
+     * Position of a task in the task lists, that are ordered by creation date then id, most recent tasks first.
+     * It is encoded as <code>millis:id</code> by all the task managers.
+     */
+    record Cursor(long createdAt, String id) {
+        static final Comparator<Cursor> ORDER = comparingLong(Cursor::createdAt).thenComparing(Cursor::id).reversed();
+
+        static Cursor of(String id, Date createdAt) {
+            return new Cursor(createdAt == null ? 0 : createdAt.getTime(), id);
+        }
+
+        static Cursor of(Task<?> task) {
+            return of(task.id, task.createdAt);
+        }
+
+        static Cursor of(TaskSummary summary) {
+            return of(summary.id(), summary.createdAt());
+        }
+
+        static <T> Comparator<T> order(Function<T, Cursor> cursor) {
+            return comparing(cursor, ORDER);
+        }
+
+        /**
+         * @return true if the task at this position comes after the cursor in the lists (null is the start of the lists)
+         */
+        boolean isAfter(Cursor cursor) {
+            return cursor == null || ORDER.compare(this, cursor) > 0;
+        }
+
+        static Cursor parse(String cursor) {
+            if (cursor == null) {
+                return null;
+            }
+            int separator = cursor.indexOf(':');
+            try {
+                return new Cursor(Long.parseLong(cursor.substring(0, separator)), cursor.substring(separator + 1));
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("invalid task page cursor: " + cursor);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return createdAt + ":" + id;
+        }
+    }
+}
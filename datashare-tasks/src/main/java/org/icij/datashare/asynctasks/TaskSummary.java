@@ -0,0 +1,50 @@
+package org.icij.datashare.asynctasks;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Date;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * Lightweight view of a task for the task lists: it has no args nor result, which can be big.
+ *
+ * @param userId id of the user that started the task (or null)
+ * @param createdAt creation date of the task, null when the task manager doesn't keep creation dates
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TaskSummary(String id, String name, Task.State state, double progress, String userId, Date createdAt) {
+    @JsonCreator
+    public TaskSummary(@JsonProperty("id") String id,
+                       @JsonProperty("name") String name,
+                       @JsonProperty("state") Task.State state,
+                       @JsonProperty("progress") double progress,
+                       @JsonProperty("userId") String userId,
+                       @JsonProperty("createdAt") Date createdAt) {
+        this.id = id;
+        this.name = name;
+        this.state = state;
+        this.progress = progress;
+        this.userId = userId;
+        this.createdAt = createdAt;
+    }
+
+    public static TaskSummary of(Task<?> task) {
+        return of(task, null);
+    }
+
+    public static TaskSummary of(Task<?> task, Date createdAt) {
+        return new TaskSummary(task.id, task.name, task.getState(), task.getProgress(),
+                ofNullable(task.getUser()).map(u -> u.id).orElse(null), createdAt);
+    }
+
+    TaskSummary withCreatedAt(Date createdAt) {
+        return new TaskSummary(id, name, state, progress, userId, createdAt);
+    }
+
+    TaskSummary withProgress(double progress) {
+        return new TaskSummary(id, name, state, progress, userId, createdAt);
+    }
+}
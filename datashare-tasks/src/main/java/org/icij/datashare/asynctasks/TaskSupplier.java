@@ -26,6 +26,16 @@ public interface TaskSupplier extends TaskModifier, Closeable {
      */
     void consumeTasks(Consumer<Task> taskCallback);
 
+    /**
+     * Same as {@link #consumeTasks(Consumer)} with several consumers calling the callback concurrently.
+     * The default implementation only has one consumer.
+     * @param taskCallback: the callback provided to the loop
+     * @param nbConsumers: the number of tasks that can be consumed at the same time
+     */
+    default void consumeTasks(Consumer<Task> taskCallback, int nbConsumers) {
+        consumeTasks(taskCallback);
+    }
+
     /**
      * method called to send a result into the databus.
      * @param taskId: id of the task
@@ -45,6 +55,16 @@ public interface TaskSupplier extends TaskModifier, Closeable {
      */
     void canceled(Task<?> task, boolean requeue);
 
+    /**
+     * method called to give back a task that has been taken but not run, so that it can be taken again.
+     * The suppliers backed by a {@link java.util.concurrent.BlockingDeque} put it back at the head of the queue.
+     * The default implementation acknowledges the task as canceled with requeue.
+     * @param task: the task to give back
+     */
+    default void requeue(Task<?> task) {
+        canceled(task, true);
+    }
+
     /**
      * Method to add a listener to the TaskEvent sent by the task manager.
      * For now, it is for CancelEvent.
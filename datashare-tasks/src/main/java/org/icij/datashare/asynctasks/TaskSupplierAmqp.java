@@ -22,6 +22,7 @@ import java.util.function.Consumer;
 
 public class TaskSupplierAmqp implements TaskSupplier {
     final AmqpConsumer<Task, Consumer<Task>> consumer;
+    final List<AmqpConsumer<Task, Consumer<Task>>> additionalConsumers = new LinkedList<>();
     final AmqpConsumer<TaskEvent, Consumer<TaskEvent>> eventConsumer;
     final List<Consumer<TaskEvent>> eventCallbackList = new LinkedList<>();
     private final AmqpInterlocutor amqp;
@@ -34,8 +35,13 @@ public class TaskSupplierAmqp implements TaskSupplier {
 
     @Override
     public Void progress(String taskId, double rate) {
+        return progress(taskId, rate, null);
+    }
+
+    @Override
+    public Void progress(String taskId, double rate, String checkpoint) {
         try {
-            amqp.publish(AmqpQueue.MANAGER_EVENT, new ProgressEvent(taskId, rate));
+            amqp.publish(AmqpQueue.MANAGER_EVENT, new ProgressEvent(taskId, rate, checkpoint));
         } catch (IOException e) {
             LoggerFactory.getLogger(getClass()).warn("cannot publish progress {} for task {}", rate, taskId);
         }
@@ -52,6 +58,24 @@ public class TaskSupplierAmqp implements TaskSupplier {
         consumer.consumeEvents(taskCallback);
     }
 
+    /**
+     * Each consumer has its own channel (with the prefetch count of the configuration) so that
+     * the tasks are handled concurrently and each one is acknowledged when it is done.
+     */
+    @Override
+    public void consumeTasks(Consumer<Task> taskCallback, int nbConsumers) {
+        consumer.consumeEvents(taskCallback);
+        try {
+            for (int i = 1; i < nbConsumers; i++) {
+                AmqpConsumer<Task, Consumer<Task>> additionalConsumer = new AmqpConsumer<>(amqp, null, AmqpQueue.TASK, Task.class);
+                additionalConsumers.add(additionalConsumer);
+                additionalConsumer.consumeEvents(taskCallback);
+            }
+        } catch (IOException e) {
+            LoggerFactory.getLogger(getClass()).error("cannot create task consumer, consuming with {} consumer(s)", additionalConsumers.size() + 1, e);
+        }
+    }
+
     @Override
     public <V extends Serializable> void result(String taskId, V result) {
         try {
@@ -98,6 +122,9 @@ public class TaskSupplierAmqp implements TaskSupplier {
 
     @Override
     public void close() throws IOException {
+        for (AmqpConsumer<Task, Consumer<Task>> additionalConsumer : additionalConsumers) {
+            additionalConsumer.shutdown();
+        }
         consumer.shutdown();
     }
 }
@@ -13,6 +13,7 @@ import org.redisson.api.RedissonClient;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
@@ -40,7 +41,12 @@ public class TaskSupplierRedis implements TaskSupplier {
 
     @Override
     public Void progress(String taskId, double rate) {
-        eventTopic.publish(new ProgressEvent(taskId, rate));
+        return progress(taskId, rate, null);
+    }
+
+    @Override
+    public Void progress(String taskId, double rate, String checkpoint) {
+        eventTopic.publish(new ProgressEvent(taskId, rate, checkpoint));
         return null;
     }
 
@@ -51,6 +57,15 @@ public class TaskSupplierRedis implements TaskSupplier {
                 new ResultEvent<>(taskId, result));
     }
 
+    @Override
+    public void requeue(Task<?> task) {
+        if (taskQueue instanceof BlockingDeque<Task<?>> taskDeque) {
+            taskDeque.offerFirst(task);
+        } else {
+            taskQueue.offer(task);
+        }
+    }
+
     @Override
     public void canceled(Task<?> task, boolean requeue) {
         eventTopic.publish(new CancelledEvent(task.id, requeue));
@@ -3,6 +3,7 @@ package org.icij.datashare.asynctasks;
 import org.icij.datashare.asynctasks.bus.amqp.CancelEvent;
 import org.icij.datashare.asynctasks.bus.amqp.CancelledEvent;
 import org.icij.datashare.asynctasks.bus.amqp.TaskError;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sun.misc.Signal;
@@ -10,31 +11,78 @@ import sun.misc.Signal;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.Optional.ofNullable;
 
-
+/**
+ * Runs the tasks given by a {@link TaskSupplier}.
+ * <p>
+ * With one worker (the default), the tasks are run one at a time by the thread calling {@link #call()}.
+ * With more workers, up to <code>nbWorkers</code> tasks are run concurrently, and each task type (the task name
+ * or its simple class name) can be given a budget, i.e. a maximum number of tasks of this type running at the same time.
+ * <p>
+ * For the suppliers with a blocking <code>get</code> (memory and redis queues), a task is only taken from the
+ * queue when a worker is free, so that the other workers of the cluster can take it. A task whose type has no budget left
+ * is held aside while the tasks of the other types are run, and run first when its budget is released. When
+ * <code>nbWorkers</code> tasks are held or when the loop exits, they are given back at the head of the queue
+ * (see {@link TaskSupplier#requeue(Task)}) in their order, and the loop waits for a budget to be released (at most
+ * {@link #BUDGET_WAIT_MILLIS}) before taking tasks again.
+ * <p>
+ * For AMQP, the supplier consumes with <code>nbWorkers</code> channels and a task is acknowledged when it is done.
+ * A task whose type has no budget left is nack-ed with requeue after waiting {@link #BUDGET_WAIT_MILLIS}.
+ * <p>
+ * The progress updates of the tasks can be rate limited with a {@link ProgressCoalescer}.
+ */
 public class TaskWorkerLoop implements Callable<Integer>, Closeable {
+    static final int BUDGET_WAIT_MILLIS = 1000;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final TaskFactory factory;
     private final TaskSupplier taskSupplier;
-    final AtomicReference<Callable<?>> currentTaskReference = new AtomicReference<>();
-    final AtomicReference<Task<?>> currentTask = new AtomicReference<>();
+    final Map<String, RunningTask> runningTasks = new ConcurrentHashMap<>();
     public static final Task<Serializable> POISON = Task.nullObject();
     private final CountDownLatch waitForMainLoopCalled; // for tests only
     private final int pollTimeMillis;
+    private final int nbWorkers;
+    private final Map<String, Semaphore> budgets = new HashMap<>();
+    private final Semaphore releasedBudgets = new Semaphore(0);
     private final ConcurrentHashMap<String, Boolean> cancelledTasks;
     private volatile boolean exitAsked = false;
     private volatile Thread loopThread;
-    private int nbTasks = 0;
+    private final AtomicInteger nbTasks = new AtomicInteger(0);
+    private final ProgressCoalescer progressCoalescer;
+    private final MetricRegistry metrics;
+
+    public TaskWorkerLoop(TaskFactory factory, TaskSupplier taskSupplier, MetricRegistry metrics) {
+        this(factory, taskSupplier, 1, Map.of(), metrics);
+    }
 
-    public TaskWorkerLoop(TaskFactory factory, TaskSupplier taskSupplier) {
-        this(factory, taskSupplier, new CountDownLatch(1));
+    /**
+     * @param nbWorkers number of tasks run concurrently
+     * @param budgets max number of running tasks by task name or simple class name (see {@link #parseBudgets(String)})
+     */
+    public TaskWorkerLoop(TaskFactory factory, TaskSupplier taskSupplier, int nbWorkers, Map<String, Integer> budgets, MetricRegistry metrics) {
+        this(factory, taskSupplier, nbWorkers, budgets, 0, metrics);
+    }
+
+    /**
+     * @param progressIntervalMillis minimum interval between two progress updates of a task, 0 for sending all the updates
+     */
+    public TaskWorkerLoop(TaskFactory factory, TaskSupplier taskSupplier, int nbWorkers, Map<String, Integer> budgets, int progressIntervalMillis,
+                          MetricRegistry metrics) {
+        this(factory, taskSupplier, new CountDownLatch(1), 60_000, nbWorkers, budgets, progressIntervalMillis, metrics);
     }
 
     TaskWorkerLoop(TaskFactory factory, TaskSupplier taskSupplier, CountDownLatch countDownLatch) {
@@ -42,11 +90,29 @@ public class TaskWorkerLoop implements Callable<Integer>, Closeable {
     }
 
     TaskWorkerLoop(TaskFactory factory, TaskSupplier taskSupplier, CountDownLatch countDownLatch, int pollTimeMillis) {
+        this(factory, taskSupplier, countDownLatch, pollTimeMillis, 1, Map.of());
+    }
+
+    TaskWorkerLoop(TaskFactory factory, TaskSupplier taskSupplier, CountDownLatch countDownLatch, int pollTimeMillis,
+                   int nbWorkers, Map<String, Integer> budgets) {
+        // the metrics of the loops created with a latch (for the tests) are not exported
+        this(factory, taskSupplier, countDownLatch, pollTimeMillis, nbWorkers, budgets, 0, new MetricRegistry());
+    }
+
+    TaskWorkerLoop(TaskFactory factory, TaskSupplier taskSupplier, CountDownLatch countDownLatch, int pollTimeMillis,
+                   int nbWorkers, Map<String, Integer> budgets, int progressIntervalMillis, MetricRegistry metrics) {
+        if (nbWorkers < 1) {
+            throw new IllegalArgumentException("number of workers should be at least 1, got " + nbWorkers);
+        }
         this.factory = factory;
         this.taskSupplier = taskSupplier;
         this.waitForMainLoopCalled = countDownLatch;
         this.pollTimeMillis = pollTimeMillis;
+        this.nbWorkers = nbWorkers;
+        this.metrics = metrics;
+        budgets.forEach((taskType, budget) -> this.budgets.put(taskType, new Semaphore(Math.max(1, Math.min(budget, nbWorkers)))));
         this.cancelledTasks = new ConcurrentHashMap<>();
+        this.progressCoalescer = new ProgressCoalescer(taskSupplier, progressIntervalMillis);
         Signal.handle(new Signal("TERM"), signal -> {
             exitAsked = true;
             cancel(null, true);
@@ -66,14 +132,32 @@ public class TaskWorkerLoop implements Callable<Integer>, Closeable {
         }));
     }
 
+    /**
+     * @param budgets comma separated task types and their max number of running tasks, like <code>BatchDownloadRunner=2,BatchSearchRunner=8</code>
+     */
+    public static Map<String, Integer> parseBudgets(String budgets) {
+        Map<String, Integer> result = new HashMap<>();
+        for (String budget : budgets.split(",")) {
+            if (budget.isBlank()) {
+                continue;
+            }
+            String[] typeAndBudget = budget.split("=");
+            if (typeAndBudget.length != 2) {
+                throw new IllegalArgumentException("task budget should be <task type>=<number>, got " + budget);
+            }
+            result.put(typeAndBudget[0].trim(), Integer.parseInt(typeAndBudget[1].trim()));
+        }
+        return result;
+    }
+
     public Integer call()  {
         waitForMainLoopCalled.countDown();
         if (taskSupplier instanceof TaskSupplierAmqp) {
-            taskSupplier.consumeTasks(this::handle);
+            taskSupplier.consumeTasks(this::handle, nbWorkers);
             taskSupplier.waitForConsumer();
-            return nbTasks;
+            return nbTasks.get();
         } else {
-            return mainLoop();
+            return nbWorkers == 1 ? mainLoop() : concurrentLoop();
         }
     }
 
@@ -91,27 +175,120 @@ public class TaskWorkerLoop implements Callable<Integer>, Closeable {
                 logger.info("get from task supplier has been interrupted");
             }
         }
-        logger.info("Exiting loop after {} tasks", nbTasks);
-        return nbTasks;
+        logger.info("Exiting loop after {} tasks", nbTasks.get());
+        return nbTasks.get();
     }
 
-    void handle(Task<?> task) {
+    private Integer concurrentLoop() {
         loopThread = Thread.currentThread();
-        currentTask.set(task);
-        if (cancelledTasks.get(currentTask.get().id) != null) {
-            logger.info("cancelled task {} not executed", currentTask.get().id);
-            taskSupplier.canceled(currentTask.get(), cancelledTasks.remove(currentTask.get().id));
+        ExecutorService workers = Executors.newFixedThreadPool(nbWorkers);
+        Semaphore freeWorkers = new Semaphore(nbWorkers);
+        Deque<Task<Serializable>> heldTasks = new ArrayDeque<>();
+        Task<Serializable> task = null;
+        logger.info("Waiting tasks from supplier ({}) with {} workers and budgets {}", taskSupplier.getClass(), nbWorkers, budgets.keySet());
+        try {
+            while (!POISON.equals(task) && !exitAsked) {
+                try {
+                    freeWorkers.acquire();
+                    Task<Serializable> acceptedTask = null;
+                    try {
+                        acceptedTask = takeHeldTaskWithBudget(heldTasks);
+                        if (acceptedTask == null) {
+                            // held tasks are checked again at least every BUDGET_WAIT_MILLIS
+                            task = taskSupplier.get(heldTasks.isEmpty() ? pollTimeMillis : Math.min(pollTimeMillis, BUDGET_WAIT_MILLIS), TimeUnit.MILLISECONDS);
+                            if (task != null && !POISON.equals(task)) {
+                                if (acquireBudget(task, heldTasks)) {
+                                    acceptedTask = task;
+                                } else {
+                                    hold(task, heldTasks);
+                                }
+                            }
+                        }
+                    } finally {
+                        if (acceptedTask == null) {
+                            freeWorkers.release();
+                        }
+                    }
+                    if (acceptedTask != null) {
+                        Task<Serializable> runTask = acceptedTask;
+                        workers.execute(() -> {
+                            try {
+                                work(runTask);
+                            } finally {
+                                freeWorkers.release();
+                            }
+                        });
+                    }
+                } catch (InterruptedException e) {
+                    logger.info("get from task supplier has been interrupted");
+                }
+            }
+        } finally {
+            requeue(heldTasks);
+            if (exitAsked) {
+                Thread.interrupted(); // the interruption was for the poll, the running tasks are drained
+            }
+            workers.shutdown();
+            awaitTermination(workers);
+        }
+        logger.info("Exiting loop after {} tasks", nbTasks.get());
+        return nbTasks.get();
+    }
+
+    private void work(Task<?> task) {
+        try {
+            run(task);
+        } catch (NackException nex) {
+            // no broker to nack to with a blocking queue: the task is reported in error
+            logger.error("cannot run task {}", task, nex);
+            taskSupplier.error(task.id, new TaskError(nex.getCause()));
+        } finally {
+            ofNullable(budget(task)).ifPresent(budget -> {
+                budget.release();
+                releasedBudgets.release();
+            });
+        }
+    }
+
+    void handle(Task<?> task) {
+        Semaphore budget = budget(task);
+        try {
+            if (budget != null && !budget.tryAcquire(BUDGET_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                logger.info("no budget left for task {}, sending nack with requeue", task);
+                throw new NackException(new IllegalStateException("no budget left for task " + task.name), true);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NackException(e, true);
+        }
+        try {
+            run(task);
+        } finally {
+            ofNullable(budget).ifPresent(Semaphore::release);
+        }
+    }
+
+    private void run(Task<?> task) {
+        if (nbWorkers == 1) {
+            loopThread = Thread.currentThread();
+        }
+        if (cancelledTasks.get(task.id) != null) {
+            logger.info("cancelled task {} not executed", task.id);
+            taskSupplier.canceled(task, cancelledTasks.remove(task.id));
         } else {
+            long start = System.nanoTime();
+            Task.State state = Task.State.ERROR;
             try {
                 Callable<?> taskFn;
-                taskFn = TaskFactoryHelper.createTaskCallable(factory, currentTask.get().name, currentTask.get(),
-                        currentTask.get().progress(taskSupplier::progress));
-                currentTaskReference.set(taskFn);
-                logger.info("running task {}", currentTask.get());
-                taskSupplier.progress(currentTask.get().id, 0);
+                taskFn = TaskFactoryHelper.createTaskCallable(factory, task.name, task, task.progress((taskId, rate) -> progressCoalescer.progress(taskId, rate, task.getCheckpoint())));
+                runningTasks.put(task.id, new RunningTask(task, taskFn));
+                logger.info("running task {}", task);
+                progressCoalescer.progress(task.id, 0);
                 Serializable result = (Serializable) taskFn.call();
-                taskSupplier.result(currentTask.get().id, result);
-                nbTasks++;
+                progressCoalescer.flush(task.id);
+                taskSupplier.result(task.id, result);
+                state = Task.State.DONE;
+                nbTasks.incrementAndGet();
             } catch (CancelException cex) {
                 // TODO: this has to be improved/simplified. The cancellation mechanism relies on
                 //  the fact that the CancellableTask code will properly handle the cancellation.
@@ -120,30 +297,104 @@ public class TaskWorkerLoop implements Callable<Integer>, Closeable {
                 //  InterruptedException and without rethrowing a new CancelException(requeue) with
                 //  the requeue attribute correctly set. This will lead to unexpected behavior,
                 //  such asking for cancel with requeue argument which is actually ignored.
-                logger.error("task {} cancelled with requeue = {}", currentTask, cex.requeue);
-                taskSupplier.canceled(currentTask.get(), cex.requeue);
+                logger.error("task {} cancelled with requeue = {}", task, cex.requeue);
+                progressCoalescer.flush(task.id);
+                taskSupplier.canceled(task, cex.requeue);
+                state = Task.State.CANCELLED;
             } catch (InterruptedException iex) {
-                logger.error("task {} interrupted, cancelling it", currentTask.get(), iex);
-                ofNullable(currentTask.get()).ifPresent(t -> taskSupplier.canceled(t, false));
+                logger.error("task {} interrupted, cancelling it", task, iex);
+                progressCoalescer.flush(task.id);
+                taskSupplier.canceled(task, false);
+                state = Task.State.CANCELLED;
             } catch (RuntimeException ex) {
-                logger.error("error running task {}", currentTask.get(), ex);
-                if (currentTask.get() != null && !currentTask.get().isNull()) {
-                    taskSupplier.error(currentTask.get().id, new TaskError(ex));
+                logger.error("error running task {}", task, ex);
+                progressCoalescer.flush(task.id);
+                if (!task.isNull()) {
+                    taskSupplier.error(task.id, new TaskError(ex));
                 }
             } catch (ReflectiveOperationException unknownTask) {
                 throw new NackException(unknownTask, true);
             } catch (Error | Exception ex) {
                 throw new NackException(ex, false);
             } finally {
-                currentTaskReference.set(null);
-                currentTask.set(null);
+                progressCoalescer.flush(task.id);
+                recordMetrics(task, state, start);
+                runningTasks.remove(task.id);
+            }
+        }
+    }
+
+    private Semaphore budget(Task<?> task) {
+        if (budgets.isEmpty() || task.name == null) {
+            return null;
+        }
+        Semaphore budget = budgets.get(task.name);
+        return budget != null ? budget : budgets.get(task.name.substring(Math.max(task.name.lastIndexOf('.'), task.name.lastIndexOf('$')) + 1));
+    }
+
+    /**
+     * @return false if the type of the task has no budget left, or if tasks of the same type are held before it
+     */
+    private boolean acquireBudget(Task<?> task, Deque<Task<Serializable>> heldTasks) {
+        Semaphore budget = budget(task);
+        return budget == null || heldTasks.stream().noneMatch(held -> budget(held) == budget) && budget.tryAcquire();
+    }
+
+    /**
+     * @return the first held task whose budget could be acquired, removed from the held tasks
+     */
+    private Task<Serializable> takeHeldTaskWithBudget(Deque<Task<Serializable>> heldTasks) {
+        for (Iterator<Task<Serializable>> it = heldTasks.iterator(); it.hasNext(); ) {
+            Task<Serializable> held = it.next();
+            if (budget(held).tryAcquire()) {
+                it.remove();
+                return held;
             }
         }
+        return null;
+    }
+
+    private void hold(Task<Serializable> task, Deque<Task<Serializable>> heldTasks) throws InterruptedException {
+        logger.info("no budget left for task {}, holding it", task);
+        heldTasks.addLast(task);
+        if (heldTasks.size() >= nbWorkers) {
+            requeue(heldTasks);
+            releasedBudgets.drainPermits();
+            releasedBudgets.tryAcquire(BUDGET_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * gives back the held tasks to the supplier, the last one first so that the queue keeps their order
+     */
+    private void requeue(Deque<Task<Serializable>> heldTasks) {
+        while (!heldTasks.isEmpty()) {
+            Task<Serializable> task = heldTasks.pollLast();
+            logger.info("requeueing task {}", task);
+            taskSupplier.requeue(task);
+        }
+    }
+
+    private void awaitTermination(ExecutorService workers) {
+        try {
+            while (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.info("waiting for {} running task(s)", runningTasks.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+        }
+    }
+
+    private void recordMetrics(Task<?> task, Task.State state, long startNanos) {
+        metrics.counter("datashare_tasks_total", "Tasks run by the workers", "name", String.valueOf(task.name), "state", state.name()).inc();
+        metrics.histogram("datashare_task_duration_seconds", "Duration of the tasks run by the workers", "name", String.valueOf(task.name)).observeSince(startNanos);
     }
 
     @Override
     public void close() throws IOException {
         exitAsked = true;
+        progressCoalescer.close();
         taskSupplier.close();
         ofNullable(loopThread).ifPresent(Thread::interrupt);
     }
@@ -155,12 +406,13 @@ public class TaskWorkerLoop implements Callable<Integer>, Closeable {
         //  some useful behavior will be painful to implement:
         //  - global graceful shutdown (task which are not cancellable will run until complete...)
         //  - graceful restart of a task
-        ofNullable(currentTaskReference.get()).ifPresent(t -> {
-            if (CancellableTask.class.isAssignableFrom(t.getClass()) &&
-                    (taskId == null || (currentTask.get() != null && taskId.equals(currentTask.get().id)))) {
-                logger.info("cancelling callable for task {} requeue={}", taskId, requeue);
-                ((CancellableTask) t).cancel(requeue);
+        runningTasks.values().forEach(running -> {
+            if (running.callable instanceof CancellableTask cancellable && (taskId == null || taskId.equals(running.task.id))) {
+                logger.info("cancelling callable for task {} requeue={}", running.task.id, requeue);
+                cancellable.cancel(requeue);
             }
         });
     }
+
+    record RunningTask(Task<?> task, Callable<?> callable) {}
 }
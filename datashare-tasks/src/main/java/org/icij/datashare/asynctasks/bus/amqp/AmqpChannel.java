@@ -7,60 +7,209 @@ import com.rabbitmq.client.ConfirmCallback;
 import com.rabbitmq.client.DefaultConsumer;
 import com.rabbitmq.client.Envelope;
 import org.icij.datashare.asynctasks.NackException;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 /**
  * AmqpChannel is handling publish errors with Publisher Confirm mechanism.
  * It encapsulates a channel, and expose consume/publish related functions.
+ * <p>
+ * Publish channels are put in confirm mode: each published message is kept with its sequence number
+ * until the broker acks it. Nack-ed messages are published again (at most MAX_PUBLISH_ATTEMPTS times) by a resend
+ * thread: the confirm callbacks run on the connection thread that must not wait for the channel lock held by publishers.
+ * Confirms are asynchronous, {@link #waitForConfirms(long)} blocks until the messages published so far are confirmed.
+ * </p>
  * see <a href="https://www.rabbitmq.com/confirms.html#publisher-confirms">rabbitMQ documentation</a>
  */
 public class AmqpChannel {
 	private static final Random rand = new Random();
 	public static final String WORKER_PREFIX = "worker";
+	static final int MAX_PUBLISH_ATTEMPTS = 3;
+	static final long DEFAULT_CONFIRM_TIMEOUT_MS = 5000;
 	private final boolean durable = true;
 	private final boolean exclusive = false;
 	private final boolean autoDelete = false;
 	private final Logger logger = LoggerFactory.getLogger(this.getClass());
-	private final ConcurrentNavigableMap<Long, byte[]> outstandingConfirms = new ConcurrentSkipListMap<>();
+	private final ConcurrentNavigableMap<Long, OutstandingMessage> outstandingConfirms = new ConcurrentSkipListMap<>();
+	// first sequence numbers of the messages not confirmed yet (a message keeps it when it is published again)
+	private final ConcurrentSkipListSet<Long> unconfirmedMessages = new ConcurrentSkipListSet<>();
+	private final AtomicLong failedMessages = new AtomicLong();
+	private final Object confirmLock = new Object();
+	private final ExecutorService resendExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "amqp-resend");
+		thread.setDaemon(true);
+		return thread;
+	});
 	final Channel rabbitMqChannel;
 	final AmqpQueue queue;
 	private final int randomQueueNumber;
+	private final MetricRegistry.Counter publishedMessages;
+	private final MetricRegistry.Counter consumedMessages;
+	private final MetricRegistry.Counter nackedMessages;
 
-	private final ConfirmCallback cleanOutstandingConfirms = (sequenceNumber, multiple) -> {
-		if (multiple) {
-			ConcurrentNavigableMap<Long, byte[]> confirmed = outstandingConfirms.headMap(sequenceNumber, true);
-			confirmed.clear();
-		} else {
-			outstandingConfirms.remove(sequenceNumber);
+	private final ConfirmCallback ackCallback = (sequenceNumber, multiple) ->
+		confirmed(sequenceNumber, multiple).forEach(message -> unconfirmedMessages.remove(message.firstSequenceNumber));
+
+	private final ConfirmCallback nackCallback = (sequenceNumber, multiple) -> {
+		for (OutstandingMessage message : confirmed(sequenceNumber, multiple)) {
+			if (message.attempts < MAX_PUBLISH_ATTEMPTS) {
+				logger.warn("Message with body {} has been nack-ed (attempt {}/{}), publishing it again. Sequence number: {}",
+						new String(message.body), message.attempts, MAX_PUBLISH_ATTEMPTS, message.sequenceNumber);
+				try {
+					resendExecutor.execute(() -> publishAgain(message));
+					continue;
+				} catch (RejectedExecutionException e) {
+					logger.error("cannot publish again message with body {}: channel is closed", new String(message.body));
+				}
+			} else {
+				logger.error("Message with body {} has been nack-ed {} times. Sequence number: {}, multiple: {}",
+						new String(message.body), message.attempts, message.sequenceNumber, multiple);
+			}
+			giveUp(message);
 		}
 	};
-	
-	public AmqpChannel(Channel channel, AmqpQueue queue) {
+
+	public AmqpChannel(Channel channel, AmqpQueue queue, MetricRegistry metrics) {
 		this.rabbitMqChannel = channel;
-		channel.addConfirmListener(cleanOutstandingConfirms, (sequenceNumber, multiple) -> {
-			byte[] body = outstandingConfirms.get(sequenceNumber);
-			logger.error("Message with body {} has been nack-ed. Sequence number: {}, multiple: {}", new String(body), sequenceNumber, multiple);
-			cleanOutstandingConfirms.handle(sequenceNumber, multiple);
-		});
+		channel.addConfirmListener((sequenceNumber, multiple) -> {
+			ackCallback.handle(sequenceNumber, multiple);
+			signalConfirms();
+		}, nackCallback);
 		this.queue = queue;
 		this.randomQueueNumber = rand.nextInt(1000);
+		this.publishedMessages = metrics.counter("datashare_amqp_published_messages_total", "Messages published to AMQP queues", "queue", queue.name());
+		this.consumedMessages = metrics.counter("datashare_amqp_consumed_messages_total", "Messages consumed from AMQP queues and ack-ed", "queue", queue.name());
+		this.nackedMessages = metrics.counter("datashare_amqp_nacked_messages_total", "Messages consumed from AMQP queues and nack-ed", "queue", queue.name());
 	}
 
 	void publish(Event event) throws IOException {
-		rabbitMqChannel.basicPublish(queue.exchange, queue.routingKey, null, event.serialize());
+		basicPublish(null, event.serialize(), 1);
+	}
+
+	/**
+	 * publishes the events without waiting for each confirm, then waits for all of them.
+	 * It is meant for high rate streams (like progress events) where one confirm round trip per event is too slow.
+	 *
+	 * @return true if the events have been confirmed in timeoutMs
+	 */
+	boolean publish(Collection<? extends Event> events, long timeoutMs) throws IOException, InterruptedException {
+		List<byte[]> bodies = new ArrayList<>(events.size());
+		for (Event event : events) {
+			bodies.add(event.serialize());
+		}
+		long lastSequenceNumber;
+		synchronized (rabbitMqChannel) {
+			for (byte[] body : bodies) {
+				basicPublish(null, body, 1);
+			}
+			lastSequenceNumber = rabbitMqChannel.getNextPublishSeqNo() - 1;
+		}
+		return waitForConfirms(lastSequenceNumber, timeoutMs);
+	}
+
+	/**
+	 * waits for the confirms of all the messages published before this call.
+	 *
+	 * @return true if they have all been confirmed (ack-ed or given up after nacks) in timeoutMs
+	 */
+	boolean waitForConfirms(long timeoutMs) throws InterruptedException {
+		return waitForConfirms(rabbitMqChannel.getNextPublishSeqNo() - 1, timeoutMs);
+	}
+
+	long getUnconfirmedCount() {
+		return unconfirmedMessages.size();
+	}
+
+	long getFailedCount() {
+		return failedMessages.get();
+	}
+
+	private boolean waitForConfirms(long lastSequenceNumber, long timeoutMs) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMs;
+		synchronized (confirmLock) {
+			while (!unconfirmedMessages.isEmpty() && unconfirmedMessages.first() <= lastSequenceNumber) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					return false;
+				}
+				confirmLock.wait(remaining);
+			}
+		}
+		return true;
+	}
+
+	private void publishAgain(OutstandingMessage message) {
+		try {
+			basicPublish(message.firstSequenceNumber, message.body, message.attempts + 1);
+		} catch (IOException | RuntimeException e) {
+			logger.error("cannot publish again message with body {}", new String(message.body), e);
+			giveUp(message);
+		}
+	}
+
+	private void giveUp(OutstandingMessage message) {
+		failedMessages.incrementAndGet();
+		unconfirmedMessages.remove(message.firstSequenceNumber);
+		signalConfirms();
+	}
+
+	private void basicPublish(Long firstSequenceNumber, byte[] body, int attempt) throws IOException {
+		synchronized (rabbitMqChannel) {
+			long sequenceNumber = rabbitMqChannel.getNextPublishSeqNo();
+			long first = firstSequenceNumber == null ? sequenceNumber : firstSequenceNumber;
+			if (sequenceNumber > 0) { // 0 means that the channel is not in confirm mode
+				outstandingConfirms.put(sequenceNumber, new OutstandingMessage(first, sequenceNumber, body, attempt));
+				unconfirmedMessages.add(first);
+			}
+			try {
+				rabbitMqChannel.basicPublish(queue.exchange, queue.routingKey, null, body);
+				if (attempt == 1) {
+					publishedMessages.inc();
+				}
+			} catch (IOException | RuntimeException e) {
+				outstandingConfirms.remove(sequenceNumber);
+				unconfirmedMessages.remove(first);
+				throw e;
+			}
+		}
+	}
+
+	private Collection<OutstandingMessage> confirmed(long sequenceNumber, boolean multiple) {
+		if (multiple) {
+			ConcurrentNavigableMap<Long, OutstandingMessage> confirmed = outstandingConfirms.headMap(sequenceNumber, true);
+			List<OutstandingMessage> messages = new ArrayList<>(confirmed.values());
+			confirmed.clear();
+			return messages;
+		}
+		OutstandingMessage message = outstandingConfirms.remove(sequenceNumber);
+		return message == null ? List.of() : List.of(message);
+	}
+
+	private void signalConfirms() {
+		synchronized (confirmLock) {
+			confirmLock.notifyAll();
+		}
 	}
 
 	String consume(Consumer<byte[]> bodyHandler, ConsumerCriteria criteria, CancelFunction cancelCallback) throws IOException {
@@ -70,12 +219,15 @@ public class AmqpChannel {
 				try {
 					bodyHandler.accept(body);
 					rabbitMqChannel.basicAck(envelope.getDeliveryTag(), false);
+					consumedMessages.inc();
 				} catch (Deserializer.DeserializeException jsonException) {
 					logger.warn("exception while deserializing json. Sending nack without requeue", jsonException);
 					rabbitMqChannel.basicNack(envelope.getDeliveryTag(), false, false);
+					nackedMessages.inc();
 				} catch (NackException nackEx) {
 					logger.warn("exception while accepting event. Sending nack with requeue=" + nackEx.requeue, nackEx);
 					rabbitMqChannel.basicNack(envelope.getDeliveryTag(), false, nackEx.requeue);
+					nackedMessages.inc();
 				}
 				criteria.newEvent();
 				if (!criteria.isValid()) {
@@ -90,6 +242,7 @@ public class AmqpChannel {
 	}
 
 	public void close() throws IOException {
+		resendExecutor.shutdown();
 		try {
 			if (rabbitMqChannel.isOpen()) {
 				rabbitMqChannel.close();
@@ -112,6 +265,7 @@ public class AmqpChannel {
 
 	void initForPublish() throws IOException {
 		rabbitMqChannel.exchangeDeclare(queue.exchange, queue.exchangeType, durable);
+		rabbitMqChannel.confirmSelect();
 	}
 
 	void initForConsume(boolean rabbitMq, int nbMaxMessages) throws IOException {
@@ -131,6 +285,20 @@ public class AmqpChannel {
 		rabbitMqChannel.basicQos(nbMaxMessages);
 	}
 
+	private static class OutstandingMessage {
+		final long firstSequenceNumber;
+		final long sequenceNumber;
+		final byte[] body;
+		final int attempts;
+
+		OutstandingMessage(long firstSequenceNumber, long sequenceNumber, byte[] body, int attempts) {
+			this.firstSequenceNumber = firstSequenceNumber;
+			this.sequenceNumber = sequenceNumber;
+			this.body = body;
+			this.attempts = attempts;
+		}
+	}
+
 	@FunctionalInterface
 	interface CancelFunction {
 		void cancel() throws IOException;
@@ -3,12 +3,14 @@ package org.icij.datashare.asynctasks.bus.amqp;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
 import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeoutException;
 
@@ -25,15 +27,17 @@ public class AmqpInterlocutor {
     private static final Logger logger = LoggerFactory.getLogger(AmqpInterlocutor.class);
     final Configuration configuration;
     private final Connection connection;
+    private final MetricRegistry metrics;
     private final ConcurrentHashMap<AmqpQueue, AmqpChannel> publishChannels = new ConcurrentHashMap<>();
 
 
-    public AmqpInterlocutor(PropertiesProvider propertiesProvider) throws IOException, URISyntaxException {
-        this(new Configuration(new URI(propertiesProvider.get("messageBusAddress").orElse("amqp://rabbitmq:5672"))));
+    public AmqpInterlocutor(PropertiesProvider propertiesProvider, MetricRegistry metrics) throws IOException, URISyntaxException {
+        this(new Configuration(new URI(propertiesProvider.get("messageBusAddress").orElse("amqp://rabbitmq:5672"))), metrics);
     }
 
-    public AmqpInterlocutor(Configuration configuration) throws IOException {
+    public AmqpInterlocutor(Configuration configuration, MetricRegistry metrics) throws IOException {
         this.configuration = configuration;
+        this.metrics = metrics;
         ConnectionFactory connectionFactory = createConnectionFactory(configuration);
         this.connection = createConnection(connectionFactory);
     }
@@ -57,6 +61,15 @@ public class AmqpInterlocutor {
         getChannel(queue).publish(event);
     }
 
+    /**
+     * publishes a batch of events and waits for the broker confirms.
+     *
+     * @return true if all the events have been confirmed by the broker
+     */
+    public boolean publish(AmqpQueue queue, Collection<? extends Event> events) throws IOException, InterruptedException {
+        return getChannel(queue).publish(events, AmqpChannel.DEFAULT_CONFIRM_TIMEOUT_MS);
+    }
+
     AmqpChannel getChannel(AmqpQueue queue) {
         if (queue == null) {
             throw new UnknownChannelException(queue);
@@ -80,7 +93,7 @@ public class AmqpInterlocutor {
     }
 
     public synchronized AmqpInterlocutor createAmqpChannelForPublish(AmqpQueue queue) throws IOException {
-        AmqpChannel channel = new AmqpChannel(connection.createChannel(), queue);
+        AmqpChannel channel = new AmqpChannel(connection.createChannel(), queue, metrics);
         channel.initForPublish();
         publishChannels.put(queue, channel);
         logger.info("publish channel " + channel + " has been created for exchange {}", queue.exchange);
@@ -88,7 +101,7 @@ public class AmqpInterlocutor {
     }
 
     public synchronized AmqpChannel createAmqpChannelForConsume(AmqpQueue queue) throws IOException {
-        AmqpChannel channel = new AmqpChannel(connection.createChannel(), queue);
+        AmqpChannel channel = new AmqpChannel(connection.createChannel(), queue, metrics);
         channel.initForConsume(configuration.rabbitMq, configuration.nbMaxMessages);
         logger.info("consume channel {} has been created for queue {}", channel, channel.queueName(AmqpChannel.WORKER_PREFIX));
         return channel;
@@ -109,6 +122,13 @@ public class AmqpInterlocutor {
 
     void closeChannelsAndConnection() throws IOException {
         for (AmqpChannel channel : publishChannels.values()) {
+            try {
+                if (!channel.waitForConfirms(AmqpChannel.DEFAULT_CONFIRM_TIMEOUT_MS)) {
+                    logger.warn("{} message(s) not confirmed before closing channel {}", channel.getUnconfirmedCount(), channel);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
             channel.close();
         }
         if (connection.isOpen()) {
@@ -1,14 +1,23 @@
 package org.icij.datashare.asynctasks.bus.amqp;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class ProgressEvent extends TaskEvent {
     public final double progress;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public final String checkpoint;
+
+    public ProgressEvent(String taskId, double progress) {
+        this(taskId, progress, null);
+    }
 
     @JsonCreator
-    public ProgressEvent(@JsonProperty("taskId") String taskId, @JsonProperty("progress") double progress) {
+    public ProgressEvent(@JsonProperty("taskId") String taskId, @JsonProperty("progress") double progress,
+                         @JsonProperty("checkpoint") String checkpoint) {
         super(taskId);
         this.progress = progress;
+        this.checkpoint = checkpoint;
     }
 }
@@ -0,0 +1,124 @@
+package org.icij.datashare.asynctasks;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ProgressCoalescerTest {
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private ProgressCoalescer coalescer;
+
+    @Test
+    public void test_without_interval_sends_all_progresses() {
+        coalescer = new ProgressCoalescer(this::send, 0);
+
+        coalescer.progress("task", 0.1);
+        coalescer.progress("task", 0.2);
+        coalescer.flush("task");
+
+        assertThat(sent).containsExactly("task=0.1", "task=0.2");
+    }
+
+    @Test
+    public void test_sends_first_progress_and_keeps_last_one_until_flush() {
+        coalescer = new ProgressCoalescer(this::send, 60_000);
+
+        coalescer.progress("task", 0.1);
+        coalescer.progress("task", 0.2);
+        coalescer.progress("task", 0.3);
+        assertThat(sent).containsExactly("task=0.1");
+
+        coalescer.flush("task");
+        assertThat(sent).containsExactly("task=0.1", "task=0.3");
+        assertThat(coalescer.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_flush_without_pending_progress() {
+        coalescer = new ProgressCoalescer(this::send, 60_000);
+
+        coalescer.progress("task", 0.1);
+        coalescer.flush("task");
+        coalescer.flush("unknown");
+
+        assertThat(sent).containsExactly("task=0.1");
+    }
+
+    @Test
+    public void test_rate_limits_by_task() {
+        coalescer = new ProgressCoalescer(this::send, 60_000);
+
+        coalescer.progress("task1", 0.1);
+        coalescer.progress("task2", 0.5);
+        coalescer.progress("task1", 0.2);
+
+        assertThat(sent).containsExactly("task1=0.1", "task2=0.5");
+    }
+
+    @Test
+    public void test_sends_pending_progress_after_interval() throws Exception {
+        coalescer = new ProgressCoalescer(this::send, 50);
+
+        coalescer.progress("task", 0.1);
+        coalescer.progress("task", 0.2);
+        for (int i = 0; i < 100 && sent.size() < 2; i++) {
+            Thread.sleep(10);
+        }
+
+        assertThat(sent).containsExactly("task=0.1", "task=0.2");
+    }
+
+    @Test
+    public void test_sends_checkpoint_when_it_changes() {
+        coalescer = new ProgressCoalescer(checkpointSink(), 0);
+
+        coalescer.progress("task", 0.1, "c1");
+        coalescer.progress("task", 0.2, "c1");
+        coalescer.progress("task", 0.3, "c2");
+        coalescer.flush("task");
+
+        assertThat(sent).containsExactly("task=0.1@c1", "task=0.2", "task=0.3@c2");
+        assertThat(coalescer.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_pending_progress_keeps_last_checkpoint() {
+        coalescer = new ProgressCoalescer(checkpointSink(), 60_000);
+
+        coalescer.progress("task", 0.1, "c1");
+        coalescer.progress("task", 0.2, "c2");
+        coalescer.progress("task", 0.3, null);
+        coalescer.flush("task");
+
+        assertThat(sent).containsExactly("task=0.1@c1", "task=0.3@c2");
+    }
+
+    @After
+    public void tearDown() {
+        coalescer.close();
+    }
+
+    private Void send(String taskId, double progress) {
+        sent.add(taskId + "=" + progress);
+        return null;
+    }
+
+    private TaskModifier checkpointSink() {
+        return new TaskModifier() {
+            @Override
+            public Void progress(String taskId, double rate) {
+                return send(taskId, rate);
+            }
+
+            @Override
+            public Void progress(String taskId, double rate, String checkpoint) {
+                sent.add(taskId + "=" + rate + "@" + checkpoint);
+                return null;
+            }
+        };
+    }
+}
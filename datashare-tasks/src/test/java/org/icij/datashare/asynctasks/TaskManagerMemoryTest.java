@@ -2,10 +2,13 @@ package org.icij.datashare.asynctasks;
 
 import static org.fest.assertions.Assertions.assertThat;
 
+import java.util.ArrayList;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 import org.icij.datashare.test.LogbackCapturingRule;
 import org.icij.datashare.user.User;
 import org.junit.After;
@@ -21,14 +24,14 @@ public class TaskManagerMemoryTest {
 
     TaskFactory factory = new TestFactory();
 
+    private final LinkedBlockingDeque<Task<?>> taskQueue = new LinkedBlockingDeque<>();
     private TaskManagerMemory taskManager;
     private TaskInspector taskInspector;
     private final CountDownLatch waitForLoop = new CountDownLatch(1);
 
     @Before
     public void setUp() throws Exception {
-        LinkedBlockingQueue<Task<?>> taskViews = new LinkedBlockingQueue<>();
-        taskManager = new TaskManagerMemory(taskViews, factory, waitForLoop);
+        taskManager = new TaskManagerMemory(taskQueue, factory, waitForLoop);
         taskInspector = new TaskInspector(taskManager);
         waitForLoop.await();
     }
@@ -76,6 +79,22 @@ public class TaskManagerMemoryTest {
         assertThat(taskManager.getTasks()).hasSize(2);
     }
 
+    @Test
+    public void test_requeue_puts_the_task_at_the_head_of_the_queue() throws Exception {
+        Task<Integer> t1 = new Task<>(TestFactory.SleepForever.class.getName(), User.local(), Map.of());
+        Task<Integer> t2 = new Task<>(TestFactory.HelloWorld.class.getName(), User.local(), Map.of("greeted", "queued task"));
+        Task<Integer> t3 = new Task<>(TestFactory.HelloWorld.class.getName(), User.local(), Map.of("greeted", "requeued task"));
+        taskManager.startTask(t1);
+        taskInspector.awaitToBeStarted(t1.id, 1000);
+
+        taskManager.startTask(t2);
+        taskManager.requeue(t3);
+
+        assertThat(new ArrayList<>(taskQueue)).containsExactly(t3, t2);
+        taskManager.stopTask(t1.id);
+        taskManager.shutdownAndAwaitTermination(1, TimeUnit.SECONDS);
+    }
+
     @Test
     public void test_clear_the_only_task() throws Exception {
         Task<Integer> task = new Task<>("sleep", User.local(), Map.of("intParameter", 12));
@@ -105,6 +124,36 @@ public class TaskManagerMemoryTest {
             "unknown task id <unknownId> for result=0.5 call");
     }
 
+    @Test
+    public void test_get_tasks_page_most_recent_first() {
+        taskManager.save(new Task<>("t1", "HelloWorld", User.local()));
+        taskManager.save(new Task<>("t2", "HelloWorld", new User("foo")));
+        Task<?> t3 = new Task<>("t3", "HelloWorld", User.local());
+        taskManager.save(t3);
+        taskManager.save(new Task<>("t4", "Sleep", User.local()));
+
+        TaskFilter filter = TaskFilter.all().withUser(User.local()).withName(Pattern.compile(".*Hello.*"));
+        TaskPage<Task<?>> page = taskManager.getTasks(filter, null, 1);
+        assertThat(page.items()).onProperty("id").containsExactly("t3");
+        assertThat(page.next()).isEqualTo(t3.createdAt.getTime() + ":t3");
+
+        TaskPage<TaskSummary> lastPage = taskManager.getTaskSummaries(filter, page.next(), 1);
+        assertThat(lastPage.items()).containsExactly(new TaskSummary("t1", "HelloWorld", Task.State.CREATED, 0, "local", null));
+        assertThat(lastPage.next()).isNull();
+    }
+
+    @Test
+    public void test_get_tasks_page_filtered_by_state() {
+        Task<Object> task = new Task<>("t1", "HelloWorld", User.local());
+        taskManager.save(task);
+        taskManager.save(new Task<>("t2", "HelloWorld", User.local()));
+        task.cancel();
+
+        TaskPage<Task<?>> page = taskManager.getTasks(TaskFilter.all().withStates(Set.of(Task.State.CANCELLED)), null, 10);
+
+        assertThat(page.items()).onProperty("id").containsExactly("t1");
+        assertThat(page.next()).isNull();
+    }
 
     @After
     public void tearDown() throws Exception {
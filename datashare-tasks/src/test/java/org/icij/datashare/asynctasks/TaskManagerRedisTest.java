@@ -2,6 +2,8 @@ package org.icij.datashare.asynctasks;
 
 import org.fest.assertions.Assertions;
 import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.asynctasks.bus.amqp.ProgressEvent;
+import org.icij.datashare.asynctasks.bus.amqp.ResultEvent;
 import org.icij.datashare.user.User;
 import org.icij.extract.redis.RedissonClientFactory;
 import org.icij.task.Options;
@@ -12,10 +14,12 @@ import org.redisson.api.RedissonClient;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -102,6 +106,89 @@ public class TaskManagerRedisTest {
         assertThat(taskManager.getTasks().get(0).getResult()).isEqualTo(expectedResult);
     }
 
+    @Test
+    public void test_get_tasks_page_most_recent_first() {
+        taskManager.save(new Task<>("t1", "HelloWorld", User.local()));
+        taskManager.save(new Task<>("t2", "HelloWorld", new User("foo")));
+        taskManager.save(new Task<>("t3", "HelloWorld", User.local()));
+        taskManager.save(new Task<>("t4", "Sleep", User.local()));
+
+        TaskFilter filter = TaskFilter.all().withUser(User.local()).withName(Pattern.compile(".*Hello.*"));
+        TaskPage<Task<?>> page = taskManager.getTasks(filter, null, 1);
+        assertThat(page.items()).onProperty("id").containsExactly("t3");
+        assertThat(page.next()).isNotNull();
+
+        TaskPage<TaskSummary> lastPage = taskManager.getTaskSummaries(filter, page.next(), 1);
+        assertThat(lastPage.items()).onProperty("id").containsExactly("t1");
+        assertThat(lastPage.next()).isNull();
+    }
+
+    @Test
+    public void test_get_tasks_page_filtered_by_state() {
+        Task<Object> task = new Task<>("t1", "HelloWorld", User.local());
+        taskManager.save(task);
+        taskManager.save(new Task<>("t2", "HelloWorld", User.local()));
+        task.cancel();
+        taskManager.save(task);
+
+        assertThat(taskManager.getTasks(TaskFilter.all().withStates(Set.of(Task.State.CANCELLED)), null, 10).items())
+                .onProperty("id").containsExactly("t1");
+        assertThat(taskManager.getTasks(TaskFilter.all().withStates(Set.of(Task.State.CREATED)), null, 10).items())
+                .onProperty("id").containsExactly("t2");
+        assertThat(taskManager.clearDoneTasks()).onProperty("id").containsExactly("t1");
+        assertThat(taskManager.getTasks(TaskFilter.all(), null, 10).items()).onProperty("id").containsExactly("t2");
+    }
+
+    @Test
+    public void test_summary_has_the_task_creation_date() {
+        Task<Object> task = new Task<>("t1", "HelloWorld", User.local());
+        taskManager.save(task);
+        task.cancel();
+        taskManager.save(task);
+
+        assertThat(taskManager.getTaskSummaries(TaskFilter.all(), null, 10).items().get(0).createdAt()).isEqualTo(task.createdAt);
+    }
+
+    @Test
+    public void test_missing_indexes_are_rebuilt_with_the_task_creation_dates() {
+        Task<Object> task = new Task<>("t1", "HelloWorld", User.local());
+        taskManager.save(task);
+        redissonClient.getKeys().delete("test:task:manager:summaries", "test:task:manager:created");
+
+        TaskManagerRedis restarted = new TaskManagerRedis(redissonClient, taskQueue, "test:task:manager");
+
+        TaskPage<TaskSummary> page = restarted.getTaskSummaries(TaskFilter.all(), null, 10);
+        assertThat(page.items()).onProperty("id").containsExactly("t1");
+        assertThat(page.items().get(0).createdAt()).isEqualTo(task.createdAt);
+    }
+
+    @Test
+    public void test_progress_is_written_without_the_task() throws Exception {
+        String taskId = taskManager.startTask("HelloWorld", User.local(), new HashMap<>());
+
+        assertThat(taskManager.setProgress(new ProgressEvent(taskId, 0.1))).isNotNull();
+        assertThat(taskManager.setProgress(new ProgressEvent(taskId, 0.5))).isNull();
+
+        assertThat(taskManager.getTask(taskId).getState()).isEqualTo(Task.State.RUNNING);
+        assertThat(taskManager.getTask(taskId).getProgress()).isEqualTo(0.5);
+        assertThat(taskManager.getTaskSummaries(TaskFilter.all(), null, 10).items().get(0).progress()).isEqualTo(0.5);
+
+        taskManager.setResult(new ResultEvent<>(taskId, "done"));
+        assertThat(taskManager.getTask(taskId).getState()).isEqualTo(Task.State.DONE);
+        assertThat(taskManager.getTask(taskId).getProgress()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_progress_with_checkpoint_saves_the_task() throws Exception {
+        String taskId = taskManager.startTask("HelloWorld", User.local(), new HashMap<>());
+        taskManager.setProgress(new ProgressEvent(taskId, 0.1));
+
+        assertThat(taskManager.setProgress(new ProgressEvent(taskId, 0.5, "checkpoint"))).isNotNull();
+
+        assertThat(taskManager.getTask(taskId).getCheckpoint()).isEqualTo("checkpoint");
+        assertThat(taskManager.getTask(taskId).getProgress()).isEqualTo(0.5);
+    }
+
     @Test
     public void test_shutdown_and_await_termination() throws Exception {
         taskManager.shutdownAndAwaitTermination(1, TimeUnit.SECONDS);
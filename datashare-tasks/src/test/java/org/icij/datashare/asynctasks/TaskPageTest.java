@@ -0,0 +1,43 @@
+package org.icij.datashare.asynctasks;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class TaskPageTest {
+    @Test
+    public void test_cursor_order_most_recent_first_and_descending_ids_for_ties() {
+        List<TaskPage.Cursor> cursors = Stream.of(new TaskPage.Cursor(1, "t1"), new TaskPage.Cursor(2, "t2"), new TaskPage.Cursor(2, "t3"))
+                .sorted(TaskPage.Cursor.ORDER).collect(toList());
+
+        assertThat(cursors).containsExactly(new TaskPage.Cursor(2, "t3"), new TaskPage.Cursor(2, "t2"), new TaskPage.Cursor(1, "t1"));
+    }
+
+    @Test
+    public void test_cursor_is_after() {
+        TaskPage.Cursor cursor = new TaskPage.Cursor(2, "t2");
+
+        assertThat(new TaskPage.Cursor(2, "t1").isAfter(cursor)).isTrue();
+        assertThat(new TaskPage.Cursor(1, "t3").isAfter(cursor)).isTrue();
+        assertThat(new TaskPage.Cursor(2, "t3").isAfter(cursor)).isFalse();
+        assertThat(cursor.isAfter(cursor)).isFalse();
+        assertThat(cursor.isAfter(null)).isTrue();
+    }
+
+    @Test
+    public void test_cursor_serialization() {
+        TaskPage.Cursor cursor = new TaskPage.Cursor(1234, "task:id");
+
+        assertThat(cursor.toString()).isEqualTo("1234:task:id");
+        assertThat(TaskPage.Cursor.parse(cursor.toString())).isEqualTo(cursor);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_invalid_cursor() {
+        TaskPage.Cursor.parse("t1");
+    }
+}
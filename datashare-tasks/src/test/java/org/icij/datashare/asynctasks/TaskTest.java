@@ -58,6 +58,16 @@ public class TaskTest {
         assertThat(taskView.getState()).isEqualTo(Task.State.RUNNING);
     }
 
+    @Test
+    public void test_checkpoint_is_serialized_with_the_task() throws Exception {
+        Task<Object> taskView = new Task<>("name", User.local(), new HashMap<>());
+        taskView.setCheckpoint("{\"page\":2}");
+
+        Task<?> deserialized = JsonObjectMapper.MAPPER.readValue(JsonObjectMapper.MAPPER.writeValueAsString(taskView), Task.class);
+
+        assertThat(deserialized.getCheckpoint()).isEqualTo("{\"page\":2}");
+    }
+
     @Test
     public void test_get_result_sync_when_task_is_not_local_and_result_is_not_null() {
         Task<Object> taskView = new Task<>("id", "task", Task.State.DONE, 1, "run", new HashMap<>());
@@ -1,9 +1,11 @@
 package org.icij.datashare.asynctasks;
 
+import org.icij.datashare.monitoring.MetricRegistry;
 import org.icij.datashare.user.User;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
@@ -15,8 +17,13 @@ import java.util.concurrent.TimeUnit;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.fest.assertions.Fail.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -27,7 +34,7 @@ public class TaskWorkerLoopTest {
 
     @Test(timeout = 2000)
     public void test_loop() throws Exception {
-        TaskWorkerLoop app = new TaskWorkerLoop(registry, supplier);
+        TaskWorkerLoop app = new TaskWorkerLoop(registry, supplier, new MetricRegistry());
         Task<Serializable> taskView = new Task<>(TestFactory.HelloWorld.class.getName(), User.local(), Map.of("greeted", "world"));
         Mockito.when(supplier.get(ArgumentMatchers.anyInt(), ArgumentMatchers.any())).thenReturn(taskView, Task.nullObject());
 
@@ -39,7 +46,7 @@ public class TaskWorkerLoopTest {
 
     @Test(timeout = 2000)
     public void test_unknown_task() throws Exception {
-        TaskWorkerLoop app = new TaskWorkerLoop(registry, supplier);
+        TaskWorkerLoop app = new TaskWorkerLoop(registry, supplier, new MetricRegistry());
         Task<Serializable> taskView = new Task<>("unknown_task", User.local(), Map.of());
 
         try {
@@ -52,7 +59,7 @@ public class TaskWorkerLoopTest {
 
     @Test
     public void test_cancel_task() throws Exception {
-        TaskWorkerLoop app = new TaskWorkerLoop(registry, supplier);
+        TaskWorkerLoop app = new TaskWorkerLoop(registry, supplier, new MetricRegistry());
         Task<Serializable> taskView = new Task<>(TestFactory.SleepForever.class.getName(), User.local(), Map.of());
         Mockito.when(supplier.get(ArgumentMatchers.anyInt(), ArgumentMatchers.any())).thenReturn(taskView, Task.nullObject());
         boolean requeue = false;
@@ -69,7 +76,7 @@ public class TaskWorkerLoopTest {
 
     @Test
     public void test_cancel_task_and_requeue() throws Exception {
-        TaskWorkerLoop app = new TaskWorkerLoop(registry, supplier);
+        TaskWorkerLoop app = new TaskWorkerLoop(registry, supplier, new MetricRegistry());
         Task<Serializable> taskView = new Task<>(TestFactory.SleepForever.class.getName(), User.local(), Map.of());
         Mockito.when(supplier.get(ArgumentMatchers.anyInt(), ArgumentMatchers.any())).thenReturn(taskView, Task.nullObject());
         boolean requeue = true;
@@ -86,7 +93,7 @@ public class TaskWorkerLoopTest {
 
     @Test(timeout = 2000)
     public void test_task_interrupted() throws Exception {
-        TaskWorkerLoop app = new TaskWorkerLoop(registry, supplier);
+        TaskWorkerLoop app = new TaskWorkerLoop(registry, supplier, new MetricRegistry());
         Task<Serializable> taskView = new Task<>(TestFactory.SleepForever.class.getName(), User.local(), Map.of());
         Mockito.when(supplier.get(ArgumentMatchers.anyInt(), ArgumentMatchers.any()))
             .thenReturn(taskView, Task.nullObject());
@@ -99,6 +106,115 @@ public class TaskWorkerLoopTest {
         verify(supplier).canceled(eq(taskView), eq(false));
     }
 
+    @Test(timeout = 5000)
+    public void test_concurrent_loop() throws Exception {
+        TaskWorkerLoop app = new TaskWorkerLoop(registry, supplier, new CountDownLatch(1), 100, 4, Map.of());
+        Task<Serializable> task1 = new Task<>(TestFactory.HelloWorld.class.getName(), User.local(), Map.of("greeted", "world"));
+        Task<Serializable> task2 = new Task<>(TestFactory.HelloWorld.class.getName(), User.local(), Map.of("greeted", "you"));
+        Mockito.when(supplier.get(ArgumentMatchers.anyInt(), ArgumentMatchers.any())).thenReturn(task1, task2, Task.nullObject());
+
+        Integer nb = app.call();
+
+        assertThat(nb).isEqualTo(2);
+        verify(supplier).result(eq(task1.id), eq("Hello world!"));
+        verify(supplier).result(eq(task2.id), eq("Hello you!"));
+    }
+
+    @Test(timeout = 5000)
+    public void test_concurrent_loop_requeues_held_tasks_on_exit() throws Exception {
+        TaskWorkerLoop app = new TaskWorkerLoop(registry, supplier, new CountDownLatch(1), 100, 4, Map.of("SleepForever", 2));
+        Task<Serializable> task1 = new Task<>(TestFactory.SleepForever.class.getName(), User.local(), Map.of());
+        Task<Serializable> task2 = new Task<>(TestFactory.SleepForever.class.getName(), User.local(), Map.of());
+        Task<Serializable> task3 = new Task<>(TestFactory.SleepForever.class.getName(), User.local(), Map.of());
+        Mockito.when(supplier.get(ArgumentMatchers.anyInt(), ArgumentMatchers.any())).thenReturn(task1, task2, task3, Task.nullObject());
+        CountDownLatch task1Started = whenTaskHasStarted(task1.id);
+        CountDownLatch task2Started = whenTaskHasStarted(task2.id);
+
+        Thread appThread = new Thread(app::call);
+        appThread.start();
+        task1Started.await();
+        task2Started.await();
+        verify(supplier, timeout(2000)).requeue(eq(task3));
+        assertThat(app.runningTasks.keySet()).containsOnly(task1.id, task2.id);
+
+        app.cancel(null, false);
+        appThread.join();
+
+        verify(supplier).canceled(eq(task1), eq(false));
+        verify(supplier).canceled(eq(task2), eq(false));
+        verify(supplier, never()).canceled(eq(task3), anyBoolean());
+    }
+
+    @Test(timeout = 5000)
+    public void test_concurrent_loop_runs_other_types_while_holding_tasks_over_budget() throws Exception {
+        TaskWorkerLoop app = new TaskWorkerLoop(registry, supplier, new CountDownLatch(1), 100, 4, Map.of("SleepForever", 1));
+        Task<Serializable> sleep1 = new Task<>(TestFactory.SleepForever.class.getName(), User.local(), Map.of());
+        Task<Serializable> sleep2 = new Task<>(TestFactory.SleepForever.class.getName(), User.local(), Map.of());
+        Task<Serializable> hello = new Task<>(TestFactory.HelloWorld.class.getName(), User.local(), Map.of("greeted", "world"));
+        Mockito.when(supplier.get(ArgumentMatchers.anyInt(), ArgumentMatchers.any())).thenReturn(sleep1, sleep2, hello, null);
+        CountDownLatch sleep1Started = whenTaskHasStarted(sleep1.id);
+
+        Thread appThread = new Thread(app::call);
+        appThread.start();
+        sleep1Started.await();
+        verify(supplier, timeout(TaskWorkerLoop.BUDGET_WAIT_MILLIS / 2)).result(eq(hello.id), eq("Hello world!"));
+        verify(supplier, never()).requeue(any());
+
+        app.cancel(null, false);
+        app.close();
+        appThread.join();
+
+        verify(supplier).requeue(eq(sleep2));
+        verify(supplier, never()).canceled(eq(sleep2), anyBoolean());
+    }
+
+    @Test(timeout = 5000)
+    public void test_concurrent_loop_runs_held_task_when_budget_is_released() throws Exception {
+        TaskWorkerLoop app = new TaskWorkerLoop(registry, supplier, new CountDownLatch(1), 100, 2, Map.of("HelloWorld", 1));
+        Task<Serializable> task1 = new Task<>(TestFactory.HelloWorld.class.getName(), User.local(), Map.of("greeted", "world"));
+        Task<Serializable> task2 = new Task<>(TestFactory.HelloWorld.class.getName(), User.local(), Map.of("greeted", "you"));
+        Mockito.when(supplier.get(ArgumentMatchers.anyInt(), ArgumentMatchers.any())).thenReturn(task1, task2, null);
+
+        Thread appThread = new Thread(app::call);
+        appThread.start();
+        verify(supplier, timeout(2000)).result(eq(task2.id), eq("Hello you!"));
+        app.close();
+        appThread.join();
+
+        verify(supplier).result(eq(task1.id), eq("Hello world!"));
+        verify(supplier, never()).requeue(any());
+    }
+
+    @Test(timeout = 5000)
+    public void test_concurrent_loop_requeues_held_tasks_in_order_when_workers_are_held() throws Exception {
+        TaskWorkerLoop app = new TaskWorkerLoop(registry, supplier, new CountDownLatch(1), 100, 2, Map.of("SleepForever", 1));
+        Task<Serializable> task1 = new Task<>(TestFactory.SleepForever.class.getName(), User.local(), Map.of());
+        Task<Serializable> task2 = new Task<>(TestFactory.SleepForever.class.getName(), User.local(), Map.of());
+        Task<Serializable> task3 = new Task<>(TestFactory.SleepForever.class.getName(), User.local(), Map.of());
+        Mockito.when(supplier.get(ArgumentMatchers.anyInt(), ArgumentMatchers.any())).thenReturn(task1, task2, task3, null);
+
+        Thread appThread = new Thread(app::call);
+        appThread.start();
+        InOrder inOrder = inOrder(supplier);
+        inOrder.verify(supplier, timeout(2000)).requeue(eq(task3));
+        inOrder.verify(supplier).requeue(eq(task2));
+
+        app.cancel(null, false);
+        app.close();
+        appThread.join();
+    }
+
+    @Test
+    public void test_parse_budgets() {
+        assertThat(TaskWorkerLoop.parseBudgets("")).isEmpty();
+        assertThat(TaskWorkerLoop.parseBudgets("BatchDownloadRunner=2, BatchSearchRunner = 8")).isEqualTo(Map.of("BatchDownloadRunner", 2, "BatchSearchRunner", 8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_parse_budgets_without_number() {
+        TaskWorkerLoop.parseBudgets("BatchDownloadRunner");
+    }
+
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
@@ -1,12 +1,138 @@
 package org.icij.datashare.asynctasks.bus.amqp;
 
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmCallback;
+import org.icij.datashare.monitoring.MetricRegistry;
+import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class AmqpChannelTest {
+    private final Channel rabbitMqChannel = mock(Channel.class);
+    private final AtomicLong nextSequenceNumber = new AtomicLong(1);
+    private ConfirmCallback ack;
+    private ConfirmCallback nack;
+    private AmqpChannel channel;
+
+    @Before
+    public void setUp() {
+        when(rabbitMqChannel.getNextPublishSeqNo()).thenAnswer(invocation -> nextSequenceNumber.get());
+        ArgumentCaptor<ConfirmCallback> ackCaptor = ArgumentCaptor.forClass(ConfirmCallback.class);
+        ArgumentCaptor<ConfirmCallback> nackCaptor = ArgumentCaptor.forClass(ConfirmCallback.class);
+        channel = new AmqpChannel(rabbitMqChannel, AmqpQueue.MANAGER_EVENT, new MetricRegistry());
+        verify(rabbitMqChannel).addConfirmListener(ackCaptor.capture(), nackCaptor.capture());
+        ack = ackCaptor.getValue();
+        nack = nackCaptor.getValue();
+    }
+
+    @Test
+    public void test_publish_keeps_message_until_ack() throws Exception {
+        publish(new ProgressEvent("taskId", 0.5));
+
+        assertThat(channel.getUnconfirmedCount()).isEqualTo(1);
+        assertThat(channel.waitForConfirms(10)).isFalse();
+
+        ack.handle(1, false);
+
+        assertThat(channel.getUnconfirmedCount()).isEqualTo(0);
+        assertThat(channel.waitForConfirms(10)).isTrue();
+    }
+
+    @Test
+    public void test_multiple_ack_confirms_previous_messages() throws Exception {
+        publish(new ProgressEvent("taskId", 0.1));
+        publish(new ProgressEvent("taskId", 0.2));
+        publish(new ProgressEvent("taskId", 0.3));
+
+        ack.handle(2, true);
+
+        assertThat(channel.getUnconfirmedCount()).isEqualTo(1);
+        ack.handle(3, false);
+        assertThat(channel.waitForConfirms(10)).isTrue();
+    }
+
+    @Test
+    public void test_nack_publishes_message_again() throws Exception {
+        ProgressEvent event = new ProgressEvent("taskId", 0.5);
+        publish(event);
+
+        nack.handle(1, false);
+
+        verify(rabbitMqChannel, timeout(1000).times(2)).basicPublish(eq(AmqpQueue.MANAGER_EVENT.exchange), eq(AmqpQueue.MANAGER_EVENT.routingKey), any(), eq(event.serialize()));
+        assertThat(channel.waitForConfirms(10)).isFalse();
+
+        ack.handle(2, false);
+
+        assertThat(channel.waitForConfirms(10)).isTrue();
+        assertThat(channel.getFailedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_nack_gives_up_after_max_attempts() throws Exception {
+        publish(new ProgressEvent("taskId", 0.5));
+
+        for (int sequenceNumber = 1; sequenceNumber <= AmqpChannel.MAX_PUBLISH_ATTEMPTS; sequenceNumber++) {
+            verify(rabbitMqChannel, timeout(1000).times(sequenceNumber)).basicPublish(any(), any(), any(), any());
+            // set before the nack: the message is published again by the resend thread with the next sequence number
+            nextSequenceNumber.set(sequenceNumber + 1);
+            nack.handle(sequenceNumber, false);
+        }
+
+        verify(rabbitMqChannel, times(AmqpChannel.MAX_PUBLISH_ATTEMPTS)).basicPublish(any(), any(), any(), any());
+        assertThat(channel.getFailedCount()).isEqualTo(1);
+        assertThat(channel.waitForConfirms(10)).isTrue();
+    }
+
+    @Test
+    public void test_nack_does_not_wait_for_publishers() throws Exception {
+        ProgressEvent event = new ProgressEvent("taskId", 0.5);
+        publish(event);
+
+        Thread confirmThread = new Thread(() -> {
+            try {
+                nack.handle(1, false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        synchronized (rabbitMqChannel) {
+            confirmThread.start();
+            confirmThread.join(1000);
+            assertThat(confirmThread.isAlive()).isFalse();
+        }
+        verify(rabbitMqChannel, timeout(1000).times(2)).basicPublish(any(), any(), any(), eq(event.serialize()));
+    }
+
+    @Test
+    public void test_nack_after_close_gives_up() throws Exception {
+        publish(new ProgressEvent("taskId", 0.5));
+        channel.close();
+
+        nack.handle(1, false);
+
+        assertThat(channel.getFailedCount()).isEqualTo(1);
+        assertThat(channel.waitForConfirms(10)).isTrue();
+    }
+
+    private void publish(Event event) throws Exception {
+        channel.publish(event);
+        nextSequenceNumber.incrementAndGet();
+    }
+
     @Test
     public void test_get_hostname() {
         String hostname = AmqpChannel.getHostname();